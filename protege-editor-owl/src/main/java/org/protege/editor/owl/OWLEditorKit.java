@@ -4,8 +4,10 @@ import com.google.common.base.Optional;
 import org.osgi.framework.ServiceRegistration;
 import org.protege.editor.core.BookMarkedURIManager;
 import org.protege.editor.core.Disposable;
+import org.protege.editor.core.ProtegeApplication;
 import org.protege.editor.core.editorkit.*;
 import org.protege.editor.core.log.LogBanner;
+import org.protege.editor.core.ui.progress.BackgroundTask;
 import org.protege.editor.core.ui.error.ErrorLogPanel;
 import org.protege.editor.core.util.StringAbbreviator;
 import org.protege.editor.owl.model.OWLModelManager;
@@ -25,6 +27,8 @@ import org.protege.editor.owl.ui.error.OntologyLoadErrorHandlerUI;
 import org.protege.editor.owl.ui.explanation.ExplanationManager;
 import org.protege.editor.owl.ui.ontology.OntologyPreferences;
 import org.protege.editor.owl.ui.ontology.imports.missing.MissingImportHandlerUI;
+import org.protege.editor.owl.ui.util.ProgressDialog;
+import org.protege.editor.owl.ui.util.ProgressDialogProgressMonitor;
 import org.semanticweb.owlapi.formats.PrefixDocumentFormat;
 import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
 import org.semanticweb.owlapi.model.*;
@@ -38,6 +42,10 @@ import javax.swing.*;
 import java.io.File;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Author: Matthew Horridge<br>
@@ -69,16 +77,18 @@ public class OWLEditorKit extends AbstractEditorKit<OWLEditorKitFactory> {
     private final ServiceRegistration<?> registration;
 
     private final OWLOntologyChangeListener ontologyChangeListener = changes -> modifiedDocument = true;
-    private final OWLOntologyChangeListener ontologyChangeListenerToNeo4j;
+    private final OntologyChangeListenerToNeo4j ontologyChangeListenerToNeo4j;
     private final IOListener ioListenerToNeo4j;
 
     private final SearchManagerSelector searchManagerSelector;
 
     private boolean modifiedDocument = false;
-    private boolean shouldNotifyListeners = true;
+    private volatile boolean shouldNotifyListeners = true;
 
     private final Neo4jManager neo4jManager;
 
+    private final Neo4jWritePipeline neo4jWritePipeline;
+
     private EventProcessor eventProcessor;
     private OWLOntologyID ontologyID;
 
@@ -109,15 +119,17 @@ public class OWLEditorKit extends AbstractEditorKit<OWLEditorKitFactory> {
         neo4jManager = new Neo4jManager(config);
         neo4jManager.connect();
 
-        ontologyChangeListenerToNeo4j = new OntologyChangeListenerToNeo4j(neo4jManager.getSession(), value -> {
+        neo4jWritePipeline = new Neo4jWritePipeline(neo4jManager);
+
+        ontologyChangeListenerToNeo4j = new OntologyChangeListenerToNeo4j(neo4jWritePipeline, values -> {
             if (eventProcessor == null) {
                 OWLOntologyManager ontologyManager = modelManager.getOWLOntologyManager();
                 eventProcessor = new EventProcessor(ontologyManager, ontologyManager.getOntology(ontologyID));
             }
-            eventProcessor.process(value);
+            eventProcessor.processAll(values);
         }, () -> shouldNotifyListeners);
 
-        ioListenerToNeo4j = new IOListenerToNeo4j(neo4jManager);
+        ioListenerToNeo4j = new IOListenerToNeo4j(neo4jWritePipeline);
         modelManager.addOntologyChangeListener(ontologyChangeListenerToNeo4j);
         modelManager.addIOListener(ioListenerToNeo4j);
 
@@ -253,13 +265,47 @@ public class OWLEditorKit extends AbstractEditorKit<OWLEditorKitFactory> {
 
         shouldNotifyListeners = false;
 
-        Neo4jToOwlMapper.run(neo4jManager.getSession(), owlOntologyManager, iriOptional.get());
-
-        shouldNotifyListeners = true;
+        BackgroundTask importTask = ProtegeApplication.getBackgroundTaskManager().startTask("Importing graph");
+        try {
+            importGraph(owlOntologyManager, iriOptional.get());
+        } finally {
+            ProtegeApplication.getBackgroundTaskManager().endTask(importTask);
+            shouldNotifyListeners = true;
+        }
 
         return true;
     }
 
+    /**
+     * Imports the graph on a background thread, which also applies the imported changes, while a modal progress
+     * dialog shows how far the import has got.
+     */
+    private void importGraph(OWLOntologyManager owlOntologyManager, IRI iri) throws Exception {
+        ProgressDialog dlg = new ProgressDialog();
+        dlg.setMessage("Importing graph");
+        ExecutorService importService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Neo4j Graph Import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<?> future = importService.submit(() -> {
+            try {
+                Neo4jToOwlMapper.run(neo4jManager, owlOntologyManager, iri, new ProgressDialogProgressMonitor(dlg));
+                return null;
+            } finally {
+                dlg.setVisible(false);
+            }
+        });
+        importService.shutdown();
+        dlg.setVisible(true);
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
     private static RDFXMLDocumentFormat createDefaultDocumentFormat(OWLOntologyID id) {
         return id.getOntologyIRI().transform(iri -> {
             String emptyPrefix = iri + "/";
@@ -292,24 +338,18 @@ public class OWLEditorKit extends AbstractEditorKit<OWLEditorKitFactory> {
                     ontologiesToSave.add(dirtyOntology);
                 }
             }
-            Map<OWLOntology, OWLOntologyStorageException> saveErrors = new LinkedHashMap<>();
             for (OWLOntology ontology : ontologiesToSaveAs) {
-                try {
-                    if (!handleSaveAs(ontology)) {
-                        // SaveAs aborted.  Abort all?
-                        return;
-                    }
-                } catch (OWLOntologyStorageException e) {
-                    //noinspection ThrowableResultOfMethodCallIgnored
-                    saveErrors.put(ontology, e);
+                if (!chooseSaveAsLocation(ontology)) {
+                    // SaveAs aborted.  Abort all?
+                    return;
                 }
             }
-            for (OWLOntology ontology : ontologiesToSave) {
-                try {
-                    getOWLModelManager().save(ontology);
-                } catch (OWLOntologyStorageException e) {
-                    //noinspection ThrowableResultOfMethodCallIgnored
-                    saveErrors.put(ontology, e);
+            ontologiesToSave.addAll(ontologiesToSaveAs);
+            // Saved together so that the ontologies are written concurrently
+            Map<OWLOntology, OWLOntologyStorageException> saveErrors = getOWLModelManager().save(ontologiesToSave);
+            for (OWLOntology ontology : ontologiesToSaveAs) {
+                if (!saveErrors.containsKey(ontology)) {
+                    addRecent(getModelManager().getOWLOntologyManager().getOntologyDocumentIRI(ontology).toURI());
                 }
             }
             getWorkspace().save();
@@ -362,6 +402,22 @@ public class OWLEditorKit extends AbstractEditorKit<OWLEditorKitFactory> {
      * @throws OWLOntologyStorageException if there was a problem saving the ontology.
      */
     private boolean handleSaveAs(@Nonnull OWLOntology ont) throws OWLOntologyStorageException {
+        if (!chooseSaveAsLocation(ont)) {
+            return false;
+        }
+        getModelManager().save(ont);
+        addRecent(getModelManager().getOWLOntologyManager().getOntologyDocumentIRI(ont).toURI());
+        return true;
+    }
+
+    /**
+     * Asks the user for the format and location in which to save the specified ontology, and sets them as the
+     * ontology's format and document IRI.
+     *
+     * @param ont the ontology to save.
+     * @return {@code true} if a format and location were chosen, or {@code false} if the user cancelled.
+     */
+    private boolean chooseSaveAsLocation(@Nonnull OWLOntology ont) {
         OWLOntologyManager man = getModelManager().getOWLOntologyManager();
         OWLDocumentFormat oldFormat = man.getOntologyFormat(ont);
         java.util.Optional<OWLDocumentFormat> format = OntologyFormatPanel.showDialog(this, oldFormat, String.format("<html><body>" + "<div>Choose a format to use when saving the <span style='font-weight: bold;'>'%s'</span> ontology.</div>" + "<div style='padding-top: 20px; color: gray'; width: 150px;>" + "(If you are unsure as to what format to choose, " + "we recommend that you use the standard RDF/XML format, " + "or a widely supported format such as Turtle)</div>" + "</body></html>", getModelManager().getRendering(ont)));
@@ -382,8 +438,6 @@ public class OWLEditorKit extends AbstractEditorKit<OWLEditorKitFactory> {
         if (file != null) {
             man.setOntologyFormat(ont, format.get());
             man.setOntologyDocumentIRI(ont, IRI.create(file));
-            getModelManager().save(ont);
-            addRecent(file.toURI());
             return true;
         } else {
             return false;
@@ -454,6 +508,13 @@ public class OWLEditorKit extends AbstractEditorKit<OWLEditorKitFactory> {
         getModelManager().removeOntologyChangeListener(ontologyChangeListener);
         getModelManager().removeOntologyChangeListener(ontologyChangeListenerToNeo4j);
         getModelManager().removeIOListener(ioListenerToNeo4j);
+        try {
+            ontologyChangeListenerToNeo4j.close();
+        } catch (Exception e) {
+            logger.warn("Error whilst closing the sync client: {}", e.getMessage());
+        }
+        neo4jWritePipeline.close();
+        neo4jManager.close();
         super.dispose();
 
         searchManagerSelector.getCurrentSearchManager().dispose();
@@ -4,6 +4,7 @@ import org.protege.editor.core.ModelManager;
 import org.protege.editor.owl.model.entity.OWLEntityFactory;
 import org.protege.editor.owl.model.event.EventType;
 import org.protege.editor.owl.model.event.OWLModelManagerListener;
+import org.protege.editor.owl.model.event.OntologyChangeListenerTier;
 import org.protege.editor.owl.model.find.OWLEntityFinder;
 import org.protege.editor.owl.model.hierarchy.OWLHierarchyManager;
 import org.protege.editor.owl.model.history.HistoryManager;
@@ -29,6 +30,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -97,6 +99,15 @@ public interface OWLModelManager extends ModelManager, HasActiveOntology {
      */
     void save(OWLOntology ont) throws OWLOntologyStorageException;
 
+    /**
+     * Saves the specified ontologies together, so that they can be written concurrently.  An ontology that cannot be
+     * saved does not stop the others from being saved.
+     * @param ontologies the ontologies to save
+     * @return the ontologies that could not be saved, mapped to the errors that occurred whilst saving them.  Empty
+     * if all of the ontologies were saved.
+     */
+    Map<OWLOntology, OWLOntologyStorageException> save(Set<OWLOntology> ontologies);
+
     /**
      * Checks if the ontology has been changed since it was loaded or last saved.
      * @param ontology
@@ -230,11 +241,22 @@ public interface OWLModelManager extends ModelManager, HasActiveOntology {
     /**
      * Adds an ontology history listener.  The listener will be notified of
      * any changes to any of the ontologies that are managed by this model
-     * manager.
+     * manager.  The listeners that are added here are called in the order in
+     * which they were added, but in no particular order relative to listeners
+     * that are added directly to the OWL ontology manager.
      */
     void addOntologyChangeListener(OWLOntologyChangeListener listener);
 
 
+    /**
+     * Adds an ontology change listener that is notified in a given tier.  Listeners that are added without a tier
+     * are in the {@link OntologyChangeListenerTier#MODEL} tier.
+     */
+    default void addOntologyChangeListener(OWLOntologyChangeListener listener, OntologyChangeListenerTier tier) {
+        addOntologyChangeListener(listener);
+    }
+
+
     /**
      * Removes a previously added listener.
      */
@@ -15,6 +15,8 @@ import org.protege.editor.owl.model.entity.OWLEntityFactory;
 import org.protege.editor.owl.model.event.EventType;
 import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
 import org.protege.editor.owl.model.event.OWLModelManagerListener;
+import org.protege.editor.owl.model.event.OntologyChangeDispatcher;
+import org.protege.editor.owl.model.event.OntologyChangeListenerTier;
 import org.protege.editor.owl.model.find.OWLEntityFinder;
 import org.protege.editor.owl.model.find.OWLEntityFinderImpl;
 import org.protege.editor.owl.model.hierarchy.OWLHierarchyManager;
@@ -112,6 +114,8 @@ public class OWLModelManagerImpl extends AbstractModelManager implements OWLMode
 
     private final ListenerManager<OWLOntologyChangeListener> changeListenerManager = new ListenerManager<>();
 
+    private final OntologyChangeDispatcher changeDispatcher = new OntologyChangeDispatcher();
+
     private final List<IOListener> ioListeners = new ArrayList<>();
 
     private final ActiveOntologyIdRangesPolicyManager idRangesPolocyManager;
@@ -156,6 +160,8 @@ public class OWLModelManagerImpl extends AbstractModelManager implements OWLMode
 
         manager = OntologyManagerFactory.createManager();
         manager.addOntologyChangeListener(this);
+        manager.addOntologyChangeListener(changeDispatcher);
+        changeDispatcher.registerMBean(Integer.toHexString(System.identityHashCode(this)));
         objectRenderer = new OWLObjectRendererImpl(this);
         prefixedNameRenderer = PrefixedNameRenderer.builder().withOwlPrefixes().withWellKnownPrefixes().build();
         owlEntityRenderingCache = new OWLEntityRenderingCacheImpl();
@@ -261,6 +267,9 @@ public class OWLModelManagerImpl extends AbstractModelManager implements OWLMode
                 entityRenderer.dispose();
             }
             owlReasonerManager.dispose();
+            manager.removeOntologyChangeListener(changeDispatcher);
+            changeDispatcher.dispose();
+            historyManager.dispose();
         } catch(Exception e) {
             logger.error("An error occurred whilst disposing of the model manager: {}", e.getMessage(), e);
         }
@@ -566,45 +575,67 @@ public class OWLModelManagerImpl extends AbstractModelManager implements OWLMode
                 dirtyOntologies.remove(ontId);
             }
         }
-        for(OWLOntology ontology : ontologiesToSave) {
-            save(ontology);
+        Map<OWLOntology, OWLOntologyStorageException> errors = save(ontologiesToSave);
+        if(!errors.isEmpty()) {
+            throw errors.values().iterator().next();
         }
-
     }
 
     public void save(OWLOntology ont) throws OWLOntologyStorageException {
-        final URI documentURI = manager.getOntologyDocumentIRI(ont).toURI();
-
-        fireBeforeSaveEvent(ont.getOntologyID(), documentURI);
-
-
-        final OWLDocumentFormat format;
-        final OWLDocumentFormat previousFormat = manager.getOntologyFormat(ont);
-        if(previousFormat == null) {
-            format = new RDFXMLDocumentFormat();
-            logger.info("No document format for {} has been found.  " + "Using the {} format.", ont.getOntologyID(), format);
-        }
-        else {
-            format = previousFormat;
+        Map<OWLOntology, OWLOntologyStorageException> errors = save(Collections.singleton(ont));
+        if(!errors.isEmpty()) {
+            throw errors.get(ont);
         }
-        /*
-         * Using the addMissingTypes call here for RDF/XML files can result in OWL Full output
-         * and can also result in data corruption.
-         *
-         * See http://protegewiki.stanford.edu/wiki/OWL2RDFParserDeclarationRequirement
-         */
-        IRI documentIRI = IRI.create(documentURI);
-        OntologySaver saver = OntologySaver.builder().addOntology(ont, format, documentIRI).build();
-        saver.saveOntologies();
+    }
 
-        manager.setOntologyDocumentIRI(ont, documentIRI);
-        logger.info("Saved ontology {} to {} in {} format", ont.getOntologyID(), documentIRI, format);
+    public Map<OWLOntology, OWLOntologyStorageException> save(Set<OWLOntology> ontologies) {
+        // One saver for all of the ontologies, so that they are written concurrently
+        OntologySaver.Builder saverBuilder = OntologySaver.builder();
+        Map<OWLOntology, URI> documentURIs = new LinkedHashMap<>();
+        for(OWLOntology ont : ontologies) {
+            final URI documentURI = manager.getOntologyDocumentIRI(ont).toURI();
+            documentURIs.put(ont, documentURI);
 
-        dirtyOntologies.remove(ont.getOntologyID());
+            fireBeforeSaveEvent(ont.getOntologyID(), documentURI);
 
-        fireEvent(EventType.ONTOLOGY_SAVED);
-        fireAfterSaveEvent(ont.getOntologyID(), documentURI);
+            final OWLDocumentFormat format;
+            final OWLDocumentFormat previousFormat = manager.getOntologyFormat(ont);
+            if(previousFormat == null) {
+                format = new RDFXMLDocumentFormat();
+                logger.info("No document format for {} has been found.  " + "Using the {} format.", ont.getOntologyID(), format);
+            }
+            else {
+                format = previousFormat;
+            }
+            /*
+             * Using the addMissingTypes call here for RDF/XML files can result in OWL Full output
+             * and can also result in data corruption.
+             *
+             * See http://protegewiki.stanford.edu/wiki/OWL2RDFParserDeclarationRequirement
+             */
+            saverBuilder.addOntology(ont, format, IRI.create(documentURI));
+        }
+        if(documentURIs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<OWLOntology, OWLOntologyStorageException> errors = saverBuilder.build().saveEachOntology();
+
+        for(Map.Entry<OWLOntology, URI> entry : documentURIs.entrySet()) {
+            OWLOntology ont = entry.getKey();
+            if(errors.containsKey(ont)) {
+                continue;
+            }
+            URI documentURI = entry.getValue();
+            IRI documentIRI = IRI.create(documentURI);
+            manager.setOntologyDocumentIRI(ont, documentIRI);
+            logger.info("Saved ontology {} to {} in {} format", ont.getOntologyID(), documentIRI, manager.getOntologyFormat(ont));
+
+            dirtyOntologies.remove(ont.getOntologyID());
 
+            fireEvent(EventType.ONTOLOGY_SAVED);
+            fireAfterSaveEvent(ont.getOntologyID(), documentURI);
+        }
+        return errors;
     }
 
     @Override
@@ -764,10 +795,23 @@ public class OWLModelManagerImpl extends AbstractModelManager implements OWLMode
     }
 
     public void addOntologyChangeListener(OWLOntologyChangeListener listener) {
-        manager.addOntologyChangeListener(listener);
+        addOntologyChangeListener(listener, OntologyChangeListenerTier.MODEL);
+    }
+
+    @Override
+    public void addOntologyChangeListener(OWLOntologyChangeListener listener, OntologyChangeListenerTier tier) {
+        changeDispatcher.addListener(listener, tier);
         changeListenerManager.recordListenerAdded(listener);
     }
 
+    /**
+     * Gets the dispatcher that passes ontology changes on to the listeners that are added to this model manager,
+     * which records the time that each listener takes.
+     */
+    public OntologyChangeDispatcher getOntologyChangeDispatcher() {
+        return changeDispatcher;
+    }
+
 
     //////////////////////////////////////////////////////////////////////////////////////
     //
@@ -776,7 +820,7 @@ public class OWLModelManagerImpl extends AbstractModelManager implements OWLMode
     //////////////////////////////////////////////////////////////////////////////////////
 
     public void removeOntologyChangeListener(OWLOntologyChangeListener listener) {
-        manager.removeOntologyChangeListener(listener);
+        changeDispatcher.removeListener(listener);
         changeListenerManager.recordListenerRemoved(listener);
     }
 
@@ -874,7 +918,7 @@ public class OWLModelManagerImpl extends AbstractModelManager implements OWLMode
     public void renderingChanged(OWLEntity entity,
                                  final OWLModelManagerEntityRenderer renderer) {
         owlEntityRenderingCache.updateRendering(entity);
-        owlObjectRenderingCache.clear();
+        owlObjectRenderingCache.invalidate(entity);
         // We should inform listeners
         for(OWLModelManagerListener listener : new ArrayList<>(modelManagerChangeListeners)) {
             listener.handleChange(new OWLModelManagerChangeEvent(this, EventType.ENTITY_RENDERING_CHANGED));
@@ -80,6 +80,15 @@ public interface OWLEntityRenderingCache extends Disposable {
 
     Set<String> getOWLEntityRenderings();
 
+    /**
+     * Gets the renderings of entities of a given type that start with a prefix, ignoring case.  The renderings are
+     * looked up in a sorted index, so this is much cheaper than filtering the complete set of renderings.
+     * @param prefix The prefix.
+     * @param type The type of entity.  {@link OWLEntity} gets the renderings of entities of any type.
+     * @return The renderings that start with the prefix.
+     */
+    Set<String> getOWLEntityRenderingsWithPrefix(String prefix, Class<? extends OWLEntity> type);
+
 
     String getRendering(OWLEntity owlEntity);
 }
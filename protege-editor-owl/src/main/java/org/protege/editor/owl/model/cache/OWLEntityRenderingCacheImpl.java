@@ -1,17 +1,26 @@
 package org.protege.editor.owl.model.cache;
 
-import com.google.common.collect.*;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
 import org.protege.editor.owl.model.OWLModelManager;
+import org.protege.editor.owl.model.classexpression.anonymouscls.AnonymousDefinedClassManager;
 import org.protege.editor.owl.model.util.OWLDataTypeUtils;
+import org.protege.editor.owl.ui.renderer.OWLModelManagerEntityRenderer;
 import org.semanticweb.owlapi.model.*;
 import org.semanticweb.owlapi.model.parameters.Imports;
 import org.semanticweb.owlapi.search.EntitySearcher;
 import org.semanticweb.owlapi.vocab.DublinCoreVocabulary;
 import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 /**
@@ -25,19 +34,21 @@ import java.util.*;
  */
 public class OWLEntityRenderingCacheImpl implements OWLEntityRenderingCache {
 
-    private final Multimap<String, OWLClass> owlClassMap = ArrayListMultimap.create(16, 1);
+    private final Logger logger = LoggerFactory.getLogger(OWLEntityRenderingCacheImpl.class);
 
-    private final Multimap<String, OWLObjectProperty> owlObjectPropertyMap = ArrayListMultimap.create(16, 1);
+    /**
+     * Maps each rendering to the entity, or to an array of the entities, that have it.  Entities of every type share
+     * this map and the typed lookups filter its values, which avoids keeping a separate multimap per entity type.
+     * The renderings of each type are kept in a {@link RenderingPrefixIndex}, which also provides the typed rendering
+     * sets.  Entities with the same rendering share one instance of the rendering string.
+     */
+    private final Map<String, Object> entitiesByRendering = new HashMap<>();
 
-    private final Multimap<String, OWLDataProperty> owlDataPropertyMap = ArrayListMultimap.create(16, 1);
-
-    private final Multimap<String, OWLAnnotationProperty> owlAnnotationPropertyMap = ArrayListMultimap.create(16, 1);
-
-    private final Multimap<String, OWLNamedIndividual> owlIndividualMap = ArrayListMultimap.create(16, 1);
+    private final Map<OWLEntity, String> entityRenderingMap = new HashMap<>();
 
-    private final Multimap<String, OWLDatatype> owlDatatypeMap = ArrayListMultimap.create(16, 1);
+    private final Map<EntityType<?>, RenderingPrefixIndex> prefixIndexes = new HashMap<>();
 
-    private final Map<OWLEntity, String> entityRenderingMap = new HashMap<>();
+    private final Map<EntityType<?>, Set<String>> renderingViews = new HashMap<>();
 
     private final OWLOntologyChangeListener listener = this::processChanges;
 
@@ -50,7 +61,10 @@ public class OWLEntityRenderingCacheImpl implements OWLEntityRenderingCache {
 
 
     public OWLEntityRenderingCacheImpl() {
-
+        for (EntityType<?> type : EntityType.values()) {
+            prefixIndexes.put(type, new RenderingPrefixIndex());
+            renderingViews.put(type, prefixIndexes.get(type).asSet());
+        }
     }
 
 
@@ -69,53 +83,84 @@ public class OWLEntityRenderingCacheImpl implements OWLEntityRenderingCache {
     }
 
 
+    /**
+     * Rebuilds the cache.  The signatures of the ontologies are gathered in parallel, one task per ontology and
+     * entity type, and the entities are then rendered in parallel before they are added to the cache in the order
+     * in which they were gathered.
+     */
     public void rebuild() {
+        Stopwatch stopwatch = Stopwatch.createStarted();
         clear();
-        owlModelManager.getOWLEntityRenderer();
-        OWLDataFactory factory = owlModelManager.getOWLDataFactory();
-        
-        addRendering(factory.getOWLThing(), owlClassMap);
-        addRendering(factory.getOWLNothing(), owlClassMap);
-        addRendering(factory.getOWLTopObjectProperty(), owlObjectPropertyMap);
-        addRendering(factory.getOWLBottomObjectProperty(), owlObjectPropertyMap);
-        addRendering(factory.getOWLTopDataProperty(), owlDataPropertyMap);
-        addRendering(factory.getOWLBottomDataProperty(), owlDataPropertyMap);
+        OWLModelManagerEntityRenderer renderer = owlModelManager.getOWLEntityRenderer();
 
+        List<Supplier<Collection<? extends OWLEntity>>> partitions = new ArrayList<>();
+        partitions.add(this::getBuiltInEntities);
         for (OWLOntology ont : owlModelManager.getOntologies()) {
-            for (OWLClass cls : ont.getClassesInSignature()) {
-                addRendering(cls, owlClassMap);
-            }
-            for (OWLObjectProperty prop : ont.getObjectPropertiesInSignature()) {
-                addRendering(prop, owlObjectPropertyMap);
-            }
-            for (OWLDataProperty prop : ont.getDataPropertiesInSignature()) {
-                addRendering(prop, owlDataPropertyMap);
-            }
-            for (OWLIndividual ind : ont.getIndividualsInSignature()) {
-                if (!ind.isAnonymous()){
-                    addRendering(ind.asOWLNamedIndividual(), owlIndividualMap);
-                }
-            }
-            for (OWLAnnotationProperty prop : ont.getAnnotationPropertiesInSignature()) {
-                addRendering(prop, owlAnnotationPropertyMap);
+            partitions.add(ont::getClassesInSignature);
+            partitions.add(ont::getObjectPropertiesInSignature);
+            partitions.add(ont::getDataPropertiesInSignature);
+            partitions.add(ont::getIndividualsInSignature);
+            partitions.add(ont::getAnnotationPropertiesInSignature);
+        }
+        partitions.add(this::getStandardAnnotationPropertiesAndDatatypes);
+        List<Collection<? extends OWLEntity>> signatures = partitions.parallelStream()
+                .map(Supplier::get)
+                .collect(Collectors.toList());
+
+        Set<OWLEntity> distinctEntities = new LinkedHashSet<>();
+        signatures.forEach(distinctEntities::addAll);
+        OWLEntity[] entities = distinctEntities.toArray(new OWLEntity[distinctEntities.size()]);
+        String[] renderings = new String[entities.length];
+        AnonymousDefinedClassManager adcManager = owlModelManager.get(AnonymousDefinedClassManager.ID);
+        IntStream.range(0, entities.length).parallel().forEach(i -> {
+            // Anonymous classes are rendered through the object rendering cache, which is not thread safe
+            if (adcManager == null || !entities[i].isOWLClass() || !adcManager.isAnonymous(entities[i].asOWLClass())) {
+                renderings[i] = renderer.render(entities[i]);
             }
+        });
+        for (int i = 0; i < entities.length; i++) {
+            String rendering = renderings[i] != null ? renderings[i] : owlModelManager.getRendering(entities[i]);
+            addRendering(entities[i], rendering);
         }
 
-        // standard annotation properties        
+        stopwatch.stop();
+        Runtime runtime = Runtime.getRuntime();
+        logger.info("Rebuilt entity rendering cache for {} entities ({} distinct renderings) in {} ms.  Heap in use: {} MB",
+                entityRenderingMap.size(),
+                entitiesByRendering.size(),
+                stopwatch.elapsed(TimeUnit.MILLISECONDS),
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+    }
+
+
+    private Collection<OWLEntity> getBuiltInEntities() {
+        OWLDataFactory factory = owlModelManager.getOWLDataFactory();
+        return Arrays.asList(factory.getOWLThing(),
+                factory.getOWLNothing(),
+                factory.getOWLTopObjectProperty(),
+                factory.getOWLBottomObjectProperty(),
+                factory.getOWLTopDataProperty(),
+                factory.getOWLBottomDataProperty());
+    }
+
+
+    private Collection<OWLEntity> getStandardAnnotationPropertiesAndDatatypes() {
+        OWLDataFactory factory = owlModelManager.getOWLDataFactory();
+        List<OWLEntity> entities = new ArrayList<>();
+        // standard annotation properties
         for (IRI uri : OWLRDFVocabulary.BUILT_IN_ANNOTATION_PROPERTY_IRIS){
-            addRendering(factory.getOWLAnnotationProperty(uri), owlAnnotationPropertyMap);
+            entities.add(factory.getOWLAnnotationProperty(uri));
         }
 
         // Dublin Core
         for(DublinCoreVocabulary vocabulary : DublinCoreVocabulary.values()) {
-            addRendering(factory.getOWLAnnotationProperty(vocabulary.getIRI()), owlAnnotationPropertyMap);
+            entities.add(factory.getOWLAnnotationProperty(vocabulary.getIRI()));
         }
 
         // datatypes
         final OWLDataTypeUtils datatypeUtils = new OWLDataTypeUtils(owlModelManager.getOWLOntologyManager());
-        for (OWLDatatype dt : datatypeUtils.getKnownDatatypes(owlModelManager.getActiveOntologies())) {
-            addRendering(dt, owlDatatypeMap);
-        }
+        entities.addAll(datatypeUtils.getKnownDatatypes(owlModelManager.getActiveOntologies()));
+        return entities;
     }
 
 
@@ -126,22 +171,18 @@ public class OWLEntityRenderingCacheImpl implements OWLEntityRenderingCache {
 
 
     private void clear() {
-        owlClassMap.clear();
-        owlObjectPropertyMap.clear();
-        owlDataPropertyMap.clear();
-        owlAnnotationPropertyMap.clear();
-        owlIndividualMap.clear();
-        owlDatatypeMap.clear();
+        entitiesByRendering.clear();
         entityRenderingMap.clear();
+        prefixIndexes.values().forEach(RenderingPrefixIndex::clear);
     }
 
-    private <E extends OWLEntity> E getFirstEntityOrNull(Multimap<String, E> renderingMap, String rendering) {
-        Collection<E> entities = renderingMap.get(rendering);
+    private <E extends OWLEntity> E getFirstEntityOrNull(String rendering, Class<E> type) {
+        List<E> entities = getEntities(entitiesByRendering.get(rendering), type);
         if(entities.isEmpty()) {
             return null;
         }
         if(entities.size() == 1) {
-            return entities.stream().findFirst().get();
+            return entities.get(0);
         }
         // Choose entity based on whether it is defined in the active ontology
         // and how many axioms define it and how many axioms reference it.  This
@@ -154,43 +195,36 @@ public class OWLEntityRenderingCacheImpl implements OWLEntityRenderingCache {
 
 
     public OWLClass getOWLClass(String rendering) {
-        return getFirstEntityOrNull(owlClassMap, rendering);
+        return getFirstEntityOrNull(rendering, OWLClass.class);
     }
 
     public Set<OWLEntity> getOWLEntities(String rendering) {
-        ImmutableSet.Builder<OWLEntity> builder = ImmutableSet.builder();
-        builder.addAll(owlClassMap.get(rendering));
-        builder.addAll(owlObjectPropertyMap.get(rendering));
-        builder.addAll(owlDataPropertyMap.get(rendering));
-        builder.addAll(owlAnnotationPropertyMap.get(rendering));
-        builder.addAll(owlIndividualMap.get(rendering));
-        builder.addAll(owlDatatypeMap.get(rendering));
-        return builder.build();
+        return ImmutableSet.copyOf(getEntities(entitiesByRendering.get(rendering), OWLEntity.class));
     }
 
 
     public OWLObjectProperty getOWLObjectProperty(String rendering) {
-        return getFirstEntityOrNull(owlObjectPropertyMap, rendering);
+        return getFirstEntityOrNull(rendering, OWLObjectProperty.class);
     }
 
 
     public OWLDataProperty getOWLDataProperty(String rendering) {
-        return getFirstEntityOrNull(owlDataPropertyMap, rendering);
+        return getFirstEntityOrNull(rendering, OWLDataProperty.class);
     }
 
 
     public OWLAnnotationProperty getOWLAnnotationProperty(String rendering) {
-        return getFirstEntityOrNull(owlAnnotationPropertyMap, rendering);
+        return getFirstEntityOrNull(rendering, OWLAnnotationProperty.class);
     }
 
 
     public OWLNamedIndividual getOWLIndividual(String rendering) {
-        return getFirstEntityOrNull(owlIndividualMap, rendering);
+        return getFirstEntityOrNull(rendering, OWLNamedIndividual.class);
     }
 
 
     public OWLDatatype getOWLDatatype(String rendering) {
-        return getFirstEntityOrNull(owlDatatypeMap, rendering);
+        return getFirstEntityOrNull(rendering, OWLDatatype.class);
     }
 
 
@@ -231,73 +265,67 @@ public class OWLEntityRenderingCacheImpl implements OWLEntityRenderingCache {
 
 
     public void addRendering(OWLEntity owlEntity) {
-        owlEntity.accept(new OWLEntityVisitor() {
-            public void visit(@Nonnull OWLDataProperty entity) {
-                addRendering(entity, owlDataPropertyMap);
-            }
-
-            public void visit(@Nonnull OWLObjectProperty entity) {
-                addRendering(entity, owlObjectPropertyMap);
-            }
-
-            public void visit(@Nonnull OWLAnnotationProperty owlAnnotationProperty) {
-                addRendering(owlAnnotationProperty, owlAnnotationPropertyMap);
-            }
-
-            public void visit(@Nonnull OWLNamedIndividual entity) {
-                addRendering(entity, owlIndividualMap);
-            }
-
-            public void visit(@Nonnull OWLClass entity) {
-                addRendering(entity, owlClassMap);
-            }
-
-            public void visit(@Nonnull OWLDatatype entity) {
-                addRendering(entity, owlDatatypeMap);
-            }
-        });
+        if (!entityRenderingMap.containsKey(owlEntity)) {
+            addRendering(owlEntity, owlModelManager.getRendering(owlEntity));
+        }
     }
 
 
-    private <T extends OWLEntity> void addRendering(T entity, Multimap<String, T> map) {
-        if (!entityRenderingMap.containsKey(entity)) {
-            String rendering = owlModelManager.getRendering(entity);
-            map.put(rendering, entity);
-            entityRenderingMap.put(entity, rendering);
+    private void addRendering(OWLEntity entity, String rendering) {
+        if (entityRenderingMap.containsKey(entity)) {
+            return;
+        }
+        Object existing = entitiesByRendering.get(rendering);
+        if (existing != null) {
+            // Share the instance that is already held rather than keeping an equal copy
+            rendering = entityRenderingMap.get(existing instanceof OWLEntity ? (OWLEntity) existing : ((OWLEntity[]) existing)[0]);
         }
+        if (existing == null) {
+            entitiesByRendering.put(rendering, entity);
+        }
+        else if (existing instanceof OWLEntity) {
+            entitiesByRendering.put(rendering, new OWLEntity[]{(OWLEntity) existing, entity});
+        }
+        else {
+            OWLEntity[] entities = (OWLEntity[]) existing;
+            OWLEntity[] extended = Arrays.copyOf(entities, entities.length + 1);
+            extended[entities.length] = entity;
+            entitiesByRendering.put(rendering, extended);
+        }
+        if (!hasEntityOfType(existing, entity.getEntityType())) {
+            prefixIndexes.get(entity.getEntityType()).add(rendering);
+        }
+        entityRenderingMap.put(entity, rendering);
     }
 
 
     public void removeRendering(OWLEntity owlEntity) {
-        final String oldRendering = entityRenderingMap.get(owlEntity);
-        entityRenderingMap.remove(owlEntity);
-
-        owlEntity.accept(new OWLEntityVisitor() {
-
-            public void visit(@Nonnull OWLClass entity) {
-                owlClassMap.remove(oldRendering, entity);
-            }
-
-            public void visit(@Nonnull OWLDataProperty entity) {
-                owlDataPropertyMap.remove(oldRendering, entity);
-            }
-
-            public void visit(@Nonnull OWLObjectProperty entity) {
-                owlObjectPropertyMap.remove(oldRendering, entity);
-            }
-
-            public void visit(@Nonnull OWLAnnotationProperty entity) {
-                owlAnnotationPropertyMap.remove(oldRendering, entity);
-            }
-
-            public void visit(@Nonnull OWLNamedIndividual entity) {
-                owlIndividualMap.remove(oldRendering, entity);
-            }
-
-            public void visit(@Nonnull OWLDatatype entity) {
-                owlDatatypeMap.remove(oldRendering, entity);
+        final String oldRendering = entityRenderingMap.remove(owlEntity);
+        if (oldRendering == null) {
+            return;
+        }
+        Object existing = entitiesByRendering.get(oldRendering);
+        Object remaining = existing;
+        if (existing instanceof OWLEntity) {
+            if (existing.equals(owlEntity)) {
+                remaining = null;
             }
-        });
+        }
+        else if (existing != null) {
+            OWLEntity[] entities = (OWLEntity[]) existing;
+            List<OWLEntity> retained = new ArrayList<>(Arrays.asList(entities));
+            retained.remove(owlEntity);
+            remaining = retained.size() == 1 ? retained.get(0) : retained.toArray(new OWLEntity[retained.size()]);
+        }
+        if (remaining == null) {
+            entitiesByRendering.remove(oldRendering);
+        }
+        else {
+            entitiesByRendering.put(oldRendering, remaining);
+        }
+        if (!hasEntityOfType(remaining, owlEntity.getEntityType())) {
+            prefixIndexes.get(owlEntity.getEntityType()).remove(oldRendering);
+        }
     }
 
 
@@ -317,51 +345,96 @@ public class OWLEntityRenderingCacheImpl implements OWLEntityRenderingCache {
 
 
     public Set<String> getOWLClassRenderings() {
-        return owlClassMap.keySet();
+        return renderingViews.get(EntityType.CLASS);
     }
 
 
     public Set<String> getOWLObjectPropertyRenderings() {
-        return owlObjectPropertyMap.keySet();
+        return renderingViews.get(EntityType.OBJECT_PROPERTY);
     }
 
 
     public Set<String> getOWLDataPropertyRenderings() {
-        return owlDataPropertyMap.keySet();
+        return renderingViews.get(EntityType.DATA_PROPERTY);
     }
 
 
     public Set<String> getOWLAnnotationPropertyRenderings() {
-        return owlAnnotationPropertyMap.keySet();
+        return renderingViews.get(EntityType.ANNOTATION_PROPERTY);
     }
 
 
     public Set<String> getOWLIndividualRenderings() {
-        return owlIndividualMap.keySet();
+        return renderingViews.get(EntityType.NAMED_INDIVIDUAL);
     }
 
 
     public Set<String> getOWLDatatypeRenderings() {
-        return owlDatatypeMap.keySet();
+        return renderingViews.get(EntityType.DATATYPE);
     }
 
 
-    public Set<String> getOWLEntityRenderings() {
-        Set<String> renderings = new HashSet<>(owlClassMap.size() +
-                                                     owlObjectPropertyMap.size() +
-                                                     owlDataPropertyMap.size() +
-                                                     owlAnnotationPropertyMap.size() +
-                                                     owlIndividualMap.size() +
-                                                     owlDatatypeMap.size());
-        renderings.addAll(owlClassMap.keySet());
-        renderings.addAll(owlObjectPropertyMap.keySet());
-        renderings.addAll(owlDataPropertyMap.keySet());
-        renderings.addAll(owlAnnotationPropertyMap.keySet());
-        renderings.addAll(owlIndividualMap.keySet());
-        renderings.addAll(owlDatatypeMap.keySet());
+    public Set<String> getOWLEntityRenderingsWithPrefix(String prefix, Class<? extends OWLEntity> type) {
+        Set<String> renderings = new HashSet<>();
+        if (OWLClass.class.isAssignableFrom(type)) {
+            prefixIndexes.get(EntityType.CLASS).getRenderingsWithPrefix(prefix, renderings);
+        }
+        else if (OWLObjectProperty.class.isAssignableFrom(type)) {
+            prefixIndexes.get(EntityType.OBJECT_PROPERTY).getRenderingsWithPrefix(prefix, renderings);
+        }
+        else if (OWLDataProperty.class.isAssignableFrom(type)) {
+            prefixIndexes.get(EntityType.DATA_PROPERTY).getRenderingsWithPrefix(prefix, renderings);
+        }
+        else if (OWLNamedIndividual.class.isAssignableFrom(type)) {
+            prefixIndexes.get(EntityType.NAMED_INDIVIDUAL).getRenderingsWithPrefix(prefix, renderings);
+        }
+        else if (OWLAnnotationProperty.class.isAssignableFrom(type)) {
+            prefixIndexes.get(EntityType.ANNOTATION_PROPERTY).getRenderingsWithPrefix(prefix, renderings);
+        }
+        else if (OWLDatatype.class.isAssignableFrom(type)) {
+            prefixIndexes.get(EntityType.DATATYPE).getRenderingsWithPrefix(prefix, renderings);
+        }
+        else {
+            prefixIndexes.values().forEach(index -> index.getRenderingsWithPrefix(prefix, renderings));
+        }
         return renderings;
     }
 
+
+    public Set<String> getOWLEntityRenderings() {
+        return new HashSet<>(entitiesByRendering.keySet());
+    }
+
+    private static boolean hasEntityOfType(@Nullable Object entities, EntityType<?> type) {
+        if (entities instanceof OWLEntity) {
+            return ((OWLEntity) entities).isType(type);
+        }
+        if (entities != null) {
+            for (OWLEntity entity : (OWLEntity[]) entities) {
+                if (entity.isType(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static <E extends OWLEntity> List<E> getEntities(@Nullable Object entities, Class<E> type) {
+        if (entities instanceof OWLEntity) {
+            return type.isInstance(entities) ? Collections.singletonList(type.cast(entities)) : Collections.emptyList();
+        }
+        if (entities == null) {
+            return Collections.emptyList();
+        }
+        List<E> result = new ArrayList<>();
+        for (OWLEntity entity : (OWLEntity[]) entities) {
+            if (type.isInstance(entity)) {
+                result.add(type.cast(entity));
+            }
+        }
+        return result;
+    }
+
     private <E extends OWLEntity> DefRefCount<E> toActiveOntologyReferenceCount(@Nonnull E entity) {
         OWLOntology activeOntology = owlModelManager.getActiveOntology();
         int refCount = activeOntology
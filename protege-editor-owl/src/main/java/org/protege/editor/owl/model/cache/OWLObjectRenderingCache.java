@@ -2,14 +2,16 @@ package org.protege.editor.owl.model.cache;
 
 import org.protege.editor.core.Disposable;
 import org.protege.editor.owl.model.OWLModelManager;
-import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
+import org.protege.editor.owl.model.event.EventType;
 import org.protege.editor.owl.model.event.OWLModelManagerListener;
 import org.protege.editor.owl.ui.renderer.OWLObjectRenderer;
+import org.protege.editor.owl.ui.renderer.OWLRendererPreferences;
 import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.util.OWLObjectVisitorAdapter;
+import org.semanticweb.owlapi.util.OWLObjectWalker;
+import org.semanticweb.owlapi.util.StructureWalker.AnnotationWalkingControl;
 
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Author: drummond<br>
@@ -18,27 +20,109 @@ import java.util.Map;
  * The University Of Manchester<br>
  * Bio Health Informatics Group<br>
  * Date: Jun 27, 2008<br><br>
+ *
+ * A least recently used cache of object renderings that is bounded by the total length of the cached renderings
+ * rather than by their number.  Each rendering is recorded against the IRIs that it mentions, those of entities
+ * as well as IRIs that are rendered as entities, such as IRI annotation values and SWRL variables, so that a change
+ * to an axiom, or to the rendering of an entity, only evicts the renderings that mention the affected entities.
  */
 public class OWLObjectRenderingCache implements Disposable {
 
-    Map<OWLObject, String> cache = new MyLRUMap<>(50, 1, 50);
+    private static final IRI[] NO_DEPENDENCIES = new IRI[0];
 
-    private OWLModelManagerListener l = event -> clear();
+    private final Map<OWLObject, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
 
-    private OWLOntologyChangeListener l2 = owlOntologyChanges -> clear();
+    private final Map<IRI, Set<OWLObject>> dependentsByIri = new HashMap<>();
+
+    private final long maxWeight;
+
+    private long weight = 0;
+
+    private long hitCount = 0;
+
+    private long missCount = 0;
+
+    private long evictionCount = 0;
+
+    private OWLModelManagerListener l = event -> {
+        if (!event.isType(EventType.ENTITY_RENDERING_CHANGED)
+                && !event.isType(EventType.REASONER_CHANGED)
+                && !event.isType(EventType.ABOUT_TO_CLASSIFY)
+                && !event.isType(EventType.ONTOLOGY_CLASSIFIED)
+                && !event.isType(EventType.ONTOLOGY_SAVED)) {
+            clear();
+        }
+    };
+
+    private OWLOntologyChangeListener l2 = this::processChanges;
 
     private OWLModelManager mngr;
 
 
     public OWLObjectRenderingCache(OWLModelManager owlModelManager) {
+        this(owlModelManager, OWLRendererPreferences.getInstance().getRenderingCacheSize());
+    }
+
+
+    /**
+     * @param owlModelManager The model manager.
+     * @param maxWeight The maximum total number of characters in the cached renderings.
+     */
+    public OWLObjectRenderingCache(OWLModelManager owlModelManager, long maxWeight) {
         this.mngr = owlModelManager;
+        this.maxWeight = maxWeight;
         owlModelManager.addListener(l);
         owlModelManager.addOntologyChangeListener(l2);
     }
 
 
-    public void clear() {
+    public synchronized void clear() {
         cache.clear();
+        dependentsByIri.clear();
+        weight = 0;
+    }
+
+
+    /**
+     * Removes the renderings that mention an entity.
+     */
+    public void invalidate(OWLEntity entity) {
+        invalidate(Collections.singleton(entity.getIRI()));
+    }
+
+
+    private synchronized void invalidate(Collection<IRI> iris) {
+        for (IRI iri : iris) {
+            Set<OWLObject> dependents = dependentsByIri.remove(iri);
+            if (dependents != null) {
+                for (OWLObject dependent : dependents) {
+                    remove(dependent);
+                }
+            }
+        }
+    }
+
+
+    private void processChanges(List<? extends OWLOntologyChange> changes) {
+        Set<IRI> iris = new HashSet<>();
+        for (OWLOntologyChange change : changes) {
+            if (!change.isAxiomChange()) {
+                // Import and ontology annotation changes can change the rendering of anything
+                clear();
+                return;
+            }
+            for (OWLEntity entity : change.getSignature()) {
+                iris.add(entity.getIRI());
+            }
+            OWLAxiom axiom = change.getAxiom();
+            if (axiom instanceof OWLAnnotationAssertionAxiom) {
+                OWLAnnotationSubject subject = ((OWLAnnotationAssertionAxiom) axiom).getSubject();
+                if (subject instanceof IRI) {
+                    iris.add((IRI) subject);
+                }
+            }
+        }
+        invalidate(iris);
     }
 
 
@@ -48,20 +132,133 @@ public class OWLObjectRenderingCache implements Disposable {
             String userRendering = OWLExpressionUserCache.getInstance(mngr).getRendering((OWLClassExpression) object);
             if (userRendering != null){
                 s = userRendering;
-                cache.put(object, s);
+                put(object, s);
             }
         }
         if (s == null){
-            s = cache.get(object);
+            s = get(object);
             if (s == null){
                 s = owlObjectRenderer.render(object);
-                cache.put(object, s);
+                put(object, s);
             }
         }
         return s;
     }
 
 
+    private synchronized String get(OWLObject object) {
+        Entry entry = cache.get(object);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.rendering;
+    }
+
+
+    private synchronized void put(OWLObject object, String rendering) {
+        if (rendering.length() > maxWeight) {
+            return;
+        }
+        remove(object);
+        IRI[] dependencies = getDependencies(object);
+        cache.put(object, new Entry(rendering, dependencies));
+        for (IRI iri : dependencies) {
+            dependentsByIri.computeIfAbsent(iri, i -> new HashSet<>()).add(object);
+        }
+        weight += rendering.length();
+        Iterator<Map.Entry<OWLObject, Entry>> it = cache.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Map.Entry<OWLObject, Entry> eldest = it.next();
+            it.remove();
+            unlink(eldest.getKey(), eldest.getValue());
+            evictionCount++;
+        }
+    }
+
+
+    private void remove(OWLObject object) {
+        Entry entry = cache.remove(object);
+        if (entry != null) {
+            unlink(object, entry);
+        }
+    }
+
+
+    private void unlink(OWLObject object, Entry entry) {
+        weight -= entry.rendering.length();
+        for (IRI iri : entry.dependencies) {
+            Set<OWLObject> dependents = dependentsByIri.get(iri);
+            if (dependents != null) {
+                dependents.remove(object);
+                if (dependents.isEmpty()) {
+                    dependentsByIri.remove(iri);
+                }
+            }
+        }
+    }
+
+
+    private static IRI[] getDependencies(OWLObject object) {
+        if (object instanceof IRI) {
+            return new IRI[]{(IRI) object};
+        }
+        if (object instanceof OWLOntology) {
+            // Only ontology level changes affect the rendering of an ontology, and these clear the cache
+            return NO_DEPENDENCIES;
+        }
+        // The entity renderer also renders bare IRIs, so collect every IRI rather than just the signature
+        Set<IRI> iris = new HashSet<>();
+        new OWLObjectWalker<>(Collections.singleton(object), false, AnnotationWalkingControl.WALK_ANNOTATIONS)
+                .walkStructure(new OWLObjectVisitorAdapter() {
+                    @Override
+                    public void visit(IRI iri) {
+                        iris.add(iri);
+                    }
+
+                    @Override
+                    public void visit(SWRLVariable node) {
+                        iris.add(node.getIRI());
+                    }
+                });
+        return iris.isEmpty() ? NO_DEPENDENCIES : iris.toArray(new IRI[iris.size()]);
+    }
+
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+
+    /**
+     * Gets the total number of characters in the cached renderings.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+
     public void dispose() {
         clear();
         mngr.removeListener(l);
@@ -69,16 +266,22 @@ public class OWLObjectRenderingCache implements Disposable {
     }
 
 
-    class MyLRUMap<K,V> extends LinkedHashMap<K,V> {
-        private int maxCapacity;
+    @Override
+    public synchronized String toString() {
+        return String.format("OWLObjectRenderingCache(size: %d, weight: %d/%d, hits: %d, misses: %d, evictions: %d)",
+                cache.size(), weight, maxWeight, hitCount, missCount, evictionCount);
+    }
 
-        public MyLRUMap(int initialCapacity, float loadFactor, int maxCapacity) {
-            super(initialCapacity, loadFactor, true);
-            this.maxCapacity = maxCapacity;
-        }
 
-        protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
-            return size() >= this.maxCapacity;
+    private static final class Entry {
+
+        private final String rendering;
+
+        private final IRI[] dependencies;
+
+        private Entry(String rendering, IRI[] dependencies) {
+            this.rendering = rendering;
+            this.dependencies = dependencies;
         }
     }
 }
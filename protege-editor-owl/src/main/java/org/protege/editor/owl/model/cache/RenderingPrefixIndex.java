@@ -0,0 +1,190 @@
+package org.protege.editor.owl.model.cache;
+
+import java.util.*;
+
+/**
+ * A sorted index of entity renderings that finds the renderings that start with a prefix, ignoring case.
+ * <p>
+ * The renderings are kept in a sorted map that orders them ignoring case, so the renderings with a given prefix form
+ * a contiguous range of keys that is found by a binary search.  A prefix query therefore costs time proportional to
+ * the length of the prefix and the number of results rather than to the number of renderings.  The renderings
+ * themselves are the keys, so the index does not hold a copy of each rendering.  Characters are compared by their
+ * lower cased form, character by character, so that the result does not depend on the default locale.
+ * </p>
+ * <p>
+ * The index is not thread safe.
+ * </p>
+ */
+public class RenderingPrefixIndex {
+
+    private static final Comparator<String> CASE_INSENSITIVE_ORDER = RenderingPrefixIndex::compareIgnoringCase;
+
+    /**
+     * Maps renderings to the rendering or, for renderings that only differ in case, to a list of the renderings.
+     */
+    private final NavigableMap<String, Object> renderings = new TreeMap<>(CASE_INSENSITIVE_ORDER);
+
+    private final Set<String> view = new AbstractSet<String>() {
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && RenderingPrefixIndex.this.contains((String) o);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return renderingsIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public void add(String rendering) {
+        Object existing = renderings.get(rendering);
+        if (existing == null) {
+            renderings.put(rendering, rendering);
+        }
+        else if (existing instanceof String) {
+            if (existing.equals(rendering)) {
+                return;
+            }
+            List<String> list = new ArrayList<>(2);
+            list.add((String) existing);
+            list.add(rendering);
+            renderings.put(rendering, list);
+        }
+        else {
+            List<String> list = (List<String>) existing;
+            if (list.contains(rendering)) {
+                return;
+            }
+            list.add(rendering);
+        }
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void remove(String rendering) {
+        Object existing = renderings.get(rendering);
+        if (existing == null) {
+            return;
+        }
+        if (existing instanceof String) {
+            if (existing.equals(rendering)) {
+                renderings.remove(rendering);
+                size--;
+            }
+        }
+        else {
+            List<String> list = (List<String>) existing;
+            if (list.remove(rendering)) {
+                size--;
+                // Replace the key too, as it may be the rendering that was removed
+                renderings.remove(rendering);
+                renderings.put(list.get(0), list.size() == 1 ? list.get(0) : list);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean contains(String rendering) {
+        Object existing = renderings.get(rendering);
+        if (existing instanceof String) {
+            return existing.equals(rendering);
+        }
+        return existing != null && ((List<String>) existing).contains(rendering);
+    }
+
+    public void clear() {
+        renderings.clear();
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets an unmodifiable view of the renderings in the index.  Membership is found by a binary search and the size
+     * is kept up to date, so neither depends on the number of renderings.
+     */
+    public Set<String> asSet() {
+        return Collections.unmodifiableSet(view);
+    }
+
+    /**
+     * Gets the renderings that start with a prefix.  The comparison ignores case.
+     * @param prefix The prefix.
+     * @param results The collection to which the renderings are added.
+     */
+    @SuppressWarnings("unchecked")
+    public void getRenderingsWithPrefix(String prefix, Collection<String> results) {
+        for (Map.Entry<String, Object> entry : renderings.tailMap(prefix, true).entrySet()) {
+            if (!startsWithIgnoringCase(entry.getKey(), prefix)) {
+                break;
+            }
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                results.add((String) value);
+            }
+            else {
+                results.addAll((List<String>) value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<String> renderingsIterator() {
+        Iterator<Object> values = renderings.values().iterator();
+        return new Iterator<String>() {
+
+            private Iterator<String> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                return current.hasNext() || values.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!current.hasNext()) {
+                    Object value = values.next();
+                    if (value instanceof String) {
+                        return (String) value;
+                    }
+                    current = ((List<String>) value).iterator();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    private static int compareIgnoringCase(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ca = Character.toLowerCase(a.charAt(i));
+            char cb = Character.toLowerCase(b.charAt(i));
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private static boolean startsWithIgnoringCase(String s, String prefix) {
+        if (s.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(s.charAt(i)) != Character.toLowerCase(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,278 @@
+package org.protege.editor.owl.model.event;
+
+import org.protege.editor.core.Disposable;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Passes ontology changes on to listeners in three tiers, and records how long each listener takes.
+ * <p>
+ * The dispatcher is registered as a single listener with an ontology manager.  When changes are applied, the
+ * {@link OntologyChangeListenerTier#MODEL} listeners are called straight away, in the order in which they were
+ * added.  The changes are then queued for the {@link OntologyChangeListenerTier#UI} listeners, which are called once
+ * on the event dispatch thread for all of the changes that were applied in the meantime, and for the
+ * {@link OntologyChangeListenerTier#BACKGROUND} listeners, which are called in order on a single background thread.
+ * </p>
+ * <p>
+ * The ontology manager of the OWL API keeps its listeners in a hash map, so it does not call them in the order in
+ * which they were added.  The {@link OntologyChangeListenerTier#MODEL} listeners are called together, in the order
+ * in which they were added, wherever the ontology manager calls the dispatcher among the listeners that were added to
+ * it directly, such as the hierarchy providers.  There was no order between these listeners before the dispatcher
+ * either.  Every listener is called once the changes have been applied to the ontologies, so a listener that reads
+ * the ontologies sees the changes whichever listener is called first, but it must not rely on a listener that was
+ * added directly to the ontology manager, or on a later {@link OntologyChangeListenerTier#MODEL} listener, having
+ * already seen them.
+ * </p>
+ * <p>
+ * An exception thrown by a listener is logged and does not stop the changes from reaching the other listeners.
+ * The number of calls, the number of changes, the number of errors and the time spent are recorded for each
+ * listener.  They are available from {@link #getListenerStatistics()} and through JMX once
+ * {@link #registerMBean(String)} has been called.
+ * </p>
+ */
+public class OntologyChangeDispatcher implements OWLOntologyChangeListener, OntologyChangeDispatcherMXBean, Disposable {
+
+    private final Logger logger = LoggerFactory.getLogger(OntologyChangeDispatcher.class);
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    private final List<OWLOntologyChange> pendingUiChanges = new ArrayList<>();
+
+    private boolean uiDispatchScheduled = false;
+
+    private final ExecutorService backgroundService = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Ontology Change Dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong dispatchCount = new AtomicLong();
+
+    private ObjectName objectName;
+
+    /**
+     * Adds a listener.  As with an ontology manager, a listener that has already been added is not added again.
+     */
+    public synchronized void addListener(@Nonnull OWLOntologyChangeListener listener, @Nonnull OntologyChangeListenerTier tier) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                return;
+            }
+        }
+        registrations.add(new Registration(checkNotNull(listener), checkNotNull(tier)));
+    }
+
+    public synchronized void removeListener(OWLOntologyChangeListener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registration.active = false;
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    @Override
+    public void ontologiesChanged(@Nonnull List<? extends OWLOntologyChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        dispatchCount.incrementAndGet();
+        boolean hasUiListeners = false;
+        boolean hasBackgroundListeners = false;
+        for (Registration registration : registrations) {
+            switch (registration.tier) {
+                case MODEL:
+                    registration.deliver(changes);
+                    break;
+                case UI:
+                    hasUiListeners = true;
+                    break;
+                case BACKGROUND:
+                    hasBackgroundListeners = true;
+                    break;
+            }
+        }
+        if (hasUiListeners) {
+            queueUiChanges(changes);
+        }
+        if (hasBackgroundListeners && !backgroundService.isShutdown()) {
+            List<OWLOntologyChange> batch = new ArrayList<>(changes);
+            backgroundService.submit(() -> deliver(OntologyChangeListenerTier.BACKGROUND, batch));
+        }
+    }
+
+    private void queueUiChanges(List<? extends OWLOntologyChange> changes) {
+        synchronized (pendingUiChanges) {
+            pendingUiChanges.addAll(changes);
+            if (uiDispatchScheduled) {
+                return;
+            }
+            uiDispatchScheduled = true;
+        }
+        SwingUtilities.invokeLater(() -> {
+            List<OWLOntologyChange> batch;
+            synchronized (pendingUiChanges) {
+                batch = new ArrayList<>(pendingUiChanges);
+                pendingUiChanges.clear();
+                uiDispatchScheduled = false;
+            }
+            deliver(OntologyChangeListenerTier.UI, batch);
+        });
+    }
+
+    private void deliver(OntologyChangeListenerTier tier, List<OWLOntologyChange> changes) {
+        for (Registration registration : registrations) {
+            if (registration.tier == tier) {
+                registration.deliver(changes);
+            }
+        }
+    }
+
+    @Override
+    public long getDispatchCount() {
+        return dispatchCount.get();
+    }
+
+    @Override
+    public int getListenerCount() {
+        return registrations.size();
+    }
+
+    @Override
+    public List<OntologyChangeListenerStatistics> getListenerStatistics() {
+        List<OntologyChangeListenerStatistics> statistics = new ArrayList<>(registrations.size());
+        for (Registration registration : registrations) {
+            statistics.add(registration.getStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public void resetStatistics() {
+        dispatchCount.set(0);
+        registrations.forEach(Registration::reset);
+    }
+
+    /**
+     * Registers the dispatcher with the platform MBean server.
+     * @param name The value of the name key of the object name, which distinguishes the dispatchers of different
+     *             workspaces.
+     */
+    public void registerMBean(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("org.protege.editor.owl:type=OntologyChangeDispatcher,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            logger.warn("Could not register the ontology change dispatcher with JMX: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        backgroundService.shutdownNow();
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                logger.debug("Could not unregister the ontology change dispatcher from JMX: {}", e.getMessage());
+            }
+            objectName = null;
+        }
+        registrations.clear();
+    }
+
+    private static String getListenerName(OWLOntologyChangeListener listener) {
+        String name = listener.getClass().getName();
+        int lambdaIndex = name.indexOf("$$Lambda");
+        return lambdaIndex > 0 ? name.substring(0, lambdaIndex) + " (lambda)" : name;
+    }
+
+
+    private class Registration {
+
+        private final OWLOntologyChangeListener listener;
+
+        private final OntologyChangeListenerTier tier;
+
+        private final String name;
+
+        private volatile boolean active = true;
+
+        private final AtomicLong invocationCount = new AtomicLong();
+
+        private final AtomicLong changeCount = new AtomicLong();
+
+        private final AtomicLong errorCount = new AtomicLong();
+
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Registration(OWLOntologyChangeListener listener, OntologyChangeListenerTier tier) {
+            this.listener = listener;
+            this.tier = tier;
+            this.name = getListenerName(listener);
+        }
+
+        /**
+         * Calls the listener.  An exception thrown by the listener is logged and counted, but is not rethrown.  The
+         * ontology manager would remove the whole dispatcher if it were, and none of the listeners would receive any
+         * further changes.
+         */
+        private void deliver(List<? extends OWLOntologyChange> changes) {
+            if (!active) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                listener.ontologiesChanged(changes);
+            } catch (Exception e) {
+                errorCount.incrementAndGet();
+                logger.warn("An error occurred in the ontology change listener {}: {}", name, e.getMessage(), e);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                invocationCount.incrementAndGet();
+                changeCount.addAndGet(changes.size());
+                totalNanos.addAndGet(elapsed);
+                maxNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        }
+
+        private void reset() {
+            invocationCount.set(0);
+            changeCount.set(0);
+            errorCount.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        private OntologyChangeListenerStatistics getStatistics() {
+            return new OntologyChangeListenerStatistics(name,
+                    tier.name(),
+                    invocationCount.get(),
+                    changeCount.get(),
+                    errorCount.get(),
+                    totalNanos.get() / 1000,
+                    maxNanos.get() / 1000);
+        }
+    }
+}
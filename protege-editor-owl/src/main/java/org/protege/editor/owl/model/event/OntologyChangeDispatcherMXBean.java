@@ -0,0 +1,20 @@
+package org.protege.editor.owl.model.event;
+
+import java.util.List;
+
+/**
+ * Exposes the listener statistics of an {@link OntologyChangeDispatcher} through JMX.
+ */
+public interface OntologyChangeDispatcherMXBean {
+
+    /**
+     * Gets the number of batches of changes that have been dispatched.
+     */
+    long getDispatchCount();
+
+    int getListenerCount();
+
+    List<OntologyChangeListenerStatistics> getListenerStatistics();
+
+    void resetStatistics();
+}
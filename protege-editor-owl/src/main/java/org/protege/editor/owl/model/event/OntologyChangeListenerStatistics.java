@@ -0,0 +1,80 @@
+package org.protege.editor.owl.model.event;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The time spent by an ontology change listener, as recorded by an {@link OntologyChangeDispatcher}.
+ */
+public final class OntologyChangeListenerStatistics {
+
+    private final String listenerName;
+
+    private final String tier;
+
+    private final long invocationCount;
+
+    private final long changeCount;
+
+    private final long errorCount;
+
+    private final long totalTimeMicros;
+
+    private final long maxTimeMicros;
+
+    @ConstructorProperties({"listenerName", "tier", "invocationCount", "changeCount", "errorCount", "totalTimeMicros", "maxTimeMicros"})
+    public OntologyChangeListenerStatistics(String listenerName,
+                                            String tier,
+                                            long invocationCount,
+                                            long changeCount,
+                                            long errorCount,
+                                            long totalTimeMicros,
+                                            long maxTimeMicros) {
+        this.listenerName = listenerName;
+        this.tier = tier;
+        this.invocationCount = invocationCount;
+        this.changeCount = changeCount;
+        this.errorCount = errorCount;
+        this.totalTimeMicros = totalTimeMicros;
+        this.maxTimeMicros = maxTimeMicros;
+    }
+
+    public String getListenerName() {
+        return listenerName;
+    }
+
+    /**
+     * Gets the name of the {@link OntologyChangeListenerTier} of the listener.
+     */
+    public String getTier() {
+        return tier;
+    }
+
+    public long getInvocationCount() {
+        return invocationCount;
+    }
+
+    /**
+     * Gets the total number of changes that have been passed to the listener.
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getTotalTimeMicros() {
+        return totalTimeMicros;
+    }
+
+    public long getMaxTimeMicros() {
+        return maxTimeMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [%s] calls: %d, changes: %d, errors: %d, total: %d us, max: %d us",
+                listenerName, tier, invocationCount, changeCount, errorCount, totalTimeMicros, maxTimeMicros);
+    }
+}
@@ -0,0 +1,26 @@
+package org.protege.editor.owl.model.event;
+
+/**
+ * The ways in which an {@link OntologyChangeDispatcher} can deliver ontology changes to a listener.
+ */
+public enum OntologyChangeListenerTier {
+
+    /**
+     * The listener is called synchronously, in the thread that applied the changes, before the changes are
+     * applied to any other listener in a later tier.  This is for listeners that keep model state, such as caches
+     * and hierarchies, consistent with the ontologies.
+     */
+    MODEL,
+
+    /**
+     * The listener is called later on the event dispatch thread with all of the changes that were applied since it
+     * was last called.  This is for views that only need to refresh themselves.
+     */
+    UI,
+
+    /**
+     * The listener is called on a background thread, in the order in which the changes were applied.  The listener
+     * must be thread safe.
+     */
+    BACKGROUND
+}
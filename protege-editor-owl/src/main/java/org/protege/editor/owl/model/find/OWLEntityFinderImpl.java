@@ -240,7 +240,9 @@ public class OWLEntityFinderImpl implements OWLEntityFinder {
         Set<T> results = new HashSet<>();
         try {
             Pattern pattern = Pattern.compile(match, flags);
-            for (String rendering : getRenderings(type)) {
+            String prefix = getAnchoredPrefix(match, flags);
+            Set<String> renderings = prefix.isEmpty() ? getRenderings(type) : renderingCache.getOWLEntityRenderingsWithPrefix(prefix, type);
+            for (String rendering : renderings) {
                 Matcher m = pattern.matcher(rendering);
                 if (m.find()) {
                     T ent = getEntity(rendering, type);
@@ -286,12 +288,21 @@ public class OWLEntityFinderImpl implements OWLEntityFinder {
                     match = match.substring(0, match.length() - 1);
                 }
                 // @@TODO handle matches exactly?
-                matcher = (rendering, s) -> rendering.startsWith(s) || rendering.startsWith("'" + s);
+                matcher = null;
             }
 
             if (match.trim().length() == 0) {
                 logger.debug("Attempt to match the empty string (no results)");
             }
+            else if (matcher == null) {
+                // Starts with queries are answered from the prefix index of the rendering cache
+                logger.debug("Prefix match: {}", match);
+                Set<String> renderings = renderingCache.getOWLEntityRenderingsWithPrefix(match, type);
+                renderings.addAll(renderingCache.getOWLEntityRenderingsWithPrefix("'" + match, type));
+                for (String rendering : renderings) {
+                    results.add(getEntity(rendering, type));
+                }
+            }
             else{
                 match = match.toLowerCase();
                 logger.debug("Match: {}", match);
@@ -310,6 +321,45 @@ public class OWLEntityFinderImpl implements OWLEntityFinder {
     }
 
 
+    /**
+     * Gets the literal text that every rendering matched by a regular expression must start with.  The expression
+     * must be anchored with <code>^</code> and only plain ASCII characters are taken into account, so that the
+     * renderings that start with the text, ignoring case, are a superset of the matches.
+     * @return The prefix, or the empty string if there is none or if the flags make the analysis unsafe.
+     */
+    private static String getAnchoredPrefix(String regex, int flags) {
+        int unsafeFlags = Pattern.LITERAL | Pattern.COMMENTS | Pattern.MULTILINE | Pattern.UNICODE_CASE | Pattern.CANON_EQ;
+        if ((flags & unsafeFlags) != 0 || !regex.startsWith("^") || regex.indexOf('|') != -1) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = 1;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c < 128 && (Character.isLetterOrDigit(c) || c == ' ' || c == '_' || c == '-' || c == ':' || c == '\'')) {
+                prefix.append(c);
+                i++;
+            }
+            else if (c == '\\' && i + 1 < regex.length() && regex.charAt(i + 1) < 128
+                    && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                prefix.append(regex.charAt(i + 1));
+                i += 2;
+            }
+            else {
+                break;
+            }
+        }
+        if (i < regex.length() && prefix.length() > 0) {
+            char next = regex.charAt(i);
+            if (next == '?' || next == '*' || next == '{') {
+                // The last character is optional
+                prefix.setLength(prefix.length() - 1);
+            }
+        }
+        return prefix.toString();
+    }
+
+
     @SuppressWarnings("unchecked")
     private <T extends OWLEntity> Set<T> getAllEntities(Class<T> type) {
         if (type.equals(OWLDatatype.class)){
@@ -29,6 +29,12 @@ public class OWLEntityFinderPreferences {
 
     public static final String SHOW_DEPRECATED_KEY = "SHOW_DEPRECATED";
 
+    public static final String FUZZY_KEY = "FUZZY";
+
+    public static final String MAX_EDIT_DISTANCE_KEY = "MAX_EDIT_DISTANCE";
+
+    private static final int DEFAULT_MAX_EDIT_DISTANCE = 2;
+
 
     private static final boolean DEFAULT_CASE_SENSITIVE_VALUE = false;
 
@@ -47,6 +53,10 @@ public class OWLEntityFinderPreferences {
 
     private boolean showDeprecated;
 
+    private boolean fuzzy;
+
+    private int maxEditDistance;
+
 
     private OWLEntityFinderPreferences() {
         searchDelay = 500;
@@ -69,6 +79,8 @@ public class OWLEntityFinderPreferences {
         wholeWords = prefs.getBoolean(WHOLE_WORDS_KEY, false);
         ignoreWhiteSpace = prefs.getBoolean(IGNORE_WHITE_SPACE_KEY, true);
         showDeprecated = prefs.getBoolean(SHOW_DEPRECATED_KEY, true);
+        fuzzy = prefs.getBoolean(FUZZY_KEY, false);
+        maxEditDistance = prefs.getInt(MAX_EDIT_DISTANCE_KEY, DEFAULT_MAX_EDIT_DISTANCE);
     }
 
 
@@ -118,6 +130,28 @@ public class OWLEntityFinderPreferences {
         getPreferences().putBoolean(SHOW_DEPRECATED_KEY, showDeprecated);
     }
 
+    public boolean isFuzzy() {
+        return fuzzy;
+    }
+
+    public void setFuzzy(boolean fuzzy) {
+        this.fuzzy = fuzzy;
+        getPreferences().putBoolean(FUZZY_KEY, fuzzy);
+    }
+
+    /**
+     * Gets the maximum edit distance between a search string and the display names and IRIs that a fuzzy search
+     * finds.
+     */
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+
+    public void setMaxEditDistance(int maxEditDistance) {
+        this.maxEditDistance = maxEditDistance;
+        getPreferences().putInt(MAX_EDIT_DISTANCE_KEY, maxEditDistance);
+    }
+
     public long getSearchDelay() {
         return searchDelay;
     }
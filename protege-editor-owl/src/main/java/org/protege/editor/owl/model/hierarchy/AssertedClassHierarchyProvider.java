@@ -9,6 +9,7 @@ import org.semanticweb.owlapi.model.parameters.Imports;
 import org.semanticweb.owlapi.search.EntitySearcher;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
@@ -58,6 +59,9 @@ public class AssertedClassHierarchyProvider extends AbstractOWLObjectHierarchyPr
 
     private final Set<OWLClass> nodesToUpdate = new HashSet<>();
 
+    @Nullable
+    private volatile HierarchyClosureIndex<OWLClass> closureIndex = null;
+
     public AssertedClassHierarchyProvider(@Nonnull OWLOntologyManager owlOntologyManager) {
         super(owlOntologyManager);
         this.owlOntologyManager = checkNotNull(owlOntologyManager);
@@ -75,6 +79,18 @@ public class AssertedClassHierarchyProvider extends AbstractOWLObjectHierarchyPr
         getManager().addOntologyChangeListener(listener);
     }
 
+    /**
+     * Enables or disables the index that memoises the ancestors and descendants of classes.  The index is kept up
+     * to date as the ontologies change.
+     */
+    public void setClosureIndexEnabled(boolean enabled) {
+        closureIndex = enabled ? createClosureIndex() : null;
+    }
+
+    private HierarchyClosureIndex<OWLClass> createClosureIndex() {
+        return new HierarchyClosureIndex<>(this::getParents, this::getChildren);
+    }
+
     /**
      * Sets the ontologies that this hierarchy provider should use
      * in order to determine the hierarchy.
@@ -95,6 +111,9 @@ public class AssertedClassHierarchyProvider extends AbstractOWLObjectHierarchyPr
             if (root == null) {
                 root = owlOntologyManager.getOWLDataFactory().getOWLThing();
             }
+            if (closureIndex != null) {
+                closureIndex = createClosureIndex();
+            }
             rebuildImplicitRoots();
             fireHierarchyChanged();
         } finally {
@@ -152,6 +171,15 @@ public class AssertedClassHierarchyProvider extends AbstractOWLObjectHierarchyPr
                 registerNodeChanged(cls);
             }
         }
+        HierarchyClosureIndex<OWLClass> index = closureIndex;
+        if (index != null) {
+            // The root is always registered as changed, but only the classes that gain or lose it as a parent
+            // change its closure
+            Set<OWLClass> changedNodes = new HashSet<>(nodesToUpdate);
+            changedNodes.remove(root);
+            index.invalidate(changedNodes);
+            index.invalidateClosuresOf(Collections.singleton(root));
+        }
         notifyNodeChanges();
     }
 
@@ -213,6 +241,28 @@ public class AssertedClassHierarchyProvider extends AbstractOWLObjectHierarchyPr
         rootFinder.findTerminalElements(possibleTerminalElements);
     }
 
+    @Override
+    public Set<OWLClass> getAncestors(OWLClass object) {
+        HierarchyClosureIndex<OWLClass> index = closureIndex;
+        return index != null ? index.getAncestors(object) : super.getAncestors(object);
+    }
+
+    @Override
+    public Set<OWLClass> getDescendants(OWLClass object) {
+        HierarchyClosureIndex<OWLClass> index = closureIndex;
+        return index != null ? index.getDescendants(object) : super.getDescendants(object);
+    }
+
+    @Override
+    protected void fireHierarchyChanged() {
+        // Filters and displayed relationships change the hierarchy without an ontology change
+        HierarchyClosureIndex<OWLClass> index = closureIndex;
+        if (index != null) {
+            index.clear();
+        }
+        super.fireHierarchyChanged();
+    }
+
     public Set<OWLClass> getRoots() {
         if (root == null) {
             root = owlOntologyManager.getOWLDataFactory().getOWLThing();
@@ -18,6 +18,8 @@ public class ClassHierarchyPreferences {
 
     private static final String DISPLAY_DEPRECATED_ENTITIES_KEY = "DISPLAY_DEPRECATED_ENTITIES";
 
+    private static final String USE_CLOSURE_INDEX_KEY = "USE_CLOSURE_INDEX";
+
     private static Preferences getPreferences() {
         return PreferencesManager.getInstance().getApplicationPreferences(CLASS_HIERARCHY_PREFERENCES);
     }
@@ -41,4 +43,12 @@ public class ClassHierarchyPreferences {
     public void setDisplayDeprecatedEntities(boolean displayDeprecatedEntities) {
         getPreferences().putBoolean(DISPLAY_DEPRECATED_ENTITIES_KEY, displayDeprecatedEntities);
     }
+
+    public boolean isUseClosureIndex() {
+        return getPreferences().getBoolean(USE_CLOSURE_INDEX_KEY, true);
+    }
+
+    public void setUseClosureIndex(boolean useClosureIndex) {
+        getPreferences().putBoolean(USE_CLOSURE_INDEX_KEY, useClosureIndex);
+    }
 }
@@ -0,0 +1,282 @@
+package org.protege.editor.owl.model.hierarchy;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable hierarchy whose nodes are numbered with dense integer ids and whose parent and child lists are held
+ * in primitive arrays in compressed sparse row form.
+ * <p>
+ * The children of the node with id <code>i</code> are the ids <code>childIds[childOffsets[i]]</code> up to, but not
+ * including, <code>childIds[childOffsets[i + 1]]</code>, and likewise for parents.  Each list is sorted by id, so
+ * membership tests are binary searches.  Apart from the map from nodes to ids the hierarchy holds no per-edge or
+ * per-node objects, which keeps large hierarchies small and lets callers walk them without allocating.  The sets
+ * returned by {@link #getChildren(Object)} and {@link #getParents(Object)} are read only views of the arrays.
+ * </p>
+ */
+public final class DenseHierarchy<N> {
+
+    private static final DenseHierarchy<?> EMPTY = new Builder<>().build();
+
+    private final Object[] nodes;
+
+    private final Map<N, Integer> ids;
+
+    private final int[] childOffsets;
+
+    private final int[] childIds;
+
+    private final int[] parentOffsets;
+
+    private final int[] parentIds;
+
+    private DenseHierarchy(Object[] nodes, Map<N, Integer> ids, int[] childOffsets, int[] childIds, int[] parentOffsets, int[] parentIds) {
+        this.nodes = nodes;
+        this.ids = ids;
+        this.childOffsets = childOffsets;
+        this.childIds = childIds;
+        this.parentOffsets = parentOffsets;
+        this.parentIds = parentIds;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <N> DenseHierarchy<N> empty() {
+        return (DenseHierarchy<N>) EMPTY;
+    }
+
+    public static <N> Builder<N> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Gets the number of nodes.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Gets the id of a node.
+     * @return The id, or -1 if the node is not in the hierarchy.
+     */
+    public int getId(N node) {
+        Integer id = ids.get(node);
+        return id != null ? id : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public N getNode(int id) {
+        return (N) nodes[id];
+    }
+
+    public boolean contains(N node) {
+        return ids.containsKey(node);
+    }
+
+    public int getChildCount(int id) {
+        return childOffsets[id + 1] - childOffsets[id];
+    }
+
+    /**
+     * Gets the id of a child of a node.
+     * @param id The id of the node.
+     * @param index The index of the child, between zero and the child count of the node.
+     */
+    public int getChildId(int id, int index) {
+        return childIds[childOffsets[id] + index];
+    }
+
+    public int getParentCount(int id) {
+        return parentOffsets[id + 1] - parentOffsets[id];
+    }
+
+    public int getParentId(int id, int index) {
+        return parentIds[parentOffsets[id] + index];
+    }
+
+    public int getChildCount(N node) {
+        int id = getId(node);
+        return id < 0 ? 0 : getChildCount(id);
+    }
+
+    public int getParentCount(N node) {
+        int id = getId(node);
+        return id < 0 ? 0 : getParentCount(id);
+    }
+
+    public void forEachChild(N node, Consumer<? super N> consumer) {
+        forEach(getId(node), childOffsets, childIds, consumer);
+    }
+
+    public void forEachParent(N node, Consumer<? super N> consumer) {
+        forEach(getId(node), parentOffsets, parentIds, consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEach(int id, int[] offsets, int[] targets, Consumer<? super N> consumer) {
+        if (id < 0) {
+            return;
+        }
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            consumer.accept((N) nodes[targets[i]]);
+        }
+    }
+
+    public Set<N> getChildren(N node) {
+        int id = getId(node);
+        return id < 0 ? Collections.emptySet() : new Slice(childIds, childOffsets[id], childOffsets[id + 1]);
+    }
+
+    public Set<N> getParents(N node) {
+        int id = getId(node);
+        return id < 0 ? Collections.emptySet() : new Slice(parentIds, parentOffsets[id], parentOffsets[id + 1]);
+    }
+
+    /**
+     * A read only set view of a sorted range of an id array.
+     */
+    private class Slice extends AbstractSet<N> {
+
+        private final int[] targets;
+
+        private final int from;
+
+        private final int to;
+
+        private Slice(int[] targets, int from, int to) {
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer id = ids.get(o);
+            return id != null && Arrays.binarySearch(targets, from, to, id) >= 0;
+        }
+
+        @Override
+        public Iterator<N> iterator() {
+            return new Iterator<N>() {
+
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to;
+                }
+
+                @SuppressWarnings("unchecked")
+                @Override
+                public N next() {
+                    if (next >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return (N) nodes[targets[next++]];
+                }
+            };
+        }
+    }
+
+    /**
+     * Collects the nodes and edges of a hierarchy.  Nodes are numbered in the order in which they are first added,
+     * either explicitly or as the end of an edge.  Duplicate edges are ignored.
+     */
+    public static final class Builder<N> {
+
+        private final List<N> nodes = new ArrayList<>();
+
+        private final Map<N, Integer> ids = new HashMap<>();
+
+        private int[] edgeParents = new int[16];
+
+        private int[] edgeChildren = new int[16];
+
+        private int edgeCount = 0;
+
+        private Builder() {
+        }
+
+        public Builder<N> addNode(@Nonnull N node) {
+            getId(checkNotNull(node));
+            return this;
+        }
+
+        public Builder<N> addEdge(@Nonnull N parent, @Nonnull N child) {
+            int parentId = getId(checkNotNull(parent));
+            int childId = getId(checkNotNull(child));
+            if (edgeCount == edgeParents.length) {
+                edgeParents = Arrays.copyOf(edgeParents, edgeCount * 2);
+                edgeChildren = Arrays.copyOf(edgeChildren, edgeCount * 2);
+            }
+            edgeParents[edgeCount] = parentId;
+            edgeChildren[edgeCount] = childId;
+            edgeCount++;
+            return this;
+        }
+
+        private int getId(N node) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                id = nodes.size();
+                nodes.add(node);
+                ids.put(node, id);
+            }
+            return id;
+        }
+
+        public DenseHierarchy<N> build() {
+            int n = nodes.size();
+            int[] childOffsets = new int[n + 1];
+            int[] parentOffsets = new int[n + 1];
+            int[] childIds = toRows(edgeParents, edgeChildren, childOffsets);
+            int[] parentIds = toRows(edgeChildren, edgeParents, parentOffsets);
+            return new DenseHierarchy<>(nodes.toArray(), new HashMap<>(ids), childOffsets, childIds, parentOffsets, parentIds);
+        }
+
+        /**
+         * Lays the edges out in rows keyed by their source, with the targets of each row sorted and without
+         * duplicates.
+         * @param offsets Filled with the start of each row, plus the end of the last row.
+         * @return The targets.
+         */
+        private int[] toRows(int[] sources, int[] targets, int[] offsets) {
+            int n = offsets.length - 1;
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] rows = new int[edgeCount];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int i = 0; i < edgeCount; i++) {
+                rows[next[sources[i]]++] = targets[i];
+            }
+            // Sort each row and squeeze out duplicate edges
+            int write = 0;
+            for (int i = 0; i < n; i++) {
+                int start = offsets[i];
+                int end = offsets[i + 1];
+                Arrays.sort(rows, start, end);
+                int rowStart = write;
+                offsets[i] = rowStart;
+                for (int j = start; j < end; j++) {
+                    if (write == rowStart || rows[write - 1] != rows[j]) {
+                        rows[write++] = rows[j];
+                    }
+                }
+            }
+            offsets[n] = write;
+            return write == rows.length ? rows : Arrays.copyOf(rows, write);
+        }
+    }
+}
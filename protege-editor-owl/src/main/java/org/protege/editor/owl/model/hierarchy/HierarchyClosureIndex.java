@@ -0,0 +1,164 @@
+package org.protege.editor.owl.model.hierarchy;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Memoises the ancestor and descendant closures of the nodes of a hierarchy.
+ * <p>
+ * Nodes are given dense integer ids and each closure is held as a bit set over these ids, so that testing whether a
+ * node is an ancestor or descendant of another is a single bit lookup once the closure has been computed.  A closure
+ * is computed by a breadth first traversal that stops at nodes whose closure is already known, so expanding a tree
+ * from the top, or asking for the ancestors of siblings, reuses the work done for their neighbours.
+ * </p>
+ * <p>
+ * When the edges of a node change the index is told through {@link #invalidate(Collection)}, which drops the
+ * closures of the node itself and every closure that contains it.  These are exactly the closures that the change
+ * can affect.  The traversals call back into the hierarchy without holding the lock of the index, and a closure
+ * that was computed while an invalidation happened is not stored.
+ * </p>
+ */
+public class HierarchyClosureIndex<N> {
+
+    private final Function<N, ? extends Collection<N>> parentsFunction;
+
+    private final Function<N, ? extends Collection<N>> childrenFunction;
+
+    private final Map<N, Integer> ids = new HashMap<>();
+
+    private final List<N> nodes = new ArrayList<>();
+
+    private final Map<Integer, BitSet> ancestors = new HashMap<>();
+
+    private final Map<Integer, BitSet> descendants = new HashMap<>();
+
+    private long generation = 0;
+
+    public HierarchyClosureIndex(Function<N, ? extends Collection<N>> parentsFunction,
+                                 Function<N, ? extends Collection<N>> childrenFunction) {
+        this.parentsFunction = parentsFunction;
+        this.childrenFunction = childrenFunction;
+    }
+
+    public Set<N> getAncestors(N node) {
+        return toNodes(getClosure(node, ancestors, parentsFunction));
+    }
+
+    public Set<N> getDescendants(N node) {
+        return toNodes(getClosure(node, descendants, childrenFunction));
+    }
+
+    public boolean isAncestor(N ancestor, N node) {
+        BitSet closure = getClosure(node, ancestors, parentsFunction);
+        synchronized (this) {
+            Integer id = ids.get(ancestor);
+            return id != null && closure.get(id);
+        }
+    }
+
+    public boolean isDescendant(N descendant, N node) {
+        BitSet closure = getClosure(node, descendants, childrenFunction);
+        synchronized (this) {
+            Integer id = ids.get(descendant);
+            return id != null && closure.get(id);
+        }
+    }
+
+    /**
+     * Drops the closures that could be affected by changes to the parents or children of some nodes.
+     * @param changedNodes The nodes whose edges have changed.
+     */
+    public synchronized void invalidate(Collection<N> changedNodes) {
+        generation++;
+        for (N node : changedNodes) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                continue;
+            }
+            ancestors.remove(id);
+            descendants.remove(id);
+            ancestors.values().removeIf(closure -> closure.get(id));
+            descendants.values().removeIf(closure -> closure.get(id));
+        }
+    }
+
+    /**
+     * Drops the closures of some nodes, but not the closures that contain them.  This is enough for nodes that
+     * gain an edge to a node that was not in the hierarchy before.
+     */
+    public synchronized void invalidateClosuresOf(Collection<N> nodes) {
+        generation++;
+        for (N node : nodes) {
+            Integer id = ids.get(node);
+            if (id != null) {
+                ancestors.remove(id);
+                descendants.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Drops all closures.  The ids of the nodes are kept, so a new index should be used for a different hierarchy.
+     */
+    public synchronized void clear() {
+        generation++;
+        ancestors.clear();
+        descendants.clear();
+    }
+
+    private BitSet getClosure(N node, Map<Integer, BitSet> closures, Function<N, ? extends Collection<N>> edges) {
+        long startGeneration;
+        synchronized (this) {
+            BitSet closure = closures.get(getId(node));
+            if (closure != null) {
+                return closure;
+            }
+            startGeneration = generation;
+        }
+        BitSet closure = new BitSet();
+        Deque<N> queue = new ArrayDeque<>(edges.apply(node));
+        while (!queue.isEmpty()) {
+            N next = queue.poll();
+            BitSet known;
+            synchronized (this) {
+                int id = getId(next);
+                if (closure.get(id)) {
+                    // Already visited, or inside a closure that has been merged in
+                    continue;
+                }
+                closure.set(id);
+                known = closures.get(id);
+            }
+            if (known != null) {
+                closure.or(known);
+            }
+            else {
+                queue.addAll(edges.apply(next));
+            }
+        }
+        synchronized (this) {
+            if (generation == startGeneration) {
+                closures.put(getId(node), closure);
+            }
+        }
+        return closure;
+    }
+
+    private int getId(N node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodes.size();
+            nodes.add(node);
+            ids.put(node, id);
+        }
+        return id;
+    }
+
+    private synchronized Set<N> toNodes(BitSet closure) {
+        Set<N> result = new HashSet<>(closure.cardinality() * 4 / 3 + 1);
+        for (int id = closure.nextSetBit(0); id >= 0 && id < nodes.size(); id = closure.nextSetBit(id + 1)) {
+            result.add(nodes.get(id));
+        }
+        return result;
+    }
+}
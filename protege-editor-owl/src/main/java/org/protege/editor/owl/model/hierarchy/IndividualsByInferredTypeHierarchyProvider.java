@@ -4,6 +4,8 @@ import org.semanticweb.owlapi.model.*;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 
 /**
@@ -14,7 +16,9 @@ import java.util.*;
  */
 public class IndividualsByInferredTypeHierarchyProvider extends AbstractOWLObjectHierarchyProvider<OWLObject> {
 
-    private Map<OWLObject, Set<OWLObject>> typeNodes = new HashMap<>();
+    private volatile DenseHierarchy<OWLObject> typeHierarchy = DenseHierarchy.empty();
+
+    private volatile Set<OWLObject> typeNodes = Collections.emptySet();
 
     private OWLReasoner reasoner;
 
@@ -33,18 +37,24 @@ public class IndividualsByInferredTypeHierarchyProvider extends AbstractOWLObjec
 
 
     private void rebuild() {
-        typeNodes.clear();
+        DenseHierarchy.Builder<OWLObject> builder = DenseHierarchy.builder();
+        Set<OWLObject> types = new HashSet<>();
         if (reasoner != null){
             Set<OWLOntology> importsClosure = reasoner.getRootOntology().getImportsClosure();
             for (OWLOntology ont : importsClosure){
                 for (OWLClass cls : ont.getClassesInSignature()) {
                     final Set<OWLNamedIndividual> inds = reasoner.getInstances(cls, showDirect).getFlattened();
                     if (!inds.isEmpty()){
-                        typeNodes.put(cls, new HashSet<>(inds));
+                        types.add(cls);
+                        for (OWLNamedIndividual ind : inds) {
+                            builder.addEdge(cls, ind);
+                        }
                     }
                 }
             }
         }
+        typeHierarchy = builder.build();
+        typeNodes = Collections.unmodifiableSet(types);
         fireHierarchyChanged();
     }
 
@@ -55,13 +65,13 @@ public class IndividualsByInferredTypeHierarchyProvider extends AbstractOWLObjec
 
 
     public Set<OWLObject> getRoots() {
-        return typeNodes.keySet();
+        return typeNodes;
     }
 
 
     public Set<OWLObject> getUnfilteredChildren(OWLObject object) {
-        if (reasoner != null && typeNodes.containsKey(object)) {
-            return typeNodes.get(object);
+        if (reasoner != null) {
+            return typeHierarchy.getChildren(object);
         }
         else {
             return Collections.emptySet();
@@ -69,8 +79,40 @@ public class IndividualsByInferredTypeHierarchyProvider extends AbstractOWLObjec
     }
 
 
+    @Override
+    public int getChildCount(OWLObject object) {
+        DenseHierarchy<OWLObject> hierarchy = typeHierarchy;
+        int id = hierarchy.getId(object);
+        if (reasoner == null || id < 0) {
+            return 0;
+        }
+        Predicate<OWLObject> filter = getFilter();
+        int count = 0;
+        for (int i = 0; i < hierarchy.getChildCount(id); i++) {
+            if (filter.test(hierarchy.getNode(hierarchy.getChildId(id, i)))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    @Override
+    public void forEachChild(OWLObject object, Consumer<? super OWLObject> consumer) {
+        if (reasoner == null) {
+            return;
+        }
+        Predicate<OWLObject> filter = getFilter();
+        typeHierarchy.forEachChild(object, child -> {
+            if (filter.test(child)) {
+                consumer.accept(child);
+            }
+        });
+    }
+
+
     public Set<OWLObject> getParents(OWLObject object) {
-        if (reasoner != null && typeNodes.containsKey(object)) {
+        if (reasoner != null && typeNodes.contains(object)) {
             return Collections.emptySet();
         }
         else {
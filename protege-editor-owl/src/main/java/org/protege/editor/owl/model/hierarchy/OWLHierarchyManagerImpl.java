@@ -56,8 +56,10 @@ public class OWLHierarchyManagerImpl implements OWLHierarchyManager {
 
     public OWLObjectHierarchyProvider<OWLClass> getOWLClassHierarchyProvider() {
         if (assertedClassHierarchyProvider == null) {
-            assertedClassHierarchyProvider = new AssertedClassHierarchyProvider(mngr.getOWLOntologyManager());
-            assertedClassHierarchyProvider.setOntologies(mngr.getActiveOntologies());
+            AssertedClassHierarchyProvider provider = new AssertedClassHierarchyProvider(mngr.getOWLOntologyManager());
+            provider.setClosureIndexEnabled(ClassHierarchyPreferences.get().isUseClosureIndex());
+            provider.setOntologies(mngr.getActiveOntologies());
+            assertedClassHierarchyProvider = provider;
         }
         return assertedClassHierarchyProvider;
     }
@@ -5,6 +5,7 @@ import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLOntology;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 
@@ -39,6 +40,24 @@ public interface OWLObjectHierarchyProvider<N extends OWLObject> extends Disposa
     Set<N> getChildren(N object);
 
 
+    /**
+     * Gets the number of children of an object.  Providers that hold their hierarchy in memory can answer this
+     * without creating the set of children.
+     */
+    default int getChildCount(N object) {
+        return getChildren(object).size();
+    }
+
+
+    /**
+     * Passes the children of an object to a consumer.  Providers that hold their hierarchy in memory can do this
+     * without creating the set of children.
+     */
+    default void forEachChild(N object, Consumer<? super N> consumer) {
+        getChildren(object).forEach(consumer);
+    }
+
+
     Set<N> getDescendants(N object);
 
 
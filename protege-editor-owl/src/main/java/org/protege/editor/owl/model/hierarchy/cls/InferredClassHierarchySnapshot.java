@@ -0,0 +1,145 @@
+package org.protege.editor.owl.model.hierarchy.cls;
+
+import org.protege.editor.owl.model.hierarchy.DenseHierarchy;
+import org.protege.editor.owl.model.hierarchy.HierarchyClosureIndex;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.reasoner.Node;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable copy of the class taxonomy computed by a reasoner.
+ * <p>
+ * The copy is taken by the thread that classified the ontology, before the reasoner is handed to the rest of the
+ * editor, so that the {@link InferredOWLClassHierarchyProvider} can answer tree queries without asking the reasoner
+ * from the event dispatch thread.  A snapshot is only valid for as long as the reasoner that it was taken from is the
+ * current reasoner and has not been changed.
+ * </p>
+ */
+public final class InferredClassHierarchySnapshot {
+
+    private final OWLReasoner reasoner;
+
+    private final boolean consistent;
+
+    private final DenseHierarchy<OWLClass> hierarchy;
+
+    /**
+     * The nodes of the classes that have equivalent classes.
+     */
+    private final Map<OWLClass, Node<OWLClass>> equivalents;
+
+    private final Set<OWLClass> unsatisfiable;
+
+    private final HierarchyClosureIndex<OWLClass> closureIndex;
+
+    private InferredClassHierarchySnapshot(OWLReasoner reasoner,
+                                           boolean consistent,
+                                           DenseHierarchy<OWLClass> hierarchy,
+                                           Map<OWLClass, Node<OWLClass>> equivalents,
+                                           Set<OWLClass> unsatisfiable) {
+        this.reasoner = reasoner;
+        this.consistent = consistent;
+        this.hierarchy = hierarchy;
+        this.equivalents = equivalents;
+        this.unsatisfiable = unsatisfiable;
+        this.closureIndex = new HierarchyClosureIndex<>(hierarchy::getParents, hierarchy::getChildren);
+    }
+
+    /**
+     * Copies the taxonomy of a reasoner by walking it down from the top node.  The reasoner must not be used by any
+     * other thread while the copy is taken.
+     * @param reasoner The reasoner.  Not {@code null}.
+     * @param dataFactory The data factory that provides owl:Thing and owl:Nothing.  Not {@code null}.
+     * @return The snapshot.
+     * @throws RuntimeException if the reasoner has been interrupted, disposed or has failed.
+     */
+    @Nonnull
+    public static InferredClassHierarchySnapshot take(@Nonnull OWLReasoner reasoner, @Nonnull OWLDataFactory dataFactory) {
+        checkNotNull(reasoner);
+        if (!reasoner.isConsistent()) {
+            return new InferredClassHierarchySnapshot(reasoner, false, DenseHierarchy.empty(), Collections.emptyMap(), Collections.emptySet());
+        }
+        OWLClass owlThing = dataFactory.getOWLThing();
+        OWLClass owlNothing = dataFactory.getOWLNothing();
+        DenseHierarchy.Builder<OWLClass> builder = DenseHierarchy.builder();
+        Map<OWLClass, Node<OWLClass>> equivalents = new HashMap<>();
+        Node<OWLClass> topNode = reasoner.getTopClassNode();
+        Set<Node<OWLClass>> visited = new HashSet<>();
+        Deque<Node<OWLClass>> queue = new ArrayDeque<>();
+        visited.add(topNode);
+        queue.add(topNode);
+        while (!queue.isEmpty()) {
+            Node<OWLClass> node = queue.poll();
+            for (OWLClass cls : node) {
+                builder.addNode(cls);
+                if (!node.isSingleton()) {
+                    equivalents.put(cls, node);
+                }
+            }
+            for (Node<OWLClass> subNode : reasoner.getSubClasses(node.getRepresentativeElement(), true)) {
+                if (subNode.isBottomNode()) {
+                    // Unsatisfiable classes are only shown under owl:Nothing
+                    continue;
+                }
+                for (OWLClass cls : node) {
+                    for (OWLClass subCls : subNode) {
+                        builder.addEdge(cls, subCls);
+                    }
+                }
+                if (visited.add(subNode)) {
+                    queue.add(subNode);
+                }
+            }
+        }
+        Node<OWLClass> bottomNode = reasoner.getUnsatisfiableClasses();
+        builder.addNode(owlNothing);
+        if (!bottomNode.isSingleton()) {
+            builder.addEdge(owlThing, owlNothing);
+        }
+        for (OWLClass cls : bottomNode.getEntitiesMinus(owlNothing)) {
+            builder.addEdge(owlNothing, cls);
+        }
+        return new InferredClassHierarchySnapshot(reasoner, true, builder.build(), equivalents, bottomNode.getEntities());
+    }
+
+    /**
+     * Gets the reasoner that this snapshot was taken from.
+     */
+    @Nonnull
+    public OWLReasoner getReasoner() {
+        return reasoner;
+    }
+
+    /**
+     * Gets the number of classes in this snapshot.
+     */
+    public int size() {
+        return hierarchy.size();
+    }
+
+    boolean isConsistent() {
+        return consistent;
+    }
+
+    DenseHierarchy<OWLClass> getHierarchy() {
+        return hierarchy;
+    }
+
+    Map<OWLClass, Node<OWLClass>> getEquivalents() {
+        return equivalents;
+    }
+
+    Set<OWLClass> getUnsatisfiable() {
+        return unsatisfiable;
+    }
+
+    HierarchyClosureIndex<OWLClass> getClosureIndex() {
+        return closureIndex;
+    }
+}
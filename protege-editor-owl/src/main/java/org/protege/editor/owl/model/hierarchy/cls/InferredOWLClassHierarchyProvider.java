@@ -5,14 +5,17 @@ import org.protege.editor.owl.model.event.EventType;
 import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
 import org.protege.editor.owl.model.event.OWLModelManagerListener;
 import org.protege.editor.owl.model.hierarchy.AbstractOWLObjectHierarchyProvider;
+import org.protege.editor.owl.model.hierarchy.DenseHierarchy;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.Node;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Set;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 
 /**
@@ -27,22 +30,33 @@ import java.util.Set;
 public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarchyProvider<OWLClass> {
 
 	/*
-	 * There is no local state in this class - all the state is held in the reasoner and the ontologies on which
-	 * this works.  But there is one race condition that I don't know how to track here.  The reasoner can be changed
-	 * underneath this provider while it is running.  A listener doesn't really help because the reasoner can be changed 
-	 * at any time.  But I can hope that the new reasoner will run the same way the old one did. 
+	 * All the state of the hierarchy is held in the reasoner and the ontologies on which this works.  Asking the
+	 * reasoner for the children of every node that a tree shows is slow for some reasoners, so the reasoner manager
+	 * copies the taxonomy into an immutable snapshot on the classification thread, before it installs the reasoner,
+	 * and queries are answered from the snapshot.  When there is no snapshot, and for classes that the snapshot does
+	 * not know about, queries go to the reasoner.  There is still a race condition that I don't know how to track
+	 * here.  The reasoner can be changed underneath this provider while it is running.  A listener doesn't really
+	 * help because the reasoner can be changed at any time.  But a snapshot is only used while the reasoner it was
+	 * taken from is the current reasoner.
 	 */
-	
+
     private final OWLModelManager owlModelManager;
 
     private final OWLClass owlThing;
     private final OWLClass owlNothing;
 
+    @Nullable
+    private volatile InferredClassHierarchySnapshot snapshot;
+
     private OWLModelManagerListener owlModelManagerListener = event -> {
         if (event.isType(EventType.REASONER_CHANGED) || event.isType(EventType.ACTIVE_ONTOLOGY_CHANGED)
                 || event.isType(EventType.ONTOLOGY_CLASSIFIED) || event.isType(EventType.ONTOLOGY_RELOADED)) {
+            updateSnapshot();
             fireHierarchyChanged();
         }
+        else if (event.isType(EventType.ABOUT_TO_CLASSIFY)) {
+            snapshot = null;
+        }
     };
 
     public InferredOWLClassHierarchyProvider(OWLModelManager owlModelManager, OWLOntologyManager owlOntologyManager) {
@@ -53,6 +67,7 @@ public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarch
         owlNothing = owlModelManager.getOWLDataFactory().getOWLNothing();
 
         owlModelManager.addListener(owlModelManagerListener);
+        updateSnapshot();
     }
 
 
@@ -63,6 +78,7 @@ public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarch
     public void dispose() {
         super.dispose();
         owlModelManager.removeListener(owlModelManagerListener);
+        snapshot = null;
     }
 
 
@@ -76,7 +92,33 @@ public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarch
     }
 
 
+    private void updateSnapshot() {
+        snapshot = owlModelManager.getOWLReasonerManager().getInferredClassHierarchySnapshot().orElse(null);
+    }
+
+
+    /**
+     * Gets the snapshot that can answer queries about a class.
+     * @return The snapshot, or <code>null</code> if the reasoner must be asked.
+     */
+    @Nullable
+    private InferredClassHierarchySnapshot getSnapshot(OWLClass cls) {
+        InferredClassHierarchySnapshot current = snapshot;
+        if (current == null || current.getReasoner() != getReasoner()) {
+            return null;
+        }
+        if (current.isConsistent() && !current.getHierarchy().contains(cls)) {
+            return null;
+        }
+        return current;
+    }
+
+
     public Set<OWLClass> getUnfilteredChildren(OWLClass object) {
+        InferredClassHierarchySnapshot current = getSnapshot(object);
+        if (current != null) {
+            return current.getHierarchy().getChildren(object);
+        }
 //    	getReadLock().lock();
     	try {
             if(!getReasoner().isConsistent()) {
@@ -107,7 +149,55 @@ public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarch
     }
 
 
+    @Override
+    public int getChildCount(OWLClass object) {
+        InferredClassHierarchySnapshot current = getSnapshot(object);
+        if (current == null) {
+            return super.getChildCount(object);
+        }
+        DenseHierarchy<OWLClass> hierarchy = current.getHierarchy();
+        int id = hierarchy.getId(object);
+        if (id < 0) {
+            return 0;
+        }
+        Predicate<OWLClass> filter = getFilter();
+        int count = 0;
+        for (int i = 0; i < hierarchy.getChildCount(id); i++) {
+            if (filter.test(hierarchy.getNode(hierarchy.getChildId(id, i)))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    @Override
+    public void forEachChild(OWLClass object, Consumer<? super OWLClass> consumer) {
+        InferredClassHierarchySnapshot current = getSnapshot(object);
+        if (current == null) {
+            super.forEachChild(object, consumer);
+            return;
+        }
+        Predicate<OWLClass> filter = getFilter();
+        current.getHierarchy().forEachChild(object, child -> {
+            if (filter.test(child)) {
+                consumer.accept(child);
+            }
+        });
+    }
+
+
     public Set<OWLClass> getDescendants(OWLClass object) {
+        InferredClassHierarchySnapshot current = getSnapshot(object);
+        if (current != null && !current.getUnsatisfiable().contains(object)) {
+            if (!current.isConsistent()) {
+                return Collections.emptySet();
+            }
+            // The reasoner counts the unsatisfiable classes as descendants of every class
+            Set<OWLClass> descendants = current.getClosureIndex().getDescendants(object);
+            descendants.addAll(current.getUnsatisfiable());
+            return descendants;
+        }
 //    	getReadLock().lock();
         try {
             if(!getReasoner().isConsistent()) {
@@ -122,6 +212,16 @@ public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarch
 
 
     	public Set<OWLClass> getParents(OWLClass object) {
+            InferredClassHierarchySnapshot current = getSnapshot(object);
+            if (current != null) {
+                if (!current.isConsistent()) {
+                    return Collections.emptySet();
+                }
+                if (object.isOWLNothing()) {
+                    return Collections.singleton(owlThing);
+                }
+                return new HashSet<>(current.getHierarchy().getParents(object));
+            }
 //    		getReadLock().lock();
     		try {
                 if(!getReasoner().isConsistent()) {
@@ -145,6 +245,13 @@ public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarch
 
 
     public Set<OWLClass> getAncestors(OWLClass object) {
+        InferredClassHierarchySnapshot current = getSnapshot(object);
+        if (current != null && !current.getUnsatisfiable().contains(object)) {
+            if (!current.isConsistent()) {
+                return Collections.emptySet();
+            }
+            return current.getClosureIndex().getAncestors(object);
+        }
 //    	getReadLock().lock();
     	try {
             if(!getReasoner().isConsistent()) {
@@ -159,6 +266,14 @@ public class InferredOWLClassHierarchyProvider extends AbstractOWLObjectHierarch
 
 
     public Set<OWLClass> getEquivalents(OWLClass object) {
+        InferredClassHierarchySnapshot current = getSnapshot(object);
+        if (current != null) {
+            if (!current.isConsistent() || current.getUnsatisfiable().contains(object)) {
+                return Collections.emptySet();
+            }
+            Node<OWLClass> node = current.getEquivalents().get(object);
+            return node != null ? node.getEntitiesMinus(object) : Collections.emptySet();
+        }
 //        getReadLock().lock();
         try {
             if(!getReasoner().isConsistent()) {
@@ -0,0 +1,161 @@
+package org.protege.editor.owl.model.history;
+
+import org.semanticweb.owlapi.change.OWLOntologyChangeData;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.SetOntologyID;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A set of changes on the undo or redo stack.  An entry starts out holding the change objects.  It can then be
+ * encoded, in which case it holds the compressed change data, and an encoded entry can be spilled, in which case the
+ * change data is held in a {@link HistorySpillFile}.  The change objects are recreated when they are needed.
+ * <p>
+ * The encoded change data refers to the ontologies that the changes apply to by their position in a list that the
+ * entry keeps.  The original id of a {@link SetOntologyID} change is not part of its change data, so it is encoded
+ * alongside the data.
+ * </p>
+ */
+final class HistoryEntry {
+
+    private final List<OWLOntology> ontologies = new ArrayList<>(1);
+
+    private List<OWLOntologyChange> changes;
+
+    private byte[] encodedChanges;
+
+    private long spillOffset = -1;
+
+    private int encodedSize;
+
+    private HistoryEntry(List<OWLOntologyChange> changes) {
+        this.changes = changes;
+    }
+
+    public static HistoryEntry of(List<? extends OWLOntologyChange> changes) {
+        return new HistoryEntry(new ArrayList<>(changes));
+    }
+
+    public boolean isEncoded() {
+        return changes == null;
+    }
+
+    public boolean isSpilled() {
+        return spillOffset != -1;
+    }
+
+    /**
+     * Gets the size, in bytes, of the encoded changes, or zero if the entry has not been encoded.
+     */
+    public int getEncodedSize() {
+        return encodedSize;
+    }
+
+    /**
+     * Gets the changes in this entry, recreating them if the entry has been encoded.
+     * @param spillFile The file that the entry may have been spilled to.
+     * @return A fresh list of the changes.
+     */
+    public List<OWLOntologyChange> getChanges(HistorySpillFile spillFile) throws IOException {
+        if (!isEncoded()) {
+            return new ArrayList<>(changes);
+        }
+        byte[] bytes = isSpilled() ? spillFile.read(spillOffset, encodedSize) : encodedChanges;
+        try (ObjectInputStream in = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            int changeCount = in.readInt();
+            List<OWLOntologyChange> result = new ArrayList<>(changeCount);
+            for (int i = 0; i < changeCount; i++) {
+                OWLOntology ontology = ontologies.get(in.readInt());
+                OWLOntologyChangeData data = (OWLOntologyChangeData) in.readObject();
+                OWLOntologyChange change = data.createOntologyChange(ontology);
+                if (change instanceof SetOntologyID) {
+                    OWLOntologyID originalOntologyID = (OWLOntologyID) in.readObject();
+                    change = new RestoredSetOntologyID(ontology, originalOntologyID, ((SetOntologyID) change).getNewOntologyID());
+                }
+                result.add(change);
+            }
+            return result;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Replaces the change objects in this entry with compressed change data.
+     * @return The size, in bytes, of the encoded changes.
+     */
+    public int encode() throws IOException {
+        if (isEncoded()) {
+            return encodedSize;
+        }
+        Map<OWLOntology, Integer> ontologyIndexes = new IdentityHashMap<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+                out.writeInt(changes.size());
+                for (OWLOntologyChange change : changes) {
+                    Integer ontologyIndex = ontologyIndexes.get(change.getOntology());
+                    if (ontologyIndex == null) {
+                        ontologyIndex = ontologyIndexes.size();
+                        ontologyIndexes.put(change.getOntology(), ontologyIndex);
+                        ontologies.add(change.getOntology());
+                    }
+                    out.writeInt(ontologyIndex);
+                    out.writeObject(change.getChangeData());
+                    if (change instanceof SetOntologyID) {
+                        out.writeObject(((SetOntologyID) change).getOriginalOntologyID());
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            ontologies.clear();
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        encodedChanges = bytes.toByteArray();
+        encodedSize = encodedChanges.length;
+        changes = null;
+        return encodedSize;
+    }
+
+    /**
+     * Moves the encoded changes in this entry to a spill file.  The entry must have been encoded.
+     */
+    public void spill(HistorySpillFile spillFile) throws IOException {
+        if (isSpilled()) {
+            return;
+        }
+        spillOffset = spillFile.append(encodedChanges);
+        encodedChanges = null;
+    }
+
+    /**
+     * A {@link SetOntologyID} change whose original id is given rather than taken from the ontology, which will
+     * already have the new id when the change is recreated.
+     */
+    private static final class RestoredSetOntologyID extends SetOntologyID {
+
+        private final OWLOntologyID originalOntologyID;
+
+        private RestoredSetOntologyID(OWLOntology ontology, OWLOntologyID originalOntologyID, OWLOntologyID newOntologyID) {
+            super(ontology, newOntologyID);
+            this.originalOntologyID = originalOntologyID;
+        }
+
+        @Override
+        public OWLOntologyID getOriginalOntologyID() {
+            return originalOntologyID;
+        }
+    }
+}
@@ -74,4 +74,9 @@ public interface HistoryManager {
      */
     void removeUndoManagerListener(@Nonnull UndoManagerListener listener);
 
+    /**
+     * Releases any resources, such as temporary files, that are held by this history manager.
+     */
+    default void dispose() {
+    }
 }
@@ -7,9 +7,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -37,20 +37,14 @@ public class HistoryManagerImpl implements HistoryManager {
 
 
     /**
-     * Holds a list of sets of changes that can be undone.
-     * These are a list of "forward" changes - in other words
-     * if the list contain an "add superclass" history, then the
+     * Holds the sets of changes that can be undone and redone.
+     * Both stacks hold "forward" changes - in other words
+     * if the undo stack contains an "add superclass" history, then the
      * required undo history is a "remove superclass" history.
+     * The redo stack holds changes that result from an undo operation,
+     * again as "forward" changes rather than the "undo changes".
      */
-    private final Stack<List<OWLOntologyChange>> undoStack = new Stack<>();
-
-    /**
-     * Holds a list of sets of changes that can be redone. These
-     * are changes that result from an undo operation.
-     * These are a list of "forward" changes rather that the
-     * "undo changes".
-     */
-    private final Stack<List<OWLOntologyChange>> redoStack = new Stack<>();
+    private final HistoryStore historyStore;
 
     private final List<UndoManagerListener> listeners = new ArrayList<>();
 
@@ -61,18 +55,30 @@ public class HistoryManagerImpl implements HistoryManager {
     }
     
     public HistoryManagerImpl(OWLOntologyManager manager) {
+        this(manager, createHistoryStore());
+    }
+
+    HistoryManagerImpl(OWLOntologyManager manager, HistoryStore historyStore) {
         this.manager = manager;
+        this.historyStore = historyStore;
         typeOfChangeInProgress = ChangeType.NORMAL;
     }
 
+    private static HistoryStore createHistoryStore() {
+        HistoryPreferences preferences = HistoryPreferences.get();
+        return new HistoryStore(preferences.getUnencodedEntryCount(),
+                                preferences.getMemoryBudgetMB() * 1024L * 1024L,
+                                preferences.isSpillToDisk());
+    }
+
 
     public boolean canRedo() {
-        return redoStack.size() > 0;
+        return historyStore.canRedo();
     }
 
 
     public boolean canUndo() {
-        return undoStack.size() > 0;
+        return historyStore.canUndo();
     }
 
 
@@ -81,11 +87,11 @@ public class HistoryManagerImpl implements HistoryManager {
         case NORMAL:
             // Clear the redo stack, because we can
             // no longer redo
-            redoStack.clear();
+            historyStore.clearRedo();
             // no break;
         case REDOING:
             // Push the changes onto the stack
-            undoStack.push(new ArrayList<>(changes));
+            historyStore.pushUndo(changes);
             break;
         case UNDOING:
             // In undo mode, so handleSave changes for redo.
@@ -94,7 +100,7 @@ public class HistoryManagerImpl implements HistoryManager {
             // (The stacks, both undo and redo, should always hold the forward
             // changes).
 
-            redoStack.push(reverseChanges(changes));
+            historyStore.pushRedo(reverseChanges(changes));
             break;
         }
         fireStateChanged();
@@ -105,7 +111,7 @@ public class HistoryManagerImpl implements HistoryManager {
         if (canRedo()) {
             try {
                 typeOfChangeInProgress = ChangeType.REDOING;
-                List<OWLOntologyChange> redoChanges = redoStack.pop();
+                List<OWLOntologyChange> redoChanges = historyStore.popRedo();
                 manager.applyChanges(redoChanges);
             }
             catch (Exception e) {
@@ -123,7 +129,7 @@ public class HistoryManagerImpl implements HistoryManager {
             try {
                 typeOfChangeInProgress = ChangeType.UNDOING;
                 // Attempt to undo the changes
-                List<OWLOntologyChange> changes = undoStack.pop();
+                List<OWLOntologyChange> changes = historyStore.popUndo();
 
                 // Apply the changes
                 manager.applyChanges(reverseChanges(changes));
@@ -142,11 +148,15 @@ public class HistoryManagerImpl implements HistoryManager {
 
     @Override
     public void clear() {
-        redoStack.clear();
-        undoStack.clear();
+        historyStore.clear();
         fireStateChanged();
     }
 
+    @Override
+    public void dispose() {
+        historyStore.dispose();
+    }
+
     public void addUndoManagerListener(@Nonnull UndoManagerListener listener) {
         listeners.add(checkNotNull(listener));
     }
@@ -158,11 +168,13 @@ public class HistoryManagerImpl implements HistoryManager {
 
     @Nonnull
     public List<List<OWLOntologyChange>> getLoggedChanges() {
-        List<List<OWLOntologyChange>> copyOfLog = new ArrayList<>();
-        for (List<OWLOntologyChange> changes : undoStack){
-            copyOfLog.add(new ArrayList<>(changes));
+        try {
+            return historyStore.getUndoChanges();
+        }
+        catch (IOException e) {
+            logger.error("An error occurred whilst reading the logged changes.", e);
+            return new ArrayList<>();
         }
-        return copyOfLog;
     }
 
 
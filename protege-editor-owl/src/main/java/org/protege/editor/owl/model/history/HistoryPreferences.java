@@ -0,0 +1,68 @@
+package org.protege.editor.owl.model.history;
+
+import org.protege.editor.core.prefs.Preferences;
+import org.protege.editor.core.prefs.PreferencesManager;
+
+/**
+ * Preferences for the undo and redo history.
+ */
+public class HistoryPreferences {
+
+    private static final String HISTORY_PREFERENCES = "HISTORY_PREFERENCES";
+
+    private static final HistoryPreferences PREFERENCES = new HistoryPreferences();
+
+    private static final String MEMORY_BUDGET_MB_KEY = "MEMORY_BUDGET_MB";
+
+    private static final String UNENCODED_ENTRY_COUNT_KEY = "UNENCODED_ENTRY_COUNT";
+
+    private static final String SPILL_TO_DISK_KEY = "SPILL_TO_DISK";
+
+    private static final int DEFAULT_MEMORY_BUDGET_MB = 64;
+
+    private static final int DEFAULT_UNENCODED_ENTRY_COUNT = 10;
+
+    private static Preferences getPreferences() {
+        return PreferencesManager.getInstance().getApplicationPreferences(HISTORY_PREFERENCES);
+    }
+
+    public static HistoryPreferences get() {
+        return PREFERENCES;
+    }
+
+    /**
+     * Gets the amount of memory, in megabytes, that encoded history entries may occupy before the oldest of them
+     * are spilled to disk, or discarded if spilling is turned off.
+     */
+    public int getMemoryBudgetMB() {
+        return Math.max(1, getPreferences().getInt(MEMORY_BUDGET_MB_KEY, DEFAULT_MEMORY_BUDGET_MB));
+    }
+
+    public void setMemoryBudgetMB(int memoryBudgetMB) {
+        getPreferences().putInt(MEMORY_BUDGET_MB_KEY, memoryBudgetMB);
+    }
+
+    /**
+     * Gets the number of the most recent entries on each of the undo and redo stacks that are kept as change
+     * objects.  Older entries are encoded.
+     */
+    public int getUnencodedEntryCount() {
+        return Math.max(0, getPreferences().getInt(UNENCODED_ENTRY_COUNT_KEY, DEFAULT_UNENCODED_ENTRY_COUNT));
+    }
+
+    public void setUnencodedEntryCount(int unencodedEntryCount) {
+        getPreferences().putInt(UNENCODED_ENTRY_COUNT_KEY, unencodedEntryCount);
+    }
+
+    /**
+     * Determines whether history entries that do not fit in the memory budget are written to a temporary file
+     * rather than discarded.
+     */
+    public boolean isSpillToDisk() {
+        return getPreferences().getBoolean(SPILL_TO_DISK_KEY, true);
+    }
+
+    public void setSpillToDisk(boolean spillToDisk) {
+        getPreferences().putBoolean(SPILL_TO_DISK_KEY, spillToDisk);
+    }
+}
@@ -0,0 +1,77 @@
+package org.protege.editor.owl.model.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A temporary file that encoded history entries are appended to when they no longer fit in memory.  The file is
+ * created when the first entry is spilled and is deleted when it is closed or when the application exits.
+ */
+final class HistorySpillFile {
+
+    private FileChannel channel;
+
+    private Path path;
+
+    private long size;
+
+    /**
+     * Appends some bytes to the file.
+     * @return The offset that the bytes were written at.
+     */
+    public synchronized long append(byte[] bytes) throws IOException {
+        if (channel == null) {
+            path = Files.createTempFile("protege-history-", ".bin");
+            path.toFile().deleteOnExit();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        long offset = size;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        size += bytes.length;
+        return offset;
+    }
+
+    public synchronized byte[] read(long offset, int length) throws IOException {
+        if (channel == null) {
+            throw new IOException("Nothing has been spilled to the history file");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the history file " + path);
+            }
+        }
+        return buffer.array();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Discards the contents of the file.
+     */
+    public synchronized void clear() throws IOException {
+        if (channel != null) {
+            channel.truncate(0);
+        }
+        size = 0;
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            Files.deleteIfExists(path);
+            channel = null;
+            path = null;
+        }
+        size = 0;
+    }
+}
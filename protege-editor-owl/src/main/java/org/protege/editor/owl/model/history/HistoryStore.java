@@ -0,0 +1,222 @@
+package org.protege.editor.owl.model.history;
+
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the undo and redo stacks of a {@link HistoryManagerImpl} within a memory budget.
+ * <p>
+ * The most recent entries on each stack are kept as change objects.  Older entries are encoded as compressed change
+ * records, and when the encoded entries that are held in memory exceed the budget the oldest of them are spilled to
+ * a temporary file.  If spilling is turned off, or fails, the oldest entries are discarded instead.  Entries are
+ * only turned back into change objects when they are popped.
+ * </p>
+ */
+final class HistoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryStore.class);
+
+    private final Stack undoStack = new Stack();
+
+    private final Stack redoStack = new Stack();
+
+    private final int unencodedEntryCount;
+
+    private final long memoryBudget;
+
+    private boolean spillToDisk;
+
+    private final HistorySpillFile spillFile = new HistorySpillFile();
+
+    private long encodedSizeInMemory = 0;
+
+    /**
+     * @param unencodedEntryCount The number of the most recent entries on each stack that are not encoded.
+     * @param memoryBudget        The size, in bytes, that encoded entries held in memory may occupy.
+     * @param spillToDisk         Whether entries that do not fit in the budget are spilled to disk or discarded.
+     */
+    public HistoryStore(int unencodedEntryCount, long memoryBudget, boolean spillToDisk) {
+        this.unencodedEntryCount = unencodedEntryCount;
+        this.memoryBudget = memoryBudget;
+        this.spillToDisk = spillToDisk;
+    }
+
+    public boolean canUndo() {
+        return !undoStack.entries.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.entries.isEmpty();
+    }
+
+    public void pushUndo(List<? extends OWLOntologyChange> changes) {
+        undoStack.entries.add(HistoryEntry.of(changes));
+        compact();
+    }
+
+    public void pushRedo(List<? extends OWLOntologyChange> changes) {
+        redoStack.entries.add(HistoryEntry.of(changes));
+        compact();
+    }
+
+    public List<OWLOntologyChange> popUndo() throws IOException {
+        return pop(undoStack);
+    }
+
+    public List<OWLOntologyChange> popRedo() throws IOException {
+        return pop(redoStack);
+    }
+
+    public void clearRedo() {
+        clear(redoStack);
+        clearSpillFileIfUnused();
+    }
+
+    public void clear() {
+        clear(undoStack);
+        clear(redoStack);
+        clearSpillFileIfUnused();
+    }
+
+    /**
+     * Gets the changes on the undo stack, oldest first.
+     */
+    public List<List<OWLOntologyChange>> getUndoChanges() throws IOException {
+        List<List<OWLOntologyChange>> result = new ArrayList<>(undoStack.entries.size());
+        for (HistoryEntry entry : undoStack.entries) {
+            result.add(entry.getChanges(spillFile));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the size, in bytes, of the encoded entries that are held in memory.
+     */
+    public long getEncodedSizeInMemory() {
+        return encodedSizeInMemory;
+    }
+
+    /**
+     * Gets the number of entries that have been spilled to disk.
+     */
+    public int getSpilledEntryCount() {
+        return undoStack.spilledCount + redoStack.spilledCount;
+    }
+
+    public void dispose() {
+        clear();
+        try {
+            spillFile.close();
+        } catch (IOException e) {
+            logger.warn("Could not delete the history spill file: {}", e.getMessage());
+        }
+    }
+
+    private List<OWLOntologyChange> pop(Stack stack) throws IOException {
+        HistoryEntry entry = stack.entries.remove(stack.entries.size() - 1);
+        forget(stack, entry);
+        try {
+            return entry.getChanges(spillFile);
+        } finally {
+            clearSpillFileIfUnused();
+        }
+    }
+
+    private void clear(Stack stack) {
+        for (HistoryEntry entry : stack.entries) {
+            forget(stack, entry);
+        }
+        stack.entries.clear();
+    }
+
+    private void forget(Stack stack, HistoryEntry entry) {
+        if (entry.isSpilled()) {
+            stack.spilledCount--;
+        }
+        else {
+            encodedSizeInMemory -= entry.getEncodedSize();
+        }
+    }
+
+    private void clearSpillFileIfUnused() {
+        if (getSpilledEntryCount() == 0 && spillFile.getSize() > 0) {
+            try {
+                spillFile.clear();
+            } catch (IOException e) {
+                logger.warn("Could not clear the history spill file: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void compact() {
+        encodeOldEntries(undoStack);
+        encodeOldEntries(redoStack);
+        while (encodedSizeInMemory > memoryBudget) {
+            Stack stack = undoStack.hasEncodedEntryInMemory() ? undoStack : redoStack;
+            if (!stack.hasEncodedEntryInMemory()) {
+                break;
+            }
+            if (spillToDisk) {
+                spillOldestEntry(stack);
+            }
+            else {
+                discardOldestEntry(stack);
+            }
+        }
+    }
+
+    /**
+     * Encodes the entries that have fallen out of the unencoded region at the top of a stack.  Entries below an
+     * encoded entry are always encoded, so the search stops at the first one.
+     */
+    private void encodeOldEntries(Stack stack) {
+        for (int i = stack.entries.size() - unencodedEntryCount - 1; i >= 0; i--) {
+            HistoryEntry entry = stack.entries.get(i);
+            if (entry.isEncoded()) {
+                break;
+            }
+            try {
+                encodedSizeInMemory += entry.encode();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not encode a history entry.  It will be kept as it is: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void spillOldestEntry(Stack stack) {
+        HistoryEntry entry = stack.entries.get(stack.spilledCount);
+        try {
+            entry.spill(spillFile);
+            stack.spilledCount++;
+            encodedSizeInMemory -= entry.getEncodedSize();
+        } catch (IOException e) {
+            logger.warn("Could not spill the history to disk.  The oldest history will be discarded instead: {}", e.getMessage());
+            spillToDisk = false;
+        }
+    }
+
+    private void discardOldestEntry(Stack stack) {
+        HistoryEntry entry = stack.entries.remove(0);
+        forget(stack, entry);
+        clearSpillFileIfUnused();
+    }
+
+    /**
+     * The entries of a stack, oldest first.  The spilled entries are always the oldest ones.
+     */
+    private static final class Stack {
+
+        private final List<HistoryEntry> entries = new ArrayList<>();
+
+        private int spilledCount = 0;
+
+        private boolean hasEncodedEntryInMemory() {
+            return spilledCount < entries.size() && entries.get(spilledCount).isEncoded();
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package org.protege.editor.owl.model.inference;
+
+import org.protege.editor.owl.model.hierarchy.DenseHierarchy;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.reasoner.*;
+import org.semanticweb.owlapi.reasoner.impl.*;
+import org.semanticweb.owlapi.util.Version;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A read only reasoner that answers queries from a taxonomy that was computed by another reasoner and saved by
+ * {@link ClassificationCacheFile}.
+ * <p>
+ * The reasoner knows the class, object property and data property hierarchies and the types of named individuals,
+ * as far as these were computed when the taxonomy was saved.  Queries about these hierarchies and types are
+ * answered from the taxonomy, and entities that are not in the taxonomy are treated as fresh entities.  Any other
+ * query, such as a query about a class expression, property values or an entailment check, is given an empty answer,
+ * in the same way as the {@link NoOpReasoner}, and asks for a reasoner to be started in the background through the
+ * handler set with {@link #setReasonerRequestHandler(Runnable)}.
+ * </p>
+ * <p>
+ * Changes to the logical axioms of the imports closure of the root ontology are reported as pending changes, so
+ * that the ontology is shown as out of sync with the reasoner and a real reasoner is started when the ontology is
+ * classified.  The reasoner never reacts to these changes itself.
+ * </p>
+ */
+public class CachedTaxonomyReasoner implements OWLReasoner {
+
+    private final OWLOntology rootOntology;
+
+    private final String reasonerName;
+
+    private final Version reasonerVersion;
+
+    private final boolean stale;
+
+    private final Taxonomy<OWLClass> classes;
+
+    @Nullable
+    private final Taxonomy<OWLObjectPropertyExpression> objectProperties;
+
+    @Nullable
+    private final Taxonomy<OWLDataProperty> dataProperties;
+
+    @Nullable
+    private final Map<OWLNamedIndividual, Set<Node<OWLClass>>> directTypes;
+
+    private final Map<Node<OWLClass>, Set<OWLNamedIndividual>> directInstances = new HashMap<>();
+
+    private final List<OWLOntologyChange> pendingChanges = new ArrayList<>();
+
+    private final OWLOntologyChangeListener changeListener = this::recordChanges;
+
+    private volatile Runnable reasonerRequestHandler = () -> {};
+
+    private final AtomicBoolean reasonerRequested = new AtomicBoolean();
+
+    /**
+     * @param stale <code>true</code> if the logical axioms of the ontologies have changed since the taxonomy was
+     *              computed.
+     * @param objectProperties The object property hierarchy, or <code>null</code> if it was not computed.
+     * @param dataProperties The data property hierarchy, or <code>null</code> if it was not computed.
+     * @param directTypes The direct types of the named individuals, or <code>null</code> if they were not computed.
+     */
+    public CachedTaxonomyReasoner(@Nonnull OWLOntology rootOntology,
+                                  @Nonnull String reasonerName,
+                                  @Nonnull Version reasonerVersion,
+                                  boolean stale,
+                                  @Nonnull Taxonomy<OWLClass> classes,
+                                  @Nullable Taxonomy<OWLObjectPropertyExpression> objectProperties,
+                                  @Nullable Taxonomy<OWLDataProperty> dataProperties,
+                                  @Nullable Map<OWLNamedIndividual, Set<Node<OWLClass>>> directTypes) {
+        this.rootOntology = rootOntology;
+        this.reasonerName = reasonerName;
+        this.reasonerVersion = reasonerVersion;
+        this.stale = stale;
+        this.classes = classes;
+        this.objectProperties = objectProperties;
+        this.dataProperties = dataProperties;
+        this.directTypes = directTypes;
+        if (directTypes != null) {
+            directTypes.forEach((ind, types) -> {
+                for (Node<OWLClass> type : types) {
+                    directInstances.computeIfAbsent(type, t -> new HashSet<>()).add(ind);
+                }
+            });
+        }
+        rootOntology.getOWLOntologyManager().addOntologyChangeListener(changeListener);
+    }
+
+    /**
+     * Determines whether the logical axioms of the ontologies had changed since the taxonomy was computed at the
+     * time that the taxonomy was read.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Sets the handler that is called, once, the first time that this reasoner is asked a query that it cannot answer
+     * from the taxonomy.  The handler may be called on any thread.
+     */
+    public void setReasonerRequestHandler(@Nonnull Runnable reasonerRequestHandler) {
+        this.reasonerRequestHandler = checkNotNull(reasonerRequestHandler);
+    }
+
+    /**
+     * Asks for a reasoner to be started because a query cannot be answered from the taxonomy.  The caller then gives
+     * an empty answer.
+     */
+    private void requestReasoner() {
+        if (reasonerRequested.compareAndSet(false, true)) {
+            reasonerRequestHandler.run();
+        }
+    }
+
+    private void recordChanges(List<? extends OWLOntologyChange> changes) {
+        Set<OWLOntology> importsClosure = null;
+        for (OWLOntologyChange change : changes) {
+            if (!change.isAxiomChange() || !change.getAxiom().isLogicalAxiom()) {
+                continue;
+            }
+            if (importsClosure == null) {
+                importsClosure = rootOntology.getImportsClosure();
+            }
+            if (importsClosure.contains(change.getOntology())) {
+                synchronized (pendingChanges) {
+                    pendingChanges.add(change);
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    public OWLOntology getRootOntology() {
+        return rootOntology;
+    }
+
+    @Nonnull
+    public Set<OWLAxiom> getPendingAxiomAdditions() {
+        return getPendingAxioms(true);
+    }
+
+    @Nonnull
+    public Set<OWLAxiom> getPendingAxiomRemovals() {
+        return getPendingAxioms(false);
+    }
+
+    private Set<OWLAxiom> getPendingAxioms(boolean additions) {
+        Set<OWLAxiom> axioms = new HashSet<>();
+        synchronized (pendingChanges) {
+            for (OWLOntologyChange change : pendingChanges) {
+                if (change.isAddAxiom() == additions) {
+                    axioms.add(change.getAxiom());
+                }
+            }
+        }
+        return axioms;
+    }
+
+    @Nonnull
+    public List<OWLOntologyChange> getPendingChanges() {
+        synchronized (pendingChanges) {
+            return new ArrayList<>(pendingChanges);
+        }
+    }
+
+    @Nonnull
+    public BufferingMode getBufferingMode() {
+        return BufferingMode.BUFFERING;
+    }
+
+    public long getTimeOut() {
+        return 0;
+    }
+
+    @Nonnull
+    public Set<InferenceType> getPrecomputableInferenceTypes() {
+        return Collections.emptySet();
+    }
+
+    public boolean isPrecomputed(@Nonnull InferenceType inferenceType) {
+        switch (inferenceType) {
+            case CLASS_HIERARCHY:
+                return true;
+            case OBJECT_PROPERTY_HIERARCHY:
+                return objectProperties != null;
+            case DATA_PROPERTY_HIERARCHY:
+                return dataProperties != null;
+            case CLASS_ASSERTIONS:
+                return directTypes != null;
+            default:
+                return false;
+        }
+    }
+
+    public void precomputeInferences(@Nonnull InferenceType... inferenceTypes) {
+    }
+
+    public void interrupt() {
+    }
+
+    public void dispose() {
+        rootOntology.getOWLOntologyManager().removeOntologyChangeListener(changeListener);
+    }
+
+    public void flush() {
+    }
+
+    public boolean isConsistent() {
+        // Only the taxonomies of consistent ontologies are saved
+        return true;
+    }
+
+    @Nonnull
+    public Node<OWLClass> getTopClassNode() {
+        return classes.getTopNode();
+    }
+
+    @Nonnull
+    public Node<OWLClass> getBottomClassNode() {
+        return classes.getBottomNode();
+    }
+
+    @Nonnull
+    public Node<OWLClass> getUnsatisfiableClasses() {
+        return classes.getBottomNode();
+    }
+
+    public boolean isSatisfiable(@Nonnull OWLClassExpression classExpression) {
+        if (classExpression.isAnonymous()) {
+            requestReasoner();
+            return true;
+        }
+        return !classes.getBottomNode().contains(classExpression.asOWLClass());
+    }
+
+    @Nonnull
+    public Node<OWLClass> getEquivalentClasses(@Nonnull OWLClassExpression ce) {
+        if (ce.isAnonymous()) {
+            requestReasoner();
+            return new OWLClassNode();
+        }
+        Node<OWLClass> node = classes.getNode(ce.asOWLClass());
+        return node != null ? node : new OWLClassNode(ce.asOWLClass());
+    }
+
+    @Nonnull
+    public NodeSet<OWLClass> getSubClasses(@Nonnull OWLClassExpression ce, boolean direct) {
+        if (ce.isAnonymous()) {
+            requestReasoner();
+            return new OWLClassNodeSet();
+        }
+        return new OWLClassNodeSet(classes.getSubNodes(ce.asOWLClass(), direct));
+    }
+
+    @Nonnull
+    public NodeSet<OWLClass> getSuperClasses(@Nonnull OWLClassExpression ce, boolean direct) {
+        if (ce.isAnonymous()) {
+            requestReasoner();
+            return new OWLClassNodeSet();
+        }
+        return new OWLClassNodeSet(classes.getSuperNodes(ce.asOWLClass(), direct));
+    }
+
+    @Nonnull
+    public NodeSet<OWLClass> getDisjointClasses(@Nonnull OWLClassExpression ce) {
+        requestReasoner();
+        return new OWLClassNodeSet();
+    }
+
+    @Nonnull
+    public Node<OWLObjectPropertyExpression> getTopObjectPropertyNode() {
+        return objectProperties != null ? objectProperties.getTopNode() : new OWLObjectPropertyNode(getOWLDataFactory().getOWLTopObjectProperty());
+    }
+
+    @Nonnull
+    public Node<OWLObjectPropertyExpression> getBottomObjectPropertyNode() {
+        return objectProperties != null ? objectProperties.getBottomNode() : new OWLObjectPropertyNode(getOWLDataFactory().getOWLBottomObjectProperty());
+    }
+
+    @Nonnull
+    public NodeSet<OWLObjectPropertyExpression> getSubObjectProperties(@Nonnull OWLObjectPropertyExpression pe, boolean direct) {
+        if (objectProperties == null) {
+            requestReasoner();
+            return new OWLObjectPropertyNodeSet();
+        }
+        return new OWLObjectPropertyNodeSet(objectProperties.getSubNodes(pe, direct));
+    }
+
+    @Nonnull
+    public NodeSet<OWLObjectPropertyExpression> getSuperObjectProperties(@Nonnull OWLObjectPropertyExpression pe, boolean direct) {
+        if (objectProperties == null) {
+            requestReasoner();
+            return new OWLObjectPropertyNodeSet();
+        }
+        return new OWLObjectPropertyNodeSet(objectProperties.getSuperNodes(pe, direct));
+    }
+
+    @Nonnull
+    public Node<OWLObjectPropertyExpression> getEquivalentObjectProperties(@Nonnull OWLObjectPropertyExpression pe) {
+        if (objectProperties == null) {
+            requestReasoner();
+            return new OWLObjectPropertyNode(pe);
+        }
+        Node<OWLObjectPropertyExpression> node = objectProperties.getNode(pe);
+        return node != null ? node : new OWLObjectPropertyNode(pe);
+    }
+
+    @Nonnull
+    public NodeSet<OWLObjectPropertyExpression> getDisjointObjectProperties(@Nonnull OWLObjectPropertyExpression pe) {
+        requestReasoner();
+        return new OWLObjectPropertyNodeSet();
+    }
+
+    @Nonnull
+    public Node<OWLObjectPropertyExpression> getInverseObjectProperties(@Nonnull OWLObjectPropertyExpression pe) {
+        requestReasoner();
+        return new OWLObjectPropertyNode();
+    }
+
+    @Nonnull
+    public NodeSet<OWLClass> getObjectPropertyDomains(@Nonnull OWLObjectPropertyExpression pe, boolean direct) {
+        requestReasoner();
+        return new OWLClassNodeSet();
+    }
+
+    @Nonnull
+    public NodeSet<OWLClass> getObjectPropertyRanges(@Nonnull OWLObjectPropertyExpression pe, boolean direct) {
+        requestReasoner();
+        return new OWLClassNodeSet();
+    }
+
+    @Nonnull
+    public Node<OWLDataProperty> getTopDataPropertyNode() {
+        return dataProperties != null ? dataProperties.getTopNode() : new OWLDataPropertyNode(getOWLDataFactory().getOWLTopDataProperty());
+    }
+
+    @Nonnull
+    public Node<OWLDataProperty> getBottomDataPropertyNode() {
+        return dataProperties != null ? dataProperties.getBottomNode() : new OWLDataPropertyNode(getOWLDataFactory().getOWLBottomDataProperty());
+    }
+
+    @Nonnull
+    public NodeSet<OWLDataProperty> getSubDataProperties(@Nonnull OWLDataProperty pe, boolean direct) {
+        if (dataProperties == null) {
+            requestReasoner();
+            return new OWLDataPropertyNodeSet();
+        }
+        return new OWLDataPropertyNodeSet(dataProperties.getSubNodes(pe, direct));
+    }
+
+    @Nonnull
+    public NodeSet<OWLDataProperty> getSuperDataProperties(@Nonnull OWLDataProperty pe, boolean direct) {
+        if (dataProperties == null) {
+            requestReasoner();
+            return new OWLDataPropertyNodeSet();
+        }
+        return new OWLDataPropertyNodeSet(dataProperties.getSuperNodes(pe, direct));
+    }
+
+    @Nonnull
+    public Node<OWLDataProperty> getEquivalentDataProperties(@Nonnull OWLDataProperty pe) {
+        if (dataProperties == null) {
+            requestReasoner();
+            return new OWLDataPropertyNode(pe);
+        }
+        Node<OWLDataProperty> node = dataProperties.getNode(pe);
+        return node != null ? node : new OWLDataPropertyNode(pe);
+    }
+
+    @Nonnull
+    public NodeSet<OWLDataProperty> getDisjointDataProperties(@Nonnull OWLDataPropertyExpression pe) {
+        requestReasoner();
+        return new OWLDataPropertyNodeSet();
+    }
+
+    @Nonnull
+    public NodeSet<OWLClass> getDataPropertyDomains(@Nonnull OWLDataProperty pe, boolean direct) {
+        requestReasoner();
+        return new OWLClassNodeSet();
+    }
+
+    @Nonnull
+    public NodeSet<OWLClass> getTypes(@Nonnull OWLNamedIndividual ind, boolean direct) {
+        if (directTypes == null) {
+            requestReasoner();
+            return new OWLClassNodeSet();
+        }
+        Set<Node<OWLClass>> types = directTypes.get(ind);
+        if (types == null) {
+            return new OWLClassNodeSet(classes.getTopNode());
+        }
+        if (direct) {
+            return new OWLClassNodeSet(types);
+        }
+        Set<Node<OWLClass>> result = new HashSet<>(types);
+        for (Node<OWLClass> type : types) {
+            result.addAll(classes.getSuperNodes(type.getRepresentativeElement(), false));
+        }
+        return new OWLClassNodeSet(result);
+    }
+
+    @Nonnull
+    public NodeSet<OWLNamedIndividual> getInstances(@Nonnull OWLClassExpression ce, boolean direct) {
+        if (directTypes == null || ce.isAnonymous()) {
+            requestReasoner();
+            return new OWLNamedIndividualNodeSet();
+        }
+        Node<OWLClass> node = classes.getNode(ce.asOWLClass());
+        if (node == null) {
+            return new OWLNamedIndividualNodeSet();
+        }
+        Set<OWLNamedIndividual> instances = new HashSet<>(directInstances.getOrDefault(node, Collections.emptySet()));
+        if (!direct) {
+            for (Node<OWLClass> sub : classes.getSubNodes(ce.asOWLClass(), false)) {
+                instances.addAll(directInstances.getOrDefault(sub, Collections.emptySet()));
+            }
+        }
+        OWLNamedIndividualNodeSet result = new OWLNamedIndividualNodeSet();
+        for (OWLNamedIndividual instance : instances) {
+            result.addEntity(instance);
+        }
+        return result;
+    }
+
+    @Nonnull
+    public NodeSet<OWLNamedIndividual> getObjectPropertyValues(@Nonnull OWLNamedIndividual ind, @Nonnull OWLObjectPropertyExpression pe) {
+        requestReasoner();
+        return new OWLNamedIndividualNodeSet();
+    }
+
+    @Nonnull
+    public Set<OWLLiteral> getDataPropertyValues(@Nonnull OWLNamedIndividual ind, @Nonnull OWLDataProperty pe) {
+        requestReasoner();
+        return Collections.emptySet();
+    }
+
+    @Nonnull
+    public Node<OWLNamedIndividual> getSameIndividuals(@Nonnull OWLNamedIndividual ind) {
+        requestReasoner();
+        return new OWLNamedIndividualNode(ind);
+    }
+
+    @Nonnull
+    public NodeSet<OWLNamedIndividual> getDifferentIndividuals(@Nonnull OWLNamedIndividual ind) {
+        requestReasoner();
+        return new OWLNamedIndividualNodeSet();
+    }
+
+    public boolean isEntailed(@Nonnull OWLAxiom axiom) {
+        requestReasoner();
+        return false;
+    }
+
+    public boolean isEntailed(@Nonnull Set<? extends OWLAxiom> axioms) {
+        requestReasoner();
+        return false;
+    }
+
+    public boolean isEntailmentCheckingSupported(@Nonnull AxiomType<?> axiomType) {
+        return false;
+    }
+
+    @Nonnull
+    public IndividualNodeSetPolicy getIndividualNodeSetPolicy() {
+        return IndividualNodeSetPolicy.BY_SAME_AS;
+    }
+
+    @Nonnull
+    public String getReasonerName() {
+        return reasonerName;
+    }
+
+    @Nonnull
+    public Version getReasonerVersion() {
+        return reasonerVersion;
+    }
+
+    @Nonnull
+    public FreshEntityPolicy getFreshEntityPolicy() {
+        return FreshEntityPolicy.ALLOW;
+    }
+
+    private OWLDataFactory getOWLDataFactory() {
+        return rootOntology.getOWLOntologyManager().getOWLDataFactory();
+    }
+
+
+    /**
+     * A hierarchy of the nodes of equivalent entities that a reasoner has computed.  The hierarchy runs from a top
+     * node to a bottom node, and entities that are not in the hierarchy are treated as fresh entities, which are
+     * direct sub entities of the top node and direct super entities of the bottom node.
+     */
+    public static final class Taxonomy<E extends OWLObject> {
+
+        private final DenseHierarchy<Node<E>> hierarchy;
+
+        private final Map<E, Node<E>> nodes = new HashMap<>();
+
+        private final Node<E> topNode;
+
+        private final Node<E> bottomNode;
+
+        public Taxonomy(@Nonnull DenseHierarchy<Node<E>> hierarchy, @Nonnull Node<E> topNode, @Nonnull Node<E> bottomNode) {
+            this.hierarchy = hierarchy;
+            this.topNode = topNode;
+            this.bottomNode = bottomNode;
+            for (int id = 0; id < hierarchy.size(); id++) {
+                Node<E> node = hierarchy.getNode(id);
+                for (E entity : node) {
+                    nodes.put(entity, node);
+                }
+            }
+        }
+
+        public DenseHierarchy<Node<E>> getHierarchy() {
+            return hierarchy;
+        }
+
+        public Node<E> getTopNode() {
+            return topNode;
+        }
+
+        public Node<E> getBottomNode() {
+            return bottomNode;
+        }
+
+        @Nullable
+        public Node<E> getNode(E entity) {
+            return nodes.get(entity);
+        }
+
+        public Set<Node<E>> getSubNodes(E entity, boolean direct) {
+            return getRelatedNodes(entity, direct, hierarchy::getChildren, bottomNode);
+        }
+
+        public Set<Node<E>> getSuperNodes(E entity, boolean direct) {
+            return getRelatedNodes(entity, direct, hierarchy::getParents, topNode);
+        }
+
+        private Set<Node<E>> getRelatedNodes(E entity,
+                                             boolean direct,
+                                             Function<Node<E>, Set<Node<E>>> edges,
+                                             Node<E> freshRelative) {
+            Node<E> node = nodes.get(entity);
+            if (node == null) {
+                return Collections.singleton(freshRelative);
+            }
+            if (direct) {
+                return new HashSet<>(edges.apply(node));
+            }
+            Set<Node<E>> result = new HashSet<>();
+            Deque<Node<E>> queue = new ArrayDeque<>(edges.apply(node));
+            while (!queue.isEmpty()) {
+                Node<E> next = queue.poll();
+                if (result.add(next)) {
+                    queue.addAll(edges.apply(next));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package org.protege.editor.owl.model.inference;
+
+import org.protege.editor.core.util.ProtegeDirectories;
+import org.protege.editor.owl.model.hierarchy.DenseHierarchy;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.Node;
+import org.semanticweb.owlapi.reasoner.NodeSet;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.impl.OWLClassNode;
+import org.semanticweb.owlapi.reasoner.impl.OWLDataPropertyNode;
+import org.semanticweb.owlapi.reasoner.impl.OWLObjectPropertyNode;
+import org.semanticweb.owlapi.util.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The taxonomy computed by a reasoner for an ontology, saved on disk so that it can be shown straight away the next
+ * time that the ontology is opened, through a {@link CachedTaxonomyReasoner}.
+ * <p>
+ * There is one file for each ontology document and reasoner.  The file holds a digest of the reasoner id and the
+ * logical axioms of the imports closure at the time the taxonomy was computed, followed by the class hierarchy and,
+ * if the reasoner had computed them, the object property hierarchy, the data property hierarchy and the direct types
+ * of the named individuals.  A taxonomy whose digest does not match the current ontologies is still read, but the
+ * reasoner that is made from it is marked as stale.
+ * </p>
+ * <p>
+ * Each hierarchy is written as its nodes, with the IRIs of their entities, followed by the indexes of the direct
+ * children of each node.  The file is read into a heap buffer in one go.
+ * </p>
+ */
+public class ClassificationCacheFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassificationCacheFile.class);
+
+    private static final int MAGIC = 0x50435458;
+
+    private static final int VERSION = 2;
+
+    private static final byte END = 0;
+
+    private static final byte CLASSES = 1;
+
+    private static final byte OBJECT_PROPERTIES = 2;
+
+    private static final byte DATA_PROPERTIES = 3;
+
+    private static final byte TYPES = 4;
+
+    private static final byte NAMED = 0;
+
+    private static final byte INVERSE = 1;
+
+    private final Path file;
+
+    public ClassificationCacheFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the cache file for an ontology and a reasoner.  Files are kept in the Protege data directory, named after
+     * the document IRI of the ontology and the reasoner id.
+     * @return The file, or an empty optional if the ontology does not have a document IRI.
+     */
+    public static Optional<ClassificationCacheFile> forOntology(OWLOntology ontology, String reasonerId) {
+        IRI documentIRI = ontology.getOWLOntologyManager().getOntologyDocumentIRI(ontology);
+        if (documentIRI == null) {
+            return Optional.empty();
+        }
+        String name = toHex(digest().digest((documentIRI + " " + reasonerId).getBytes(StandardCharsets.UTF_8))).substring(0, 32);
+        Path directory = ProtegeDirectories.getDataDirectory().toPath().resolve("classification-cache");
+        return Optional.of(new ClassificationCacheFile(directory.resolve(name + ".tax")));
+    }
+
+    public Path getPath() {
+        return file;
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete the saved classification at {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the taxonomy of a reasoner to the file, replacing any earlier taxonomy.  The reasoner must be
+     * consistent, have no pending changes and have computed the class hierarchy.
+     * @return <code>true</code> if the taxonomy was written, otherwise <code>false</code>.
+     */
+    public boolean write(OWLReasoner reasoner, String reasonerId) {
+        if (!reasoner.isConsistent()
+                || !reasoner.getPendingChanges().isEmpty()
+                || !isComputed(reasoner, InferenceType.CLASS_HIERARCHY)) {
+            return false;
+        }
+        OWLOntology ontology = reasoner.getRootOntology();
+        byte[] key = computeKey(ontology, reasonerId);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(key);
+                writeString(out, reasoner.getReasonerName());
+                Version version = reasoner.getReasonerVersion();
+                out.writeInt(version.getMajor());
+                out.writeInt(version.getMinor());
+                out.writeInt(version.getPatch());
+                out.writeInt(version.getBuild());
+                out.writeByte(CLASSES);
+                Map<Node<OWLClass>, Integer> classNodes = writeTaxonomy(out,
+                        reasoner.getTopClassNode(),
+                        reasoner.getBottomClassNode(),
+                        cls -> reasoner.getSubClasses(cls, true));
+                if (isComputed(reasoner, InferenceType.OBJECT_PROPERTY_HIERARCHY)) {
+                    out.writeByte(OBJECT_PROPERTIES);
+                    writeTaxonomy(out,
+                            reasoner.getTopObjectPropertyNode(),
+                            reasoner.getBottomObjectPropertyNode(),
+                            property -> reasoner.getSubObjectProperties(property, true));
+                }
+                if (isComputed(reasoner, InferenceType.DATA_PROPERTY_HIERARCHY)) {
+                    out.writeByte(DATA_PROPERTIES);
+                    writeTaxonomy(out,
+                            reasoner.getTopDataPropertyNode(),
+                            reasoner.getBottomDataPropertyNode(),
+                            property -> reasoner.getSubDataProperties(property, true));
+                }
+                if (isComputed(reasoner, InferenceType.CLASS_ASSERTIONS)) {
+                    out.writeByte(TYPES);
+                    writeTypes(out, reasoner, ontology.getIndividualsInSignature(Imports.INCLUDED), classNodes);
+                }
+                out.writeByte(END);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not save the classification to {}: {}", file, e.getMessage());
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.debug("Could not delete {}", temp);
+            }
+        }
+    }
+
+    /**
+     * Reads the taxonomy into a reasoner for an ontology.
+     * @return The reasoner, which is stale if the taxonomy was computed for different logical axioms, or an empty
+     * optional if there is no taxonomy for the reasoner or the file is unreadable.
+     */
+    public Optional<CachedTaxonomyReasoner> read(OWLOntology ontology, String reasonerId) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        byte[] key = computeKey(ontology, reasonerId);
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return Optional.empty();
+            }
+            // Not mapped, because a mapping holds the file open and then it cannot be replaced on Windows
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the whole file
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return Optional.empty();
+            }
+            byte[] storedKey = new byte[key.length];
+            buffer.get(storedKey);
+            boolean stale = !Arrays.equals(key, storedKey);
+            String reasonerName = readString(buffer);
+            Version version = new Version(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+            OWLDataFactory df = ontology.getOWLOntologyManager().getOWLDataFactory();
+            CachedTaxonomyReasoner.Taxonomy<OWLClass> classes = null;
+            CachedTaxonomyReasoner.Taxonomy<OWLObjectPropertyExpression> objectProperties = null;
+            CachedTaxonomyReasoner.Taxonomy<OWLDataProperty> dataProperties = null;
+            Map<OWLNamedIndividual, Set<Node<OWLClass>>> types = null;
+            byte section;
+            while ((section = buffer.get()) != END) {
+                if (section == CLASSES) {
+                    classes = readTaxonomy(buffer, df::getOWLClass, OWLClassNode::new);
+                }
+                else if (section == OBJECT_PROPERTIES) {
+                    objectProperties = readTaxonomy(buffer,
+                            iri -> df.getOWLObjectProperty(iri),
+                            iri -> df.getOWLObjectInverseOf(df.getOWLObjectProperty(iri)),
+                            OWLObjectPropertyNode::new);
+                }
+                else if (section == DATA_PROPERTIES) {
+                    dataProperties = readTaxonomy(buffer, df::getOWLDataProperty, OWLDataPropertyNode::new);
+                }
+                else if (section == TYPES && classes != null) {
+                    types = readTypes(buffer, df, classes);
+                }
+                else {
+                    throw new IllegalArgumentException("Unexpected section " + section);
+                }
+            }
+            if (classes == null) {
+                return Optional.empty();
+            }
+            if (stale) {
+                logger.info("The saved classification at {} is out of date", file);
+            }
+            return Optional.of(new CachedTaxonomyReasoner(ontology, reasonerName, version, stale,
+                    classes, objectProperties, dataProperties, types));
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            logger.warn("Could not read the saved classification from {}: {}", file, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Determines whether a reasoner has computed an inference type, or computes it on demand.
+     */
+    private static boolean isComputed(OWLReasoner reasoner, InferenceType type) {
+        return reasoner.isPrecomputed(type) || !reasoner.getPrecomputableInferenceTypes().contains(type);
+    }
+
+    /**
+     * Writes the nodes of a hierarchy and the direct children of each node, walking the hierarchy down from the top
+     * node.
+     * @return The indexes of the nodes.
+     */
+    private static <E extends OWLObject> Map<Node<E>, Integer> writeTaxonomy(DataOutputStream out,
+                                                                            Node<E> topNode,
+                                                                            Node<E> bottomNode,
+                                                                            Function<E, NodeSet<E>> directSubs) throws IOException {
+        List<Node<E>> nodes = new ArrayList<>();
+        Map<Node<E>, Integer> indexes = new HashMap<>();
+        List<int[]> children = new ArrayList<>();
+        nodes.add(topNode);
+        indexes.put(topNode, 0);
+        for (int i = 0; i < nodes.size(); i++) {
+            Node<E> node = nodes.get(i);
+            if (node.equals(bottomNode)) {
+                children.add(new int[0]);
+                continue;
+            }
+            Set<Node<E>> subNodes = directSubs.apply(node.getRepresentativeElement()).getNodes();
+            int[] row = new int[subNodes.size()];
+            int j = 0;
+            for (Node<E> subNode : subNodes) {
+                Integer index = indexes.get(subNode);
+                if (index == null) {
+                    index = nodes.size();
+                    nodes.add(subNode);
+                    indexes.put(subNode, index);
+                }
+                row[j++] = index;
+            }
+            children.add(row);
+        }
+        if (!indexes.containsKey(bottomNode)) {
+            indexes.put(bottomNode, nodes.size());
+            nodes.add(bottomNode);
+            children.add(new int[0]);
+        }
+        out.writeInt(nodes.size());
+        out.writeInt(indexes.get(bottomNode));
+        for (Node<E> node : nodes) {
+            out.writeInt(node.getSize());
+            for (E entity : node) {
+                writeMember(out, entity);
+            }
+        }
+        for (int[] row : children) {
+            out.writeInt(row.length);
+            for (int child : row) {
+                out.writeInt(child);
+            }
+        }
+        return indexes;
+    }
+
+    private static <E extends OWLObject> CachedTaxonomyReasoner.Taxonomy<E> readTaxonomy(ByteBuffer buffer,
+                                                                                        Function<IRI, E> named,
+                                                                                        Function<Set<E>, Node<E>> nodeFactory) {
+        return readTaxonomy(buffer, named, iri -> {
+            throw new IllegalArgumentException("Unexpected inverse property " + iri);
+        }, nodeFactory);
+    }
+
+    private static <E extends OWLObject> CachedTaxonomyReasoner.Taxonomy<E> readTaxonomy(ByteBuffer buffer,
+                                                                                        Function<IRI, E> named,
+                                                                                        Function<IRI, E> inverse,
+                                                                                        Function<Set<E>, Node<E>> nodeFactory) {
+        int nodeCount = buffer.getInt();
+        int bottomIndex = buffer.getInt();
+        List<Node<E>> nodes = new ArrayList<>(nodeCount);
+        DenseHierarchy.Builder<Node<E>> builder = DenseHierarchy.builder();
+        for (int i = 0; i < nodeCount; i++) {
+            int size = buffer.getInt();
+            Set<E> entities = new HashSet<>(size * 4 / 3 + 1);
+            for (int j = 0; j < size; j++) {
+                byte kind = buffer.get();
+                IRI iri = IRI.create(readString(buffer));
+                entities.add(kind == INVERSE ? inverse.apply(iri) : named.apply(iri));
+            }
+            Node<E> node = nodeFactory.apply(entities);
+            nodes.add(node);
+            builder.addNode(node);
+        }
+        for (Node<E> node : nodes) {
+            int childCount = buffer.getInt();
+            for (int j = 0; j < childCount; j++) {
+                builder.addEdge(node, nodes.get(buffer.getInt()));
+            }
+        }
+        return new CachedTaxonomyReasoner.Taxonomy<>(builder.build(), nodes.get(0), nodes.get(bottomIndex));
+    }
+
+    private static void writeTypes(DataOutputStream out,
+                                   OWLReasoner reasoner,
+                                   Set<OWLNamedIndividual> individuals,
+                                   Map<Node<OWLClass>, Integer> classNodes) throws IOException {
+        out.writeInt(individuals.size());
+        for (OWLNamedIndividual individual : individuals) {
+            writeString(out, individual.getIRI().toString());
+            List<Integer> types = new ArrayList<>();
+            for (Node<OWLClass> type : reasoner.getTypes(individual, true)) {
+                Integer index = classNodes.get(type);
+                if (index != null) {
+                    types.add(index);
+                }
+            }
+            out.writeInt(types.size());
+            for (int index : types) {
+                out.writeInt(index);
+            }
+        }
+    }
+
+    private static Map<OWLNamedIndividual, Set<Node<OWLClass>>> readTypes(ByteBuffer buffer,
+                                                                        OWLDataFactory df,
+                                                                        CachedTaxonomyReasoner.Taxonomy<OWLClass> classes) {
+        DenseHierarchy<Node<OWLClass>> hierarchy = classes.getHierarchy();
+        int count = buffer.getInt();
+        Map<OWLNamedIndividual, Set<Node<OWLClass>>> types = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            OWLNamedIndividual individual = df.getOWLNamedIndividual(IRI.create(readString(buffer)));
+            int typeCount = buffer.getInt();
+            Set<Node<OWLClass>> individualTypes = new HashSet<>(typeCount * 4 / 3 + 1);
+            for (int j = 0; j < typeCount; j++) {
+                individualTypes.add(hierarchy.getNode(buffer.getInt()));
+            }
+            types.put(individual, individualTypes);
+        }
+        return types;
+    }
+
+    private static void writeMember(DataOutputStream out, OWLObject member) throws IOException {
+        if (member instanceof OWLObjectInverseOf) {
+            out.writeByte(INVERSE);
+            writeString(out, ((OWLObjectInverseOf) member).getNamedProperty().getIRI().toString());
+        }
+        else {
+            out.writeByte(NAMED);
+            writeString(out, ((OWLEntity) member).getIRI().toString());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Computes a digest of the reasoner id and the logical axioms in the imports closure of an ontology.  Each
+     * logical axiom is digested in its functional syntax rendering, and the axiom digests of each ontology are
+     * sorted so that the key does not depend on the order in which the axioms are stored.
+     */
+    static byte[] computeKey(OWLOntology ontology, String reasonerId) {
+        MessageDigest digest = digest();
+        MessageDigest axiomDigest = digest();
+        digest.update((VERSION + " " + reasonerId).getBytes(StandardCharsets.UTF_8));
+        List<OWLOntology> ontologies = new ArrayList<>(ontology.getImportsClosure());
+        ontologies.sort(Comparator.comparing(o -> o.getOntologyID().toString()));
+        for (OWLOntology o : ontologies) {
+            digest.update(o.getOntologyID().toString().getBytes(StandardCharsets.UTF_8));
+            List<byte[]> axiomDigests = new ArrayList<>();
+            for (OWLAxiom axiom : o.getAxioms()) {
+                if (axiom.isLogicalAxiom()) {
+                    axiomDigests.add(axiomDigest.digest(axiom.toString().getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+            axiomDigests.sort(ClassificationCacheFile::compareDigests);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(axiomDigests.size()).array());
+            for (byte[] d : axiomDigests) {
+                digest.update(d);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static int compareDigests(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = Byte.compare(a[i], b[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
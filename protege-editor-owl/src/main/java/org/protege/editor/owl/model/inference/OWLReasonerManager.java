@@ -1,10 +1,12 @@
 package org.protege.editor.owl.model.inference;
 
 import org.protege.editor.core.Disposable;
+import org.protege.editor.owl.model.hierarchy.cls.InferredClassHierarchySnapshot;
 import org.semanticweb.owlapi.reasoner.InferenceType;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.ReasonerProgressMonitor;
 
+import java.util.Optional;
 import java.util.Set;
 
 
@@ -82,6 +84,13 @@ public interface OWLReasonerManager extends Disposable {
      */
     ReasonerStatus getReasonerStatus();
 
+    /**
+     * Gets the copy of the class taxonomy that was taken from the current reasoner when it was installed.
+     * @return The snapshot, or empty if there is no snapshot or the current reasoner may have changed since the
+     * snapshot was taken.
+     */
+    Optional<InferredClassHierarchySnapshot> getInferredClassHierarchySnapshot();
+
     boolean classifyAsynchronously(Set<InferenceType> precompute);
 
     void setReasonerExceptionHandler(OWLReasonerExceptionHandler handler);
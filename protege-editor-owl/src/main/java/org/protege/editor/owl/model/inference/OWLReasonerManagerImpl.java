@@ -6,6 +6,8 @@ import org.protege.editor.core.log.LogBanner;
 import org.protege.editor.core.ui.util.Resettable;
 import org.protege.editor.owl.model.OWLModelManager;
 import org.protege.editor.owl.model.event.EventType;
+import org.protege.editor.owl.model.event.OWLModelManagerListener;
+import org.protege.editor.owl.model.hierarchy.cls.InferredClassHierarchySnapshot;
 import org.protege.editor.owl.ui.explanation.io.InconsistentOntologyManager;
 import org.semanticweb.owlapi.model.*;
 import org.semanticweb.owlapi.reasoner.*;
@@ -14,6 +16,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 
@@ -50,6 +54,20 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
 
     private List<ReasonerFilter> reasonerFilters = new ArrayList<>();
 
+    private volatile InferredClassHierarchySnapshot classHierarchySnapshot;
+
+    private final ExecutorService classificationCacheService = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Classification Cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OWLModelManagerListener activeOntologyListener = event -> {
+        if (event.isType(EventType.ACTIVE_ONTOLOGY_CHANGED)) {
+            restoreClassification();
+        }
+    };
+
     private OWLOntologyChangeListener nonBufferingOntologyChangeListener = new OWLOntologyChangeListener() {
         public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
             OWLReasoner reasoner = getCurrentReasoner();
@@ -84,6 +102,8 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
                 break;
             }
             if (needsRefresh) {
+                // The reasoner has taken the changes, so its taxonomy may no longer match the snapshot
+                classHierarchySnapshot = null;
                 // too tricky... too tricky... wait until after the reasoner has reacted to the changes.
                 SwingUtilities.invokeLater(new Runnable() {
                     public void run() {
@@ -105,6 +125,7 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
         installFactories();
         exceptionHandler = new DefaultOWLReasonerExceptionHandler();
         owlModelManager.addOntologyChangeListener(nonBufferingOntologyChangeListener);
+        owlModelManager.addListener(activeOntologyListener);
     }
 
     public void setReasonerExceptionHandler(OWLReasonerExceptionHandler handler) {
@@ -126,6 +147,8 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
             ((Disposable) reasonerProgressMonitor).dispose();
         }
         owlModelManager.removeOntologyChangeListener(nonBufferingOntologyChangeListener);
+        owlModelManager.removeListener(activeOntologyListener);
+        classificationCacheService.shutdownNow();
     }
 
     private void clearAndDisposeReasoners() {
@@ -250,7 +273,7 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
     public boolean isClassified() {
         synchronized (reasonerMap) {
             OWLReasoner reasoner = getCurrentReasoner();
-            return !(reasoner instanceof NoOpReasoner) &&
+            return !(reasoner instanceof NoOpReasoner) && !(reasoner instanceof CachedTaxonomyReasoner) &&
                     (reasoner.getPendingChanges() == null || reasoner.getPendingChanges().isEmpty());
         }
     }
@@ -266,7 +289,8 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
             else {
                 OWLReasoner reasoner = getCurrentReasoner();
                 try {
-                    if (reasoner instanceof NoOpReasoner) {
+                    if (reasoner instanceof NoOpReasoner || reasoner instanceof CachedTaxonomyReasoner) {
+                        // A saved taxonomy only answers hierarchy queries, so the reasoner still has to be started
                         return ReasonerStatus.REASONER_NOT_INITIALIZED;
                     }
                     else if (!reasoner.isConsistent()) {
@@ -287,6 +311,32 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
         }
     }
 
+    public Optional<InferredClassHierarchySnapshot> getInferredClassHierarchySnapshot() {
+        InferredClassHierarchySnapshot snapshot = classHierarchySnapshot;
+        if (snapshot == null || snapshot.getReasoner() != getCurrentReasoner()) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot);
+    }
+
+    /**
+     * Copies the class taxonomy of a reasoner that is about to be installed.  This must be called on the thread that
+     * owns the reasoner, before the reasoner is installed, so that the reasoner is not queried concurrently.
+     */
+    private Optional<InferredClassHierarchySnapshot> takeClassHierarchySnapshot(OWLReasoner reasoner) {
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            InferredClassHierarchySnapshot snapshot = InferredClassHierarchySnapshot.take(reasoner, owlModelManager.getOWLDataFactory());
+            logger.info("Took a snapshot of the inferred class hierarchy ({} classes) in {} ms",
+                    snapshot.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            return Optional.of(snapshot);
+        } catch (RuntimeException e) {
+            // The reasoner has been interrupted, disposed or has failed.  Hierarchy queries go to the reasoner.
+            logger.warn("Could not take a snapshot of the inferred class hierarchy: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     /**
      * Classifies the current active ontologies.
      */
@@ -300,7 +350,10 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
                 return false;
             }
             runningReasoner = reasonerMap.get(currentOntology);
-            reasonerMap.put(currentOntology, new NoOpReasoner(currentOntology));
+            if (!(runningReasoner instanceof CachedTaxonomyReasoner)) {
+                // A saved taxonomy is read only, so it can still be shown while the ontology is classified
+                reasonerMap.put(currentOntology, new NoOpReasoner(currentOntology));
+            }
             classificationInProgress = true;
         }
         owlModelManager.fireEvent(EventType.ABOUT_TO_CLASSIFY);
@@ -320,6 +373,101 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
     }
 
 
+    /**
+     * Shows the saved classification of the active ontology, if there is one and the ontology has not been
+     * classified yet.  The classification is read in the background.  If the ontology has changed since the
+     * classification was saved then the ontology is classified again, and the saved classification is shown until
+     * the reasoner has finished.
+     */
+    private void restoreClassification() {
+        if (!preferences.isUseClassificationCache() || getCurrentReasonerFactory() instanceof NoOpReasonerInfo) {
+            return;
+        }
+        OWLOntology ontology = owlModelManager.getActiveOntology();
+        String reasonerId = getCurrentReasonerFactoryId();
+        if (ontology == null || !canRestoreClassification(ontology, reasonerId)) {
+            return;
+        }
+        Optional<ClassificationCacheFile> file = ClassificationCacheFile.forOntology(ontology, reasonerId);
+        if (!file.isPresent() || classificationCacheService.isShutdown()) {
+            return;
+        }
+        classificationCacheService.submit(() -> {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            Optional<CachedTaxonomyReasoner> restored = file.get().read(ontology, reasonerId);
+            if (!restored.isPresent()) {
+                return;
+            }
+            logger.info("Read the saved classification of {} in {} ms", ontology.getOntologyID(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            Optional<InferredClassHierarchySnapshot> snapshot = takeClassHierarchySnapshot(restored.get());
+            SwingUtilities.invokeLater(() -> installCachedReasoner(ontology, reasonerId, restored.get(), snapshot));
+        });
+    }
+
+    private boolean canRestoreClassification(OWLOntology ontology, String reasonerId) {
+        synchronized (reasonerMap) {
+            OWLReasoner reasoner = reasonerMap.get(ontology);
+            return !classificationInProgress
+                    && reasonerId.equals(getCurrentReasonerFactoryId())
+                    && (reasoner == null || reasoner instanceof NoOpReasoner);
+        }
+    }
+
+    private void installCachedReasoner(OWLOntology ontology, String reasonerId, CachedTaxonomyReasoner reasoner,
+                                       Optional<InferredClassHierarchySnapshot> snapshot) {
+        synchronized (reasonerMap) {
+            if (!canRestoreClassification(ontology, reasonerId)) {
+                reasoner.dispose();
+                return;
+            }
+            snapshot.ifPresent(s -> classHierarchySnapshot = s);
+            reasonerMap.put(ontology, reasoner);
+        }
+        reasoner.setReasonerRequestHandler(() -> SwingUtilities.invokeLater(() -> startReasonerFor(ontology, reasoner)));
+        owlModelManager.fireEvent(EventType.REASONER_CHANGED);
+        fireReclassified();
+        if (reasoner.isStale() && ontology.equals(owlModelManager.getActiveOntology())) {
+            classifyAsynchronously(preferences.getPrecomputedInferences());
+        }
+    }
+
+    /**
+     * Starts the reasoner when a view asks a saved taxonomy a query that only the reasoner can answer.
+     */
+    private void startReasonerFor(OWLOntology ontology, CachedTaxonomyReasoner reasoner) {
+        synchronized (reasonerMap) {
+            if (classificationInProgress || reasonerMap.get(ontology) != reasoner) {
+                return;
+            }
+        }
+        if (ontology.equals(owlModelManager.getActiveOntology())) {
+            classifyAsynchronously(preferences.getPrecomputedInferences());
+        }
+    }
+
+    /**
+     * Saves the classification computed by a reasoner, so that it can be restored when the ontology is opened again.
+     */
+    private void saveClassification(OWLReasoner reasoner, String reasonerId) {
+        if (!preferences.isUseClassificationCache()) {
+            return;
+        }
+        Optional<ClassificationCacheFile> file = ClassificationCacheFile.forOntology(reasoner.getRootOntology(), reasonerId);
+        if (!file.isPresent()) {
+            return;
+        }
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            if (file.get().write(reasoner, reasonerId)) {
+                logger.info("Saved the classification in {} ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            }
+        } catch (RuntimeException e) {
+            // The reasoner may have been disposed or interrupted while the classification was being saved
+            logger.warn("Could not save the classification: {}", e.getMessage());
+        }
+    }
+
+
     public void killCurrentClassification() {
         synchronized (reasonerMap) {
             if (runningReasoner != null) {
@@ -381,11 +529,17 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
             logger.info(LogBanner.start("Running Reasoner"));
             boolean inconsistencyFound = false;
             boolean reasonerChanged = false;
+            boolean filtered;
+            synchronized (reasonerMap) {
+                filtered = !reasonerFilters.isEmpty();
+            }
+            OWLReasoner classifiedReasoner = null;
             try {
                 Stopwatch stopwatch = Stopwatch.createStarted();
                 reasonerChanged = ensureRunningReasonerInitialized();
                 if (runningReasoner != null) {
                     precompute();
+                    classifiedReasoner = runningReasoner;
                     logger.info("Ontologies processed in {} ms by {}", stopwatch.elapsed(TimeUnit.MILLISECONDS), runningReasoner.getReasonerName());
                 }
             } catch (ReasonerInterruptedException rie) {
@@ -405,13 +559,17 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
                 if (reasonerProgressMonitor instanceof Resettable) {
                     ((Resettable) reasonerProgressMonitor).reset();
                 }
+                if (classifiedReasoner != null && !inconsistencyFound && !filtered) {
+                    saveClassification(classifiedReasoner, currentReasonerFactory.getReasonerId());
+                }
                 logger.info(LogBanner.end());
             }
         }
 
         public boolean ensureRunningReasonerInitialized() {
             boolean reasonerChanged = false;
-            if (runningReasoner instanceof NoOpReasoner) {
+            if (runningReasoner instanceof NoOpReasoner || runningReasoner instanceof CachedTaxonomyReasoner) {
+                // A saved taxonomy stays installed until the new reasoner replaces it
                 runningReasoner = null;
             }
             if (runningReasoner != null && !runningReasoner.getPendingChanges().isEmpty()) {
@@ -449,11 +607,21 @@ public class OWLReasonerManagerImpl implements OWLReasonerManager {
         }
 
         public void installRunningReasoner(boolean inconsistencyFound, boolean reasonerChanged) {
+            // Taken before the reasoner is published, while this thread is the only one that uses it
+            Optional<InferredClassHierarchySnapshot> snapshot = runningReasoner != null
+                    ? takeClassHierarchySnapshot(runningReasoner)
+                    : Optional.empty();
+            OWLReasoner previousReasoner;
             synchronized (reasonerMap) {
-                reasonerMap.put(ontology, runningReasoner);
+                classHierarchySnapshot = snapshot.orElse(null);
+                previousReasoner = reasonerMap.put(ontology, runningReasoner);
                 runningReasoner = null;
                 classificationInProgress = false;
             }
+            if (previousReasoner instanceof CachedTaxonomyReasoner) {
+                previousReasoner.dispose();
+                reasonerChanged = true;
+            }
             if (reasonerChanged) {
                 SwingUtilities.invokeLater(() -> {
                     owlModelManager.fireEvent(EventType.REASONER_CHANGED);
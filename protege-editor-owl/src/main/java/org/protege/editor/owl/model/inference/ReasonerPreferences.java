@@ -59,6 +59,7 @@ public class ReasonerPreferences {
 
     public static final String PREFERENCES_SET_KEY = "INFERENCE_PREFS_SET";
     public static final String DEFAULT_REASONER_ID = "DEFAULT_REASONER_ID";
+    public static final String USE_CLASSIFICATION_CACHE = "USE_CLASSIFICATION_CACHE";
 
     /* package */
     static Preferences getPreferences() {
@@ -69,6 +70,7 @@ public class ReasonerPreferences {
     private DisplayedInferencePreferences displayed = new DisplayedInferencePreferences();
     private PrecomputedInferencePreferences precompute = new PrecomputedInferencePreferences();
     private String defaultReasonerId;
+    private boolean useClassificationCache;
     private List<ReasonerPreferencesListener> listeners = new ArrayList<>();
 
 
@@ -87,6 +89,7 @@ public class ReasonerPreferences {
         precompute.load(prefs);
 
         defaultReasonerId = prefs.getString(DEFAULT_REASONER_ID, NoOpReasonerInfo.NULL_REASONER_ID);
+        useClassificationCache = prefs.getBoolean(USE_CLASSIFICATION_CACHE, true);
     }
 
     public void save() {
@@ -96,6 +99,19 @@ public class ReasonerPreferences {
         precompute.save(prefs);
 
         prefs.putString(DEFAULT_REASONER_ID, defaultReasonerId);
+        prefs.putBoolean(USE_CLASSIFICATION_CACHE, useClassificationCache);
+    }
+
+    /**
+     * Determines whether the results of a classification are saved, so that they can be shown straight away when
+     * the ontology is opened again.
+     */
+    public boolean isUseClassificationCache() {
+        return useClassificationCache;
+    }
+
+    public void setUseClassificationCache(boolean useClassificationCache) {
+        this.useClassificationCache = useClassificationCache;
     }
 
     public void addListener(ReasonerPreferencesListener listener) {
@@ -0,0 +1,575 @@
+package org.protege.editor.owl.model.io;
+
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.formats.OWLXMLDocumentFormat;
+import org.semanticweb.owlapi.io.IRIDocumentSource;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.OntologyCopy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Loads an ontology document together with the documents in its imports closure, parsing the imported documents
+ * concurrently.
+ * <p>
+ * An ontology manager holds its write lock for as long as it is parsing a document, so the documents that are loaded
+ * by one manager are always parsed one at a time.  This loader therefore parses each document with its own manager.
+ * </p>
+ * <p>
+ * Parsers for most syntaxes use the declarations in imported ontologies to decide what the entities in a document
+ * are.  Without them, for example, an RDF/XML document that uses a property declared in an import yields annotation
+ * assertions rather than property assertions.  The imports closure is therefore found before anything is parsed, by
+ * reading the imports declarations from the start of each document (see {@link OntologyHeaderScanner}) and resolving
+ * them to document IRIs with the IRI mappers, on the calling thread.  The documents are then parsed in dependency
+ * order, each by a manager that already contains copies of its imported ontologies, and documents whose imports are
+ * ready are submitted to a bounded pool and parsed at the same time.  Each document is parsed once.
+ * </p>
+ * <p>
+ * The imports that are found this way are checked against the parsed document.  If they differ, because the imports
+ * declarations could not be found without parsing the document, the imports that were missed are loaded in the same
+ * way and, once the whole closure has been loaded, the document is parsed again with its imports, unless it is in a
+ * syntax where every entity is explicitly typed (OWL/XML and functional syntax).  Documents in a cycle of imports are
+ * first parsed without the imports that are not ready yet, and are then parsed again in the same way.  Documents that
+ * turn out not to be in the imports closure are dropped.
+ * </p>
+ * <p>
+ * As with {@link MissingImportHandlingStrategy#SILENT}, an imported document that cannot be loaded is logged and
+ * skipped.  An error in the root document is thrown to the caller.
+ * </p>
+ */
+public class ImportsClosureLoader {
+
+    private final Logger logger = LoggerFactory.getLogger(ImportsClosureLoader.class);
+
+    private final ManagerFactory managerFactory;
+
+    private final List<OWLOntologyIRIMapper> iriMappers;
+
+    private final OWLOntologyLoaderConfiguration configuration;
+
+    private final int threadCount;
+
+    /**
+     * @param managerFactory Creates the manager that parses a document.  The ontologies that are returned belong to
+     *                       these managers.
+     * @param iriMappers     The mappers that resolve imported ontology IRIs to document IRIs, in priority order.  An
+     *                       IRI that no mapper resolves is used as its own document IRI.  The mappers are only called
+     *                       from the thread that calls {@link #load(IRI)}.
+     * @param configuration  The configuration for parsing each document.
+     * @param threadCount    The maximum number of documents that are parsed at the same time.
+     */
+    public ImportsClosureLoader(@Nonnull ManagerFactory managerFactory,
+                                @Nonnull List<OWLOntologyIRIMapper> iriMappers,
+                                @Nonnull OWLOntologyLoaderConfiguration configuration,
+                                int threadCount) {
+        this.managerFactory = checkNotNull(managerFactory);
+        this.iriMappers = new ArrayList<>(checkNotNull(iriMappers));
+        this.configuration = checkNotNull(configuration);
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Loads a document and its imports closure.
+     * @param documentIRI The IRI of the root document.
+     * @return The loaded ontologies, the root ontology first, followed by the imported ontologies in the order in
+     * which they finished loading.  No two of the ontologies have the same ontology id.
+     * @throws OWLOntologyCreationException if the root document could not be loaded.
+     */
+    @Nonnull
+    public List<OWLOntology> load(@Nonnull IRI documentIRI) throws OWLOntologyCreationException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "Imports Closure Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return new Load(executorService).run(documentIRI);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private OWLOntology parse(IRI documentIRI) throws OWLOntologyCreationException {
+        return managerFactory.createManager(false).loadOntologyFromOntologyDocument(new IRIDocumentSource(documentIRI), configuration);
+    }
+
+    /**
+     * Parses a document with its imported ontologies visible.
+     * @param importedOntologies The ontologies in the imports closure of the document, and their document IRIs.
+     * @param importDocumentIRIs The document IRIs that imports declarations were resolved to.
+     * @param ignoredImports     The imports that could not be loaded.
+     */
+    private OWLOntology parseWithImports(IRI documentIRI,
+                                         Map<OWLOntology, IRI> importedOntologies,
+                                         Map<IRI, IRI> importDocumentIRIs,
+                                         Set<IRI> ignoredImports) throws OWLOntologyCreationException {
+        OWLOntologyManager manager = managerFactory.createManager(true);
+        manager.getIRIMappers().set(importDocumentIRIs::get);
+        OWLOntologyLoaderConfiguration importsConfiguration = configuration;
+        for (IRI ignoredImport : ignoredImports) {
+            importsConfiguration = importsConfiguration.addIgnoredImport(ignoredImport);
+        }
+        List<OWLOntology> copies = new ArrayList<>();
+        for (Map.Entry<OWLOntology, IRI> importedOntology : importedOntologies.entrySet()) {
+            OWLOntology copy = manager.copyOntology(importedOntology.getKey(), OntologyCopy.SHALLOW);
+            manager.setOntologyDocumentIRI(copy, importedOntology.getValue());
+            copies.add(copy);
+        }
+        // Link the copies to each other, as they would be if the manager had loaded them
+        for (OWLOntology copy : copies) {
+            for (OWLImportsDeclaration importsDeclaration : copy.getImportsDeclarations()) {
+                manager.makeLoadImportRequest(importsDeclaration, importsConfiguration);
+            }
+        }
+        return manager.loadOntologyFromOntologyDocument(new IRIDocumentSource(documentIRI), importsConfiguration);
+    }
+
+    /**
+     * Determines whether a parser may have needed the imported ontologies to interpret a document.
+     */
+    private static boolean isParsedUsingImports(OWLOntology ontology) {
+        OWLDocumentFormat format = ontology.getOWLOntologyManager().getOntologyFormat(ontology);
+        return !(format instanceof OWLXMLDocumentFormat || format instanceof FunctionalSyntaxDocumentFormat);
+    }
+
+    private IRI getDocumentIRI(IRI ontologyIRI) {
+        for (OWLOntologyIRIMapper mapper : iriMappers) {
+            IRI documentIRI = mapper.getDocumentIRI(ontologyIRI);
+            if (documentIRI != null) {
+                return documentIRI;
+            }
+        }
+        return ontologyIRI;
+    }
+
+    private static OWLOntologyCreationException toCreationException(Throwable t) {
+        return t instanceof OWLOntologyCreationException ? (OWLOntologyCreationException) t : new OWLOntologyCreationException(t);
+    }
+
+
+    /**
+     * The state of a single call to {@link #load(IRI)}.  Only touched by the calling thread.
+     */
+    private class Load {
+
+        private final CompletionService<OWLOntology> completionService;
+
+        private IRI rootDocumentIRI;
+
+        /**
+         * The imports that were found in each document before it was parsed.
+         */
+        private final Map<IRI, Set<IRI>> scannedImports = new HashMap<>();
+
+        /**
+         * The documents that each document imports.  These are the documents that were found before the document was
+         * parsed, and then the documents that it actually imports.
+         */
+        private final Map<IRI, Set<IRI>> importedDocuments = new HashMap<>();
+
+        /**
+         * The documents that have not been submitted yet, in the order in which they were found.
+         */
+        private final Set<IRI> waitingDocuments = new LinkedHashSet<>();
+
+        private final Set<IRI> failedDocuments = new HashSet<>();
+
+        /**
+         * The documents that are being parsed without all of their imports in their final form.
+         */
+        private final Set<IRI> incompleteDocuments = new HashSet<>();
+
+        /**
+         * The ontologies that have to be parsed again once the imports closure has been loaded.
+         */
+        private final Set<OWLOntologyID> incompleteOntologies = new LinkedHashSet<>();
+
+        private final Map<IRI, IRI> documentIRIsByOntologyIRI = new HashMap<>();
+
+        private final Map<OWLOntologyID, OWLOntology> loadedOntologies = new LinkedHashMap<>();
+
+        private final Map<Future<OWLOntology>, IRI> pending = new HashMap<>();
+
+        /**
+         * The document IRIs that imports declarations were resolved to.
+         */
+        private final Map<IRI, IRI> importDocumentIRIs = new HashMap<>();
+
+        private final Map<IRI, OWLOntologyID> ontologyIDsByDocumentIRI = new HashMap<>();
+
+        private final Map<OWLOntologyID, IRI> documentIRIs = new HashMap<>();
+
+        private Load(ExecutorService executorService) {
+            this.completionService = new ExecutorCompletionService<>(executorService);
+        }
+
+        private List<OWLOntology> run(IRI documentIRI) throws OWLOntologyCreationException {
+            rootDocumentIRI = documentIRI;
+            find(documentIRI);
+            while (!waitingDocuments.isEmpty() || !pending.isEmpty()) {
+                submitReadyDocuments();
+                IRI parsedDocumentIRI = null;
+                try {
+                    Future<OWLOntology> future = completionService.take();
+                    parsedDocumentIRI = pending.remove(future);
+                    parsed(parsedDocumentIRI, future.get());
+                } catch (ExecutionException e) {
+                    failedDocuments.add(parsedDocumentIRI);
+                    if (parsedDocumentIRI.equals(rootDocumentIRI)) {
+                        throw toCreationException(e.getCause());
+                    }
+                    logger.warn("Failed to load imported ontology at {}: {}", parsedDocumentIRI, e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OWLOntologyCreationException("Interrupted whilst loading the imports closure of " + documentIRI, e);
+                }
+            }
+            OWLOntologyID rootID = ontologyIDsByDocumentIRI.get(rootDocumentIRI);
+            reparseWithImports(rootID);
+            // Drop the documents that were thought to be imported but are not
+            Set<OWLOntologyID> closure = getImportsClosure(rootID, getDirectImports());
+            List<OWLOntology> ontologies = new ArrayList<>();
+            ontologies.add(loadedOntologies.get(rootID));
+            for (Map.Entry<OWLOntologyID, OWLOntology> entry : loadedOntologies.entrySet()) {
+                if (!entry.getKey().equals(rootID) && closure.contains(entry.getKey())) {
+                    ontologies.add(entry.getValue());
+                }
+            }
+            return ontologies;
+        }
+
+        /**
+         * Reads the imports declarations from the start of a document and of the documents that it imports, and adds
+         * the documents that have not been found before to the waiting documents.
+         */
+        private void find(IRI documentIRI) {
+            Deque<IRI> toScan = new ArrayDeque<>();
+            toScan.add(documentIRI);
+            while (!toScan.isEmpty()) {
+                IRI nextDocumentIRI = toScan.pop();
+                if (scannedImports.containsKey(nextDocumentIRI)) {
+                    continue;
+                }
+                Optional<OntologyHeaderScanner.Header> header = OntologyHeaderScanner.scan(nextDocumentIRI, configuration.getConnectionTimeout());
+                Set<IRI> imports = new LinkedHashSet<>();
+                Set<IRI> imported = new LinkedHashSet<>();
+                if (header.isPresent()) {
+                    IRI ontologyIRI = header.get().getOntologyIRI();
+                    if (ontologyIRI != null) {
+                        documentIRIsByOntologyIRI.putIfAbsent(ontologyIRI, nextDocumentIRI);
+                    }
+                    for (IRI importIRI : header.get().getImports()) {
+                        imports.add(importIRI);
+                        IRI importedDocumentIRI = resolve(importIRI);
+                        if (importedDocumentIRI != null) {
+                            imported.add(importedDocumentIRI);
+                            toScan.add(importedDocumentIRI);
+                        }
+                    }
+                }
+                scannedImports.put(nextDocumentIRI, imports);
+                importedDocuments.put(nextDocumentIRI, imported);
+                waitingDocuments.add(nextDocumentIRI);
+            }
+        }
+
+        /**
+         * Resolves an imported ontology IRI to a document IRI.
+         * @return The document IRI, or <code>null</code> if the import is ignored.
+         */
+        private IRI resolve(IRI importIRI) {
+            if (configuration.isIgnoredImport(importIRI)) {
+                return null;
+            }
+            IRI documentIRI = importDocumentIRIs.get(importIRI);
+            if (documentIRI == null) {
+                documentIRI = documentIRIsByOntologyIRI.get(importIRI);
+                if (documentIRI == null) {
+                    documentIRI = getDocumentIRI(importIRI);
+                }
+                importDocumentIRIs.put(importIRI, documentIRI);
+            }
+            return documentIRI;
+        }
+
+        /**
+         * Submits the waiting documents whose imports have all been loaded.  If there are none, and nothing is being
+         * parsed, then the waiting documents import each other, and they are submitted with the imports that have
+         * been loaded.
+         */
+        private void submitReadyDocuments() {
+            List<IRI> ready = new ArrayList<>();
+            for (IRI documentIRI : waitingDocuments) {
+                if (isFinished(getImportedDocumentClosure(documentIRI))) {
+                    ready.add(documentIRI);
+                }
+            }
+            if (ready.isEmpty() && pending.isEmpty()) {
+                ready.addAll(waitingDocuments);
+                incompleteDocuments.addAll(waitingDocuments);
+            }
+            for (IRI documentIRI : ready) {
+                waitingDocuments.remove(documentIRI);
+                submit(documentIRI);
+            }
+        }
+
+        private void submit(IRI documentIRI) {
+            Set<IRI> importedDocumentClosure = getImportedDocumentClosure(documentIRI);
+            if (importedDocumentClosure.isEmpty()) {
+                pending.put(completionService.submit(() -> parse(documentIRI)), documentIRI);
+                return;
+            }
+            Map<OWLOntology, IRI> importedOntologies = new LinkedHashMap<>();
+            Set<IRI> ignoredImports = new HashSet<>();
+            for (IRI importIRI : scannedImports.get(documentIRI)) {
+                if (!isLoaded(resolve(importIRI))) {
+                    ignoredImports.add(importIRI);
+                }
+            }
+            for (IRI importedDocumentIRI : importedDocumentClosure) {
+                if (!isLoaded(importedDocumentIRI)) {
+                    continue;
+                }
+                OWLOntologyID importedID = ontologyIDsByDocumentIRI.get(importedDocumentIRI);
+                OWLOntology importedOntology = loadedOntologies.get(importedID);
+                importedOntologies.put(importedOntology, documentIRIs.get(importedID));
+                if (incompleteOntologies.contains(importedID)) {
+                    incompleteDocuments.add(documentIRI);
+                }
+                for (OWLImportsDeclaration importsDeclaration : importedOntology.getImportsDeclarations()) {
+                    if (getImportedOntologyID(importsDeclaration.getIRI()) == null) {
+                        ignoredImports.add(importsDeclaration.getIRI());
+                    }
+                }
+            }
+            Map<IRI, IRI> resolvedImportDocumentIRIs = getResolvedImportDocumentIRIs();
+            pending.put(completionService.submit(() -> parseWithImports(documentIRI, importedOntologies, resolvedImportDocumentIRIs, ignoredImports)), documentIRI);
+        }
+
+        /**
+         * Records a parsed document, finds the imports that were missed before it was parsed, and notes whether it
+         * has to be parsed again.
+         */
+        private void parsed(IRI documentIRI, OWLOntology ontology) {
+            boolean incomplete = incompleteDocuments.remove(documentIRI);
+            if (!added(ontology, documentIRI)) {
+                return;
+            }
+            Set<IRI> imports = new LinkedHashSet<>();
+            Set<IRI> imported = new LinkedHashSet<>();
+            for (OWLImportsDeclaration importsDeclaration : ontology.getImportsDeclarations()) {
+                imports.add(importsDeclaration.getIRI());
+                IRI importedDocumentIRI = resolve(importsDeclaration.getIRI());
+                if (importedDocumentIRI != null) {
+                    imported.add(importedDocumentIRI);
+                    find(importedDocumentIRI);
+                }
+            }
+            importedDocuments.put(documentIRI, imported);
+            if (!imports.isEmpty()
+                    && isParsedUsingImports(ontology)
+                    && (incomplete || !imports.equals(scannedImports.get(documentIRI)))) {
+                incompleteOntologies.add(ontology.getOntologyID());
+            }
+        }
+
+        private boolean isLoaded(IRI documentIRI) {
+            return documentIRI != null && ontologyIDsByDocumentIRI.containsKey(documentIRI);
+        }
+
+        private boolean isFinished(Set<IRI> documentIRIs) {
+            for (IRI documentIRI : documentIRIs) {
+                if (!isLoaded(documentIRI) && !failedDocuments.contains(documentIRI)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Gets the documents that a document imports, directly or indirectly, not including the document itself.
+         */
+        private Set<IRI> getImportedDocumentClosure(IRI documentIRI) {
+            Set<IRI> closure = new LinkedHashSet<>();
+            Deque<IRI> toVisit = new ArrayDeque<>(importedDocuments.get(documentIRI));
+            while (!toVisit.isEmpty()) {
+                IRI importedDocumentIRI = toVisit.pop();
+                if (!importedDocumentIRI.equals(documentIRI) && closure.add(importedDocumentIRI)) {
+                    toVisit.addAll(importedDocuments.getOrDefault(importedDocumentIRI, Collections.emptySet()));
+                }
+            }
+            return closure;
+        }
+
+        /**
+         * Gets the document IRIs of the loaded ontologies that imports declarations were resolved to.
+         */
+        private Map<IRI, IRI> getResolvedImportDocumentIRIs() {
+            Map<IRI, IRI> resolvedImportDocumentIRIs = new HashMap<>();
+            for (Map.Entry<IRI, IRI> entry : importDocumentIRIs.entrySet()) {
+                OWLOntologyID importedID = ontologyIDsByDocumentIRI.get(entry.getValue());
+                if (importedID != null) {
+                    resolvedImportDocumentIRIs.put(entry.getKey(), documentIRIs.get(importedID));
+                }
+            }
+            return resolvedImportDocumentIRIs;
+        }
+
+        /**
+         * Gets the ontologies that each loaded ontology imports.
+         */
+        private Map<OWLOntologyID, Set<OWLOntologyID>> getDirectImports() {
+            Map<OWLOntologyID, Set<OWLOntologyID>> directImports = new HashMap<>();
+            for (OWLOntology ontology : loadedOntologies.values()) {
+                Set<OWLOntologyID> imported = new LinkedHashSet<>();
+                for (OWLImportsDeclaration importsDeclaration : ontology.getImportsDeclarations()) {
+                    OWLOntologyID importedID = getImportedOntologyID(importsDeclaration.getIRI());
+                    if (importedID != null) {
+                        imported.add(importedID);
+                    }
+                }
+                directImports.put(ontology.getOntologyID(), imported);
+            }
+            return directImports;
+        }
+
+        /**
+         * Parses the incomplete documents again, in dependency order.
+         */
+        private void reparseWithImports(OWLOntologyID rootID) throws OWLOntologyCreationException {
+            Map<OWLOntologyID, Set<OWLOntologyID>> directImports = getDirectImports();
+            Set<IRI> ignoredImports = new HashSet<>();
+            for (OWLOntology ontology : loadedOntologies.values()) {
+                for (OWLImportsDeclaration importsDeclaration : ontology.getImportsDeclarations()) {
+                    if (getImportedOntologyID(importsDeclaration.getIRI()) == null) {
+                        ignoredImports.add(importsDeclaration.getIRI());
+                    }
+                }
+            }
+            Set<OWLOntologyID> remaining = new LinkedHashSet<>(incompleteOntologies);
+            Map<IRI, IRI> resolvedImportDocumentIRIs = getResolvedImportDocumentIRIs();
+            Set<OWLOntologyID> inProgress = new HashSet<>();
+            while (!remaining.isEmpty() || !pending.isEmpty()) {
+                List<OWLOntologyID> ready = new ArrayList<>();
+                for (OWLOntologyID ontologyID : remaining) {
+                    Set<OWLOntologyID> closure = getImportsClosure(ontologyID, directImports);
+                    if (Collections.disjoint(closure, remaining) && Collections.disjoint(closure, inProgress)) {
+                        ready.add(ontologyID);
+                    }
+                }
+                if (ready.isEmpty() && pending.isEmpty()) {
+                    // The remaining documents import each other, so parse them with their imports as they are
+                    ready.addAll(remaining);
+                }
+                for (OWLOntologyID ontologyID : ready) {
+                    remaining.remove(ontologyID);
+                    inProgress.add(ontologyID);
+                    Map<OWLOntology, IRI> importedOntologies = new LinkedHashMap<>();
+                    for (OWLOntologyID importedID : getImportsClosure(ontologyID, directImports)) {
+                        importedOntologies.put(loadedOntologies.get(importedID), documentIRIs.get(importedID));
+                    }
+                    IRI documentIRI = documentIRIs.get(ontologyID);
+                    pending.put(completionService.submit(() -> parseWithImports(documentIRI, importedOntologies, resolvedImportDocumentIRIs, ignoredImports)), documentIRI);
+                }
+                if (pending.isEmpty()) {
+                    continue;
+                }
+                Future<OWLOntology> future;
+                try {
+                    future = completionService.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OWLOntologyCreationException("Interrupted whilst loading the imports closure", e);
+                }
+                IRI documentIRI = pending.remove(future);
+                OWLOntologyID ontologyID = ontologyIDsByDocumentIRI.get(documentIRI);
+                inProgress.remove(ontologyID);
+                try {
+                    // Keep the position of the ontology
+                    loadedOntologies.put(ontologyID, future.get());
+                } catch (ExecutionException e) {
+                    if (ontologyID.equals(rootID)) {
+                        throw toCreationException(e.getCause());
+                    }
+                    logger.warn("Failed to load the ontology at {} with its imports: {}", documentIRI, e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OWLOntologyCreationException("Interrupted whilst loading the imports closure", e);
+                }
+            }
+        }
+
+        private OWLOntologyID getImportedOntologyID(IRI importIRI) {
+            for (OWLOntologyID ontologyID : loadedOntologies.keySet()) {
+                if (ontologyID.getOntologyIRI().isPresent() && ontologyID.getOntologyIRI().get().equals(importIRI)
+                        || ontologyID.getVersionIRI().isPresent() && ontologyID.getVersionIRI().get().equals(importIRI)) {
+                    return ontologyID;
+                }
+            }
+            IRI documentIRI = importDocumentIRIs.get(importIRI);
+            return documentIRI == null ? null : ontologyIDsByDocumentIRI.get(documentIRI);
+        }
+
+        /**
+         * Gets the ids of the ontologies that an ontology imports, directly or indirectly, not including the ontology
+         * itself.
+         */
+        private Set<OWLOntologyID> getImportsClosure(OWLOntologyID ontologyID, Map<OWLOntologyID, Set<OWLOntologyID>> directImports) {
+            Set<OWLOntologyID> closure = new LinkedHashSet<>();
+            Deque<OWLOntologyID> toVisit = new ArrayDeque<>(directImports.get(ontologyID));
+            while (!toVisit.isEmpty()) {
+                OWLOntologyID importedID = toVisit.pop();
+                if (!importedID.equals(ontologyID) && closure.add(importedID)) {
+                    toVisit.addAll(directImports.get(importedID));
+                }
+            }
+            return closure;
+        }
+
+        /**
+         * Records a parsed ontology.
+         * @return <code>false</code> if an ontology with the same id has already been loaded from another document.
+         */
+        private boolean added(OWLOntology ontology, IRI documentIRI) {
+            OWLOntologyID ontologyID = ontology.getOntologyID();
+            ontologyIDsByDocumentIRI.put(documentIRI, ontologyID);
+            if (loadedOntologies.containsKey(ontologyID)) {
+                // Two import IRIs resolved to different documents for the same ontology
+                logger.info("Ignoring the ontology at {} as {} has already been loaded", documentIRI, ontologyID);
+                return false;
+            }
+            loadedOntologies.put(ontologyID, ontology);
+            documentIRIs.put(ontologyID, documentIRI);
+            if (ontologyID.getOntologyIRI().isPresent()) {
+                documentIRIsByOntologyIRI.put(ontologyID.getOntologyIRI().get(), documentIRI);
+            }
+            if (ontologyID.getVersionIRI().isPresent()) {
+                documentIRIsByOntologyIRI.put(ontologyID.getVersionIRI().get(), documentIRI);
+            }
+            return true;
+        }
+    }
+
+
+    /**
+     * Creates the managers that parse documents for an {@link ImportsClosureLoader}.
+     */
+    public interface ManagerFactory {
+
+        /**
+         * Creates a manager for parsing a single document.
+         * @param importsLoaded <code>false</code> for a manager that parses a document to find its imports, which must
+         *                      not follow imports declarations, or <code>true</code> for a manager that parses a
+         *                      document again with copies of its imported ontologies, which must follow them so that
+         *                      the parser sees the copies.
+         */
+        OWLOntologyManager createManager(boolean importsLoaded);
+    }
+}
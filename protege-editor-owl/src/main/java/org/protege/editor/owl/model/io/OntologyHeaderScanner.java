@@ -0,0 +1,201 @@
+package org.protege.editor.owl.model.io;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Finds the ontology IRI and the imports declarations of an ontology document by looking for them in the text at the
+ * start of the document, without parsing it.  The imports declarations of the common syntaxes are in the ontology
+ * header, before any axioms, so only the start of the document is read.
+ * <p>
+ * The result is a guess.  It may miss imports that are written in an unusual way, or that come after the start of
+ * the document, and it may find imports that are in a literal.  Callers must check it against the parsed document.
+ * </p>
+ */
+final class OntologyHeaderScanner {
+
+    /**
+     * The number of characters at the start of a document that are searched.
+     */
+    static final int HEADER_LENGTH = 64 * 1024;
+
+    private static final String ACCEPT = "application/rdf+xml, application/xml; q=0.7, text/xml; q=0.6, text/plain; q=0.1, */*; q=0.09";
+
+    private static final Pattern XML_COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+
+    private static final Pattern LINE_COMMENT = Pattern.compile("^\\s*#.*$", Pattern.MULTILINE);
+
+    private static final List<Pattern> IMPORT_PATTERNS = Arrays.asList(
+            // RDF/XML
+            Pattern.compile("<(?:\\w+:)?imports\\b[^>]*?\\bresource\\s*=\\s*[\"']([^\"']*)[\"']"),
+            // OWL/XML
+            Pattern.compile("<(?:\\w+:)?Import\\b[^>]*>\\s*([^<\\s]*)\\s*</"),
+            // Functional syntax
+            Pattern.compile("\\bImport\\(\\s*<([^>]*)>\\s*\\)"),
+            // Manchester syntax
+            Pattern.compile("\\bImport:\\s*<([^>]*)>")
+    );
+
+    /**
+     * Turtle imports, which may be followed by a comma separated list of IRIs.
+     */
+    private static final Pattern TURTLE_IMPORTS = Pattern.compile(
+            "(?:\\bowl:imports|<http://www\\.w3\\.org/2002/07/owl#imports>)\\s+((?:<[^>]*>\\s*,\\s*)*<[^>]*>)");
+
+    private static final Pattern TURTLE_IRI = Pattern.compile("<([^>]*)>");
+
+    private static final List<Pattern> ONTOLOGY_IRI_PATTERNS = Arrays.asList(
+            // RDF/XML and OWL/XML
+            Pattern.compile("<(?:\\w+:)?Ontology\\b[^>]*?\\b(?:about|ontologyIRI)\\s*=\\s*[\"']([^\"']*)[\"']"),
+            // Functional syntax
+            Pattern.compile("\\bOntology\\(\\s*<([^>]*)>"),
+            // Manchester syntax
+            Pattern.compile("\\bOntology:\\s*<([^>]*)>"),
+            // Turtle
+            Pattern.compile("<([^>]*)>\\s+(?:a|rdf:type)\\s+owl:Ontology\\b")
+    );
+
+    private OntologyHeaderScanner() {
+    }
+
+    /**
+     * Reads the start of a document and looks for its header.
+     * @param documentIRI The IRI of the document.
+     * @param connectionTimeout The connection and read timeout for remote documents, in milliseconds.
+     * @return The header, or an empty optional if the document could not be read or if an import could not be
+     * resolved to an absolute IRI without parsing the document.
+     */
+    @Nonnull
+    static Optional<Header> scan(@Nonnull IRI documentIRI, int connectionTimeout) {
+        String text;
+        try {
+            text = read(documentIRI, connectionTimeout);
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+        return scan(text);
+    }
+
+    /**
+     * Looks for the header in the start of a document.
+     */
+    @Nonnull
+    static Optional<Header> scan(@Nonnull String text) {
+        text = LINE_COMMENT.matcher(XML_COMMENT.matcher(text).replaceAll("")).replaceAll("");
+        Set<IRI> imports = new LinkedHashSet<>();
+        for (Pattern pattern : IMPORT_PATTERNS) {
+            Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                if (!addIRI(matcher.group(1), imports)) {
+                    return Optional.empty();
+                }
+            }
+        }
+        Matcher turtleImports = TURTLE_IMPORTS.matcher(text);
+        while (turtleImports.find()) {
+            Matcher iri = TURTLE_IRI.matcher(turtleImports.group(1));
+            while (iri.find()) {
+                if (!addIRI(iri.group(1), imports)) {
+                    return Optional.empty();
+                }
+            }
+        }
+        IRI ontologyIRI = null;
+        for (Pattern pattern : ONTOLOGY_IRI_PATTERNS) {
+            Matcher matcher = pattern.matcher(text);
+            if (matcher.find() && isAbsolute(matcher.group(1))) {
+                ontologyIRI = IRI.create(matcher.group(1));
+                break;
+            }
+        }
+        return Optional.of(new Header(ontologyIRI, new ArrayList<>(imports)));
+    }
+
+    /**
+     * Adds an IRI that was found in the text, unless it is relative or uses an entity reference, in which case it
+     * cannot be resolved without parsing the document.
+     * @return <code>true</code> if the IRI was added.
+     */
+    private static boolean addIRI(String iri, Set<IRI> iris) {
+        if (!isAbsolute(iri)) {
+            return false;
+        }
+        iris.add(IRI.create(iri));
+        return true;
+    }
+
+    private static boolean isAbsolute(String iri) {
+        return iri.indexOf('&') < 0 && iri.matches("[a-zA-Z][a-zA-Z0-9+.-]*:\\S+");
+    }
+
+    private static String read(IRI documentIRI, int connectionTimeout) throws IOException {
+        URLConnection connection = documentIRI.toURI().toURL().openConnection();
+        connection.setConnectTimeout(connectionTimeout);
+        connection.setReadTimeout(connectionTimeout);
+        connection.setRequestProperty("Accept", ACCEPT);
+        try (InputStream in = new BufferedInputStream(connection.getInputStream())) {
+            InputStream content = in;
+            in.mark(2);
+            if (in.read() == 0x1f && in.read() == 0x8b) {
+                in.reset();
+                content = new GZIPInputStream(in);
+            }
+            else {
+                in.reset();
+            }
+            Reader reader = new InputStreamReader(content, StandardCharsets.UTF_8);
+            char[] buffer = new char[HEADER_LENGTH];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+            }
+            return new String(buffer, 0, length);
+        }
+    }
+
+
+    /**
+     * The parts of an ontology header that are needed to find the documents in an imports closure.
+     */
+    static final class Header {
+
+        @Nullable
+        private final IRI ontologyIRI;
+
+        private final List<IRI> imports;
+
+        Header(@Nullable IRI ontologyIRI, List<IRI> imports) {
+            this.ontologyIRI = ontologyIRI;
+            this.imports = Collections.unmodifiableList(imports);
+        }
+
+        /**
+         * Gets the ontology IRI, if it was found.
+         */
+        @Nullable
+        IRI getOntologyIRI() {
+            return ontologyIRI;
+        }
+
+        /**
+         * Gets the IRIs of the imported ontologies, in the order in which they were found.
+         */
+        List<IRI> getImports() {
+            return imports;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.protege.editor.owl.model.io;
+
+import org.protege.editor.core.prefs.Preferences;
+import org.protege.editor.core.prefs.PreferencesManager;
+
+/**
+ * Preferences for loading and saving ontologies.
+ */
+public class OntologyIOPreferences {
+
+    private static final String ONTOLOGY_IO_PREFERENCES = "ONTOLOGY_IO_PREFERENCES";
+
+    private static final OntologyIOPreferences PREFERENCES = new OntologyIOPreferences();
+
+    private static final String PARALLEL_IMPORTS_LOADING_KEY = "PARALLEL_IMPORTS_LOADING";
+
+    private static final String USE_ONTOLOGY_SNAPSHOTS_KEY = "USE_ONTOLOGY_SNAPSHOTS";
+
+    private static final String IO_THREAD_COUNT_KEY = "IO_THREAD_COUNT";
+
+    private static final int DEFAULT_IO_THREAD_COUNT = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static Preferences getPreferences() {
+        return PreferencesManager.getInstance().getApplicationPreferences(ONTOLOGY_IO_PREFERENCES);
+    }
+
+    public static OntologyIOPreferences get() {
+        return PREFERENCES;
+    }
+
+    /**
+     * Determines whether the documents in the imports closure of an ontology are parsed concurrently when the
+     * ontology is loaded (see {@link ImportsClosureLoader}).  This is on by default.
+     */
+    public boolean isParallelImportsLoading() {
+        return getPreferences().getBoolean(PARALLEL_IMPORTS_LOADING_KEY, true);
+    }
+
+    public void setParallelImportsLoading(boolean parallelImportsLoading) {
+        getPreferences().putBoolean(PARALLEL_IMPORTS_LOADING_KEY, parallelImportsLoading);
+    }
+
+    /**
+     * Determines whether large local ontology documents are restored from a snapshot of their parsed content when
+     * they have not changed since they were last opened.
+     */
+    public boolean isUseOntologySnapshots() {
+        return getPreferences().getBoolean(USE_ONTOLOGY_SNAPSHOTS_KEY, true);
+    }
+
+    public void setUseOntologySnapshots(boolean useOntologySnapshots) {
+        getPreferences().putBoolean(USE_ONTOLOGY_SNAPSHOTS_KEY, useOntologySnapshots);
+    }
+
+    /**
+     * Gets the maximum number of ontology documents that are read or written at the same time.
+     */
+    public int getIOThreadCount() {
+        return Math.max(1, getPreferences().getInt(IO_THREAD_COUNT_KEY, DEFAULT_IO_THREAD_COUNT));
+    }
+
+    public void setIOThreadCount(int ioThreadCount) {
+        getPreferences().putInt(IO_THREAD_COUNT_KEY, ioThreadCount);
+    }
+}
@@ -96,26 +96,48 @@ public class OntologyLoader {
     private Optional<OWLOntology> loadOntologyInternal(URI documentURI) throws OWLOntologyCreationException {
 
         MemoryMonitor memoryMonitor = new MemoryMonitor(new LowMemoryNotificationViewImpl());
-        OWLOntology ontology;
-        // I think the loading manager needs to be a concurrent manager because we
-        // copy over the ontologies and the ontologies have to be concurrent ontology implementations
-        OWLOntologyManager loadingManager = createInterceptingManager(memoryMonitor::checkMemory);
-
-        PriorityCollection<OWLOntologyIRIMapper> iriMappers = loadingManager.getIRIMappers();
-        iriMappers.clear();
-        iriMappers.add(userResolvedIRIMapper);
-        iriMappers.add(new WebConnectionIRIMapper());
-        iriMappers.add(new AutoMappedRepositoryIRIMapper(
-                modelManager.getOntologyCatalogManager(), documentURI));
-
-        loadingManager.addOntologyLoaderListener(new ProgressDialogOntologyLoaderListener(dlg, logger));
+        List<OWLOntologyIRIMapper> iriMappers = Arrays.asList(
+                userResolvedIRIMapper,
+                new WebConnectionIRIMapper(),
+                new AutoMappedRepositoryIRIMapper(modelManager.getOntologyCatalogManager(), documentURI));
+        ProgressDialogOntologyLoaderListener loaderListener = new ProgressDialogOntologyLoaderListener(dlg, logger, IRI.create(documentURI));
 
         OWLOntologyLoaderConfiguration configuration = new OWLOntologyLoaderConfiguration();
         configuration = configuration.setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
-        IRIDocumentSource documentSource = new IRIDocumentSource(IRI.create(documentURI));
-        ontology = loadingManager.loadOntologyFromOntologyDocument(documentSource, configuration);
+        OWLOntology ontology;
+        Collection<OWLOntology> loadedOntologies;
+        OntologyIOPreferences preferences = OntologyIOPreferences.get();
+        if (preferences.isParallelImportsLoading()) {
+            // Each document is parsed by its own manager, in dependency order, with copies of its imported ontologies
+            ImportsClosureLoader closureLoader = new ImportsClosureLoader(importsLoaded -> {
+                OWLOntologyManager documentManager = createInterceptingManager(memoryMonitor::checkMemory, importsLoaded);
+                if (preferences.isUseOntologySnapshots()) {
+                    SnapshotCachingOntologyFactory.install(documentManager, SnapshotCachingOntologyFactory.DEFAULT_MINIMUM_DOCUMENT_SIZE, importsLoaded);
+                }
+                documentManager.addOntologyLoaderListener(loaderListener);
+                return documentManager;
+            }, iriMappers, configuration, preferences.getIOThreadCount());
+            List<OWLOntology> closure = closureLoader.load(IRI.create(documentURI));
+            ontology = closure.get(0);
+            loadedOntologies = closure;
+        }
+        else {
+            // I think the loading manager needs to be a concurrent manager because we
+            // copy over the ontologies and the ontologies have to be concurrent ontology implementations
+            OWLOntologyManager loadingManager = createInterceptingManager(memoryMonitor::checkMemory);
+            if (preferences.isUseOntologySnapshots()) {
+                SnapshotCachingOntologyFactory.install(loadingManager, SnapshotCachingOntologyFactory.DEFAULT_MINIMUM_DOCUMENT_SIZE, true);
+            }
+            PriorityCollection<OWLOntologyIRIMapper> loadingManagerIRIMappers = loadingManager.getIRIMappers();
+            loadingManagerIRIMappers.clear();
+            loadingManagerIRIMappers.add(iriMappers);
+            loadingManager.addOntologyLoaderListener(loaderListener);
+            IRIDocumentSource documentSource = new IRIDocumentSource(IRI.create(documentURI));
+            ontology = loadingManager.loadOntologyFromOntologyDocument(documentSource, configuration);
+            loadedOntologies = new ArrayList<>(loadingManager.getOntologies());
+        }
         Set<OWLOntology> alreadyLoadedOntologies = new HashSet<>();
-        for (OWLOntology loadedOntology : loadingManager.getOntologies()) {
+        for (OWLOntology loadedOntology : loadedOntologies) {
             if (!modelManager.getOntologies().contains(loadedOntology)) {
                 OWLOntologyManager modelManager = getOntologyManager();
                 fireBeforeLoad(loadedOntology, documentURI);
@@ -182,6 +204,19 @@ public class OntologyLoader {
      *                  that is being loaded
      */
     public static OWLOntologyManager createInterceptingManager(Runnable intercept) {
+        return createInterceptingManager(intercept, true);
+    }
+
+    /**
+     * Creates an ontology manager that is suitable for loading ontology and that
+     * intercepts the add axiom changes.
+     * @param intercept A runnable that will be called when an axiom is added to an ontology
+     *                  that is being loaded
+     * @param followImports true if the manager should load the ontologies that are imported by
+     *                      the ontologies that it loads, or false if imports declarations should
+     *                      be left for the caller to resolve (see {@link ImportsClosureLoader})
+     */
+    public static OWLOntologyManager createInterceptingManager(Runnable intercept, boolean followImports) {
         OWLOntologyManager m = OWLManager.createConcurrentOWLOntologyManager();
         ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
         OWLOntologyManager manager = new OWLOntologyManagerImpl(new OWLDataFactoryImpl(), lock) {
@@ -191,6 +226,14 @@ public class OntologyLoader {
                 intercept.run();
                 return super.addAxiom(ont, axiom);
             }
+
+            @Override
+            public void makeLoadImportRequest(@Nonnull OWLImportsDeclaration declaration,
+                                              @Nonnull OWLOntologyLoaderConfiguration configuration) {
+                if (followImports) {
+                    super.makeLoadImportRequest(declaration, configuration);
+                }
+            }
         };
         OWLOntologyFactory factory = new OWLOntologyFactoryImpl(new ConcurrentOWLOntologyBuilder(new NonConcurrentOWLOntologyBuilder(), lock));
         manager.setOntologyFactories(Collections.singleton(factory));
@@ -1,7 +1,6 @@
 package org.protege.editor.owl.model.io;
 
 import com.google.common.util.concurrent.*;
-import org.apache.commons.io.FileUtils;
 import org.protege.editor.owl.ui.util.ProgressDialog;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLDocumentFormat;
@@ -11,13 +10,20 @@ import org.semanticweb.owlapi.util.OntologyIRIShortFormProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -48,7 +54,29 @@ public class OntologySaver {
      * @throws OWLOntologyStorageException if there was a problem saving an ontology.
      */
     public void saveOntologies() throws OWLOntologyStorageException {
-		ListenableFuture<Void> future = executorService.submit(() -> {			
+        Map<OWLOntology, OWLOntologyStorageException> errors = saveEachOntology();
+        OWLOntologyStorageException firstError = null;
+        for (OWLOntologyStorageException error : errors.values()) {
+            if (firstError == null) {
+                firstError = error;
+            }
+            else {
+                logger.error("An error occurred whilst saving an ontology: {}", error.getMessage(), error);
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+    /**
+     * Save the ontologies that were added to this saver using the OntologySaver.Builder.  An ontology that cannot be
+     * saved does not stop the others from being saved.
+     * @return The ontologies that could not be saved, mapped to the errors that occurred whilst saving them, in the
+     * order in which the ontologies were added.  Empty if all of the ontologies were saved.
+     */
+    public Map<OWLOntology, OWLOntologyStorageException> saveEachOntology() {
+		ListenableFuture<Map<OWLOntology, OWLOntologyStorageException>> future = executorService.submit(() -> {
 			try {
 				return saveOntologyInternal();
 			} finally {
@@ -57,63 +85,145 @@ public class OntologySaver {
 		});
 		dlg.setVisible(true);
         try {
-            future.get();
+            return future.get();
         } catch (InterruptedException e) {
             logger.info("Save was interrupted");
+            Thread.currentThread().interrupt();
+            return failAll(e);
         } catch (ExecutionException e) {
-            if(e.getCause() instanceof OWLOntologyStorageException) {
-                throw (OWLOntologyStorageException) e.getCause();
-            }
-            else if(e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
-            }
-            else {
-                logger.info("An error occurred during save: {}", e.getMessage(), e);
-            }
+            logger.info("An error occurred during save: {}", e.getMessage(), e);
+            return failAll(e.getCause());
         }
     }
 
+    private Map<OWLOntology, OWLOntologyStorageException> failAll(Throwable cause) {
+        Map<OWLOntology, OWLOntologyStorageException> errors = new LinkedHashMap<>();
+        for (OntologySaveDescriptor descriptor : saveDescriptors) {
+            errors.put(descriptor.getOntology(), toStorageException(cause));
+        }
+        return errors;
+    }
+
+    private static OWLOntologyStorageException toStorageException(Throwable t) {
+        if (t instanceof OWLOntologyStorageException) {
+            return (OWLOntologyStorageException) t;
+        }
+        return new OWLOntologyStorageException(t);
+    }
+
     /**
-     * Does the actual saving.
-     * @return {@code null}.
-     * @throws OWLOntologyStorageException if there was a problem saving the ontology.
+     * Does the actual saving.  The ontologies are saved concurrently on a bounded pool.  If any of them cannot be
+     * saved the others are still saved.
+     * @return The errors, by ontology, in the order in which the ontologies were added.
      */
-    private Void saveOntologyInternal() throws OWLOntologyStorageException {
-        for (OntologySaveDescriptor descriptor : saveDescriptors) {
-            try {
-                OWLOntology ontology = descriptor.getOntology();
-                OntologyIRIShortFormProvider sfp = new OntologyIRIShortFormProvider();
-                String ontologyShortForm = sfp.getShortForm(ontology);
-                logger.info("Saving {}", ontologyShortForm);
-                dlg.setMessage(String.format("Saving ontology: %s", ontologyShortForm));
-                IRI documentIRI = descriptor.getDocumentIRI();
-                dlg.setSubMessage(String.format("Location: %s", formatIRI(documentIRI)));
-                if ("file".equals(documentIRI.getScheme())) {
-                    File tempFile;
-                    // Save temp file first and then copy over.
-                    tempFile = Files.createTempFile("temp-ontology", "").toFile();
-                    try {
-                        logger.info("Saving ontology to temp file: {}", tempFile);
-                        ontology.saveOntology(descriptor.getDocumentFormat(), IRI.create(tempFile));
-                        File destFile = new File(documentIRI.toURI());
-                        logger.info("Copying ontology from temp file ({}) to actual destination ({})", tempFile, destFile);
-                        FileUtils.copyFile(tempFile, destFile);
-                    } finally {
-                        logger.info("Removing temp file: {}", tempFile);
-                        FileUtils.deleteQuietly(tempFile);
+    private Map<OWLOntology, OWLOntologyStorageException> saveOntologyInternal() {
+        int ontologyCount = saveDescriptors.size();
+        if (ontologyCount == 1) {
+            dlg.setMessage(String.format("Saving ontology: %s", getShortForm(saveDescriptors.get(0).getOntology())));
+        }
+        else {
+            dlg.setMessage(String.format("Saving %d ontologies", ontologyCount));
+        }
+        AtomicInteger savedCount = new AtomicInteger();
+        int threadCount = Math.min(ontologyCount, OntologyIOPreferences.get().getIOThreadCount());
+        ExecutorService saveService = Executors.newFixedThreadPool(Math.max(1, threadCount), runnable -> {
+            Thread thread = new Thread(runnable, "Ontology Saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<OWLOntology, OWLOntologyStorageException> errors = new LinkedHashMap<>();
+        try {
+            Map<OntologySaveDescriptor, Future<?>> futures = new LinkedHashMap<>();
+            for (OntologySaveDescriptor descriptor : saveDescriptors) {
+                futures.put(descriptor, saveService.submit(() -> {
+                    saveOntology(descriptor);
+                    int saved = savedCount.incrementAndGet();
+                    if (ontologyCount > 1) {
+                        dlg.setSubMessage(String.format("Saved %d of %d: %s", saved, ontologyCount, getShortForm(descriptor.getOntology())));
                     }
-                }
-                else {
-                    logger.info("Saving ontology to: {}", documentIRI);
-                    ontology.saveOntology(descriptor.getDocumentFormat(), documentIRI);
+                    return null;
+                }));
+            }
+            for (Map.Entry<OntologySaveDescriptor, Future<?>> entry : futures.entrySet()) {
+                OWLOntology ontology = entry.getKey().getOntology();
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    errors.put(ontology, toStorageException(e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    errors.put(ontology, new OWLOntologyStorageException("Interrupted whilst saving ontologies", e));
                 }
             }
-            catch (IOException e) {
+        } finally {
+            saveService.shutdownNow();
+        }
+        return errors;
+    }
+
+    private void saveOntology(OntologySaveDescriptor descriptor) throws OWLOntologyStorageException {
+        OWLOntology ontology = descriptor.getOntology();
+        String ontologyShortForm = getShortForm(ontology);
+        logger.info("Saving {}", ontologyShortForm);
+        IRI documentIRI = descriptor.getDocumentIRI();
+        if (saveDescriptors.size() == 1) {
+            dlg.setSubMessage(String.format("Location: %s", formatIRI(documentIRI)));
+        }
+        if ("file".equals(documentIRI.getScheme())) {
+            try {
+                saveToFile(ontology, descriptor.getDocumentFormat(), Paths.get(documentIRI.toURI()));
+            } catch (IOException e) {
                 throw new OWLOntologyStorageException(e);
             }
+        }
+        else {
+            logger.info("Saving ontology to: {}", documentIRI);
+            ontology.saveOntology(descriptor.getDocumentFormat(), documentIRI);
+        }
+    }
 
+    /**
+     * Streams an ontology to a temporary file next to the destination and then moves the temporary file over the
+     * destination, so that the destination is never left partly written.  The temporary file takes the permissions
+     * of the file that it replaces.
+     */
+    private void saveToFile(OWLOntology ontology, OWLDocumentFormat format, Path destination) throws IOException, OWLOntologyStorageException {
+        if (Files.exists(destination)) {
+            // Replace the target of a link rather than the link itself
+            destination = destination.toRealPath();
         }
-        return null;
+        Path tempFile = destination.resolveSibling("." + destination.getFileName() + ".saving");
+        try {
+            Files.deleteIfExists(tempFile);
+            logger.info("Saving ontology to temp file: {}", tempFile);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW), 1 << 16)) {
+                ontology.saveOntology(format, out);
+            }
+            copyPermissions(destination, tempFile);
+            logger.info("Moving ontology from temp file ({}) to actual destination ({})", tempFile, destination);
+            try {
+                Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void copyPermissions(Path from, Path to) {
+        if (!Files.exists(from)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        } catch (UnsupportedOperationException | IOException e) {
+            logger.debug("Could not copy the permissions of {}: {}", from, e.getMessage());
+        }
+    }
+
+    private static String getShortForm(OWLOntology ontology) {
+        return new OntologyIRIShortFormProvider().getShortForm(ontology);
     }
 
     private static String formatIRI(IRI iri) {
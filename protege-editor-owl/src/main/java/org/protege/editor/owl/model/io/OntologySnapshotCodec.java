@@ -0,0 +1,1031 @@
+package org.protege.editor.owl.model.io;
+
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.vocab.OWLFacet;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * The compact binary form of the axioms and annotations in an {@link OntologySnapshotFile}.
+ * <p>
+ * Each axiom is written as a tag, its annotations and then its parts.  Class expressions and data ranges are written
+ * as their type followed by their parts, and entities as a kind byte followed by their IRI.  IRIs, lexical forms,
+ * language tags and anonymous individual ids are written as indexes into a string table, so that each distinct
+ * string is stored once however often it occurs.  Each anonymous individual id is read back as a fresh anonymous
+ * individual.  Counts and indexes are written as variable length integers.
+ * </p>
+ * <p>
+ * SWRL rules are not supported.  An ontology that contains them cannot be written.
+ * </p>
+ */
+final class OntologySnapshotCodec {
+
+    /**
+     * The axiom tags.  The order is part of the file format.
+     */
+    private enum AxiomTag {
+        DECLARATION,
+        SUBCLASS_OF,
+        EQUIVALENT_CLASSES,
+        DISJOINT_CLASSES,
+        DISJOINT_UNION,
+        CLASS_ASSERTION,
+        SAME_INDIVIDUAL,
+        DIFFERENT_INDIVIDUALS,
+        OBJECT_PROPERTY_ASSERTION,
+        NEGATIVE_OBJECT_PROPERTY_ASSERTION,
+        DATA_PROPERTY_ASSERTION,
+        NEGATIVE_DATA_PROPERTY_ASSERTION,
+        EQUIVALENT_OBJECT_PROPERTIES,
+        DISJOINT_OBJECT_PROPERTIES,
+        INVERSE_OBJECT_PROPERTIES,
+        SUB_OBJECT_PROPERTY,
+        FUNCTIONAL_OBJECT_PROPERTY,
+        INVERSE_FUNCTIONAL_OBJECT_PROPERTY,
+        SYMMETRIC_OBJECT_PROPERTY,
+        ASYMMETRIC_OBJECT_PROPERTY,
+        TRANSITIVE_OBJECT_PROPERTY,
+        REFLEXIVE_OBJECT_PROPERTY,
+        IRREFLEXIVE_OBJECT_PROPERTY,
+        OBJECT_PROPERTY_DOMAIN,
+        OBJECT_PROPERTY_RANGE,
+        SUB_PROPERTY_CHAIN_OF,
+        EQUIVALENT_DATA_PROPERTIES,
+        DISJOINT_DATA_PROPERTIES,
+        SUB_DATA_PROPERTY,
+        FUNCTIONAL_DATA_PROPERTY,
+        DATA_PROPERTY_DOMAIN,
+        DATA_PROPERTY_RANGE,
+        DATATYPE_DEFINITION,
+        HAS_KEY,
+        ANNOTATION_ASSERTION,
+        SUB_ANNOTATION_PROPERTY_OF,
+        ANNOTATION_PROPERTY_DOMAIN,
+        ANNOTATION_PROPERTY_RANGE
+    }
+
+    private static final AxiomTag[] AXIOM_TAGS = AxiomTag.values();
+
+    private static final ClassExpressionType[] CLASS_EXPRESSION_TYPES = ClassExpressionType.values();
+
+    private static final DataRangeType[] DATA_RANGE_TYPES = DataRangeType.values();
+
+    private static final OWLFacet[] FACETS = OWLFacet.values();
+
+    /**
+     * The entity kinds.  The order is part of the file format.
+     */
+    private static final List<EntityType<?>> ENTITY_TYPES = Arrays.asList(
+            EntityType.CLASS,
+            EntityType.OBJECT_PROPERTY,
+            EntityType.DATA_PROPERTY,
+            EntityType.ANNOTATION_PROPERTY,
+            EntityType.NAMED_INDIVIDUAL,
+            EntityType.DATATYPE
+    );
+
+    private static final int NAMED = 0;
+
+    private static final int ANONYMOUS = 1;
+
+    private static final int INVERSE = 1;
+
+    private static final int IRI_VALUE = 0;
+
+    private static final int LITERAL_VALUE = 1;
+
+    private static final int ANONYMOUS_VALUE = 2;
+
+    private static final int TYPED = 0;
+
+    private static final int LANGUAGE_TAGGED = 1;
+
+    private OntologySnapshotCodec() {
+    }
+
+
+    /**
+     * Writes axioms and annotations, collecting the strings that they use into a table.
+     */
+    static final class Writer implements OWLAxiomVisitor {
+
+        private final DataOutput out;
+
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+        private final List<String> strings = new ArrayList<>();
+
+        Writer(DataOutput out) {
+            this.out = out;
+        }
+
+        /**
+         * Gets the strings that have been written, in index order.
+         */
+        List<String> getStrings() {
+            return strings;
+        }
+
+        /**
+         * Writes an axiom.
+         * @throws UnsupportedOperationException if the axiom is a SWRL rule.
+         */
+        void writeAxiom(OWLAxiom axiom) throws IOException {
+            try {
+                axiom.accept(this);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        void writeAnnotations(Collection<OWLAnnotation> annotations) throws IOException {
+            writeVarInt(annotations.size());
+            for (OWLAnnotation annotation : annotations) {
+                writeIRI(annotation.getProperty().getIRI());
+                writeAnnotationValue(annotation.getValue());
+                writeAnnotations(annotation.getAnnotations());
+            }
+        }
+
+        void writeIRI(IRI iri) throws IOException {
+            writeString(iri.toString());
+        }
+
+        void writeString(String s) throws IOException {
+            Integer index = stringIndexes.get(s);
+            if (index == null) {
+                index = strings.size();
+                strings.add(s);
+                stringIndexes.put(s, index);
+            }
+            writeVarInt(index);
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private void writeAnnotationValue(OWLAnnotationValue value) throws IOException {
+            if (value instanceof IRI) {
+                writeVarInt(IRI_VALUE);
+                writeIRI((IRI) value);
+            }
+            else if (value instanceof OWLLiteral) {
+                writeVarInt(LITERAL_VALUE);
+                writeLiteral((OWLLiteral) value);
+            }
+            else {
+                writeVarInt(ANONYMOUS_VALUE);
+                writeString(((OWLAnonymousIndividual) value).getID().getID());
+            }
+        }
+
+        private void writeLiteral(OWLLiteral literal) throws IOException {
+            writeString(literal.getLiteral());
+            if (literal.hasLang()) {
+                writeVarInt(LANGUAGE_TAGGED);
+                writeString(literal.getLang());
+            }
+            else {
+                writeVarInt(TYPED);
+                writeIRI(literal.getDatatype().getIRI());
+            }
+        }
+
+        private void writeLiterals(Collection<OWLLiteral> literals) throws IOException {
+            writeVarInt(literals.size());
+            for (OWLLiteral literal : literals) {
+                writeLiteral(literal);
+            }
+        }
+
+        private void writeEntity(OWLEntity entity) throws IOException {
+            writeVarInt(ENTITY_TYPES.indexOf(entity.getEntityType()));
+            writeIRI(entity.getIRI());
+        }
+
+        private void writeIndividual(OWLIndividual individual) throws IOException {
+            if (individual.isNamed()) {
+                writeVarInt(NAMED);
+                writeIRI(individual.asOWLNamedIndividual().getIRI());
+            }
+            else {
+                writeVarInt(ANONYMOUS);
+                writeString(individual.asOWLAnonymousIndividual().getID().getID());
+            }
+        }
+
+        private void writeIndividuals(Collection<OWLIndividual> individuals) throws IOException {
+            writeVarInt(individuals.size());
+            for (OWLIndividual individual : individuals) {
+                writeIndividual(individual);
+            }
+        }
+
+        private void writeObjectProperty(OWLObjectPropertyExpression property) throws IOException {
+            if (property.isAnonymous()) {
+                writeVarInt(INVERSE);
+                writeObjectProperty(((OWLObjectInverseOf) property).getInverse());
+            }
+            else {
+                writeVarInt(NAMED);
+                writeIRI(property.asOWLObjectProperty().getIRI());
+            }
+        }
+
+        private void writeObjectProperties(Collection<? extends OWLObjectPropertyExpression> properties) throws IOException {
+            writeVarInt(properties.size());
+            for (OWLObjectPropertyExpression property : properties) {
+                writeObjectProperty(property);
+            }
+        }
+
+        private void writeDataProperty(OWLDataPropertyExpression property) throws IOException {
+            writeIRI(property.asOWLDataProperty().getIRI());
+        }
+
+        private void writeDataProperties(Collection<? extends OWLDataPropertyExpression> properties) throws IOException {
+            writeVarInt(properties.size());
+            for (OWLDataPropertyExpression property : properties) {
+                writeDataProperty(property);
+            }
+        }
+
+        private void writeClassExpression(OWLClassExpression ce) throws IOException {
+            ClassExpressionType type = ce.getClassExpressionType();
+            writeVarInt(type.ordinal());
+            switch (type) {
+                case OWL_CLASS:
+                    writeIRI(ce.asOWLClass().getIRI());
+                    break;
+                case OBJECT_SOME_VALUES_FROM:
+                case OBJECT_ALL_VALUES_FROM: {
+                    OWLQuantifiedObjectRestriction restriction = (OWLQuantifiedObjectRestriction) ce;
+                    writeObjectProperty(restriction.getProperty());
+                    writeClassExpression(restriction.getFiller());
+                    break;
+                }
+                case OBJECT_MIN_CARDINALITY:
+                case OBJECT_MAX_CARDINALITY:
+                case OBJECT_EXACT_CARDINALITY: {
+                    OWLObjectCardinalityRestriction restriction = (OWLObjectCardinalityRestriction) ce;
+                    writeVarInt(restriction.getCardinality());
+                    writeObjectProperty(restriction.getProperty());
+                    writeClassExpression(restriction.getFiller());
+                    break;
+                }
+                case OBJECT_HAS_VALUE: {
+                    OWLObjectHasValue restriction = (OWLObjectHasValue) ce;
+                    writeObjectProperty(restriction.getProperty());
+                    writeIndividual(restriction.getFiller());
+                    break;
+                }
+                case OBJECT_HAS_SELF:
+                    writeObjectProperty(((OWLObjectHasSelf) ce).getProperty());
+                    break;
+                case DATA_SOME_VALUES_FROM:
+                case DATA_ALL_VALUES_FROM: {
+                    OWLQuantifiedDataRestriction restriction = (OWLQuantifiedDataRestriction) ce;
+                    writeDataProperty(restriction.getProperty());
+                    writeDataRange(restriction.getFiller());
+                    break;
+                }
+                case DATA_MIN_CARDINALITY:
+                case DATA_MAX_CARDINALITY:
+                case DATA_EXACT_CARDINALITY: {
+                    OWLDataCardinalityRestriction restriction = (OWLDataCardinalityRestriction) ce;
+                    writeVarInt(restriction.getCardinality());
+                    writeDataProperty(restriction.getProperty());
+                    writeDataRange(restriction.getFiller());
+                    break;
+                }
+                case DATA_HAS_VALUE: {
+                    OWLDataHasValue restriction = (OWLDataHasValue) ce;
+                    writeDataProperty(restriction.getProperty());
+                    writeLiteral(restriction.getFiller());
+                    break;
+                }
+                case OBJECT_INTERSECTION_OF:
+                case OBJECT_UNION_OF:
+                    writeClassExpressions(((OWLNaryBooleanClassExpression) ce).getOperands());
+                    break;
+                case OBJECT_COMPLEMENT_OF:
+                    writeClassExpression(((OWLObjectComplementOf) ce).getOperand());
+                    break;
+                case OBJECT_ONE_OF:
+                    writeIndividuals(((OWLObjectOneOf) ce).getIndividuals());
+                    break;
+            }
+        }
+
+        private void writeClassExpressions(Collection<? extends OWLClassExpression> ces) throws IOException {
+            writeVarInt(ces.size());
+            for (OWLClassExpression ce : ces) {
+                writeClassExpression(ce);
+            }
+        }
+
+        private void writeDataRange(OWLDataRange dataRange) throws IOException {
+            DataRangeType type = dataRange.getDataRangeType();
+            writeVarInt(type.ordinal());
+            switch (type) {
+                case DATATYPE:
+                    writeIRI(dataRange.asOWLDatatype().getIRI());
+                    break;
+                case DATA_ONE_OF:
+                    writeLiterals(((OWLDataOneOf) dataRange).getValues());
+                    break;
+                case DATATYPE_RESTRICTION: {
+                    OWLDatatypeRestriction restriction = (OWLDatatypeRestriction) dataRange;
+                    writeIRI(restriction.getDatatype().getIRI());
+                    writeVarInt(restriction.getFacetRestrictions().size());
+                    for (OWLFacetRestriction facetRestriction : restriction.getFacetRestrictions()) {
+                        writeVarInt(facetRestriction.getFacet().ordinal());
+                        writeLiteral(facetRestriction.getFacetValue());
+                    }
+                    break;
+                }
+                case DATA_COMPLEMENT_OF:
+                    writeDataRange(((OWLDataComplementOf) dataRange).getDataRange());
+                    break;
+                case DATA_UNION_OF:
+                case DATA_INTERSECTION_OF: {
+                    Set<? extends OWLDataRange> operands = ((OWLNaryDataRange) dataRange).getOperands();
+                    writeVarInt(operands.size());
+                    for (OWLDataRange operand : operands) {
+                        writeDataRange(operand);
+                    }
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Writes the tag and annotations of an axiom.  The visitor methods cannot throw checked exceptions, so
+         * they wrap them.
+         */
+        private void start(AxiomTag tag, OWLAxiom axiom) {
+            try {
+                writeVarInt(tag.ordinal());
+                writeAnnotations(axiom.getAnnotations());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private interface Body {
+            void write() throws IOException;
+        }
+
+        private void write(AxiomTag tag, OWLAxiom axiom, Body body) {
+            start(tag, axiom);
+            try {
+                body.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void visit(OWLDeclarationAxiom axiom) {
+            write(AxiomTag.DECLARATION, axiom, () -> writeEntity(axiom.getEntity()));
+        }
+
+        @Override
+        public void visit(OWLSubClassOfAxiom axiom) {
+            write(AxiomTag.SUBCLASS_OF, axiom, () -> {
+                writeClassExpression(axiom.getSubClass());
+                writeClassExpression(axiom.getSuperClass());
+            });
+        }
+
+        @Override
+        public void visit(OWLEquivalentClassesAxiom axiom) {
+            write(AxiomTag.EQUIVALENT_CLASSES, axiom, () -> writeClassExpressions(axiom.getClassExpressions()));
+        }
+
+        @Override
+        public void visit(OWLDisjointClassesAxiom axiom) {
+            write(AxiomTag.DISJOINT_CLASSES, axiom, () -> writeClassExpressions(axiom.getClassExpressions()));
+        }
+
+        @Override
+        public void visit(OWLDisjointUnionAxiom axiom) {
+            write(AxiomTag.DISJOINT_UNION, axiom, () -> {
+                writeIRI(axiom.getOWLClass().getIRI());
+                writeClassExpressions(axiom.getClassExpressions());
+            });
+        }
+
+        @Override
+        public void visit(OWLClassAssertionAxiom axiom) {
+            write(AxiomTag.CLASS_ASSERTION, axiom, () -> {
+                writeClassExpression(axiom.getClassExpression());
+                writeIndividual(axiom.getIndividual());
+            });
+        }
+
+        @Override
+        public void visit(OWLSameIndividualAxiom axiom) {
+            write(AxiomTag.SAME_INDIVIDUAL, axiom, () -> writeIndividuals(axiom.getIndividuals()));
+        }
+
+        @Override
+        public void visit(OWLDifferentIndividualsAxiom axiom) {
+            write(AxiomTag.DIFFERENT_INDIVIDUALS, axiom, () -> writeIndividuals(axiom.getIndividuals()));
+        }
+
+        @Override
+        public void visit(OWLObjectPropertyAssertionAxiom axiom) {
+            write(AxiomTag.OBJECT_PROPERTY_ASSERTION, axiom, () -> {
+                writeIndividual(axiom.getSubject());
+                writeObjectProperty(axiom.getProperty());
+                writeIndividual(axiom.getObject());
+            });
+        }
+
+        @Override
+        public void visit(OWLNegativeObjectPropertyAssertionAxiom axiom) {
+            write(AxiomTag.NEGATIVE_OBJECT_PROPERTY_ASSERTION, axiom, () -> {
+                writeIndividual(axiom.getSubject());
+                writeObjectProperty(axiom.getProperty());
+                writeIndividual(axiom.getObject());
+            });
+        }
+
+        @Override
+        public void visit(OWLDataPropertyAssertionAxiom axiom) {
+            write(AxiomTag.DATA_PROPERTY_ASSERTION, axiom, () -> {
+                writeIndividual(axiom.getSubject());
+                writeDataProperty(axiom.getProperty());
+                writeLiteral(axiom.getObject());
+            });
+        }
+
+        @Override
+        public void visit(OWLNegativeDataPropertyAssertionAxiom axiom) {
+            write(AxiomTag.NEGATIVE_DATA_PROPERTY_ASSERTION, axiom, () -> {
+                writeIndividual(axiom.getSubject());
+                writeDataProperty(axiom.getProperty());
+                writeLiteral(axiom.getObject());
+            });
+        }
+
+        @Override
+        public void visit(OWLEquivalentObjectPropertiesAxiom axiom) {
+            write(AxiomTag.EQUIVALENT_OBJECT_PROPERTIES, axiom, () -> writeObjectProperties(axiom.getProperties()));
+        }
+
+        @Override
+        public void visit(OWLDisjointObjectPropertiesAxiom axiom) {
+            write(AxiomTag.DISJOINT_OBJECT_PROPERTIES, axiom, () -> writeObjectProperties(axiom.getProperties()));
+        }
+
+        @Override
+        public void visit(OWLInverseObjectPropertiesAxiom axiom) {
+            write(AxiomTag.INVERSE_OBJECT_PROPERTIES, axiom, () -> {
+                writeObjectProperty(axiom.getFirstProperty());
+                writeObjectProperty(axiom.getSecondProperty());
+            });
+        }
+
+        @Override
+        public void visit(OWLSubObjectPropertyOfAxiom axiom) {
+            write(AxiomTag.SUB_OBJECT_PROPERTY, axiom, () -> {
+                writeObjectProperty(axiom.getSubProperty());
+                writeObjectProperty(axiom.getSuperProperty());
+            });
+        }
+
+        @Override
+        public void visit(OWLFunctionalObjectPropertyAxiom axiom) {
+            write(AxiomTag.FUNCTIONAL_OBJECT_PROPERTY, axiom, () -> writeObjectProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLInverseFunctionalObjectPropertyAxiom axiom) {
+            write(AxiomTag.INVERSE_FUNCTIONAL_OBJECT_PROPERTY, axiom, () -> writeObjectProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLSymmetricObjectPropertyAxiom axiom) {
+            write(AxiomTag.SYMMETRIC_OBJECT_PROPERTY, axiom, () -> writeObjectProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLAsymmetricObjectPropertyAxiom axiom) {
+            write(AxiomTag.ASYMMETRIC_OBJECT_PROPERTY, axiom, () -> writeObjectProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLTransitiveObjectPropertyAxiom axiom) {
+            write(AxiomTag.TRANSITIVE_OBJECT_PROPERTY, axiom, () -> writeObjectProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLReflexiveObjectPropertyAxiom axiom) {
+            write(AxiomTag.REFLEXIVE_OBJECT_PROPERTY, axiom, () -> writeObjectProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLIrreflexiveObjectPropertyAxiom axiom) {
+            write(AxiomTag.IRREFLEXIVE_OBJECT_PROPERTY, axiom, () -> writeObjectProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLObjectPropertyDomainAxiom axiom) {
+            write(AxiomTag.OBJECT_PROPERTY_DOMAIN, axiom, () -> {
+                writeObjectProperty(axiom.getProperty());
+                writeClassExpression(axiom.getDomain());
+            });
+        }
+
+        @Override
+        public void visit(OWLObjectPropertyRangeAxiom axiom) {
+            write(AxiomTag.OBJECT_PROPERTY_RANGE, axiom, () -> {
+                writeObjectProperty(axiom.getProperty());
+                writeClassExpression(axiom.getRange());
+            });
+        }
+
+        @Override
+        public void visit(OWLSubPropertyChainOfAxiom axiom) {
+            write(AxiomTag.SUB_PROPERTY_CHAIN_OF, axiom, () -> {
+                writeObjectProperties(axiom.getPropertyChain());
+                writeObjectProperty(axiom.getSuperProperty());
+            });
+        }
+
+        @Override
+        public void visit(OWLEquivalentDataPropertiesAxiom axiom) {
+            write(AxiomTag.EQUIVALENT_DATA_PROPERTIES, axiom, () -> writeDataProperties(axiom.getProperties()));
+        }
+
+        @Override
+        public void visit(OWLDisjointDataPropertiesAxiom axiom) {
+            write(AxiomTag.DISJOINT_DATA_PROPERTIES, axiom, () -> writeDataProperties(axiom.getProperties()));
+        }
+
+        @Override
+        public void visit(OWLSubDataPropertyOfAxiom axiom) {
+            write(AxiomTag.SUB_DATA_PROPERTY, axiom, () -> {
+                writeDataProperty(axiom.getSubProperty());
+                writeDataProperty(axiom.getSuperProperty());
+            });
+        }
+
+        @Override
+        public void visit(OWLFunctionalDataPropertyAxiom axiom) {
+            write(AxiomTag.FUNCTIONAL_DATA_PROPERTY, axiom, () -> writeDataProperty(axiom.getProperty()));
+        }
+
+        @Override
+        public void visit(OWLDataPropertyDomainAxiom axiom) {
+            write(AxiomTag.DATA_PROPERTY_DOMAIN, axiom, () -> {
+                writeDataProperty(axiom.getProperty());
+                writeClassExpression(axiom.getDomain());
+            });
+        }
+
+        @Override
+        public void visit(OWLDataPropertyRangeAxiom axiom) {
+            write(AxiomTag.DATA_PROPERTY_RANGE, axiom, () -> {
+                writeDataProperty(axiom.getProperty());
+                writeDataRange(axiom.getRange());
+            });
+        }
+
+        @Override
+        public void visit(OWLDatatypeDefinitionAxiom axiom) {
+            write(AxiomTag.DATATYPE_DEFINITION, axiom, () -> {
+                writeIRI(axiom.getDatatype().getIRI());
+                writeDataRange(axiom.getDataRange());
+            });
+        }
+
+        @Override
+        public void visit(OWLHasKeyAxiom axiom) {
+            write(AxiomTag.HAS_KEY, axiom, () -> {
+                writeClassExpression(axiom.getClassExpression());
+                writeObjectProperties(axiom.getObjectPropertyExpressions());
+                writeDataProperties(axiom.getDataPropertyExpressions());
+            });
+        }
+
+        @Override
+        public void visit(OWLAnnotationAssertionAxiom axiom) {
+            write(AxiomTag.ANNOTATION_ASSERTION, axiom, () -> {
+                OWLAnnotationSubject subject = axiom.getSubject();
+                if (subject instanceof IRI) {
+                    writeVarInt(NAMED);
+                    writeIRI((IRI) subject);
+                }
+                else {
+                    writeVarInt(ANONYMOUS);
+                    writeString(((OWLAnonymousIndividual) subject).getID().getID());
+                }
+                writeIRI(axiom.getProperty().getIRI());
+                writeAnnotationValue(axiom.getValue());
+            });
+        }
+
+        @Override
+        public void visit(OWLSubAnnotationPropertyOfAxiom axiom) {
+            write(AxiomTag.SUB_ANNOTATION_PROPERTY_OF, axiom, () -> {
+                writeIRI(axiom.getSubProperty().getIRI());
+                writeIRI(axiom.getSuperProperty().getIRI());
+            });
+        }
+
+        @Override
+        public void visit(OWLAnnotationPropertyDomainAxiom axiom) {
+            write(AxiomTag.ANNOTATION_PROPERTY_DOMAIN, axiom, () -> {
+                writeIRI(axiom.getProperty().getIRI());
+                writeIRI(axiom.getDomain());
+            });
+        }
+
+        @Override
+        public void visit(OWLAnnotationPropertyRangeAxiom axiom) {
+            write(AxiomTag.ANNOTATION_PROPERTY_RANGE, axiom, () -> {
+                writeIRI(axiom.getProperty().getIRI());
+                writeIRI(axiom.getRange());
+            });
+        }
+
+        @Override
+        public void visit(SWRLRule rule) {
+            throw new UnsupportedOperationException("SWRL rules cannot be written to a snapshot");
+        }
+    }
+
+
+    /**
+     * Reads the axioms and annotations written by a {@link Writer}.
+     */
+    static final class Reader {
+
+        private final ByteBuffer buffer;
+
+        private final OWLDataFactory df;
+
+        private final String[] strings;
+
+        private final IRI[] iris;
+
+        /**
+         * The anonymous individuals that have been read, by their stored ids.  Stored ids, such as the ones that
+         * parsers generate, are only unique within one session, so each one is given a fresh individual.
+         */
+        private final Map<String, OWLAnonymousIndividual> anonymousIndividuals = new HashMap<>();
+
+        /**
+         * @param buffer  The buffer, positioned at the first object to read.
+         * @param df      The data factory that creates the objects.
+         * @param strings The string table.
+         */
+        Reader(ByteBuffer buffer, OWLDataFactory df, String[] strings) {
+            this.buffer = buffer;
+            this.df = df;
+            this.strings = strings;
+            this.iris = new IRI[strings.length];
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (shift > 28) {
+                    throw new IllegalArgumentException("Malformed variable length integer");
+                }
+                b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String readString() {
+            return strings[readVarInt()];
+        }
+
+        private OWLAnonymousIndividual readAnonymousIndividual() {
+            return anonymousIndividuals.computeIfAbsent(readString(), id -> df.getOWLAnonymousIndividual());
+        }
+
+        IRI readIRI() {
+            int index = readVarInt();
+            IRI iri = iris[index];
+            if (iri == null) {
+                iri = IRI.create(strings[index]);
+                iris[index] = iri;
+            }
+            return iri;
+        }
+
+        Set<OWLAnnotation> readAnnotations() {
+            int count = readVarInt();
+            if (count == 0) {
+                return Collections.emptySet();
+            }
+            Set<OWLAnnotation> annotations = new HashSet<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                OWLAnnotationProperty property = df.getOWLAnnotationProperty(readIRI());
+                OWLAnnotationValue value = readAnnotationValue();
+                annotations.add(df.getOWLAnnotation(property, value, readAnnotations()));
+            }
+            return annotations;
+        }
+
+        private OWLAnnotationValue readAnnotationValue() {
+            int kind = readVarInt();
+            switch (kind) {
+                case IRI_VALUE:
+                    return readIRI();
+                case LITERAL_VALUE:
+                    return readLiteral();
+                case ANONYMOUS_VALUE:
+                    return readAnonymousIndividual();
+                default:
+                    throw new IllegalArgumentException("Unexpected annotation value kind " + kind);
+            }
+        }
+
+        private OWLLiteral readLiteral() {
+            String lexicalValue = readString();
+            int kind = readVarInt();
+            if (kind == LANGUAGE_TAGGED) {
+                return df.getOWLLiteral(lexicalValue, readString());
+            }
+            return df.getOWLLiteral(lexicalValue, df.getOWLDatatype(readIRI()));
+        }
+
+        private Set<OWLLiteral> readLiterals() {
+            int count = readVarInt();
+            Set<OWLLiteral> literals = new HashSet<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                literals.add(readLiteral());
+            }
+            return literals;
+        }
+
+        private OWLEntity readEntity() {
+            EntityType<?> entityType = ENTITY_TYPES.get(readVarInt());
+            return df.getOWLEntity(entityType, readIRI());
+        }
+
+        private OWLIndividual readIndividual() {
+            if (readVarInt() == NAMED) {
+                return df.getOWLNamedIndividual(readIRI());
+            }
+            return readAnonymousIndividual();
+        }
+
+        private Set<OWLIndividual> readIndividuals() {
+            int count = readVarInt();
+            Set<OWLIndividual> individuals = new HashSet<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                individuals.add(readIndividual());
+            }
+            return individuals;
+        }
+
+        private OWLObjectPropertyExpression readObjectProperty() {
+            if (readVarInt() == INVERSE) {
+                return df.getOWLObjectInverseOf(readObjectProperty());
+            }
+            return df.getOWLObjectProperty(readIRI());
+        }
+
+        private List<OWLObjectPropertyExpression> readObjectPropertyList() {
+            int count = readVarInt();
+            List<OWLObjectPropertyExpression> properties = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                properties.add(readObjectProperty());
+            }
+            return properties;
+        }
+
+        private Set<OWLObjectPropertyExpression> readObjectProperties() {
+            return new HashSet<>(readObjectPropertyList());
+        }
+
+        private OWLDataProperty readDataProperty() {
+            return df.getOWLDataProperty(readIRI());
+        }
+
+        private Set<OWLDataPropertyExpression> readDataProperties() {
+            int count = readVarInt();
+            Set<OWLDataPropertyExpression> properties = new HashSet<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                properties.add(readDataProperty());
+            }
+            return properties;
+        }
+
+        private OWLClassExpression readClassExpression() {
+            ClassExpressionType type = CLASS_EXPRESSION_TYPES[readVarInt()];
+            switch (type) {
+                case OWL_CLASS:
+                    return df.getOWLClass(readIRI());
+                case OBJECT_SOME_VALUES_FROM:
+                    return df.getOWLObjectSomeValuesFrom(readObjectProperty(), readClassExpression());
+                case OBJECT_ALL_VALUES_FROM:
+                    return df.getOWLObjectAllValuesFrom(readObjectProperty(), readClassExpression());
+                case OBJECT_MIN_CARDINALITY:
+                    return df.getOWLObjectMinCardinality(readVarInt(), readObjectProperty(), readClassExpression());
+                case OBJECT_MAX_CARDINALITY:
+                    return df.getOWLObjectMaxCardinality(readVarInt(), readObjectProperty(), readClassExpression());
+                case OBJECT_EXACT_CARDINALITY:
+                    return df.getOWLObjectExactCardinality(readVarInt(), readObjectProperty(), readClassExpression());
+                case OBJECT_HAS_VALUE:
+                    return df.getOWLObjectHasValue(readObjectProperty(), readIndividual());
+                case OBJECT_HAS_SELF:
+                    return df.getOWLObjectHasSelf(readObjectProperty());
+                case DATA_SOME_VALUES_FROM:
+                    return df.getOWLDataSomeValuesFrom(readDataProperty(), readDataRange());
+                case DATA_ALL_VALUES_FROM:
+                    return df.getOWLDataAllValuesFrom(readDataProperty(), readDataRange());
+                case DATA_MIN_CARDINALITY:
+                    return df.getOWLDataMinCardinality(readVarInt(), readDataProperty(), readDataRange());
+                case DATA_MAX_CARDINALITY:
+                    return df.getOWLDataMaxCardinality(readVarInt(), readDataProperty(), readDataRange());
+                case DATA_EXACT_CARDINALITY:
+                    return df.getOWLDataExactCardinality(readVarInt(), readDataProperty(), readDataRange());
+                case DATA_HAS_VALUE:
+                    return df.getOWLDataHasValue(readDataProperty(), readLiteral());
+                case OBJECT_INTERSECTION_OF:
+                    return df.getOWLObjectIntersectionOf(readClassExpressions());
+                case OBJECT_UNION_OF:
+                    return df.getOWLObjectUnionOf(readClassExpressions());
+                case OBJECT_COMPLEMENT_OF:
+                    return df.getOWLObjectComplementOf(readClassExpression());
+                case OBJECT_ONE_OF:
+                    return df.getOWLObjectOneOf(readIndividuals());
+                default:
+                    throw new IllegalArgumentException("Unexpected class expression type " + type);
+            }
+        }
+
+        private Set<OWLClassExpression> readClassExpressions() {
+            int count = readVarInt();
+            Set<OWLClassExpression> ces = new HashSet<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                ces.add(readClassExpression());
+            }
+            return ces;
+        }
+
+        private OWLDataRange readDataRange() {
+            DataRangeType type = DATA_RANGE_TYPES[readVarInt()];
+            switch (type) {
+                case DATATYPE:
+                    return df.getOWLDatatype(readIRI());
+                case DATA_ONE_OF:
+                    return df.getOWLDataOneOf(readLiterals());
+                case DATATYPE_RESTRICTION: {
+                    OWLDatatype datatype = df.getOWLDatatype(readIRI());
+                    int count = readVarInt();
+                    Set<OWLFacetRestriction> facetRestrictions = new HashSet<>(count * 4 / 3 + 1);
+                    for (int i = 0; i < count; i++) {
+                        OWLFacet facet = FACETS[readVarInt()];
+                        facetRestrictions.add(df.getOWLFacetRestriction(facet, readLiteral()));
+                    }
+                    return df.getOWLDatatypeRestriction(datatype, facetRestrictions);
+                }
+                case DATA_COMPLEMENT_OF:
+                    return df.getOWLDataComplementOf(readDataRange());
+                case DATA_UNION_OF:
+                    return df.getOWLDataUnionOf(readDataRanges());
+                case DATA_INTERSECTION_OF:
+                    return df.getOWLDataIntersectionOf(readDataRanges());
+                default:
+                    throw new IllegalArgumentException("Unexpected data range type " + type);
+            }
+        }
+
+        private Set<OWLDataRange> readDataRanges() {
+            int count = readVarInt();
+            Set<OWLDataRange> dataRanges = new HashSet<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                dataRanges.add(readDataRange());
+            }
+            return dataRanges;
+        }
+
+        OWLAxiom readAxiom() {
+            AxiomTag tag = AXIOM_TAGS[readVarInt()];
+            Set<OWLAnnotation> annotations = readAnnotations();
+            switch (tag) {
+                case DECLARATION:
+                    return df.getOWLDeclarationAxiom(readEntity(), annotations);
+                case SUBCLASS_OF:
+                    return df.getOWLSubClassOfAxiom(readClassExpression(), readClassExpression(), annotations);
+                case EQUIVALENT_CLASSES:
+                    return df.getOWLEquivalentClassesAxiom(readClassExpressions(), annotations);
+                case DISJOINT_CLASSES:
+                    return df.getOWLDisjointClassesAxiom(readClassExpressions(), annotations);
+                case DISJOINT_UNION:
+                    return df.getOWLDisjointUnionAxiom(df.getOWLClass(readIRI()), readClassExpressions(), annotations);
+                case CLASS_ASSERTION:
+                    return df.getOWLClassAssertionAxiom(readClassExpression(), readIndividual(), annotations);
+                case SAME_INDIVIDUAL:
+                    return df.getOWLSameIndividualAxiom(readIndividuals(), annotations);
+                case DIFFERENT_INDIVIDUALS:
+                    return df.getOWLDifferentIndividualsAxiom(readIndividuals(), annotations);
+                case OBJECT_PROPERTY_ASSERTION: {
+                    OWLIndividual subject = readIndividual();
+                    OWLObjectPropertyExpression property = readObjectProperty();
+                    return df.getOWLObjectPropertyAssertionAxiom(property, subject, readIndividual(), annotations);
+                }
+                case NEGATIVE_OBJECT_PROPERTY_ASSERTION: {
+                    OWLIndividual subject = readIndividual();
+                    OWLObjectPropertyExpression property = readObjectProperty();
+                    return df.getOWLNegativeObjectPropertyAssertionAxiom(property, subject, readIndividual(), annotations);
+                }
+                case DATA_PROPERTY_ASSERTION: {
+                    OWLIndividual subject = readIndividual();
+                    OWLDataProperty property = readDataProperty();
+                    return df.getOWLDataPropertyAssertionAxiom(property, subject, readLiteral(), annotations);
+                }
+                case NEGATIVE_DATA_PROPERTY_ASSERTION: {
+                    OWLIndividual subject = readIndividual();
+                    OWLDataProperty property = readDataProperty();
+                    return df.getOWLNegativeDataPropertyAssertionAxiom(property, subject, readLiteral(), annotations);
+                }
+                case EQUIVALENT_OBJECT_PROPERTIES:
+                    return df.getOWLEquivalentObjectPropertiesAxiom(readObjectProperties(), annotations);
+                case DISJOINT_OBJECT_PROPERTIES:
+                    return df.getOWLDisjointObjectPropertiesAxiom(readObjectProperties(), annotations);
+                case INVERSE_OBJECT_PROPERTIES:
+                    return df.getOWLInverseObjectPropertiesAxiom(readObjectProperty(), readObjectProperty(), annotations);
+                case SUB_OBJECT_PROPERTY:
+                    return df.getOWLSubObjectPropertyOfAxiom(readObjectProperty(), readObjectProperty(), annotations);
+                case FUNCTIONAL_OBJECT_PROPERTY:
+                    return df.getOWLFunctionalObjectPropertyAxiom(readObjectProperty(), annotations);
+                case INVERSE_FUNCTIONAL_OBJECT_PROPERTY:
+                    return df.getOWLInverseFunctionalObjectPropertyAxiom(readObjectProperty(), annotations);
+                case SYMMETRIC_OBJECT_PROPERTY:
+                    return df.getOWLSymmetricObjectPropertyAxiom(readObjectProperty(), annotations);
+                case ASYMMETRIC_OBJECT_PROPERTY:
+                    return df.getOWLAsymmetricObjectPropertyAxiom(readObjectProperty(), annotations);
+                case TRANSITIVE_OBJECT_PROPERTY:
+                    return df.getOWLTransitiveObjectPropertyAxiom(readObjectProperty(), annotations);
+                case REFLEXIVE_OBJECT_PROPERTY:
+                    return df.getOWLReflexiveObjectPropertyAxiom(readObjectProperty(), annotations);
+                case IRREFLEXIVE_OBJECT_PROPERTY:
+                    return df.getOWLIrreflexiveObjectPropertyAxiom(readObjectProperty(), annotations);
+                case OBJECT_PROPERTY_DOMAIN:
+                    return df.getOWLObjectPropertyDomainAxiom(readObjectProperty(), readClassExpression(), annotations);
+                case OBJECT_PROPERTY_RANGE:
+                    return df.getOWLObjectPropertyRangeAxiom(readObjectProperty(), readClassExpression(), annotations);
+                case SUB_PROPERTY_CHAIN_OF:
+                    return df.getOWLSubPropertyChainOfAxiom(readObjectPropertyList(), readObjectProperty(), annotations);
+                case EQUIVALENT_DATA_PROPERTIES:
+                    return df.getOWLEquivalentDataPropertiesAxiom(readDataProperties(), annotations);
+                case DISJOINT_DATA_PROPERTIES:
+                    return df.getOWLDisjointDataPropertiesAxiom(readDataProperties(), annotations);
+                case SUB_DATA_PROPERTY:
+                    return df.getOWLSubDataPropertyOfAxiom(readDataProperty(), readDataProperty(), annotations);
+                case FUNCTIONAL_DATA_PROPERTY:
+                    return df.getOWLFunctionalDataPropertyAxiom(readDataProperty(), annotations);
+                case DATA_PROPERTY_DOMAIN:
+                    return df.getOWLDataPropertyDomainAxiom(readDataProperty(), readClassExpression(), annotations);
+                case DATA_PROPERTY_RANGE:
+                    return df.getOWLDataPropertyRangeAxiom(readDataProperty(), readDataRange(), annotations);
+                case DATATYPE_DEFINITION:
+                    return df.getOWLDatatypeDefinitionAxiom(df.getOWLDatatype(readIRI()), readDataRange(), annotations);
+                case HAS_KEY: {
+                    OWLClassExpression ce = readClassExpression();
+                    Set<OWLPropertyExpression> properties = new HashSet<>(readObjectProperties());
+                    properties.addAll(readDataProperties());
+                    return df.getOWLHasKeyAxiom(ce, properties, annotations);
+                }
+                case ANNOTATION_ASSERTION: {
+                    OWLAnnotationSubject subject = readVarInt() == NAMED ? readIRI() : readAnonymousIndividual();
+                    OWLAnnotationProperty property = df.getOWLAnnotationProperty(readIRI());
+                    return df.getOWLAnnotationAssertionAxiom(property, subject, readAnnotationValue(), annotations);
+                }
+                case SUB_ANNOTATION_PROPERTY_OF:
+                    return df.getOWLSubAnnotationPropertyOfAxiom(df.getOWLAnnotationProperty(readIRI()),
+                            df.getOWLAnnotationProperty(readIRI()),
+                            annotations);
+                case ANNOTATION_PROPERTY_DOMAIN:
+                    return df.getOWLAnnotationPropertyDomainAxiom(df.getOWLAnnotationProperty(readIRI()), readIRI(), annotations);
+                case ANNOTATION_PROPERTY_RANGE:
+                    return df.getOWLAnnotationPropertyRangeAxiom(df.getOWLAnnotationProperty(readIRI()), readIRI(), annotations);
+                default:
+                    throw new IllegalArgumentException("Unexpected axiom tag " + tag);
+            }
+        }
+    }
+}
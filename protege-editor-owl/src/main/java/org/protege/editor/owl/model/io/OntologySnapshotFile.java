@@ -0,0 +1,450 @@
+package org.protege.editor.owl.model.io;
+
+import com.google.common.io.CountingOutputStream;
+import org.protege.editor.core.util.ProtegeDirectories;
+import org.semanticweb.owlapi.formats.PrefixDocumentFormat;
+import org.semanticweb.owlapi.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parsed content of an ontology document, saved on disk so that the document can be reopened without parsing it
+ * again.
+ * <p>
+ * There is one snapshot for each local ontology document, named after its path.  A snapshot records the size,
+ * modification time and SHA-256 digest of the document that it was made from, and is only used if the document
+ * still matches all three.  As a parser may interpret a document differently when its imports change, the same is
+ * recorded for the documents of the other ontologies in its imports closure, and the snapshot is only used if they
+ * all still match as well.  It holds the document format and its prefixes, the ontology id, the imports
+ * declarations, the ontology annotations and the axioms, in the form described by {@link OntologySnapshotCodec},
+ * followed by the table of strings that they refer to.
+ * </p>
+ */
+public class OntologySnapshotFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(OntologySnapshotFile.class);
+
+    private static final int MAGIC = 0x504f4e53;
+
+    private static final int VERSION = 2;
+
+    /**
+     * The position of the offset of the string table, after the magic number, version, size, modification time and
+     * digest.
+     */
+    private static final int STRING_TABLE_OFFSET_POSITION = 4 + 4 + 8 + 8 + 32;
+
+    /**
+     * The imported documents whose digests have been computed, so that a document imported by many others is only
+     * digested again when its size or modification time changes.
+     */
+    private static final Map<Path, SourceState> importedSourceStates = new ConcurrentHashMap<>();
+
+    private final Path file;
+
+    public OntologySnapshotFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the directory in the Protege data directory that snapshots are kept in.
+     */
+    public static Path getDefaultDirectory() {
+        return ProtegeDirectories.getDataDirectory().toPath().resolve("ontology-snapshots");
+    }
+
+    /**
+     * Gets the snapshot file for an ontology document.
+     * @param directory The directory that snapshots are kept in.
+     * @return The file, or an empty optional if the document is not a local file.
+     */
+    public static Optional<OntologySnapshotFile> forDocument(IRI documentIRI, Path directory) {
+        Optional<Path> document = toPath(documentIRI);
+        if (!document.isPresent()) {
+            return Optional.empty();
+        }
+        String name = toHex(digest().digest(document.get().toString().getBytes(StandardCharsets.UTF_8))).substring(0, 32);
+        return Optional.of(new OntologySnapshotFile(directory.resolve(name + ".snap")));
+    }
+
+    /**
+     * Gets the local path of a document.
+     * @return The path, or an empty optional if the document is not a local file.
+     */
+    public static Optional<Path> toPath(IRI documentIRI) {
+        if (!"file".equalsIgnoreCase(documentIRI.getScheme())) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Paths.get(documentIRI.toURI()).toAbsolutePath().normalize());
+        } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Path getPath() {
+        return file;
+    }
+
+    /**
+     * Writes a snapshot of an ontology, replacing any earlier snapshot.
+     * @param ontology The ontology that was parsed from the document.
+     * @param format   The format of the document.
+     * @param source   The state of the document before it was parsed.  If the document has changed since then the
+     *                 snapshot is not written.
+     * @param importedSources The states of the documents of the other ontologies in the imports closure of the
+     *                        ontology.
+     * @return <code>true</code> if the snapshot was written, otherwise <code>false</code>.
+     */
+    public boolean write(OWLOntology ontology, OWLDocumentFormat format, SourceState source, List<SourceState> importedSources) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            byte[] contentDigest = source.computeDigest();
+            if (!source.isCurrent()) {
+                return false;
+            }
+            for (SourceState importedSource : importedSources) {
+                importedSource.computeDigest();
+            }
+            Files.createDirectories(file.getParent());
+            long stringTableOffset;
+            try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+                 DataOutputStream out = new DataOutputStream(counter)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(source.size);
+                out.writeLong(source.lastModified);
+                out.write(contentDigest);
+                out.writeLong(0);
+                OntologySnapshotCodec.Writer writer = new OntologySnapshotCodec.Writer(out);
+                writer.writeVarInt(importedSources.size());
+                for (SourceState importedSource : importedSources) {
+                    writer.writeString(importedSource.path.toString());
+                    out.writeLong(importedSource.size);
+                    out.writeLong(importedSource.lastModified);
+                    out.write(importedSource.computeDigest());
+                }
+                writer.writeString(format.getClass().getName());
+                if (format.isPrefixOWLOntologyFormat()) {
+                    Map<String, String> prefixes = format.asPrefixOWLOntologyFormat().getPrefixName2PrefixMap();
+                    writer.writeVarInt(prefixes.size());
+                    for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+                        writer.writeString(prefix.getKey());
+                        writer.writeString(prefix.getValue());
+                    }
+                }
+                else {
+                    writer.writeVarInt(0);
+                }
+                OWLOntologyID ontologyID = ontology.getOntologyID();
+                writeOptionalIRI(writer, ontologyID.getOntologyIRI());
+                writeOptionalIRI(writer, ontologyID.getVersionIRI());
+                Set<OWLImportsDeclaration> importsDeclarations = ontology.getImportsDeclarations();
+                writer.writeVarInt(importsDeclarations.size());
+                for (OWLImportsDeclaration importsDeclaration : importsDeclarations) {
+                    writer.writeIRI(importsDeclaration.getIRI());
+                }
+                writer.writeAnnotations(ontology.getAnnotations());
+                writer.writeVarInt(ontology.getAxiomCount());
+                for (OWLAxiom axiom : ontology.getAxioms()) {
+                    writer.writeAxiom(axiom);
+                }
+                out.flush();
+                stringTableOffset = counter.getCount();
+                List<String> strings = writer.getStrings();
+                out.writeInt(strings.size());
+                for (String s : strings) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).putLong(stringTableOffset);
+                offset.flip();
+                channel.write(offset, STRING_TABLE_OFFSET_POSITION);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (UnsupportedOperationException e) {
+            logger.info("Not saving a snapshot of {}: {}", source.path, e.getMessage());
+            return false;
+        } catch (IOException e) {
+            logger.warn("Could not save a snapshot of {} to {}: {}", source.path, file, e.getMessage());
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.debug("Could not delete {}", temp);
+            }
+        }
+    }
+
+    private static void writeOptionalIRI(OntologySnapshotCodec.Writer writer,
+                                         com.google.common.base.Optional<IRI> iri) throws IOException {
+        if (iri.isPresent()) {
+            writer.writeVarInt(1);
+            writer.writeIRI(iri.get());
+        }
+        else {
+            writer.writeVarInt(0);
+        }
+    }
+
+    /**
+     * Reads the snapshot of a document.
+     * @param source The current state of the document.
+     * @param df     The data factory that creates the axioms.
+     * @return The snapshot, or an empty optional if there is no snapshot, the document or a document in its imports
+     * closure has changed since the snapshot was made or the file is unreadable.
+     */
+    public Optional<Snapshot> read(SourceState source, OWLDataFactory df) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return Optional.empty();
+            }
+            // Read rather than mapped, as a mapping would keep the file open and stop it from being replaced
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the whole file
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return Optional.empty();
+            }
+            if (buffer.getLong() != source.size || buffer.getLong() != source.lastModified) {
+                return Optional.empty();
+            }
+            byte[] storedDigest = new byte[32];
+            buffer.get(storedDigest);
+            if (!Arrays.equals(storedDigest, source.computeDigest())) {
+                return Optional.empty();
+            }
+            long stringTableOffset = buffer.getLong();
+            int bodyStart = buffer.position();
+            buffer.position((int) stringTableOffset);
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            buffer.position(bodyStart);
+            OntologySnapshotCodec.Reader reader = new OntologySnapshotCodec.Reader(buffer, df, strings);
+            int importedSourceCount = reader.readVarInt();
+            for (int i = 0; i < importedSourceCount; i++) {
+                Path importedPath = Paths.get(reader.readString());
+                long importedSize = buffer.getLong();
+                long importedLastModified = buffer.getLong();
+                byte[] importedDigest = new byte[32];
+                buffer.get(importedDigest);
+                if (!matches(importedPath, importedSize, importedLastModified, importedDigest)) {
+                    logger.info("Not restoring {} from its snapshot as {}, which it imports, has changed", source.path, importedPath);
+                    return Optional.empty();
+                }
+            }
+            OWLDocumentFormat format = createFormat(reader.readString());
+            int prefixCount = reader.readVarInt();
+            for (int i = 0; i < prefixCount; i++) {
+                String prefixName = reader.readString();
+                String prefix = reader.readString();
+                if (format instanceof PrefixDocumentFormat) {
+                    ((PrefixDocumentFormat) format).setPrefix(prefixName, prefix);
+                }
+            }
+            IRI ontologyIRI = reader.readVarInt() == 1 ? reader.readIRI() : null;
+            IRI versionIRI = reader.readVarInt() == 1 ? reader.readIRI() : null;
+            OWLOntologyID ontologyID = ontologyIRI == null ? new OWLOntologyID() : new OWLOntologyID(
+                    com.google.common.base.Optional.of(ontologyIRI),
+                    com.google.common.base.Optional.fromNullable(versionIRI));
+            int importCount = reader.readVarInt();
+            List<OWLImportsDeclaration> importsDeclarations = new ArrayList<>(importCount);
+            for (int i = 0; i < importCount; i++) {
+                importsDeclarations.add(df.getOWLImportsDeclaration(reader.readIRI()));
+            }
+            Set<OWLAnnotation> annotations = reader.readAnnotations();
+            int axiomCount = reader.readVarInt();
+            List<OWLAxiom> axioms = new ArrayList<>(axiomCount);
+            for (int i = 0; i < axiomCount; i++) {
+                axioms.add(reader.readAxiom());
+            }
+            return Optional.of(new Snapshot(format, ontologyID, importsDeclarations, annotations, axioms));
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | ReflectiveOperationException e) {
+            logger.warn("Could not read the snapshot of {} from {}: {}", source.path, file, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Determines whether a document still has the size, modification time and digest that it had when a snapshot
+     * was made.
+     */
+    private static boolean matches(Path path, long size, long lastModified, byte[] digest) {
+        try {
+            SourceState current = SourceState.of(path);
+            if (current.size != size || current.lastModified != lastModified) {
+                return false;
+            }
+            SourceState known = importedSourceStates.get(path);
+            if (known != null && known.size == size && known.lastModified == lastModified) {
+                current = known;
+            }
+            else {
+                importedSourceStates.put(path, current);
+            }
+            return Arrays.equals(current.computeDigest(), digest);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static OWLDocumentFormat createFormat(String className) throws ReflectiveOperationException {
+        Class<?> formatClass = Class.forName(className, true, OWLDocumentFormat.class.getClassLoader());
+        return (OWLDocumentFormat) formatClass.getConstructor().newInstance();
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * The size and modification time of a document, taken before it is parsed.
+     */
+    public static final class SourceState {
+
+        private final Path path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private byte[] digest;
+
+        private SourceState(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public static SourceState of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new SourceState(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Determines whether the document still has the size and modification time that it had when this state was
+         * taken.
+         */
+        public boolean isCurrent() {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return attributes.size() == size && attributes.lastModifiedTime().toMillis() == lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Computes the SHA-256 digest of the content of the document.  The digest is only computed once.
+         */
+        private synchronized byte[] computeDigest() throws IOException {
+            if (digest == null) {
+                MessageDigest messageDigest = digest();
+                try (InputStream in = new DigestInputStream(Files.newInputStream(path), messageDigest)) {
+                    byte[] buffer = new byte[1 << 16];
+                    while (in.read(buffer) != -1) {
+                        // Read to the end to digest the content
+                    }
+                }
+                digest = messageDigest.digest();
+            }
+            return digest;
+        }
+    }
+
+
+    /**
+     * The content of an ontology document, read from a snapshot.
+     */
+    public static final class Snapshot {
+
+        private final OWLDocumentFormat format;
+
+        private final OWLOntologyID ontologyID;
+
+        private final List<OWLImportsDeclaration> importsDeclarations;
+
+        private final Set<OWLAnnotation> annotations;
+
+        private final List<OWLAxiom> axioms;
+
+        private Snapshot(OWLDocumentFormat format,
+                         OWLOntologyID ontologyID,
+                         List<OWLImportsDeclaration> importsDeclarations,
+                         Set<OWLAnnotation> annotations,
+                         List<OWLAxiom> axioms) {
+            this.format = format;
+            this.ontologyID = ontologyID;
+            this.importsDeclarations = importsDeclarations;
+            this.annotations = annotations;
+            this.axioms = axioms;
+        }
+
+        public OWLDocumentFormat getFormat() {
+            return format;
+        }
+
+        public OWLOntologyID getOntologyID() {
+            return ontologyID;
+        }
+
+        public List<OWLImportsDeclaration> getImportsDeclarations() {
+            return importsDeclarations;
+        }
+
+        public Set<OWLAnnotation> getAnnotations() {
+            return annotations;
+        }
+
+        public List<OWLAxiom> getAxioms() {
+            return axioms;
+        }
+    }
+}
@@ -6,7 +6,10 @@ import org.semanticweb.owlapi.model.OWLOntologyLoaderListener;
 import org.slf4j.Logger;
 
 import java.io.File;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
 * Matthew Horridge
@@ -15,59 +18,107 @@ import java.util.Stack;
 */
 public class ProgressDialogOntologyLoaderListener implements OWLOntologyLoaderListener {
 
-    private final Stack<IRI> loadStack = new Stack<>();
+    /**
+     * The imported documents that are being loaded, in the order in which they were started.  When imports are
+     * loaded one inside another this is a stack; when they are loaded concurrently (see
+     * {@link ImportsClosureLoader}) several documents are in progress at once.
+     */
+    private final List<IRI> loadingImports = new ArrayList<>();
 
     private final ProgressDialog progressDialog;
 
     private final Logger logger;
 
+    private IRI rootDocumentIRI;
+
+    private boolean rootStarted = false;
+
+    /**
+     * The imported documents that have been loaded.  A document may be loaded more than once.
+     */
+    private final Set<IRI> loadedImports = new HashSet<>();
+
     public ProgressDialogOntologyLoaderListener(ProgressDialog progressDialog, Logger logger) {
         this.progressDialog = progressDialog;
         this.logger = logger;
     }
 
+    /**
+     * @param rootDocumentIRI The document that was asked for, which is not necessarily the first document to be
+     *                        loaded, as the imported documents may be loaded before the documents that import them.
+     */
+    public ProgressDialogOntologyLoaderListener(ProgressDialog progressDialog, Logger logger, IRI rootDocumentIRI) {
+        this(progressDialog, logger);
+        this.rootDocumentIRI = rootDocumentIRI;
+        progressDialog.setMessage(String.format("Loading %s", formatIRI(rootDocumentIRI)));
+    }
+
     @Override
-    public void startedLoadingOntology(LoadingStartedEvent event) {
+    public synchronized void startedLoadingOntology(LoadingStartedEvent event) {
         IRI documentIRI = event.getDocumentIRI();
-        loadStack.push(documentIRI);
-        if (loadStack.size() == 1) {
-            progressDialog.setMessage(
-                    String.format("Loading %s", formatIRI(documentIRI))
-            );
+        if (rootDocumentIRI == null) {
+            // Unless it was given, the first document is the one that was asked for, whichever manager loads it
+            rootDocumentIRI = documentIRI;
+        }
+        if (documentIRI.equals(rootDocumentIRI)) {
+            if (rootStarted) {
+                logger.info("Loading {} again", documentIRI);
+            }
+            else {
+                rootStarted = true;
+                progressDialog.setMessage(
+                        String.format("Loading %s", formatIRI(documentIRI))
+                );
+            }
         }
         else {
-            progressDialog.setSubMessage(
-                    formatImportedDocumentIRIMessage(documentIRI)
-            );
+            loadingImports.add(documentIRI);
+            updateSubMessage();
         }
     }
 
     @Override
-    public void finishedLoadingOntology(LoadingFinishedEvent event) {
-        if (event.isImported()) {
+    public synchronized void finishedLoadingOntology(LoadingFinishedEvent event) {
+        IRI documentIRI = event.getDocumentIRI();
+        boolean imported = event.isImported() || !documentIRI.equals(rootDocumentIRI);
+        if (imported) {
             if (event.isSuccessful()) {
-                logger.info("Finished loading imported ontology at {}", event.getDocumentIRI());
+                logger.info("Finished loading imported ontology at {}", documentIRI);
+                loadedImports.add(documentIRI);
             }
             else {
-                logger.info("Failed to load imported ontology at {}", event.getDocumentIRI());
+                logger.info("Failed to load imported ontology at {}", documentIRI);
             }
+            loadingImports.remove(documentIRI);
         }
         else {
-            logger.info("Finished loading {}", event.getDocumentIRI());
+            logger.info("Finished loading {}", documentIRI);
         }
-        loadStack.pop();
-        if (loadStack.size() > 1) {
-            progressDialog.setSubMessage(
-                    formatImportedDocumentIRIMessage(loadStack.peek())
-            );
+        updateSubMessage();
+    }
+
+    private void updateSubMessage() {
+        if (loadingImports.isEmpty()) {
+            progressDialog.clearSubMessage();
         }
         else {
-            progressDialog.clearSubMessage();
+            progressDialog.setSubMessage(
+                    formatImportedDocumentIRIMessage(loadingImports.get(loadingImports.size() - 1))
+            );
         }
     }
 
     private String formatImportedDocumentIRIMessage(IRI documentIRI) {
-        return String.format("Loading imported ontology %s", formatIRI(documentIRI));
+        String message = String.format("Loading imported ontology %s", formatIRI(documentIRI));
+        int otherCount = loadingImports.size() - 1;
+        if (otherCount > 0) {
+            message += String.format(" (and %d other%s)", otherCount, otherCount == 1 ? "" : "s");
+        }
+        int loadedImportCount = loadedImports.size();
+        if (loadedImportCount > 0) {
+            message += String.format(" - %d imported ontolog%s loaded", loadedImportCount, loadedImportCount == 1 ? "y" : "ies");
+        }
+        return message;
     }
 
 
@@ -0,0 +1,216 @@
+package org.protege.editor.owl.model.io;
+
+import com.google.common.base.Stopwatch;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
+import org.semanticweb.owlapi.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An ontology factory that restores local ontology documents from their {@link OntologySnapshotFile} when the
+ * documents have not changed since they were last parsed, and that otherwise parses them with another factory and
+ * saves a snapshot of the result.
+ * <p>
+ * A restored ontology is built as a parser would build it: it is created with its ontology id, its imports
+ * declarations are added and handed to the manager to load, and then its annotations and axioms are added.  Documents
+ * that are smaller than a threshold are always parsed, as parsing them is quick.
+ * </p>
+ * <p>
+ * Parsers may use the declarations in imported ontologies to interpret a document, so a document that has imports
+ * declarations is only snapshotted by a factory whose manager loads imports.  A snapshot therefore always holds the
+ * result of parsing a document with its imports visible, and can be restored by either kind of manager.  The snapshot
+ * records the state of the documents of the imports closure as well, and is not written if any import could not be
+ * loaded or was not loaded from a local document.
+ * </p>
+ */
+public class SnapshotCachingOntologyFactory implements OWLOntologyFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCachingOntologyFactory.class);
+
+    /**
+     * The default size, in bytes, below which documents are always parsed.
+     */
+    public static final long DEFAULT_MINIMUM_DOCUMENT_SIZE = 1 << 20;
+
+    private final OWLOntologyFactory delegate;
+
+    private final long minimumDocumentSize;
+
+    private final Path snapshotDirectory;
+
+    private final boolean importsLoaded;
+
+    /**
+     * @param delegate            The factory that creates and parses ontologies.
+     * @param minimumDocumentSize The size, in bytes, below which documents are always parsed.
+     * @param snapshotDirectory   The directory that snapshots are kept in.
+     * @param importsLoaded       <code>true</code> if the manager loads the ontologies imported by a document while it
+     *                            is parsed, in which case documents with imports declarations are snapshotted.
+     */
+    public SnapshotCachingOntologyFactory(@Nonnull OWLOntologyFactory delegate,
+                                          long minimumDocumentSize,
+                                          @Nonnull Path snapshotDirectory,
+                                          boolean importsLoaded) {
+        this.delegate = checkNotNull(delegate);
+        this.minimumDocumentSize = minimumDocumentSize;
+        this.snapshotDirectory = checkNotNull(snapshotDirectory);
+        this.importsLoaded = importsLoaded;
+    }
+
+    /**
+     * Wraps the ontology factories of a manager so that the documents that it loads are restored from, and saved to,
+     * snapshots in the default directory.
+     * @param importsLoaded <code>true</code> if the manager loads imported ontologies (see
+     *                      {@link OntologyLoader#createInterceptingManager(Runnable, boolean)}).
+     */
+    public static void install(@Nonnull OWLOntologyManager manager, long minimumDocumentSize, boolean importsLoaded) {
+        install(manager, minimumDocumentSize, OntologySnapshotFile.getDefaultDirectory(), importsLoaded);
+    }
+
+    public static void install(@Nonnull OWLOntologyManager manager,
+                               long minimumDocumentSize,
+                               @Nonnull Path snapshotDirectory,
+                               boolean importsLoaded) {
+        List<OWLOntologyFactory> factories = new ArrayList<>();
+        for (OWLOntologyFactory factory : manager.getOntologyFactories()) {
+            factories.add(new SnapshotCachingOntologyFactory(factory, minimumDocumentSize, snapshotDirectory, importsLoaded));
+        }
+        manager.getOntologyFactories().set(factories);
+    }
+
+    @Override
+    public OWLOntology createOWLOntology(@Nonnull OWLOntologyManager manager,
+                                         @Nonnull OWLOntologyID ontologyID,
+                                         @Nonnull IRI documentIRI,
+                                         @Nonnull OWLOntologyCreationHandler handler) throws OWLOntologyCreationException {
+        return delegate.createOWLOntology(manager, ontologyID, documentIRI, handler);
+    }
+
+    @Override
+    public OWLOntology loadOWLOntology(@Nonnull OWLOntologyManager manager,
+                                       @Nonnull OWLOntologyDocumentSource documentSource,
+                                       @Nonnull OWLOntologyCreationHandler handler,
+                                       @Nonnull OWLOntologyLoaderConfiguration configuration) throws OWLOntologyCreationException {
+        IRI documentIRI = documentSource.getDocumentIRI();
+        Optional<Path> path = OntologySnapshotFile.toPath(documentIRI);
+        Optional<OntologySnapshotFile> snapshotFile = OntologySnapshotFile.forDocument(documentIRI, snapshotDirectory);
+        if (!path.isPresent() || !snapshotFile.isPresent()) {
+            return delegate.loadOWLOntology(manager, documentSource, handler, configuration);
+        }
+        OntologySnapshotFile.SourceState source;
+        try {
+            source = OntologySnapshotFile.SourceState.of(path.get());
+        } catch (IOException e) {
+            return delegate.loadOWLOntology(manager, documentSource, handler, configuration);
+        }
+        if (source.getSize() < minimumDocumentSize) {
+            return delegate.loadOWLOntology(manager, documentSource, handler, configuration);
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Optional<OntologySnapshotFile.Snapshot> snapshot = snapshotFile.get().read(source, manager.getOWLDataFactory());
+        if (snapshot.isPresent()) {
+            OWLOntology ontology = restore(manager, documentIRI, handler, configuration, snapshot.get());
+            logger.info("Restored {} from its snapshot in {} ms", path.get(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            return ontology;
+        }
+        OWLOntology ontology = delegate.loadOWLOntology(manager, documentSource, handler, configuration);
+        if (!importsLoaded && !ontology.getImportsDeclarations().isEmpty()) {
+            // Parsed without the imported declarations, so possibly not as it would be with them
+            return ontology;
+        }
+        Optional<List<OntologySnapshotFile.SourceState>> importedSources = getImportedSources(manager, ontology);
+        if (!importedSources.isPresent()) {
+            logger.debug("Not saving a snapshot of {} as its imports closure is not complete and local", path.get());
+            return ontology;
+        }
+        OWLDocumentFormat format = manager.getOntologyFormat(ontology);
+        if (format != null) {
+            stopwatch.reset().start();
+            if (snapshotFile.get().write(ontology, format, source, importedSources.get())) {
+                logger.info("Saved a snapshot of {} in {} ms", path.get(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            }
+        }
+        return ontology;
+    }
+
+    /**
+     * Gets the states of the documents of the ontologies in the imports closure of an ontology, other than the
+     * ontology itself.
+     * @return The states, or an empty optional if an import could not be loaded or an imported ontology was not loaded
+     * from a local document.
+     */
+    private static Optional<List<OntologySnapshotFile.SourceState>> getImportedSources(OWLOntologyManager manager, OWLOntology ontology) {
+        List<OntologySnapshotFile.SourceState> importedSources = new ArrayList<>();
+        for (OWLOntology ont : manager.getImportsClosure(ontology)) {
+            for (OWLImportsDeclaration importsDeclaration : ont.getImportsDeclarations()) {
+                if (manager.getImportedOntology(importsDeclaration) == null) {
+                    return Optional.empty();
+                }
+            }
+            if (ont.equals(ontology)) {
+                continue;
+            }
+            Optional<Path> importedPath = OntologySnapshotFile.toPath(manager.getOntologyDocumentIRI(ont));
+            if (!importedPath.isPresent()) {
+                return Optional.empty();
+            }
+            try {
+                importedSources.add(OntologySnapshotFile.SourceState.of(importedPath.get()));
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(importedSources);
+    }
+
+    private OWLOntology restore(OWLOntologyManager manager,
+                                IRI documentIRI,
+                                OWLOntologyCreationHandler handler,
+                                OWLOntologyLoaderConfiguration configuration,
+                                OntologySnapshotFile.Snapshot snapshot) throws OWLOntologyCreationException {
+        OWLOntologyID ontologyID = snapshot.getOntologyID();
+        if (!ontologyID.isAnonymous() && manager.contains(ontologyID)) {
+            throw new OWLOntologyAlreadyExistsException(ontologyID, documentIRI);
+        }
+        OWLOntology ontology = delegate.createOWLOntology(manager, ontologyID, documentIRI, handler);
+        for (OWLImportsDeclaration importsDeclaration : snapshot.getImportsDeclarations()) {
+            manager.applyChange(new AddImport(ontology, importsDeclaration));
+            manager.makeLoadImportRequest(importsDeclaration, configuration);
+        }
+        List<OWLOntologyChange> changes = new ArrayList<>(snapshot.getAnnotations().size());
+        for (OWLAnnotation annotation : snapshot.getAnnotations()) {
+            changes.add(new AddOntologyAnnotation(ontology, annotation));
+        }
+        manager.applyChanges(changes);
+        manager.addAxioms(ontology, new HashSet<>(snapshot.getAxioms()));
+        handler.setOntologyFormat(ontology, snapshot.getFormat());
+        return ontology;
+    }
+
+    @Override
+    public boolean canCreateFromDocumentIRI(@Nonnull IRI documentIRI) {
+        return delegate.canCreateFromDocumentIRI(documentIRI);
+    }
+
+    @Override
+    public boolean canLoad(@Nonnull OWLOntologyDocumentSource documentSource) {
+        return delegate.canLoad(documentSource);
+    }
+
+    @Override
+    public void setLock(ReadWriteLock lock) {
+        delegate.setLock(lock);
+    }
+}
@@ -7,6 +7,10 @@ import org.protege.editor.owl.model.OWLModelManager;
 import org.protege.editor.owl.model.event.EventType;
 import org.protege.editor.owl.model.event.OWLModelManagerChangeEvent;
 import org.protege.editor.owl.model.event.OWLModelManagerListener;
+import org.protege.editor.owl.ui.renderer.OWLEntityRendererListener;
+import org.protege.editor.owl.ui.renderer.OWLModelManagerEntityRenderer;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
 import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
 import org.semanticweb.owlapi.util.ProgressMonitor;
 import org.slf4j.Logger;
@@ -31,20 +35,45 @@ public class DefaultSearchManager extends SearchManager {
 
     private final Logger logger = LoggerFactory.getLogger(DefaultSearchManager.class);
 
+    /**
+     * The number of unapplied changes beyond which it is cheaper to rebuild the index than to update it.
+     */
+    private static final int MAX_PENDING_CHANGES = 100_000;
+
+    /**
+     * Matches are handed to the search result handler in chunks of at most this size...
+     */
+    private static final int MAX_CHUNK_SIZE = 500;
+
+    /**
+     * ...or at least this often while matches are being found.
+     */
+    private static final long MAX_CHUNK_DELAY_MS = 100;
+
     private OWLEditorKit editorKit;
 
     private ExecutorService service = Executors.newSingleThreadExecutor();
 
     private AtomicLong lastSearchId = new AtomicLong(0);
 
+    private final AtomicLong cacheGeneration = new AtomicLong(0);
+
     private Set<SearchCategory> categories = new HashSet<>();
 
-    private List<SearchMetadata> searchMetadataCache = new ArrayList<>();
+    private final SearchMetadataIndex searchMetadataIndex = new SearchMetadataIndex();
+
+    private final List<OWLOntologyChange> pendingChanges = new ArrayList<>();
+
+    private final Set<OWLEntity> pendingRenderingChanges = new HashSet<>();
 
     private OWLOntologyChangeListener ontologyChangeListener;
 
     private OWLModelManagerListener modelManagerListener;
 
+    private OWLEntityRendererListener entityRendererListener;
+
+    private OWLModelManagerEntityRenderer entityRenderer;
+
     private SearchMetadataImportManager importManager;
 
     private final List<ProgressMonitor> progressMonitors = new ArrayList<>();
@@ -61,10 +90,12 @@ public class DefaultSearchManager extends SearchManager {
         categories.add(SearchCategory.IRI);
         categories.add(SearchCategory.ANNOTATION_VALUE);
         categories.add(SearchCategory.LOGICAL_AXIOM);
-        ontologyChangeListener = changes -> markCacheAsStale();
+        ontologyChangeListener = this::handleOntologyChanges;
         modelManagerListener = this::handleModelManagerEvent;
+        entityRendererListener = (entity, renderer) -> handleRenderingChanged(entity);
         editorKit.getModelManager().addListener(modelManagerListener);
         editorKit.getOWLModelManager().addOntologyChangeListener(ontologyChangeListener);
+        listenToEntityRenderer();
     }
 
     @Override
@@ -81,20 +112,65 @@ public class DefaultSearchManager extends SearchManager {
         OWLModelManager modelMan = editorKit.getOWLModelManager();
         modelMan.removeOntologyChangeListener(ontologyChangeListener);
         modelMan.removeListener(modelManagerListener);
+        if (entityRenderer != null) {
+            entityRenderer.removeListener(entityRendererListener);
+        }
+    }
+
+    /**
+     * Listens to the current entity renderer so that a change to the rendering of an entity only updates
+     * the metadata that mentions that entity.
+     */
+    private void listenToEntityRenderer() {
+        if (entityRenderer != null) {
+            entityRenderer.removeListener(entityRendererListener);
+        }
+        entityRenderer = editorKit.getOWLModelManager().getOWLEntityRenderer();
+        if (entityRenderer != null) {
+            entityRenderer.addListener(entityRendererListener);
+        }
     }
 
     private void handleModelManagerEvent(OWLModelManagerChangeEvent event) {
+        if (event.isType(EventType.ENTITY_RENDERER_CHANGED)) {
+            listenToEntityRenderer();
+        }
         if (isCacheMutatingEvent(event)) {
             markCacheAsStale();
         }
+        if (event.isType(EventType.ACTIVE_ONTOLOGY_CHANGED)) {
+            service.submit(this::loadSavedIndex);
+        }
+        else if (event.isType(EventType.ONTOLOGY_SAVED)) {
+            service.submit(this::saveIndex);
+        }
     }
 
     private boolean isCacheMutatingEvent(OWLModelManagerChangeEvent event) {
-        return event.isType(EventType.ACTIVE_ONTOLOGY_CHANGED) || event.isType(EventType.ENTITY_RENDERER_CHANGED) || event.isType(EventType.ENTITY_RENDERING_CHANGED);
+        return event.isType(EventType.ACTIVE_ONTOLOGY_CHANGED) || event.isType(EventType.ENTITY_RENDERER_CHANGED);
+    }
+
+    private void handleOntologyChanges(List<? extends OWLOntologyChange> changes) {
+        synchronized (pendingChanges) {
+            if (pendingChanges.size() + changes.size() > MAX_PENDING_CHANGES) {
+                pendingChanges.clear();
+                pendingRenderingChanges.clear();
+                markCacheAsStale();
+                return;
+            }
+            pendingChanges.addAll(changes);
+        }
+    }
+
+    private void handleRenderingChanged(OWLEntity entity) {
+        synchronized (pendingChanges) {
+            pendingRenderingChanges.add(entity);
+        }
     }
 
 
     private void markCacheAsStale() {
+        cacheGeneration.incrementAndGet();
         lastSearchId.set(0);
     }
 
@@ -115,14 +191,20 @@ public class DefaultSearchManager extends SearchManager {
         logger.info("Rebuilding search metadata cache...");
         fireIndexingStarted();
         try {
-            searchMetadataCache.clear();
-            List<SearchMetadataImporter> importerList = importManager.getImporters();
-            for (SearchMetadataImporter importer : importerList) {
-                SearchMetadataDB db = importer.getSearchMetadata(editorKit, categories);
-                searchMetadataCache.addAll(db.getResults());
+            synchronized (pendingChanges) {
+                // The rebuild reads the current state of the ontologies, which includes these changes
+                pendingChanges.clear();
+                pendingRenderingChanges.clear();
+            }
+            SearchMetadataImportContext context = new SearchMetadataImportContext(editorKit);
+            if (readSavedIndex(context)) {
+                return;
             }
+            searchMetadataIndex.rebuild(importManager.getImporters(), context, categories);
             stopwatch.stop();
             logger.info("    ...rebuilt search metadata cache in {} ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            // Saved after the search that needed the rebuild
+            service.submit(this::saveIndex);
         }
         catch (Exception e) {
             logger.error("An error occurred whilst rebuilding the search metadata cache: {}", e.getMessage(), e);
@@ -134,11 +216,117 @@ public class DefaultSearchManager extends SearchManager {
     }
 
 
+    /**
+     * Loads the saved search index for a newly opened ontology ahead of the first search.  If there is no saved
+     * index, or it is out of date, the index is rebuilt when it is first needed.
+     */
+    private void loadSavedIndex() {
+        long generation = cacheGeneration.get();
+        if (lastSearchId.get() != 0) {
+            return;
+        }
+        synchronized (pendingChanges) {
+            pendingChanges.clear();
+            pendingRenderingChanges.clear();
+        }
+        try {
+            if (readSavedIndex(new SearchMetadataImportContext(editorKit)) && generation == cacheGeneration.get()) {
+                lastSearchId.compareAndSet(0, 1);
+            }
+        }
+        catch (Exception e) {
+            logger.error("An error occurred whilst loading the saved search index: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean readSavedIndex(SearchMetadataImportContext context) {
+        Optional<SearchMetadataIndexFile> file = SearchMetadataIndexFile.forActiveOntology(editorKit);
+        if (!file.isPresent()) {
+            return false;
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        boolean loaded = file.get().read(searchMetadataIndex, importManager.getImporters(), context, categories);
+        if (loaded) {
+            logger.info("Loaded the saved search index from {} in {} ms", file.get().getPath(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+        return loaded;
+    }
+
+    /**
+     * Saves the search index for the active ontology, so that it can be loaded rather than rebuilt when the
+     * ontology is next opened.
+     */
+    private void saveIndex() {
+        if (lastSearchId.get() == 0) {
+            return;
+        }
+        Optional<SearchMetadataIndexFile> file = SearchMetadataIndexFile.forActiveOntology(editorKit);
+        if (!file.isPresent()) {
+            return;
+        }
+        try {
+            updateMetadataCache();
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            if (!file.get().write(searchMetadataIndex, importManager.getImporters(), new SearchMetadataImportContext(editorKit), categories)) {
+                return;
+            }
+            synchronized (pendingChanges) {
+                if (!pendingChanges.isEmpty() || !pendingRenderingChanges.isEmpty()) {
+                    // The ontologies were edited while the index was being saved, so the saved key may not match
+                    // the saved metadata
+                    file.get().delete();
+                    return;
+                }
+            }
+            logger.info("Saved the search index to {} in {} ms", file.get().getPath(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+        catch (Exception e) {
+            logger.error("An error occurred whilst saving the search index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies the changes that have been made since the search metadata cache was last built or updated.
+     */
+    private void updateMetadataCache() {
+        List<OWLOntologyChange> changes;
+        Set<OWLEntity> renderingChanges;
+        synchronized (pendingChanges) {
+            if (pendingChanges.isEmpty() && pendingRenderingChanges.isEmpty()) {
+                return;
+            }
+            changes = new ArrayList<>(pendingChanges);
+            renderingChanges = new HashSet<>(pendingRenderingChanges);
+            pendingChanges.clear();
+            pendingRenderingChanges.clear();
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            boolean updated = searchMetadataIndex.update(changes,
+                                                         renderingChanges,
+                                                         importManager.getImporters(),
+                                                         new SearchMetadataImportContext(editorKit),
+                                                         categories);
+            if (updated) {
+                logger.info("Updated search metadata cache for {} changes in {} ms", changes.size() + renderingChanges.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            }
+            else {
+                rebuildMetadataCache();
+            }
+        }
+        catch (Exception e) {
+            logger.error("An error occurred whilst updating the search metadata cache: {}", e.getMessage(), e);
+            rebuildMetadataCache();
+        }
+    }
+
+
     @Override
     public void performSearch(final SearchRequest searchRequest, final SearchResultHandler searchResultHandler) {
         if (lastSearchId.getAndIncrement() == 0) {
             service.submit(this::rebuildMetadataCache);
         }
+        service.submit(this::updateMetadataCache);
         service.submit(new SearchCallable(lastSearchId.incrementAndGet(), searchRequest, searchResultHandler));
     }
 
@@ -166,14 +354,25 @@ public class DefaultSearchManager extends SearchManager {
                     patternString.append("  AND  ");
                 }
             }
+            if (searchRequest.isFuzzy()) {
+                logger.info("Starting fuzzy search {} (term: {}, distance: {})", searchId, searchRequest.getFuzzyTerm(), searchRequest.getMaxEditDistance());
+                runFuzzySearch();
+                return;
+            }
             logger.info("Starting search {} (pattern: {})", searchId, patternString);
-            List<SearchResult> results = new ArrayList<>();
+            SearchResultCollector results = new SearchResultCollector(searchRequest,
+                                                                        new SearchResultComparator(editorKit),
+                                                                        searchResultHandler.isResultListRequired());
+            List<SearchResult> chunk = new ArrayList<>();
 
 
             long searchStartTime = System.currentTimeMillis();
+            long lastChunkTime = searchStartTime;
             fireSearchStarted();
             long count = 0;
+            List<SearchMetadata> searchMetadataCache = searchMetadataIndex.getCandidates(searchRequest);
             int total = searchMetadataCache.size();
+            logger.info("    Verifying {} candidates", total);
             int percent = 0;
             for (SearchMetadata searchMetadata : searchMetadataCache) {
                 if (!isLatestSearch()) {
@@ -181,6 +380,11 @@ public class DefaultSearchManager extends SearchManager {
                     logger.info("    Terminating search {} prematurely", searchId);
                     return;
                 }
+                if (searchResultHandler.isCancelled()) {
+                    logger.info("    Search {} cancelled", searchId);
+                    DefaultSearchManager.this.fireSearchFinished();
+                    return;
+                }
                 String text = searchMetadata.getSearchString();
                 boolean matchedAllPatterns = true;
                 int startIndex = 0;
@@ -202,27 +406,85 @@ public class DefaultSearchManager extends SearchManager {
                     }
                 }
                 if (matchedAllPatterns) {
-
-                    results.add(new SearchResult(searchMetadata, matchesBuilder.build()));
+                    SearchResult result = new SearchResult(searchMetadata, matchesBuilder.build());
+                    results.add(result);
+                    chunk.add(result);
+                    long now = System.currentTimeMillis();
+                    if (chunk.size() >= MAX_CHUNK_SIZE || now - lastChunkTime >= MAX_CHUNK_DELAY_MS) {
+                        fireSearchResultsFound(chunk, searchResultHandler);
+                        chunk = new ArrayList<>();
+                        lastChunkTime = now;
+                    }
                 }
                 count++;
                 int nextPercent = (int) ((count * 100) / total);
                 if (nextPercent != percent) {
                     percent = nextPercent;
-                    fireSearchProgressed(percent, results.size());
+                    fireSearchProgressed(percent, results.getMatchCount());
                 }
             }
+            if (!chunk.isEmpty()) {
+                fireSearchResultsFound(chunk, searchResultHandler);
+            }
             DefaultSearchManager.this.fireSearchFinished();
             long searchEndTime = System.currentTimeMillis();
             long searchTime = searchEndTime - searchStartTime;
-            logger.info("    Finished search {} in {} ms ({} results)", searchId, searchTime, results.size());
-            fireSearchFinished(results, searchResultHandler);
+            logger.info("    Finished search {} in {} ms ({} results)", searchId, searchTime, results.getMatchCount());
+            fireSearchFinished(results.getResults(), searchResultHandler);
+        }
+
+        /**
+         * Looks the term up in the fuzzy index.  The matches are ranked by their edit distance and then by the
+         * search result comparator.
+         */
+        private void runFuzzySearch() {
+            long searchStartTime = System.currentTimeMillis();
+            fireSearchStarted();
+            List<FuzzySearchIndex.Match> matches = searchMetadataIndex.getFuzzyMatches(searchRequest.getFuzzyTerm(),
+                                                                                    searchRequest.getMaxEditDistance());
+            if (!isLatestSearch() || searchResultHandler.isCancelled()) {
+                DefaultSearchManager.this.fireSearchFinished();
+                return;
+            }
+            Pattern pattern = searchRequest.getSearchPatterns().get(0);
+            SearchResultComparator comparator = new SearchResultComparator(editorKit);
+            List<SearchResult> results = new ArrayList<>(matches.size());
+            int runStart = 0;
+            for (int i = 0; i < matches.size(); i++) {
+                SearchMetadata searchMetadata = matches.get(i).getSearchMetadata();
+                int start = FuzzySearchIndex.getTermStart(searchMetadata);
+                SearchResultMatch match = new SearchResultMatch(pattern, start, searchMetadata.getSearchString().length());
+                results.add(new SearchResult(searchMetadata, ImmutableList.of(match)));
+                boolean endOfRun = i + 1 == matches.size() || matches.get(i + 1).getDistance() != matches.get(i).getDistance();
+                if (endOfRun) {
+                    results.subList(runStart, i + 1).sort(comparator);
+                    runStart = i + 1;
+                }
+            }
+            int from = Math.min(searchRequest.getOffset(), results.size());
+            int to = (int) Math.min((long) from + searchRequest.getLimit(), results.size());
+            List<SearchResult> page = new ArrayList<>(results.subList(from, to));
+            if (!page.isEmpty()) {
+                fireSearchResultsFound(page, searchResultHandler);
+            }
+            fireSearchProgressed(100, matches.size());
+            DefaultSearchManager.this.fireSearchFinished();
+            logger.info("    Finished fuzzy search {} in {} ms ({} results)", searchId, System.currentTimeMillis() - searchStartTime, matches.size());
+            fireSearchFinished(page, searchResultHandler);
         }
 
         private boolean isLatestSearch() {
             return searchId == lastSearchId.get();
         }
 
+        private void fireSearchResultsFound(final List<SearchResult> results, final SearchResultHandler searchResultHandler) {
+            SwingUtilities.invokeLater(() -> {
+                if (isLatestSearch()) {
+                    searchResultHandler.searchResultsFound(results);
+                }
+            });
+        }
+
         private void fireSearchFinished(final List<SearchResult> results, final SearchResultHandler searchResultHandler) {
             if (SwingUtilities.isEventDispatchThread()) {
                 searchResultHandler.searchFinished(results);
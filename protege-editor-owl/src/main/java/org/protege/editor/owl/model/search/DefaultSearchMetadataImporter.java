@@ -21,17 +21,25 @@ import java.util.Set;
  * Bio-Medical Informatics Research Group<br>
  * Date: 18/09/2012
  */
-public class DefaultSearchMetadataImporter implements SearchMetadataImporter {
-
+public class DefaultSearchMetadataImporter implements IncrementalSearchMetadataImporter {
 
+    /**
+     * Imports the metadata for the active ontologies.  The work is split across entities, axiom types and ontologies
+     * and run on the common fork-join pool, so the order of the results is not defined.  The entities are rendered
+     * up front so that the parallel tasks do not contend for the model manager's renderer.
+     */
+    @Override
     public SearchMetadataDB getSearchMetadata(final OWLEditorKit editorKit, Set<SearchCategory> categories) {
         SearchMetadataImportContext context = new SearchMetadataImportContext(editorKit);
+        context.prepareRenderings();
         SearchMetadataDB db = new SearchMetadataDB();
-
-        getEntityBasedSearchMetadata(categories, context, db);
-        getAxiomBasedSearchMetadata(categories, context, db);
-        getOntologyBasedSearchMetadata(categories, context, db);
-
+        try {
+            getEntityBasedSearchMetadata(categories, context, db);
+            getAxiomBasedSearchMetadata(categories, context, db);
+            getOntologyBasedSearchMetadata(categories, context, db);
+        } finally {
+            context.releaseRenderings();
+        }
         return db;
     }
 
@@ -41,14 +49,39 @@ public class DefaultSearchMetadataImporter implements SearchMetadataImporter {
 
         Set<OWLEntity> processed = new HashSet<>();
         for (OWLOntology ontology : context.getOntologies()) {
-            for (OWLEntity entity : ontology.getSignature()) {
-                if (processed.add(entity)) {
-                    getSearchMetadataForEntity(entity, context, db, importers);
-                }
+            processed.addAll(ontology.getSignature());
+        }
+        processed.parallelStream().forEach(entity -> getSearchMetadataForEntity(entity, context, db, importers));
+    }
+
+    @Override
+    public void getSearchMetadataForEntity(OWLEntity entity, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+        getSearchMetadataForEntity(entity, context, db, getEntityBasedSearchMetadataImporters(categories));
+    }
+
+    @Override
+    public void getSearchMetadataForAxiom(OWLAxiom axiom, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+        List<AxiomBasedSearchMetadataImporter> importers = getAxiomBasedSearchMetadataImporters(categories, axiom.getAxiomType());
+        if (importers.isEmpty()) {
+            return;
+        }
+        OWLObject subject = new AxiomSubjectProvider().getSubject(axiom);
+        if (subject instanceof OWLEntity) {
+            OWLEntity entSubject = (OWLEntity) subject;
+            String rendering = context.getRendering(entSubject);
+            for (AxiomBasedSearchMetadataImporter importer : importers) {
+                importer.generateSearchMetadataFor(axiom, entSubject, rendering, context, db);
             }
         }
     }
 
+    @Override
+    public void getSearchMetadataForOntology(OWLOntology ontology, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+        for (OntologyBasedSearchMDImporter importer : getOntologyBasedSearchMetadataImporters(categories)) {
+            importer.generateSearchMetadata(ontology, context, db);
+        }
+    }
+
     private void getSearchMetadataForEntity(OWLEntity entity, SearchMetadataImportContext context, SearchMetadataDB db, List<EntityBasedSearchMDImporter> importers) {
         String entityRendering = context.getRendering(entity);
         for (EntityBasedSearchMDImporter importer : importers) {
@@ -58,24 +91,29 @@ public class DefaultSearchMetadataImporter implements SearchMetadataImporter {
 
 
     private void getAxiomBasedSearchMetadata(Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
-        for (AxiomType<?> axiomType : AxiomType.AXIOM_TYPES) {
-            getSearchMetadataForAxiomsOfType(axiomType, categories, context, db);
-        }
+        // Partitioned by axiom type and ontology, and then split further by the fork-join pool
+        AxiomType.AXIOM_TYPES.parallelStream().forEach(axiomType -> {
+            List<AxiomBasedSearchMetadataImporter> importers = getAxiomBasedSearchMetadataImporters(categories, axiomType);
+            if (importers.isEmpty()) {
+                return;
+            }
+            context.getOntologies().parallelStream().forEach(ontology -> {
+                getSearchMetadataForAxiomsOfType(ontology, axiomType, importers, context, db);
+            });
+        });
     }
 
-    private void getSearchMetadataForAxiomsOfType(AxiomType<?> axiomType, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
-        for (AxiomBasedSearchMetadataImporter importer : getAxiomBasedSearchMetadataImporters(categories, axiomType)) {
-            for (OWLOntology ontology : context.getOntologies()) {
-                for (OWLAxiom ax : ontology.getAxioms(axiomType)) {
-                    OWLObject subject = new AxiomSubjectProvider().getSubject(ax);
-                    if (subject instanceof OWLEntity) {
-                        OWLEntity entSubject = (OWLEntity) subject;
-                        String rendering = context.getRendering(entSubject);
-                        importer.generateSearchMetadataFor(ax, entSubject, rendering, context, db);
-                    }
+    private void getSearchMetadataForAxiomsOfType(OWLOntology ontology, AxiomType<?> axiomType, List<AxiomBasedSearchMetadataImporter> importers, SearchMetadataImportContext context, SearchMetadataDB db) {
+        new ArrayList<OWLAxiom>(ontology.getAxioms(axiomType)).parallelStream().forEach(ax -> {
+            OWLObject subject = new AxiomSubjectProvider().getSubject(ax);
+            if (subject instanceof OWLEntity) {
+                OWLEntity entSubject = (OWLEntity) subject;
+                String rendering = context.getRendering(entSubject);
+                for (AxiomBasedSearchMetadataImporter importer : importers) {
+                    importer.generateSearchMetadataFor(ax, entSubject, rendering, context, db);
                 }
             }
-        }
+        });
     }
 
 
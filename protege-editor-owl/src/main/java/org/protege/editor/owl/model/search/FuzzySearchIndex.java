@@ -0,0 +1,297 @@
+package org.protege.editor.owl.model.search;
+
+import java.util.*;
+
+/**
+ * A BK-tree over the display names and IRI short forms in the search metadata, which finds the metadata within a
+ * given edit distance of a search term.
+ * <p>
+ * Each node of the tree holds a distinct lower cased term together with the metadata that has that term, and its
+ * children are keyed by their edit distance to the node's term.  By the triangle inequality a search for terms
+ * within distance <code>k</code> of a query only has to descend into the children whose key is within
+ * <code>k</code> of the distance between the query and the node, which makes searches for small distances visit a
+ * small part of the tree.  Metadata that is removed is taken out of its node, and the tree is rebuilt when too
+ * many nodes are left empty.
+ * </p>
+ * <p>
+ * The index is not thread safe.
+ * </p>
+ */
+public class FuzzySearchIndex {
+
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    private final Map<SearchMetadata, Node> nodesByMetadata = new IdentityHashMap<>();
+
+    private final Map<String, Node> nodesByTerm = new HashMap<>();
+
+    private Node root = null;
+
+    private int emptyNodeCount = 0;
+
+    /**
+     * Determines whether metadata is indexed.  Only display names and IRIs are indexed.
+     */
+    public static boolean isIndexed(SearchMetadata searchMetadata) {
+        SearchCategory category = searchMetadata.getCategory();
+        return category == SearchCategory.DISPLAY_NAME || category == SearchCategory.IRI;
+    }
+
+    /**
+     * Gets the index in the search string of metadata at which its indexed term starts.  This is the start of the
+     * short form for IRIs and zero otherwise.
+     */
+    public static int getTermStart(SearchMetadata searchMetadata) {
+        String searchString = searchMetadata.getSearchString();
+        if (searchMetadata.getCategory() != SearchCategory.IRI) {
+            return 0;
+        }
+        int start = Math.max(searchString.lastIndexOf('#'), searchString.lastIndexOf('/')) + 1;
+        return start < searchString.length() ? start : 0;
+    }
+
+    private static String getTerm(SearchMetadata searchMetadata) {
+        return searchMetadata.getSearchString().substring(getTermStart(searchMetadata)).toLowerCase();
+    }
+
+    public void add(SearchMetadata searchMetadata) {
+        if (!isIndexed(searchMetadata) || nodesByMetadata.containsKey(searchMetadata)) {
+            return;
+        }
+        String term = getTerm(searchMetadata);
+        Node node = nodesByTerm.get(term);
+        if (node == null) {
+            node = new Node(term);
+            nodesByTerm.put(term, node);
+            insert(node);
+        }
+        else if (node.isEmpty()) {
+            emptyNodeCount--;
+        }
+        node.add(searchMetadata);
+        nodesByMetadata.put(searchMetadata, node);
+    }
+
+    public void remove(SearchMetadata searchMetadata) {
+        Node node = nodesByMetadata.remove(searchMetadata);
+        if (node == null) {
+            return;
+        }
+        node.remove(searchMetadata);
+        if (node.isEmpty()) {
+            emptyNodeCount++;
+            if (emptyNodeCount > MIN_COMPACTION_SIZE && emptyNodeCount > nodesByTerm.size() / 2) {
+                compact();
+            }
+        }
+    }
+
+    public void clear() {
+        nodesByMetadata.clear();
+        nodesByTerm.clear();
+        root = null;
+        emptyNodeCount = 0;
+    }
+
+    public int size() {
+        return nodesByMetadata.size();
+    }
+
+    /**
+     * Finds the metadata whose term is within an edit distance of a query.  The comparison ignores case.
+     * @param query The query.
+     * @param maxDistance The maximum Levenshtein distance between the query and a term.
+     * @return The matches, ordered by increasing distance.
+     */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        String term = query.toLowerCase();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int distance = distance(term, node.term);
+            if (distance <= maxDistance) {
+                for (SearchMetadata searchMetadata : node.getMetadata()) {
+                    matches.add(new Match(searchMetadata, distance));
+                }
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.childDistances[i] - distance) <= maxDistance) {
+                    stack.push(node.children[i]);
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::getDistance));
+        return matches;
+    }
+
+    private void insert(Node node) {
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node current = root;
+        while (true) {
+            int distance = distance(node.term, current.term);
+            Node child = current.getChild(distance);
+            if (child == null) {
+                current.addChild(distance, node);
+                return;
+            }
+            current = child;
+        }
+    }
+
+    private void compact() {
+        List<SearchMetadata> metadata = new ArrayList<>(nodesByMetadata.keySet());
+        clear();
+        metadata.forEach(this::add);
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings.
+     */
+    static int distance(String s, String t) {
+        if (s.length() < t.length()) {
+            String tmp = s;
+            s = t;
+            t = tmp;
+        }
+        int[] previous = new int[t.length() + 1];
+        int[] current = new int[t.length() + 1];
+        for (int j = 0; j <= t.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= s.length(); i++) {
+            current[0] = i;
+            char c = s.charAt(i - 1);
+            for (int j = 1; j <= t.length(); j++) {
+                int substitution = previous[j - 1] + (c == t.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] tmp = previous;
+            previous = current;
+            current = tmp;
+        }
+        return previous[t.length()];
+    }
+
+    /**
+     * Metadata that was found by a fuzzy search, together with the edit distance between the query and its term.
+     */
+    public static final class Match {
+
+        private final SearchMetadata searchMetadata;
+
+        private final int distance;
+
+        private Match(SearchMetadata searchMetadata, int distance) {
+            this.searchMetadata = searchMetadata;
+            this.distance = distance;
+        }
+
+        public SearchMetadata getSearchMetadata() {
+            return searchMetadata;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * A node of the tree.  The metadata is held as a single object or, for terms shared by several pieces of
+     * metadata, as a list, and the children as parallel arrays, to keep the tree small.
+     */
+    private static final class Node {
+
+        private final String term;
+
+        private Object metadata = null;
+
+        private int[] childDistances = null;
+
+        private Node[] children = null;
+
+        private int childCount = 0;
+
+        private Node(String term) {
+            this.term = term;
+        }
+
+        Node getChild(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            if (children == null) {
+                childDistances = new int[2];
+                children = new Node[2];
+            }
+            else if (childCount == children.length) {
+                childDistances = Arrays.copyOf(childDistances, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            childDistances[childCount] = distance;
+            children[childCount] = child;
+            childCount++;
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(SearchMetadata searchMetadata) {
+            if (metadata == null) {
+                metadata = searchMetadata;
+            }
+            else if (metadata instanceof SearchMetadata) {
+                List<SearchMetadata> list = new ArrayList<>(2);
+                list.add((SearchMetadata) metadata);
+                list.add(searchMetadata);
+                metadata = list;
+            }
+            else {
+                ((List<SearchMetadata>) metadata).add(searchMetadata);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void remove(SearchMetadata searchMetadata) {
+            if (metadata == searchMetadata) {
+                metadata = null;
+            }
+            else if (metadata instanceof List) {
+                List<SearchMetadata> list = (List<SearchMetadata>) metadata;
+                list.removeIf(md -> md == searchMetadata);
+                if (list.isEmpty()) {
+                    metadata = null;
+                }
+                else if (list.size() == 1) {
+                    metadata = list.get(0);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return metadata == null;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<SearchMetadata> getMetadata() {
+            if (metadata == null) {
+                return Collections.emptyList();
+            }
+            if (metadata instanceof SearchMetadata) {
+                return Collections.singletonList((SearchMetadata) metadata);
+            }
+            return (List<SearchMetadata>) metadata;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.protege.editor.owl.model.search;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.util.Set;
+
+/**
+ * A {@link SearchMetadataImporter} that can generate the search metadata for a single entity, axiom or
+ * ontology.  This allows a {@link SearchMetadataIndex} to be kept up to date after an edit by regenerating
+ * only the metadata that the edit affects.
+ */
+public interface IncrementalSearchMetadataImporter extends SearchMetadataImporter {
+
+    /**
+     * Generates the metadata that is derived from an entity, such as its display name, its IRI and the
+     * values of its annotations in the active ontologies.
+     */
+    void getSearchMetadataForEntity(OWLEntity entity, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db);
+
+    /**
+     * Generates the metadata that is derived from an axiom, such as its rendering and the values of its
+     * annotations.
+     */
+    void getSearchMetadataForAxiom(OWLAxiom axiom, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db);
+
+    /**
+     * Generates the metadata that is derived from an ontology, such as the values of its annotations.
+     */
+    void getSearchMetadataForOntology(OWLOntology ontology, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db);
+}
@@ -0,0 +1,473 @@
+package org.protege.editor.owl.model.search;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index from the trigrams of search strings to the search metadata whose search strings contain them.
+ * <p>
+ * The index narrows a search down to the metadata whose search string contains every literal that the search
+ * patterns require, so the cost of a search grows with the number of candidates rather than with the size of the
+ * ontologies.  Prefix, substring and token queries all reduce to required literals.  The candidates are a superset
+ * of the matches and still have to be verified against the patterns.  Search strings and literals are lower cased
+ * character by character, which keeps the candidates a superset for both case sensitive and case insensitive
+ * patterns.  Patterns from which no literal of at least three characters can be derived are not narrowed.
+ * </p>
+ * <p>
+ * The index is not thread safe.
+ * </p>
+ */
+public class NGramSearchIndex {
+
+    private static final int N = 3;
+
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    private final List<SearchMetadata> documents = new ArrayList<>();
+
+    private final Map<SearchMetadata, Integer> documentIds = new IdentityHashMap<>();
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    private int removedCount = 0;
+
+    public void add(SearchMetadata searchMetadata) {
+        if (documentIds.containsKey(searchMetadata)) {
+            return;
+        }
+        int id = documents.size();
+        documents.add(searchMetadata);
+        documentIds.put(searchMetadata, id);
+        String text = normalise(searchMetadata.getSearchString());
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            long trigram = trigram(text, i);
+            if (trigrams.add(trigram)) {
+                postings.computeIfAbsent(trigram, t -> new Postings()).add(id);
+            }
+        }
+    }
+
+    public void remove(SearchMetadata searchMetadata) {
+        Integer id = documentIds.remove(searchMetadata);
+        if (id == null) {
+            return;
+        }
+        documents.set(id, null);
+        removedCount++;
+        if (removedCount > MIN_COMPACTION_SIZE && removedCount > documents.size() / 2) {
+            compact();
+        }
+    }
+
+    public void clear() {
+        documents.clear();
+        documentIds.clear();
+        postings.clear();
+        removedCount = 0;
+    }
+
+    public int size() {
+        return documentIds.size();
+    }
+
+    /**
+     * Gets the metadata that could match every pattern of a search request.
+     * @param searchRequest The search request.
+     * @return The candidates, in the order in which they were added, or an empty optional if the request cannot be
+     * narrowed down and all metadata must be searched.
+     */
+    public Optional<List<SearchMetadata>> getCandidates(SearchRequest searchRequest) {
+        List<Postings> required = new ArrayList<>();
+        for (Pattern pattern : searchRequest.getSearchPatterns()) {
+            for (String literal : getRequiredLiterals(pattern)) {
+                String text = normalise(literal);
+                for (int i = 0; i + N <= text.length(); i++) {
+                    Postings p = postings.get(trigram(text, i));
+                    if (p == null) {
+                        return Optional.of(Collections.emptyList());
+                    }
+                    required.add(p);
+                }
+            }
+        }
+        if (required.isEmpty()) {
+            return Optional.empty();
+        }
+        required.sort(Comparator.comparingInt(p -> p.size));
+        int[] ids = Arrays.copyOf(required.get(0).ids, required.get(0).size);
+        int count = ids.length;
+        for (int i = 1; i < required.size() && count > 0; i++) {
+            count = intersect(ids, count, required.get(i));
+        }
+        List<SearchMetadata> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SearchMetadata document = documents.get(ids[i]);
+            if (document != null) {
+                candidates.add(document);
+            }
+        }
+        return Optional.of(candidates);
+    }
+
+    /**
+     * Retains the ids that also occur in the postings.  Both lists are sorted.
+     * @return The number of ids that were retained.
+     */
+    private static int intersect(int[] ids, int count, Postings other) {
+        int retained = 0;
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            while (j < other.size && other.ids[j] < id) {
+                j++;
+            }
+            if (j == other.size) {
+                break;
+            }
+            if (other.ids[j] == id) {
+                ids[retained++] = id;
+            }
+        }
+        return retained;
+    }
+
+    private void compact() {
+        List<SearchMetadata> live = new ArrayList<>(documentIds.size());
+        for (SearchMetadata document : documents) {
+            if (document != null) {
+                live.add(document);
+            }
+        }
+        clear();
+        live.forEach(this::add);
+    }
+
+    private static String normalise(String s) {
+        char[] chars = new char[s.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(s.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    private static long trigram(String s, int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+
+    /**
+     * Gets the literal strings that any text matched by the pattern must contain.  The analysis is conservative: it
+     * gives up on alternations and on patterns that are compiled with comments, and it ignores literals that are
+     * inside optional groups or lookarounds.
+     * @param pattern The pattern.
+     * @return The literals.  Possibly empty.
+     */
+    static List<String> getRequiredLiterals(Pattern pattern) {
+        String regex = pattern.pattern();
+        if ((pattern.flags() & Pattern.LITERAL) != 0) {
+            return Collections.singletonList(regex);
+        }
+        if ((pattern.flags() & Pattern.COMMENTS) != 0) {
+            return Collections.emptyList();
+        }
+        return new LiteralExtractor(regex).extract();
+    }
+
+    private static class Postings {
+
+        private int[] ids = new int[4];
+
+        private int size = 0;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Walks a regular expression and collects the runs of literal characters, together with the groups that enclose
+     * them.
+     */
+    private static class LiteralExtractor {
+
+        private enum Atom {
+            NONE, CHAR, GROUP
+        }
+
+        private final String regex;
+
+        private final List<String> literals = new ArrayList<>();
+
+        private final List<List<Integer>> literalGroups = new ArrayList<>();
+
+        private final Deque<Integer> openGroups = new ArrayDeque<>();
+
+        private final Set<Integer> optionalGroups = new HashSet<>();
+
+        private final StringBuilder run = new StringBuilder();
+
+        private int groupCount = 0;
+
+        private int lastClosedGroup = -1;
+
+        private Atom lastAtom = Atom.NONE;
+
+        LiteralExtractor(String regex) {
+            this.regex = regex;
+        }
+
+        List<String> extract() {
+            int i = 0;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                switch (c) {
+                    case '\\':
+                        i = escape(i);
+                        break;
+                    case '[':
+                        endRun();
+                        i = skipCharacterClass(i);
+                        lastAtom = Atom.NONE;
+                        break;
+                    case '(':
+                        endRun();
+                        int group = groupCount++;
+                        openGroups.push(group);
+                        i++;
+                        if (i < regex.length() && regex.charAt(i) == '?') {
+                            // Non-capturing, named and atomic groups and inline flags are required, lookarounds
+                            // are not
+                            if (isLookaround(i + 1)) {
+                                optionalGroups.add(group);
+                            }
+                            i = skipGroupPrefix(i + 1);
+                        }
+                        lastAtom = Atom.NONE;
+                        break;
+                    case ')':
+                        endRun();
+                        lastClosedGroup = openGroups.isEmpty() ? -1 : openGroups.pop();
+                        lastAtom = Atom.GROUP;
+                        i++;
+                        break;
+                    case '|':
+                        return Collections.emptyList();
+                    case '?':
+                    case '*':
+                        quantify(true);
+                        i = skipQuantifierSuffix(i + 1);
+                        break;
+                    case '+':
+                        quantify(false);
+                        i = skipQuantifierSuffix(i + 1);
+                        break;
+                    case '{':
+                        int close = regex.indexOf('}', i);
+                        if (close < 0) {
+                            appendChar(c);
+                            i++;
+                            break;
+                        }
+                        String bounds = regex.substring(i + 1, close).trim();
+                        quantify(bounds.startsWith("0") || bounds.startsWith(","));
+                        i = skipQuantifierSuffix(close + 1);
+                        break;
+                    case '.':
+                    case '^':
+                    case '$':
+                        endRun();
+                        lastAtom = Atom.NONE;
+                        i++;
+                        break;
+                    default:
+                        appendChar(c);
+                        i++;
+                }
+            }
+            endRun();
+            List<String> required = new ArrayList<>();
+            for (int j = 0; j < literals.size(); j++) {
+                if (Collections.disjoint(literalGroups.get(j), optionalGroups)) {
+                    required.add(literals.get(j));
+                }
+            }
+            return required;
+        }
+
+        private int escape(int i) {
+            if (i + 1 >= regex.length()) {
+                return i + 1;
+            }
+            char next = regex.charAt(i + 1);
+            if (next == 'Q') {
+                int end = regex.indexOf("\\E", i + 2);
+                String quoted = end < 0 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+                for (int k = 0; k < quoted.length(); k++) {
+                    appendChar(quoted.charAt(k));
+                }
+                return end < 0 ? regex.length() : end + 2;
+            }
+            if (Character.isLetterOrDigit(next)) {
+                // Character classes, boundaries, back references and escaped characters.  None of them is taken as
+                // literal text, so the whole escape sequence is skipped.
+                endRun();
+                lastAtom = Atom.NONE;
+                return skipEscape(i + 1);
+            }
+            appendChar(next);
+            return i + 2;
+        }
+
+        /**
+         * Skips an escape sequence that starts with a letter or a digit.
+         * @param i The index of the character that follows the backslash.
+         * @return The index of the first character after the escape sequence.
+         */
+        private int skipEscape(int i) {
+            char c = regex.charAt(i);
+            switch (c) {
+                case 'p':
+                case 'P':
+                case 'N':
+                case 'x':
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == '{') {
+                        // \p{Lu}, \N{LATIN SMALL LETTER A} and \x{1F600}
+                        int close = regex.indexOf('}', i + 1);
+                        return close < 0 ? regex.length() : close + 1;
+                    }
+                    if (c == 'x') {
+                        return skipDigits(i + 1, 2, 16);
+                    }
+                    // \pL
+                    return Math.min(i + 2, regex.length());
+                case 'u':
+                    return skipDigits(i + 1, 4, 16);
+                case '0':
+                    // \0n, \0nn and \0mnn, where m is at most 3
+                    int maxDigits = i + 1 < regex.length() && regex.charAt(i + 1) <= '3' ? 3 : 2;
+                    return skipDigits(i + 1, maxDigits, 8);
+                case 'c':
+                    return Math.min(i + 2, regex.length());
+                case 'k':
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == '<') {
+                        int close = regex.indexOf('>', i + 1);
+                        return close < 0 ? regex.length() : close + 1;
+                    }
+                    return i + 1;
+                default:
+                    if (c >= '1' && c <= '9') {
+                        // A back reference takes as many digits as make up a group number
+                        return skipDigits(i + 1, Integer.MAX_VALUE, 10);
+                    }
+                    return i + 1;
+            }
+        }
+
+        private int skipDigits(int i, int maxDigits, int radix) {
+            int end = i;
+            while (end < regex.length() && end - i < maxDigits && Character.digit(regex.charAt(end), radix) >= 0) {
+                end++;
+            }
+            return end;
+        }
+
+        private void appendChar(char c) {
+            run.append(c);
+            lastAtom = Atom.CHAR;
+        }
+
+        /**
+         * Applies a quantifier to the last atom.  If the atom may be absent it is removed from the required text;
+         * if it may be repeated the run is split after it.
+         */
+        private void quantify(boolean mayBeAbsent) {
+            if (lastAtom == Atom.CHAR && run.length() > 0) {
+                char last = run.charAt(run.length() - 1);
+                if (mayBeAbsent) {
+                    run.setLength(run.length() - 1);
+                    endRun();
+                }
+                else {
+                    endRun();
+                    run.append(last);
+                }
+            }
+            else if (lastAtom == Atom.GROUP && mayBeAbsent && lastClosedGroup >= 0) {
+                optionalGroups.add(lastClosedGroup);
+            }
+            lastAtom = Atom.NONE;
+        }
+
+        private void endRun() {
+            if (run.length() > 0) {
+                literals.add(run.toString());
+                literalGroups.add(new ArrayList<>(openGroups));
+                run.setLength(0);
+            }
+        }
+
+        /**
+         * Determines whether the group whose prefix follows "(?" at the index is a lookahead or a lookbehind.
+         */
+        private boolean isLookaround(int i) {
+            if (i >= regex.length()) {
+                return false;
+            }
+            char c = regex.charAt(i);
+            if (c == '=' || c == '!') {
+                return true;
+            }
+            return c == '<' && i + 1 < regex.length() && (regex.charAt(i + 1) == '=' || regex.charAt(i + 1) == '!');
+        }
+
+        private int skipGroupPrefix(int i) {
+            // Skip the characters that follow "(?" up to the start of the group body
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == ':' || c == '=' || c == '!' || c == '>') {
+                    return i + 1;
+                }
+                if (c == ')') {
+                    return i;
+                }
+                if (c == '<' && i + 1 < regex.length() && (regex.charAt(i + 1) == '=' || regex.charAt(i + 1) == '!')) {
+                    return i + 2;
+                }
+                i++;
+            }
+            return i;
+        }
+
+        private int skipCharacterClass(int i) {
+            int depth = 0;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                }
+                if (c == '[') {
+                    depth++;
+                }
+                else if (c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            return i;
+        }
+
+        private int skipQuantifierSuffix(int i) {
+            if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                return i + 1;
+            }
+            return i;
+        }
+    }
+}
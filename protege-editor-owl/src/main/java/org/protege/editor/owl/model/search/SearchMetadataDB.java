@@ -9,16 +9,19 @@ import java.util.List;
  * Stanford University<br>
  * Bio-Medical Informatics Research Group<br>
  * Date: 03/10/2012
+ * <p>
+ * Results may be added from several import threads at once.
+ * </p>
  */
 public class SearchMetadataDB {
 
     private List<SearchMetadata> results = new ArrayList<>();
 
-    public void addResult(SearchMetadata searchMetadata) {
+    public synchronized void addResult(SearchMetadata searchMetadata) {
         results.add(searchMetadata);
     }
 
-    public List<SearchMetadata> getResults() {
+    public synchronized List<SearchMetadata> getResults() {
         return Collections.unmodifiableList(results);
     }
 }
@@ -2,15 +2,19 @@ package org.protege.editor.owl.model.search;
 
 import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.model.OWLEditorKitOntologyShortFormProvider;
-import org.protege.editor.owl.model.OWLEditorKitShortFormProvider;
 import org.protege.editor.owl.ui.renderer.context.OWLObjectRenderingContext;
 import org.protege.editor.owl.ui.renderer.styledstring.OWLObjectStyledStringRenderer;
 import org.protege.editor.owl.ui.renderer.styledstring.StyledString;
+import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.util.OntologyIRIShortFormProvider;
 import org.semanticweb.owlapi.util.ShortFormProvider;
 
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -18,6 +22,18 @@ import java.util.Set;
  * Stanford University<br>
  * Bio-Medical Informatics Research Group<br>
  * Date: 03/10/2012
+ * <p>
+ * The context may be used by several import threads at once.  Before a parallel import the renderings of the
+ * active ontologies and the entities in their signatures are computed once, on the calling thread, with
+ * {@link #prepareRenderings()}, so that the import threads read them from an immutable map.  Anything else is
+ * rendered by the model manager, whose renderers and caches are not thread safe, under a lock.  Styled strings are
+ * built independently on each thread.
+ * </p>
+ * <p>
+ * The imported metadata builds its styled strings through the context when they are shown, so the prepared
+ * renderings are released with {@link #releaseRenderings()} once the import has finished.  After that, renderings
+ * come from the model manager and follow any changes to them.
+ * </p>
  */
 public class SearchMetadataImportContext {
 
@@ -25,9 +41,22 @@ public class SearchMetadataImportContext {
 
     private final OWLObjectStyledStringRenderer styledStringRenderer;
 
+    private final Object renderingLock = new Object();
+
+    private volatile Map<OWLObject, String> renderings = ImmutableMap.of();
+
     public SearchMetadataImportContext(OWLEditorKit editorKit) {
         this.editorKit = editorKit;
-        ShortFormProvider sfp = new OWLEditorKitShortFormProvider(editorKit);
+        ShortFormProvider sfp = new ShortFormProvider() {
+            @Override
+            public String getShortForm(OWLEntity entity) {
+                return getRendering(entity);
+            }
+
+            @Override
+            public void dispose() {
+            }
+        };
         OntologyIRIShortFormProvider ontsfp = new OWLEditorKitOntologyShortFormProvider(editorKit);
         OWLObjectRenderingContext renderingContext = new OWLObjectRenderingContext(sfp, ontsfp);
         styledStringRenderer = new OWLObjectStyledStringRenderer(renderingContext);
@@ -41,8 +70,41 @@ public class SearchMetadataImportContext {
         return editorKit.getOWLModelManager().getActiveOntologies();
     }
 
+    /**
+     * Renders the active ontologies and the entities in their signatures, replacing any renderings that were
+     * prepared before.  This should be called before the metadata is imported in parallel.
+     */
+    public void prepareRenderings() {
+        Map<OWLObject, String> prepared = new HashMap<>();
+        for (OWLOntology ontology : getOntologies()) {
+            prepared.computeIfAbsent(ontology, this::render);
+            for (OWLEntity entity : ontology.getSignature()) {
+                prepared.computeIfAbsent(entity, this::render);
+            }
+        }
+        renderings = ImmutableMap.copyOf(prepared);
+    }
+
+    /**
+     * Discards the renderings that were prepared by {@link #prepareRenderings()}.  This should be called when the
+     * metadata has been imported.
+     */
+    public void releaseRenderings() {
+        renderings = ImmutableMap.of();
+    }
+
     public String getRendering(OWLObject object) {
-        return editorKit.getOWLModelManager().getRendering(object);
+        String rendering = renderings.get(object);
+        if (rendering != null) {
+            return rendering;
+        }
+        return render(object);
+    }
+
+    private String render(OWLObject object) {
+        synchronized (renderingLock) {
+            return editorKit.getOWLModelManager().getRendering(object);
+        }
     }
 
     public StyledString getStyledStringRendering(OWLObject object) {
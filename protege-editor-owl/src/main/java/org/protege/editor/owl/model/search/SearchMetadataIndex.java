@@ -0,0 +1,365 @@
+package org.protege.editor.owl.model.search;
+
+import org.semanticweb.owlapi.model.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * The search metadata for the active ontologies, keyed by the entity, axiom or ontology that it was generated
+ * for.
+ * <p>
+ * After an edit the index is brought up to date by regenerating the metadata of just the entities, axioms and
+ * ontologies that the edit affects, rather than re-rendering the whole import closure.  This is only possible
+ * when every importer is an {@link IncrementalSearchMetadataImporter}; otherwise {@link #update} reports that
+ * a rebuild is needed.  An {@link NGramSearchIndex} over the metadata is kept up to date alongside it, so that
+ * searches only have to verify the candidates for their patterns, and so is a {@link FuzzySearchIndex} once a
+ * fuzzy search has been made.  The index is not thread safe and is meant to
+ * be used from the search thread.
+ * </p>
+ */
+public class SearchMetadataIndex {
+
+    private final Map<Object, List<SearchMetadata>> metadataByKey = new LinkedHashMap<>();
+
+    private final List<SearchMetadata> unkeyedMetadata = new ArrayList<>();
+
+    private final NGramSearchIndex nGramIndex = new NGramSearchIndex();
+
+    /**
+     * Built on the first fuzzy search and kept up to date from then on.
+     */
+    private FuzzySearchIndex fuzzyIndex = null;
+
+    private List<SearchMetadata> snapshot = Collections.emptyList();
+
+    private boolean built = false;
+
+    /**
+     * Discards the index and regenerates the metadata for every entity, axiom and ontology in the active
+     * ontologies.  If the only incremental importers are the built in ones then the metadata is generated in
+     * parallel, from renderings that are prepared up front.  Otherwise it is generated on the calling thread.
+     */
+    public void rebuild(List<SearchMetadataImporter> importers, SearchMetadataImportContext context, Set<SearchCategory> categories) {
+        metadataByKey.clear();
+        unkeyedMetadata.clear();
+        nGramIndex.clear();
+        fuzzyIndex = null;
+        snapshot = null;
+        built = true;
+        List<IncrementalSearchMetadataImporter> incrementalImporters = new ArrayList<>();
+        for (SearchMetadataImporter importer : importers) {
+            if (importer instanceof IncrementalSearchMetadataImporter) {
+                incrementalImporters.add((IncrementalSearchMetadataImporter) importer);
+            }
+            else {
+                List<SearchMetadata> metadata = importer.getSearchMetadata(context.getEditorKit(), categories).getResults();
+                unkeyedMetadata.addAll(metadata);
+                metadata.forEach(nGramIndex::add);
+            }
+        }
+        if (incrementalImporters.isEmpty()) {
+            return;
+        }
+        boolean parallel = isBuiltIn(incrementalImporters);
+        if (parallel) {
+            context.prepareRenderings();
+        }
+        try {
+            Set<OWLOntology> ontologies = context.getOntologies();
+            Set<OWLEntity> entities = new LinkedHashSet<>();
+            for (OWLOntology ontology : ontologies) {
+                entities.addAll(ontology.getSignature());
+            }
+            putAll(new ArrayList<>(entities), parallel, entity -> importForEntity(entity, incrementalImporters, context, categories));
+            // Partitioned by ontology and axiom type.  An axiom can only be in more than one ontology if there is
+            // more than one ontology.
+            List<OWLAxiom> axioms = new ArrayList<>();
+            Set<OWLAxiom> processedAxioms = ontologies.size() > 1 ? new HashSet<>() : null;
+            for (OWLOntology ontology : ontologies) {
+                for (AxiomType<?> axiomType : AxiomType.AXIOM_TYPES) {
+                    for (OWLAxiom axiom : ontology.getAxioms(axiomType)) {
+                        if (processedAxioms == null || processedAxioms.add(axiom)) {
+                            axioms.add(axiom);
+                        }
+                    }
+                }
+            }
+            putAll(axioms, parallel, axiom -> importForAxiom(axiom, incrementalImporters, context, categories));
+            putAll(new ArrayList<>(ontologies), parallel, ontology -> importForOntology(ontology, incrementalImporters, context, categories));
+        } finally {
+            if (parallel) {
+                context.releaseRenderings();
+            }
+        }
+    }
+
+    /**
+     * Imports the metadata for the keys, on the common fork-join pool if <code>parallel</code> is set, and then adds
+     * it to the index in the order of the keys, so that the index does not depend on how the work was scheduled.
+     */
+    private <K> void putAll(List<K> keys, boolean parallel, Function<K, List<SearchMetadata>> importer) {
+        List<?>[] metadata = new List<?>[keys.size()];
+        IntStream indexes = IntStream.range(0, keys.size());
+        (parallel ? indexes.parallel() : indexes).forEach(i -> metadata[i] = importer.apply(keys.get(i)));
+        for (int i = 0; i < metadata.length; i++) {
+            @SuppressWarnings("unchecked")
+            List<SearchMetadata> keyMetadata = (List<SearchMetadata>) metadata[i];
+            put(keys.get(i), keyMetadata);
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with metadata that was read from a {@link SearchMetadataIndexFile}.
+     * @param entries The metadata for entities and ontologies.
+     * @param axiomEntries The metadata for axioms.
+     * @param unmatchedAxioms Axioms whose metadata could not be matched up with them, which are imported again.
+     */
+    void restore(Map<Object, List<SearchMetadata>> entries,
+                 Map<OWLAxiom, List<SearchMetadata>> axiomEntries,
+                 Set<OWLAxiom> unmatchedAxioms,
+                 List<SearchMetadataImporter> importers,
+                 SearchMetadataImportContext context,
+                 Set<SearchCategory> categories) {
+        metadataByKey.clear();
+        unkeyedMetadata.clear();
+        nGramIndex.clear();
+        fuzzyIndex = null;
+        snapshot = null;
+        built = true;
+        List<IncrementalSearchMetadataImporter> incrementalImporters = new ArrayList<>();
+        for (SearchMetadataImporter importer : importers) {
+            incrementalImporters.add((IncrementalSearchMetadataImporter) importer);
+        }
+        entries.forEach(this::put);
+        axiomEntries.forEach(this::put);
+        boolean parallel = isBuiltIn(incrementalImporters) && !unmatchedAxioms.isEmpty();
+        if (parallel) {
+            context.prepareRenderings();
+        }
+        try {
+            putAll(new ArrayList<>(unmatchedAxioms), parallel, axiom -> importForAxiom(axiom, incrementalImporters, context, categories));
+        } finally {
+            if (parallel) {
+                context.releaseRenderings();
+            }
+        }
+    }
+
+    /**
+     * Determines whether the index can be written to a {@link SearchMetadataIndexFile}.  This is the case if it has
+     * been built and all of its metadata is keyed.
+     */
+    boolean isPersistable() {
+        return built && unkeyedMetadata.isEmpty();
+    }
+
+    /**
+     * Gets the metadata in the index by the entity, axiom or ontology that it was generated for.
+     */
+    Map<Object, List<SearchMetadata>> getEntries() {
+        return Collections.unmodifiableMap(metadataByKey);
+    }
+
+    /**
+     * Regenerates the metadata affected by ontology changes and by changes to the renderings of entities.
+     * @param changes The ontology changes that have been applied since the index was last built or updated.
+     * @param renderingChanges The entities whose rendering has changed since the index was last built or
+     * updated.  The metadata of these entities and of every axiom that refers to them is regenerated.
+     * @return <code>true</code> if the index was updated, or <code>false</code> if the changes cannot be applied
+     * incrementally and the index must be rebuilt.
+     */
+    public boolean update(Collection<? extends OWLOntologyChange> changes,
+                          Collection<OWLEntity> renderingChanges,
+                          List<SearchMetadataImporter> importers,
+                          SearchMetadataImportContext context,
+                          Set<SearchCategory> categories) {
+        if (!built || !unkeyedMetadata.isEmpty()) {
+            return false;
+        }
+        List<IncrementalSearchMetadataImporter> incrementalImporters = new ArrayList<>();
+        for (SearchMetadataImporter importer : importers) {
+            if (!(importer instanceof IncrementalSearchMetadataImporter)) {
+                return false;
+            }
+            incrementalImporters.add((IncrementalSearchMetadataImporter) importer);
+        }
+        Set<OWLOntology> ontologies = context.getOntologies();
+        Set<OWLEntity> affectedEntities = new LinkedHashSet<>(renderingChanges);
+        Set<OWLAxiom> affectedAxioms = new LinkedHashSet<>();
+        Set<OWLOntology> affectedOntologies = new LinkedHashSet<>();
+        for (OWLOntologyChange change : changes) {
+            if (!ontologies.contains(change.getOntology())) {
+                continue;
+            }
+            if (change.isAxiomChange()) {
+                OWLAxiom axiom = change.getAxiom();
+                affectedAxioms.add(axiom);
+                affectedEntities.addAll(axiom.getSignature());
+                if (axiom instanceof OWLAnnotationAssertionAxiom) {
+                    OWLAnnotationSubject subject = ((OWLAnnotationAssertionAxiom) axiom).getSubject();
+                    if (subject instanceof IRI) {
+                        for (OWLOntology ontology : ontologies) {
+                            affectedEntities.addAll(ontology.getEntitiesInSignature((IRI) subject));
+                        }
+                    }
+                }
+            }
+            else if (change instanceof AddOntologyAnnotation || change instanceof RemoveOntologyAnnotation) {
+                affectedOntologies.add(change.getOntology());
+            }
+            else {
+                // Import changes alter the set of active ontologies and ID changes alter the keys of ontologies
+                return false;
+            }
+        }
+        for (OWLEntity entity : renderingChanges) {
+            for (OWLOntology ontology : ontologies) {
+                affectedAxioms.addAll(ontology.getReferencingAxioms(entity));
+            }
+        }
+        for (OWLEntity entity : affectedEntities) {
+            if (isInSignature(entity, ontologies)) {
+                put(entity, importForEntity(entity, incrementalImporters, context, categories));
+            }
+            else {
+                remove(entity);
+            }
+        }
+        for (OWLAxiom axiom : affectedAxioms) {
+            if (containsAxiom(axiom, ontologies)) {
+                put(axiom, importForAxiom(axiom, incrementalImporters, context, categories));
+            }
+            else {
+                remove(axiom);
+            }
+        }
+        for (OWLOntology ontology : affectedOntologies) {
+            put(ontology, importForOntology(ontology, incrementalImporters, context, categories));
+        }
+        return true;
+    }
+
+    /**
+     * Gets all of the search metadata in the index.
+     * @return An unmodifiable list of the metadata.  The list is not affected by later updates.
+     */
+    public List<SearchMetadata> getSearchMetadata() {
+        if (snapshot == null) {
+            List<SearchMetadata> metadata = new ArrayList<>(unkeyedMetadata);
+            for (List<SearchMetadata> keyedMetadata : metadataByKey.values()) {
+                metadata.addAll(keyedMetadata);
+            }
+            snapshot = Collections.unmodifiableList(metadata);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the search metadata that could match a search request.
+     * @return The candidates that the n-gram index narrows the request down to, or all of the metadata in the
+     * index if the request cannot be narrowed down.  The candidates still have to be matched against the patterns
+     * of the request.
+     */
+    public List<SearchMetadata> getCandidates(SearchRequest searchRequest) {
+        return nGramIndex.getCandidates(searchRequest).orElseGet(this::getSearchMetadata);
+    }
+
+    /**
+     * Gets the display names and IRIs that are within an edit distance of a term.
+     * @return The matches, ordered by increasing distance.
+     */
+    public List<FuzzySearchIndex.Match> getFuzzyMatches(String term, int maxDistance) {
+        if (fuzzyIndex == null) {
+            fuzzyIndex = new FuzzySearchIndex();
+            getSearchMetadata().forEach(fuzzyIndex::add);
+        }
+        return fuzzyIndex.search(term, maxDistance);
+    }
+
+    private void put(Object key, List<SearchMetadata> metadata) {
+        List<SearchMetadata> previous = metadata.isEmpty() ? metadataByKey.remove(key) : metadataByKey.put(key, metadata);
+        if (previous != null) {
+            removeFromSearchIndexes(previous);
+        }
+        metadata.forEach(nGramIndex::add);
+        if (fuzzyIndex != null) {
+            metadata.forEach(fuzzyIndex::add);
+        }
+        if (previous != null || !metadata.isEmpty()) {
+            snapshot = null;
+        }
+    }
+
+    private void remove(Object key) {
+        List<SearchMetadata> previous = metadataByKey.remove(key);
+        if (previous != null) {
+            removeFromSearchIndexes(previous);
+            snapshot = null;
+        }
+    }
+
+    private void removeFromSearchIndexes(List<SearchMetadata> metadata) {
+        metadata.forEach(nGramIndex::remove);
+        if (fuzzyIndex != null) {
+            metadata.forEach(fuzzyIndex::remove);
+        }
+    }
+
+    /**
+     * Determines whether the importers are all built in, and so are known to be safe to run in parallel.  Importers
+     * from plugins, including subclasses of the built in ones, are run on the calling thread rather than on the
+     * common fork-join pool.
+     */
+    private static boolean isBuiltIn(List<IncrementalSearchMetadataImporter> importers) {
+        for (IncrementalSearchMetadataImporter importer : importers) {
+            if (importer.getClass() != DefaultSearchMetadataImporter.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInSignature(OWLEntity entity, Set<OWLOntology> ontologies) {
+        for (OWLOntology ontology : ontologies) {
+            if (ontology.containsEntityInSignature(entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAxiom(OWLAxiom axiom, Set<OWLOntology> ontologies) {
+        for (OWLOntology ontology : ontologies) {
+            if (ontology.containsAxiom(axiom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<SearchMetadata> importForEntity(OWLEntity entity, List<IncrementalSearchMetadataImporter> importers, SearchMetadataImportContext context, Set<SearchCategory> categories) {
+        SearchMetadataDB db = new SearchMetadataDB();
+        for (IncrementalSearchMetadataImporter importer : importers) {
+            importer.getSearchMetadataForEntity(entity, categories, context, db);
+        }
+        return db.getResults();
+    }
+
+    private static List<SearchMetadata> importForAxiom(OWLAxiom axiom, List<IncrementalSearchMetadataImporter> importers, SearchMetadataImportContext context, Set<SearchCategory> categories) {
+        SearchMetadataDB db = new SearchMetadataDB();
+        for (IncrementalSearchMetadataImporter importer : importers) {
+            importer.getSearchMetadataForAxiom(axiom, categories, context, db);
+        }
+        return db.getResults();
+    }
+
+    private static List<SearchMetadata> importForOntology(OWLOntology ontology, List<IncrementalSearchMetadataImporter> importers, SearchMetadataImportContext context, Set<SearchCategory> categories) {
+        SearchMetadataDB db = new SearchMetadataDB();
+        for (IncrementalSearchMetadataImporter importer : importers) {
+            importer.getSearchMetadataForOntology(ontology, categories, context, db);
+        }
+        return db.getResults();
+    }
+}
@@ -0,0 +1,480 @@
+package org.protege.editor.owl.model.search;
+
+import org.protege.editor.core.util.ProtegeDirectories;
+import org.protege.editor.owl.OWLEditorKit;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.protege.editor.owl.ui.renderer.styledstring.StyledString;
+import org.semanticweb.owlapi.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A snapshot of a {@link SearchMetadataIndex} on disk, so that the first search after an ontology has been opened
+ * does not have to re-render the whole import closure.
+ * <p>
+ * The snapshot is keyed by a digest of the search categories, the importers and, for every ontology in the imports
+ * closure, its id and the sorted digests of its axioms, annotations, imports declarations and the renderings of the
+ * entities in its signature.  A snapshot whose key does not match the current state is ignored.  Metadata that was generated for an
+ * axiom is stored with the hash code of the axiom and is matched up with the axiom again when it is read; the few
+ * axioms whose hash codes clash are imported again.
+ * </p>
+ * <p>
+ * The file is written in a single pass with each string stored once, and it is read into a heap buffer in one go.
+ * It is not memory mapped, because a mapping keeps the file open until the buffer is collected, and on Windows a
+ * file that is open cannot be replaced when the snapshot is written again.
+ * </p>
+ */
+public class SearchMetadataIndexFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchMetadataIndexFile.class);
+
+    private static final int MAGIC = 0x50534958;
+
+    private static final int VERSION = 2;
+
+    private static final byte END = 0;
+
+    private static final byte ENTITY = 1;
+
+    private static final byte AXIOM = 2;
+
+    private static final byte ONTOLOGY = 3;
+
+    private final Path file;
+
+    public SearchMetadataIndexFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the snapshot file for the active ontology of an editor kit.  Snapshots are kept in the Protege data
+     * directory, named after the document IRI of the active ontology.
+     * @return The file, or an empty optional if the active ontology does not have a document IRI.
+     */
+    public static Optional<SearchMetadataIndexFile> forActiveOntology(OWLEditorKit editorKit) {
+        OWLModelManager modelManager = editorKit.getOWLModelManager();
+        OWLOntology activeOntology = modelManager.getActiveOntology();
+        if (activeOntology == null) {
+            return Optional.empty();
+        }
+        IRI documentIRI = modelManager.getOWLOntologyManager().getOntologyDocumentIRI(activeOntology);
+        if (documentIRI == null) {
+            return Optional.empty();
+        }
+        String name = toHex(digest().digest(documentIRI.toString().getBytes(StandardCharsets.UTF_8))).substring(0, 32);
+        Path directory = ProtegeDirectories.getDataDirectory().toPath().resolve("search-index");
+        return Optional.of(new SearchMetadataIndexFile(directory.resolve(name + ".idx")));
+    }
+
+    public Path getPath() {
+        return file;
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete the search index at {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes an index to the file, replacing any earlier snapshot.
+     * @return <code>true</code> if the index was written, or <code>false</code> if it holds metadata that cannot be
+     * stored or could not be written.
+     */
+    public boolean write(SearchMetadataIndex index,
+                         List<SearchMetadataImporter> importers,
+                         SearchMetadataImportContext context,
+                         Set<SearchCategory> categories) {
+        if (!index.isPersistable()) {
+            return false;
+        }
+        List<OWLOntology> ontologies = sortedOntologies(context);
+        Map<OWLOntology, Integer> ontologyIndexes = new HashMap<>();
+        for (int i = 0; i < ontologies.size(); i++) {
+            ontologyIndexes.put(ontologies.get(i), i);
+        }
+        byte[] key = computeKey(ontologies, importers, context, categories);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(key);
+                StringWriter strings = new StringWriter(out);
+                for (Map.Entry<Object, List<SearchMetadata>> entry : index.getEntries().entrySet()) {
+                    Object entryKey = entry.getKey();
+                    if (entryKey instanceof OWLEntity) {
+                        out.writeByte(ENTITY);
+                        writeEntity((OWLEntity) entryKey, out, strings);
+                    }
+                    else if (entryKey instanceof OWLAxiom) {
+                        out.writeByte(AXIOM);
+                        out.writeInt(entryKey.hashCode());
+                    }
+                    else {
+                        out.writeByte(ONTOLOGY);
+                        out.writeInt(ontologyIndexes.get(entryKey));
+                    }
+                    out.writeInt(entry.getValue().size());
+                    for (SearchMetadata metadata : entry.getValue()) {
+                        OWLObject subject = metadata.getSubject();
+                        if (!(subject instanceof OWLEntity) && !ontologyIndexes.containsKey(subject)) {
+                            logger.info("The search index cannot be saved because it refers to {}", subject);
+                            return false;
+                        }
+                        out.writeByte(metadata.getCategory().ordinal());
+                        strings.write(metadata.getGroupDescription());
+                        if (subject instanceof OWLEntity) {
+                            out.writeByte(ENTITY);
+                            writeEntity((OWLEntity) subject, out, strings);
+                        }
+                        else {
+                            out.writeByte(ONTOLOGY);
+                            out.writeInt(ontologyIndexes.get(subject));
+                        }
+                        strings.write(metadata.getSubjectRendering());
+                        strings.write(metadata.getSearchString());
+                    }
+                }
+                out.writeByte(END);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not save the search index to {}: {}", file, e.getMessage());
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.debug("Could not delete {}", temp);
+            }
+        }
+    }
+
+    /**
+     * Reads the snapshot into an index, provided that the snapshot was written for the current state of the
+     * ontologies.
+     * @return <code>true</code> if the index was loaded, or <code>false</code> if there is no snapshot or it is out
+     * of date or unreadable, in which case the index is left as it was.
+     */
+    public boolean read(SearchMetadataIndex index,
+                        List<SearchMetadataImporter> importers,
+                        SearchMetadataImportContext context,
+                        Set<SearchCategory> categories) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        for (SearchMetadataImporter importer : importers) {
+            if (!(importer instanceof IncrementalSearchMetadataImporter)) {
+                return false;
+            }
+        }
+        List<OWLOntology> ontologies = sortedOntologies(context);
+        byte[] key = computeKey(ontologies, importers, context, categories);
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the whole file
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return false;
+            }
+            byte[] storedKey = new byte[key.length];
+            buffer.get(storedKey);
+            if (!Arrays.equals(key, storedKey)) {
+                logger.info("The saved search index is out of date");
+                return false;
+            }
+            if (ontologies.isEmpty()) {
+                return false;
+            }
+            OWLDataFactory dataFactory = ontologies.get(0).getOWLOntologyManager().getOWLDataFactory();
+            StringReader strings = new StringReader(buffer);
+            Map<Object, List<SearchMetadata>> entries = new LinkedHashMap<>();
+            Map<Integer, List<SearchMetadata>> axiomEntries = new HashMap<>();
+            Set<Integer> clashingAxiomHashes = new HashSet<>();
+            byte kind;
+            while ((kind = buffer.get()) != END) {
+                Object entryKey;
+                if (kind == ENTITY) {
+                    entryKey = readEntity(buffer, strings, dataFactory);
+                }
+                else if (kind == AXIOM) {
+                    entryKey = buffer.getInt();
+                }
+                else {
+                    entryKey = ontologies.get(buffer.getInt());
+                }
+                int count = buffer.getInt();
+                List<SearchMetadata> metadata = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    metadata.add(readMetadata(buffer, strings, dataFactory, ontologies));
+                }
+                if (kind == AXIOM) {
+                    if (axiomEntries.put((Integer) entryKey, metadata) != null) {
+                        clashingAxiomHashes.add((Integer) entryKey);
+                    }
+                }
+                else {
+                    entries.put(entryKey, metadata);
+                }
+            }
+            Map<OWLAxiom, List<SearchMetadata>> axiomMetadata = new LinkedHashMap<>();
+            Set<OWLAxiom> unmatchedAxioms = new LinkedHashSet<>();
+            matchAxioms(axiomEntries, clashingAxiomHashes, ontologies, context, axiomMetadata, unmatchedAxioms);
+            index.restore(entries, axiomMetadata, unmatchedAxioms, importers, context, categories);
+            return true;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            logger.warn("Could not read the search index from {}: {}", file, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Matches the stored axiom metadata up with the axioms in the ontologies by hash code.  Axioms whose hash code
+     * is shared with another axiom, in the ontologies or in the snapshot, are left for {@link SearchMetadataIndex}
+     * to import again.
+     */
+    private static void matchAxioms(Map<Integer, List<SearchMetadata>> axiomEntries,
+                                    Set<Integer> clashingAxiomHashes,
+                                    List<OWLOntology> ontologies,
+                                    SearchMetadataImportContext context,
+                                    Map<OWLAxiom, List<SearchMetadata>> matched,
+                                    Set<OWLAxiom> unmatched) {
+        Map<Integer, OWLAxiom> axiomsByHash = new HashMap<>();
+        for (OWLOntology ontology : ontologies) {
+            for (OWLAxiom axiom : ontology.getAxioms()) {
+                OWLAxiom previous = axiomsByHash.putIfAbsent(axiom.hashCode(), axiom);
+                if (previous != null && !previous.equals(axiom)) {
+                    clashingAxiomHashes.add(axiom.hashCode());
+                }
+            }
+        }
+        for (Map.Entry<Integer, OWLAxiom> entry : axiomsByHash.entrySet()) {
+            List<SearchMetadata> metadata = axiomEntries.get(entry.getKey());
+            if (metadata != null && !clashingAxiomHashes.contains(entry.getKey())) {
+                matched.put(entry.getValue(), withAxiomRendering(metadata, entry.getValue(), context));
+            }
+        }
+        if (clashingAxiomHashes.isEmpty()) {
+            return;
+        }
+        for (OWLOntology ontology : ontologies) {
+            for (OWLAxiom axiom : ontology.getAxioms()) {
+                if (clashingAxiomHashes.contains(axiom.hashCode())) {
+                    unmatched.add(axiom);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores the styled rendering of logical axiom metadata, which is generated from the axiom when it is
+     * displayed.
+     */
+    private static List<SearchMetadata> withAxiomRendering(List<SearchMetadata> metadata,
+                                                           OWLAxiom axiom,
+                                                           SearchMetadataImportContext context) {
+        List<SearchMetadata> result = new ArrayList<>(metadata.size());
+        for (SearchMetadata md : metadata) {
+            if (md.getCategory() != SearchCategory.LOGICAL_AXIOM) {
+                result.add(md);
+                continue;
+            }
+            result.add(new SearchMetadata(md.getCategory(), md.getGroupDescription(), md.getSubject(), md.getSubjectRendering(), md.getSearchString()) {
+                @Override
+                public StyledString getStyledSearchSearchString() {
+                    return context.getStyledStringRendering(axiom);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static SearchMetadata readMetadata(ByteBuffer buffer,
+                                               StringReader strings,
+                                               OWLDataFactory dataFactory,
+                                               List<OWLOntology> ontologies) {
+        SearchCategory category = SearchCategory.values()[buffer.get()];
+        String groupDescription = strings.read();
+        OWLObject subject;
+        if (buffer.get() == ENTITY) {
+            subject = readEntity(buffer, strings, dataFactory);
+        }
+        else {
+            subject = ontologies.get(buffer.getInt());
+        }
+        String subjectRendering = strings.read();
+        String searchString = strings.read();
+        return new SearchMetadata(category, groupDescription, subject, subjectRendering, searchString);
+    }
+
+    private static void writeEntity(OWLEntity entity, DataOutputStream out, StringWriter strings) throws IOException {
+        out.writeByte(EntityType.values().indexOf(entity.getEntityType()));
+        strings.write(entity.getIRI().toString());
+    }
+
+    private static OWLEntity readEntity(ByteBuffer buffer, StringReader strings, OWLDataFactory dataFactory) {
+        EntityType<?> entityType = EntityType.values().get(buffer.get());
+        return dataFactory.getOWLEntity(entityType, IRI.create(strings.read()));
+    }
+
+    private static List<OWLOntology> sortedOntologies(SearchMetadataImportContext context) {
+        List<OWLOntology> ontologies = new ArrayList<>(context.getOntologies());
+        ontologies.sort(Comparator.comparing(ontology -> ontology.getOntologyID().toString()));
+        return ontologies;
+    }
+
+    private static byte[] computeKey(List<OWLOntology> ontologies,
+                                     List<SearchMetadataImporter> importers,
+                                     SearchMetadataImportContext context,
+                                     Set<SearchCategory> categories) {
+        MessageDigest digest = digest();
+        StringBuilder header = new StringBuilder();
+        header.append(VERSION);
+        new TreeSet<>(categories).forEach(category -> header.append(' ').append(category.name()));
+        importers.forEach(importer -> header.append(' ').append(importer.getClass().getName()));
+        digest.update(header.toString().getBytes(StandardCharsets.UTF_8));
+        MessageDigest itemDigest = digest();
+        for (OWLOntology ontology : ontologies) {
+            digest.update(ontology.getOntologyID().toString().getBytes(StandardCharsets.UTF_8));
+            List<byte[]> axiomDigests = new ArrayList<>();
+            for (OWLAxiom axiom : ontology.getAxioms()) {
+                axiomDigests.add(digestOf(itemDigest, axiom.toString()));
+            }
+            List<byte[]> annotationDigests = new ArrayList<>();
+            for (OWLAnnotation annotation : ontology.getAnnotations()) {
+                annotationDigests.add(digestOf(itemDigest, annotation.toString()));
+            }
+            for (OWLImportsDeclaration importsDeclaration : ontology.getImportsDeclarations()) {
+                annotationDigests.add(digestOf(itemDigest, importsDeclaration.toString()));
+            }
+            List<byte[]> renderingDigests = new ArrayList<>();
+            for (OWLEntity entity : ontology.getSignature()) {
+                renderingDigests.add(digestOf(itemDigest, entity + "\t" + context.getRendering(entity)));
+            }
+            updateSorted(digest, axiomDigests);
+            updateSorted(digest, annotationDigests);
+            updateSorted(digest, renderingDigests);
+        }
+        return digest.digest();
+    }
+
+    private static byte[] digestOf(MessageDigest digest, String s) {
+        return digest.digest(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Adds the count and then the digests, in a canonical order, to a digest.
+     */
+    private static void updateSorted(MessageDigest digest, List<byte[]> digests) {
+        digests.sort(SearchMetadataIndexFile::compareDigests);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(digests.size()).array());
+        for (byte[] d : digests) {
+            digest.update(d);
+        }
+    }
+
+    private static int compareDigests(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = Byte.compare(a[i], b[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes each distinct string once.  A string is written as its id, followed by its UTF-8 bytes the first time
+     * that it is written.
+     */
+    private static class StringWriter {
+
+        private final DataOutputStream out;
+
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        private StringWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void write(String s) throws IOException {
+            Integer id = ids.get(s);
+            if (id != null) {
+                out.writeInt(id);
+                return;
+            }
+            id = ids.size();
+            ids.put(s, id);
+            out.writeInt(id);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static class StringReader {
+
+        private final ByteBuffer buffer;
+
+        private final List<String> strings = new ArrayList<>();
+
+        private StringReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        String read() {
+            int id = buffer.getInt();
+            if (id < strings.size()) {
+                return strings.get(id);
+            }
+            if (id != strings.size()) {
+                throw new IllegalArgumentException("Corrupt string table");
+            }
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            String s = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(s);
+            return s;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.protege.editor.owl.model.search;
 
 import com.google.common.collect.ImmutableList;
 
+import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
@@ -18,12 +19,65 @@ public class SearchRequest {
 
     private ImmutableList<Pattern> searchPatterns;
 
+    private int offset;
+
+    private int limit;
+
+    private String fuzzyTerm;
+
+    private int maxEditDistance;
+
     /**
-     * Constructs a search request from a regular expression pattern.
+     * Constructs a search request from a regular expression pattern.  All of the matches are returned, in the
+     * order in which they are found.
      * @param searchPatterns A list of search patterns.  All patterns must be matched for the search to succeed.
      */
     public SearchRequest(ImmutableList<Pattern> searchPatterns) {
+        this(searchPatterns, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a search request for a page of the best matches for a regular expression pattern.  The matches are
+     * ranked with a {@link SearchResultComparator} and only the best <code>offset + limit</code> of them are kept
+     * while searching, so the memory that a search uses does not depend on the number of matches.
+     * @param searchPatterns A list of search patterns.  All patterns must be matched for the search to succeed.
+     * @param offset The number of best matches to skip.
+     * @param limit The maximum number of matches to return.
+     */
+    public SearchRequest(ImmutableList<Pattern> searchPatterns, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("The offset and limit must not be negative");
+        }
         this.searchPatterns = searchPatterns;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Constructs a fuzzy search request, which finds the entities whose display name or IRI short form is within an
+     * edit distance of a term, ignoring case.  The matches are ranked by their distance to the term.
+     * @param term The term.
+     * @param maxEditDistance The maximum Levenshtein distance between the term and a match.
+     */
+    public static SearchRequest fuzzy(String term, int maxEditDistance) {
+        return fuzzy(term, maxEditDistance, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a fuzzy search request for a page of the best matches.
+     * @param term The term.
+     * @param maxEditDistance The maximum Levenshtein distance between the term and a match.
+     * @param offset The number of best matches to skip.
+     * @param limit The maximum number of matches to return.
+     */
+    public static SearchRequest fuzzy(String term, int maxEditDistance, int offset, int limit) {
+        if (maxEditDistance < 0) {
+            throw new IllegalArgumentException("The edit distance must not be negative");
+        }
+        SearchRequest request = new SearchRequest(ImmutableList.of(Pattern.compile(Pattern.quote(term), Pattern.CASE_INSENSITIVE)), offset, limit);
+        request.fuzzyTerm = term;
+        request.maxEditDistance = maxEditDistance;
+        return request;
     }
 
     /**
@@ -34,9 +88,40 @@ public class SearchRequest {
         return searchPatterns;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isFuzzy() {
+        return fuzzyTerm != null;
+    }
+
+    /**
+     * Gets the term of a fuzzy search request.
+     * @return The term, or <code>null</code> if this is not a fuzzy search request.
+     */
+    public String getFuzzyTerm() {
+        return fuzzyTerm;
+    }
+
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+
+    /**
+     * Determines whether this request asks for a ranked page of matches rather than for all of them.
+     */
+    public boolean isPaged() {
+        return offset != 0 || limit != Integer.MAX_VALUE;
+    }
+
     @Override
     public int hashCode() {
-        return SearchRequest.class.getSimpleName().hashCode() + this.searchPatterns.hashCode();
+        return SearchRequest.class.getSimpleName().hashCode() + this.searchPatterns.hashCode() + 31 * offset + limit + Objects.hashCode(fuzzyTerm) + maxEditDistance;
     }
 
     @Override
@@ -48,6 +133,7 @@ public class SearchRequest {
             return false;
         }
         SearchRequest other = (SearchRequest) obj;
-        return this.searchPatterns.equals(other.searchPatterns);
+        return this.searchPatterns.equals(other.searchPatterns) && this.offset == other.offset && this.limit == other.limit
+                && Objects.equals(this.fuzzyTerm, other.fuzzyTerm) && this.maxEditDistance == other.maxEditDistance;
     }
 }
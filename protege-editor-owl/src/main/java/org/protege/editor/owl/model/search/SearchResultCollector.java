@@ -0,0 +1,82 @@
+package org.protege.editor.owl.model.search;
+
+import java.util.*;
+
+/**
+ * Collects the matches of a search.  For a paged {@link SearchRequest} only the best <code>offset + limit</code>
+ * matches are kept, in a bounded heap whose head is the worst of them, so collecting takes constant memory and
+ * logarithmic time per match.  For a request that is not paged the matches are kept only if the result list is
+ * required; otherwise they are only counted.
+ */
+class SearchResultCollector {
+
+    private final SearchRequest searchRequest;
+
+    private final Comparator<SearchResult> comparator;
+
+    private final int capacity;
+
+    private final List<SearchResult> results;
+
+    private final PriorityQueue<SearchResult> bestResults;
+
+    private int matchCount = 0;
+
+    SearchResultCollector(SearchRequest searchRequest, Comparator<SearchResult> comparator) {
+        this(searchRequest, comparator, true);
+    }
+
+    SearchResultCollector(SearchRequest searchRequest, Comparator<SearchResult> comparator, boolean resultListRequired) {
+        this.searchRequest = searchRequest;
+        this.comparator = comparator;
+        if (searchRequest.isPaged()) {
+            long capacity = (long) searchRequest.getOffset() + searchRequest.getLimit();
+            this.capacity = (int) Math.min(capacity, Integer.MAX_VALUE);
+            this.results = null;
+            this.bestResults = new PriorityQueue<>(Math.min(this.capacity, 1024) + 1, comparator.reversed());
+        }
+        else {
+            this.capacity = Integer.MAX_VALUE;
+            this.results = resultListRequired ? new ArrayList<>() : null;
+            this.bestResults = null;
+        }
+    }
+
+    public void add(SearchResult result) {
+        matchCount++;
+        if (bestResults == null) {
+            if (results != null) {
+                results.add(result);
+            }
+        }
+        else if (bestResults.size() < capacity) {
+            bestResults.add(result);
+        }
+        else if (capacity > 0 && comparator.compare(result, bestResults.peek()) < 0) {
+            bestResults.poll();
+            bestResults.add(result);
+        }
+    }
+
+    /**
+     * Gets the number of matches that have been collected, including those that were not kept.
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Gets the results.
+     * @return All of the matches, in the order in which they were found, or, for a paged request, the requested
+     * page of the ranked matches.  This is empty for a request that is not paged if the result list is not required.
+     */
+    public List<SearchResult> getResults() {
+        if (bestResults == null) {
+            return results != null ? results : Collections.emptyList();
+        }
+        List<SearchResult> ranked = new ArrayList<>(bestResults);
+        ranked.sort(comparator);
+        int from = Math.min(searchRequest.getOffset(), ranked.size());
+        return new ArrayList<>(ranked.subList(from, ranked.size()));
+    }
+}
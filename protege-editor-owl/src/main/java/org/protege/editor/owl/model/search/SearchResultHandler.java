@@ -10,5 +10,36 @@ import java.util.List;
  */
 public interface SearchResultHandler {
 
+    /**
+     * Called on the event dispatch thread when a search has finished.
+     * @param searchResults All of the matches or, for a paged {@link SearchRequest}, the requested page of the
+     * ranked matches.
+     */
     void searchFinished(List<SearchResult> searchResults);
+
+    /**
+     * Called on the event dispatch thread with chunks of matches as they are found, before
+     * {@link #searchFinished(List)}.  The chunks are not ranked.
+     * @param searchResults The matches found since the previous chunk.
+     */
+    default void searchResultsFound(List<SearchResult> searchResults) {
+    }
+
+    /**
+     * Determines whether the search should stop early.  A cancelled search does not call
+     * {@link #searchFinished(List)}.  This is called from the search thread.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Determines whether {@link #searchFinished(List)} needs all of the matches of a {@link SearchRequest} that is
+     * not paged.  A handler that takes them from {@link #searchResultsFound(List)} instead can return
+     * <code>false</code>, so that the search does not keep them, and is then given no matches when the search
+     * finishes.
+     */
+    default boolean isResultListRequired() {
+        return true;
+    }
 }
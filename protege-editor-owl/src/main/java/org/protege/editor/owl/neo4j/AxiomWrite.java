@@ -0,0 +1,47 @@
+package org.protege.editor.owl.neo4j;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * The Cypher rows that mirror the addition or removal of one axiom in one ontology.
+ */
+public final class AxiomWrite {
+
+    private final OWLOntologyID ontologyID;
+
+    private final OWLAxiom axiom;
+
+    private final boolean isAdd;
+
+    private final List<CypherRow> rows;
+
+    public AxiomWrite(@Nonnull OWLOntologyID ontologyID, @Nonnull OWLAxiom axiom, boolean isAdd, @Nonnull List<CypherRow> rows) {
+        this.ontologyID = ontologyID;
+        this.axiom = axiom;
+        this.isAdd = isAdd;
+        this.rows = rows;
+    }
+
+    @Nonnull
+    public OWLOntologyID getOntologyID() {
+        return ontologyID;
+    }
+
+    @Nonnull
+    public OWLAxiom getAxiom() {
+        return axiom;
+    }
+
+    public boolean isAdd() {
+        return isAdd;
+    }
+
+    @Nonnull
+    public List<CypherRow> getRows() {
+        return rows;
+    }
+}
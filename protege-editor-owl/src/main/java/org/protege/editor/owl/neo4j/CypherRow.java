@@ -0,0 +1,29 @@
+package org.protege.editor.owl.neo4j;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+
+/**
+ * A single row of parameters for a {@link CypherStatement}.
+ */
+public final class CypherRow {
+
+    private final CypherStatement statement;
+
+    private final Map<String, Object> parameters;
+
+    public CypherRow(@Nonnull CypherStatement statement, @Nonnull Map<String, Object> parameters) {
+        this.statement = statement;
+        this.parameters = parameters;
+    }
+
+    @Nonnull
+    public CypherStatement getStatement() {
+        return statement;
+    }
+
+    @Nonnull
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+}
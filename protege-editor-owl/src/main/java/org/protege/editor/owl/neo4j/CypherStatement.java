@@ -0,0 +1,92 @@
+package org.protege.editor.owl.neo4j;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * A parameterized Cypher statement that consumes a list of rows through {@code UNWIND $rows AS row}.
+ * Statements are compared by their query text so that rows for the same statement can be sent together.
+ */
+public final class CypherStatement {
+
+    /**
+     * The order in which statements of a single batch are executed.  Nodes are created before the
+     * relationships that match them and relationships are removed before the nodes they connect.
+     */
+    public enum Phase {
+        ADD_NODES,
+        ADD_RELATIONSHIPS,
+        REMOVE_RELATIONSHIPS,
+        REMOVE_NODES
+    }
+
+    public static final String ROWS_PARAMETER = "rows";
+
+    private static final String UNWIND_ROWS = "UNWIND $" + ROWS_PARAMETER + " AS row ";
+
+    private final Phase phase;
+
+    private final String query;
+
+    private CypherStatement(@Nonnull Phase phase, @Nonnull String query) {
+        this.phase = phase;
+        this.query = query;
+    }
+
+    /**
+     * Creates a statement whose body refers to the current row as {@code row}.
+     */
+    @Nonnull
+    public static CypherStatement unwind(@Nonnull Phase phase, @Nonnull String body) {
+        return new CypherStatement(phase, UNWIND_ROWS + body);
+    }
+
+    /**
+     * Recreates a statement from its phase and complete query, for example when it is read back from
+     * the write journal.
+     */
+    @Nonnull
+    static CypherStatement fromQuery(@Nonnull Phase phase, @Nonnull String query) {
+        return new CypherStatement(phase, query);
+    }
+
+    /**
+     * Quotes a relationship type or property name so that it can be safely embedded in a query.
+     */
+    @Nonnull
+    public static String quoteIdentifier(@Nonnull String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    @Nonnull
+    public Phase getPhase() {
+        return phase;
+    }
+
+    @Nonnull
+    public String getQuery() {
+        return query;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CypherStatement)) {
+            return false;
+        }
+        CypherStatement other = (CypherStatement) o;
+        return phase == other.phase && query.equals(other.query);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(phase, query);
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+}
@@ -1,6 +1,11 @@
 package org.protege.editor.owl.neo4j;
 
+import java.util.List;
+
 @FunctionalInterface
 public interface ElementEventHandler {
-    void call(ElementEvent value);
+    /**
+     * Called on the event dispatch thread with every event that arrived since the previous call.
+     */
+    void call(List<ElementEvent> values);
 }
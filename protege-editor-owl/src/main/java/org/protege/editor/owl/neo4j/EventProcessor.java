@@ -2,6 +2,9 @@ package org.protege.editor.owl.neo4j;
 
 import org.semanticweb.owlapi.model.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class EventProcessor {
     private final OWLOntologyManager manager;
     private final OWLOntology ontology;
@@ -14,40 +17,62 @@ public class EventProcessor {
     }
 
     public void process(ElementEvent event) {
+        manager.applyChange(toChange(event));
+    }
+
+    /**
+     * Applies all of the given events as a single list of changes.
+     */
+    public void processAll(List<ElementEvent> events) {
+        List<OWLOntologyChange> changes = new ArrayList<>(events.size());
+        for (ElementEvent event : events) {
+            changes.add(toChange(event));
+        }
+        if (!changes.isEmpty()) {
+            manager.applyChanges(changes);
+        }
+    }
+
+    private OWLOntologyChange toChange(ElementEvent event) {
         IRI iri = ontology.getOntologyID().getDefaultDocumentIRI().get();
 
         OWLAxiom axiom = null;
 
         switch (event.type) {
             case "Class":
-                String className = event.props.get("name");
-                OWLClass owlClass = factory.getOWLClass(IRI.create(iri + "#" + className));
+                OWLClass owlClass = factory.getOWLClass(getEntityIRI(event, iri));
                 axiom = factory.getOWLDeclarationAxiom(owlClass);
                 break;
             case "ObjectProperty":
-                String objPropName = event.props.get("name");
-                OWLObjectProperty objProp = factory.getOWLObjectProperty(IRI.create(iri + "#" + objPropName));
+                OWLObjectProperty objProp = factory.getOWLObjectProperty(getEntityIRI(event, iri));
                 axiom = factory.getOWLDeclarationAxiom(objProp);
                 break;
             case "DataProperty":
-                String dataPropName = event.props.get("name");
-                OWLDataProperty dataProp = factory.getOWLDataProperty(IRI.create(iri + "#" + dataPropName));
+                OWLDataProperty dataProp = factory.getOWLDataProperty(getEntityIRI(event, iri));
                 axiom = factory.getOWLDeclarationAxiom(dataProp);
                 break;
             case "Individual":
-                String individualName = event.props.get("name");
-                OWLNamedIndividual individual = factory.getOWLNamedIndividual(IRI.create(iri + "#" + individualName));
+                OWLNamedIndividual individual = factory.getOWLNamedIndividual(getEntityIRI(event, iri));
                 axiom = factory.getOWLDeclarationAxiom(individual);
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported element type: " + event.type);
         }
 
-        OWLOntologyChange change = event.isAdd
+        return event.isAdd
                 ? new AddAxiom(ontology, axiom)
                 : new RemoveAxiom(ontology, axiom);
+    }
 
-        manager.applyChange(change);
+    /**
+     * Gets the IRI of the element.  Events from peers that send the full IRI are used as is; otherwise
+     * the name is resolved against the ontology.
+     */
+    private static IRI getEntityIRI(ElementEvent event, IRI ontologyIRI) {
+        String iri = event.props.get("iri");
+        if (iri != null) {
+            return IRI.create(iri);
+        }
+        return IRI.create(ontologyIRI + "#" + event.props.get("name"));
     }
 }
-
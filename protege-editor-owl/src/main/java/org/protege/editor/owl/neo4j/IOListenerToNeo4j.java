@@ -2,37 +2,55 @@ package org.protege.editor.owl.neo4j;
 
 import org.protege.editor.owl.model.io.IOListener;
 import org.protege.editor.owl.model.io.IOListenerEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
 
 public class IOListenerToNeo4j extends IOListener {
-    private final Neo4jManager neo4jManager;
 
-    public IOListenerToNeo4j(Neo4jManager neo4jManager) {
-        this.neo4jManager = neo4jManager;
+    private static final Logger logger = LoggerFactory.getLogger(IOListenerToNeo4j.class);
+
+    /**
+     * How long a load or save waits for pending writes.  These events are fired on the event dispatch
+     * thread, so they must not wait for a reconnect; writes that are still pending stay in the journal.
+     */
+    private static final long FLUSH_TIMEOUT_MS = 2_000;
+
+    private final Neo4jWritePipeline writePipeline;
+
+    public IOListenerToNeo4j(Neo4jWritePipeline writePipeline) {
+        this.writePipeline = writePipeline;
     }
 
     @Override
     public void beforeLoad(IOListenerEvent event) {
-        if (neo4jManager != null) {
-            neo4jManager.disconnect();
-        }
+        // The connection stays open across loads; only make sure pending writes are not interleaved
+        // with the changes of the load
+        flush();
     }
 
     @Override
     public void afterLoad(IOListenerEvent event) {
-        if (neo4jManager != null) {
-            neo4jManager.connect();
-        }
+        // Nothing
     }
 
 
     @Override
     public void beforeSave(IOListenerEvent event) {
-        // Nothing
+        // Make sure the graph reflects everything that is about to be saved
+        flush();
     }
 
     @Override
     public void afterSave(IOListenerEvent event) {
         // Nothing
     }
-}
 
+    private void flush() {
+        if (writePipeline != null && !writePipeline.flush(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            logger.info("{} ontology changes have not been written to Neo4j yet.  They will be written from the journal.",
+                        writePipeline.getPendingCount());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.protege.editor.owl.neo4j;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The node property that identifies an entity in the graph.
+ */
+public enum Neo4jGraphKey {
+
+    /**
+     * Nodes are identified by the short form of the entity IRI.  Entities from different namespaces
+     * with the same local name share a node.
+     */
+    BY_NAME("name"),
+
+    /**
+     * Nodes are identified by the full entity IRI, which is backed by a uniqueness constraint.
+     */
+    BY_IRI("iri");
+
+    private final String property;
+
+    Neo4jGraphKey(String property) {
+        this.property = property;
+    }
+
+    /**
+     * Gets the name of the node property that holds the key.
+     */
+    @Nonnull
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Gets the key value of the entity with the given IRI.
+     */
+    @Nonnull
+    public String getKey(@Nonnull IRI iri) {
+        return this == BY_IRI ? iri.toString() : getShortForm(iri);
+    }
+
+    /**
+     * Gets the IRI of the entity with the given key.  Name keys, and IRI keys that are not absolute
+     * (for example relationship types that carry the short form of a property), are resolved against
+     * the namespace.
+     */
+    @Nonnull
+    public IRI toIRI(@Nonnull String key, @Nonnull String namespace) {
+        IRI iri = IRI.create(key);
+        return this == BY_IRI && iri.isAbsolute() ? iri : IRI.create(namespace + key);
+    }
+
+    @Nonnull
+    public static String getShortForm(@Nonnull IRI iri) {
+        String iriString = iri.toString();
+        int lastIndex = iriString.lastIndexOf('#');
+
+        if (lastIndex == -1) {
+            lastIndex = iriString.lastIndexOf('/');
+        }
+
+        return lastIndex != -1 ? iriString.substring(lastIndex + 1) : iriString;
+    }
+}
@@ -1,56 +1,311 @@
 package org.protege.editor.owl.neo4j;
 
 import org.neo4j.driver.*;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the driver for the graph.
+ * <p>
+ * Sessions are short-lived and come from the driver's connection pool, see {@link #openSession()}.  A
+ * background monitor probes the connection at a fixed interval, records the round trip latency and,
+ * when the graph cannot be reached, replaces the driver with increasing delays until it can.  Writes
+ * that go through {@link #write(TransactionWork)} survive a failover: they wait for the connection to
+ * come back and are then retried.
+ */
 public class Neo4jManager implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(Neo4jManager.class);
 
-    private Driver driver;
-    private Session session;
+    private static final long INITIAL_RECONNECT_DELAY_MS = 500;
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private static final long MAX_TRANSACTION_RETRY_TIME_MS = 15_000;
+
+    private static final long CONNECTION_ACQUISITION_TIMEOUT_MS = 30_000;
+
+    private static final long CONNECTION_TIMEOUT_MS = 5_000;
 
     private final Neo4jConfigData config;
 
+    private final Object connectionLock = new Object();
+
+    private final Object healthLock = new Object();
+
+    private volatile Driver driver;
+
+    private ScheduledExecutorService monitor;
+
+    private volatile boolean healthy = false;
+
+    private volatile boolean schemaApplied = false;
+
+    private volatile long lastLatencyMillis = -1;
+
+    private final AtomicLong reconnectCount = new AtomicLong();
+
+    private long reconnectDelay = INITIAL_RECONNECT_DELAY_MS;
+
     public Neo4jManager(Neo4jConfigData config) {
         this.config = config;
     }
 
+    /**
+     * Creates the driver and starts monitoring the connection.  If the graph cannot be reached yet the
+     * monitor keeps trying to reconnect in the background.
+     */
     public void connect() {
         logger.info("Try to connect");
 
-        if (driver != null || session != null) {
-            throw new IllegalStateException("Already connected. Call disconnect() first.");
+        synchronized (connectionLock) {
+            if (driver != null) {
+                throw new IllegalStateException("Already connected. Call disconnect() first.");
+            }
+            driver = createDriver();
+            monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Neo4j Health Monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reconnectDelay = INITIAL_RECONNECT_DELAY_MS;
         }
 
-        driver = GraphDatabase.driver(config.getUri(), AuthTokens.basic(config.getUsername(), config.getPassword()));
-        session = driver.session(SessionConfig.defaultConfig());
-
-        logger.info("Connection is established");
+        // The first probe runs in the background so that an unreachable graph does not hold up the editor
+        scheduleHealthCheck(0);
     }
 
     public void disconnect() {
         logger.info("Disconnect");
 
-        if (session != null) {
-            session.close();
-            session = null;
-        }
-        if (driver != null) {
-            driver.close();
-            driver = null;
+        synchronized (connectionLock) {
+            if (monitor != null) {
+                monitor.shutdownNow();
+                monitor = null;
+            }
+            if (driver != null) {
+                driver.close();
+                driver = null;
+            }
         }
+        setHealthy(false);
     }
 
-    public Session getSession() {
-        if (session == null) {
+    /**
+     * Opens a new session from the driver's connection pool.  The returned session is owned by the
+     * caller, which must close it, and it may be used from any single thread.
+     */
+    public Session openSession() {
+        Driver currentDriver = driver;
+        if (currentDriver == null) {
             throw new IllegalStateException("Not connected. Call connect() first.");
         }
-        return session;
+        return currentDriver.session(SessionConfig.defaultConfig());
+    }
+
+    /**
+     * Runs the work in a write transaction.  Transient errors are retried by the driver.  If the graph
+     * becomes unavailable the write waits for the connection to be re-established and is attempted
+     * again, up to {@link Neo4jSyncPreferences#getWriteRetryAttempts()} times.
+     */
+    public <T> T write(TransactionWork<T> work) {
+        int attempts = Neo4jSyncPreferences.get().getWriteRetryAttempts();
+        for (int attempt = 1; ; attempt++) {
+            try (Session session = openSession()) {
+                return session.writeTransaction(work);
+            } catch (ServiceUnavailableException | SessionExpiredException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+                logger.warn("Neo4j write failed ({}).  Retrying after reconnecting (attempt {} of {}).",
+                            e.getMessage(), attempt + 1, attempts);
+                setHealthy(false);
+                requestHealthCheck();
+                awaitHealthy(MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Determines whether the last probe of the graph succeeded.
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Gets the round trip time of the last successful probe in milliseconds, or -1 if no probe has
+     * succeeded yet.
+     */
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    /**
+     * Gets the number of times the driver has been replaced because the graph could not be reached.
+     */
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    /**
+     * Probes the graph now.
+     *
+     * @return The round trip time in milliseconds, or -1 if the graph could not be reached.
+     */
+    public long ping() {
+        return probe() ? lastLatencyMillis : -1;
+    }
+
+    /**
+     * Blocks until the graph is reachable or the timeout has elapsed.
+     *
+     * @return {@code true} if the graph is reachable.
+     */
+    public boolean awaitHealthy(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (healthLock) {
+            while (!healthy && driver != null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    healthLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return healthy;
+        }
+    }
+
+    private Driver createDriver() {
+        Neo4jSyncPreferences preferences = Neo4jSyncPreferences.get();
+        Config driverConfig = Config.builder()
+                                    .withMaxConnectionPoolSize(preferences.getConnectionPoolSize())
+                                    .withConnectionTimeout(CONNECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                                    .withConnectionAcquisitionTimeout(CONNECTION_ACQUISITION_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                                    .withMaxTransactionRetryTime(MAX_TRANSACTION_RETRY_TIME_MS, TimeUnit.MILLISECONDS)
+                                    .build();
+        return GraphDatabase.driver(config.getUri(),
+                                    AuthTokens.basic(config.getUsername(), config.getPassword()),
+                                    driverConfig);
+    }
+
+    private boolean probe() {
+        long start = System.nanoTime();
+        try (Session session = openSession()) {
+            session.run("RETURN 1").consume();
+            lastLatencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            logger.debug("Neo4j health probe failed: {}", e.getMessage());
+            setHealthy(false);
+            return false;
+        }
+        if (!schemaApplied) {
+            applySchema();
+        }
+        setHealthy(true);
+        return true;
+    }
+
+    private void applySchema() {
+        try (Session session = openSession()) {
+            new Neo4jSchema(Neo4jSyncPreferences.get().getGraphKey()).apply(session);
+            schemaApplied = true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not create the Neo4j constraints and indexes: {}", e.getMessage());
+        }
+    }
+
+    private void setHealthy(boolean healthy) {
+        synchronized (healthLock) {
+            if (healthy && !this.healthy) {
+                logger.info("Connection is established ({} ms)", lastLatencyMillis);
+            }
+            this.healthy = healthy;
+            healthLock.notifyAll();
+        }
+    }
+
+    /**
+     * Probes the graph and, if it cannot be reached, replaces the driver.
+     *
+     * @return The delay until the next check.
+     */
+    private long checkHealth() {
+        if (probe()) {
+            reconnectDelay = INITIAL_RECONNECT_DELAY_MS;
+            return Neo4jSyncPreferences.get().getHealthCheckInterval();
+        }
+        logger.warn("Neo4j is not reachable at {}", config.getUri());
+        reconnect();
+        if (probe()) {
+            reconnectDelay = INITIAL_RECONNECT_DELAY_MS;
+            return Neo4jSyncPreferences.get().getHealthCheckInterval();
+        }
+        long delay = reconnectDelay;
+        reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MS, reconnectDelay * 2);
+        return delay;
+    }
+
+    private void reconnect() {
+        synchronized (connectionLock) {
+            if (driver == null) {
+                return;
+            }
+            Driver stale = driver;
+            driver = createDriver();
+            reconnectCount.incrementAndGet();
+            try {
+                stale.closeAsync();
+            } catch (RuntimeException e) {
+                logger.debug("Error closing stale Neo4j driver: {}", e.getMessage());
+            }
+        }
+        logger.info("Reconnecting to Neo4j at {}", config.getUri());
+    }
+
+    private void scheduleHealthCheck(long delay) {
+        synchronized (connectionLock) {
+            if (monitor == null) {
+                return;
+            }
+            try {
+                monitor.schedule(() -> scheduleHealthCheck(checkHealth()), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Disconnected
+            }
+        }
+    }
+
+    /**
+     * Asks the monitor for an immediate check without disturbing its schedule.
+     */
+    private void requestHealthCheck() {
+        synchronized (connectionLock) {
+            if (monitor == null) {
+                return;
+            }
+            try {
+                monitor.execute(this::checkHealth);
+            } catch (RejectedExecutionException e) {
+                // Disconnected
+            }
+        }
     }
 
     @Override
     public void close() {
         disconnect();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package org.protege.editor.owl.neo4j;
+
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Creates the constraints and indexes that back the node keys, and migrates graphs that were written
+ * with {@link Neo4jGraphKey#BY_NAME} keys to {@link Neo4jGraphKey#BY_IRI} keys.
+ */
+public class Neo4jSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(Neo4jSchema.class);
+
+    public static final List<String> ENTITY_LABELS = Collections.unmodifiableList(Arrays.asList("Class", "ObjectProperty", "DataProperty", "Individual"));
+
+    private static final int MIGRATION_BATCH_SIZE = 10_000;
+
+    private final Neo4jGraphKey graphKey;
+
+    public Neo4jSchema(@Nonnull Neo4jGraphKey graphKey) {
+        this.graphKey = graphKey;
+    }
+
+    /**
+     * Creates any missing constraints and indexes.  Every entity label gets an index on
+     * {@code name}.  In {@link Neo4jGraphKey#BY_IRI} mode every entity label also gets a
+     * uniqueness constraint on {@code iri}, which is itself backed by an index.
+     */
+    public void apply(@Nonnull Session session) {
+        for (String label : ENTITY_LABELS) {
+            String prefix = label.toLowerCase(Locale.ENGLISH);
+            session.run(String.format("CREATE INDEX %s_name IF NOT EXISTS FOR (n:%s) ON (n.name)", prefix, label)).consume();
+            if (graphKey == Neo4jGraphKey.BY_IRI) {
+                session.run(String.format("CREATE CONSTRAINT %s_iri IF NOT EXISTS FOR (n:%s) REQUIRE n.iri IS UNIQUE", prefix, label)).consume();
+            }
+        }
+        logger.info("Neo4j schema is in place for {} keys", graphKey.getProperty());
+    }
+
+    /**
+     * Gives every entity node that has no {@code iri} the IRI that its name has in the namespace.
+     * Nodes are updated in batches so that the migration of a large graph does not need one huge
+     * transaction.
+     *
+     * @return The number of nodes that were updated.
+     */
+    public long migrateNameKeys(@Nonnull Session session, @Nonnull String namespace) {
+        if (graphKey != Neo4jGraphKey.BY_IRI) {
+            return 0;
+        }
+        long total = 0;
+        for (String label : ENTITY_LABELS) {
+            String query = String.format("MATCH (n:%s) WHERE n.iri IS NULL AND n.name IS NOT NULL " +
+                                                 "WITH n LIMIT $limit " +
+                                                 "SET n.iri = $namespace + n.name " +
+                                                 "RETURN count(n) AS migrated", label);
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("namespace", namespace);
+            parameters.put("limit", MIGRATION_BATCH_SIZE);
+            long migrated;
+            do {
+                migrated = session.writeTransaction(tx -> tx.run(query, parameters).single().get("migrated").asLong());
+                total += migrated;
+            } while (migrated > 0);
+        }
+        if (total > 0) {
+            logger.info("Migrated {} name keyed nodes to IRI keys in {}", total, namespace);
+        }
+        return total;
+    }
+}
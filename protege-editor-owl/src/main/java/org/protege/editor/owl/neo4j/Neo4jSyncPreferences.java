@@ -0,0 +1,190 @@
+package org.protege.editor.owl.neo4j;
+
+import org.protege.editor.core.prefs.Preferences;
+import org.protege.editor.core.prefs.PreferencesManager;
+
+/**
+ * Preferences that tune how ontology changes are synchronised with Neo4j.
+ */
+public class Neo4jSyncPreferences {
+
+    private static final String NEO4J_SYNC_PREFERENCES = "NEO4J_SYNC_PREFERENCES";
+
+    private static final Neo4jSyncPreferences PREFERENCES = new Neo4jSyncPreferences();
+
+    private static final String WRITE_BATCH_SIZE_KEY = "WRITE_BATCH_SIZE";
+
+    private static final String WRITE_QUEUE_CAPACITY_KEY = "WRITE_QUEUE_CAPACITY";
+
+    private static final String EVENT_STREAM_ENABLED_KEY = "EVENT_STREAM_ENABLED";
+
+    private static final String OUTBOUND_QUEUE_CAPACITY_KEY = "OUTBOUND_QUEUE_CAPACITY";
+
+    private static final String OUTBOUND_BATCH_SIZE_KEY = "OUTBOUND_BATCH_SIZE";
+
+    private static final int DEFAULT_OUTBOUND_QUEUE_CAPACITY = 100_000;
+
+    private static final int DEFAULT_OUTBOUND_BATCH_SIZE = 500;
+
+    private static final String IMPORT_CHUNK_SIZE_KEY = "IMPORT_CHUNK_SIZE";
+
+    private static final String IMPORT_PARALLELISM_KEY = "IMPORT_PARALLELISM";
+
+    private static final int DEFAULT_IMPORT_CHUNK_SIZE = 10_000;
+
+    private static final int DEFAULT_IMPORT_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static final String GRAPH_KEY_KEY = "GRAPH_KEY";
+
+    private static final String CONNECTION_POOL_SIZE_KEY = "CONNECTION_POOL_SIZE";
+
+    private static final String HEALTH_CHECK_INTERVAL_KEY = "HEALTH_CHECK_INTERVAL";
+
+    private static final String WRITE_RETRY_ATTEMPTS_KEY = "WRITE_RETRY_ATTEMPTS";
+
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 20;
+
+    private static final int DEFAULT_HEALTH_CHECK_INTERVAL_MS = 10_000;
+
+    private static final int DEFAULT_WRITE_RETRY_ATTEMPTS = 5;
+
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 1000;
+
+    private static final int DEFAULT_WRITE_QUEUE_CAPACITY = 50_000;
+
+    private static Preferences getPreferences() {
+        return PreferencesManager.getInstance().getApplicationPreferences(NEO4J_SYNC_PREFERENCES);
+    }
+
+    public static Neo4jSyncPreferences get() {
+        return PREFERENCES;
+    }
+
+    /**
+     * Gets the maximum number of rows that are sent in a single {@code UNWIND} statement.
+     */
+    public int getWriteBatchSize() {
+        return Math.max(1, getPreferences().getInt(WRITE_BATCH_SIZE_KEY, DEFAULT_WRITE_BATCH_SIZE));
+    }
+
+    public void setWriteBatchSize(int writeBatchSize) {
+        getPreferences().putInt(WRITE_BATCH_SIZE_KEY, writeBatchSize);
+    }
+
+    /**
+     * Gets the number of pending axiom writes after which the editor waits for the
+     * background writer to catch up.
+     */
+    public int getWriteQueueCapacity() {
+        return Math.max(1, getPreferences().getInt(WRITE_QUEUE_CAPACITY_KEY, DEFAULT_WRITE_QUEUE_CAPACITY));
+    }
+
+    public void setWriteQueueCapacity(int writeQueueCapacity) {
+        getPreferences().putInt(WRITE_QUEUE_CAPACITY_KEY, writeQueueCapacity);
+    }
+
+    /**
+     * Determines whether remote edits are received over a persistent event stream rather than by polling.
+     */
+    public boolean isEventStreamEnabled() {
+        return getPreferences().getBoolean(EVENT_STREAM_ENABLED_KEY, true);
+    }
+
+    public void setEventStreamEnabled(boolean eventStreamEnabled) {
+        getPreferences().putBoolean(EVENT_STREAM_ENABLED_KEY, eventStreamEnabled);
+    }
+
+    /**
+     * Gets the number of distinct events that may wait to be sent to the sync server before further
+     * events are dropped.
+     */
+    public int getOutboundQueueCapacity() {
+        return Math.max(1, getPreferences().getInt(OUTBOUND_QUEUE_CAPACITY_KEY, DEFAULT_OUTBOUND_QUEUE_CAPACITY));
+    }
+
+    public void setOutboundQueueCapacity(int outboundQueueCapacity) {
+        getPreferences().putInt(OUTBOUND_QUEUE_CAPACITY_KEY, outboundQueueCapacity);
+    }
+
+    /**
+     * Gets the maximum number of events that are sent to the sync server in one request.
+     */
+    public int getOutboundBatchSize() {
+        return Math.max(1, getPreferences().getInt(OUTBOUND_BATCH_SIZE_KEY, DEFAULT_OUTBOUND_BATCH_SIZE));
+    }
+
+    public void setOutboundBatchSize(int outboundBatchSize) {
+        getPreferences().putInt(OUTBOUND_BATCH_SIZE_KEY, outboundBatchSize);
+    }
+
+    /**
+     * Gets the number of changes that are applied together when the graph is imported into an ontology.
+     */
+    public int getImportChunkSize() {
+        return Math.max(1, getPreferences().getInt(IMPORT_CHUNK_SIZE_KEY, DEFAULT_IMPORT_CHUNK_SIZE));
+    }
+
+    public void setImportChunkSize(int importChunkSize) {
+        getPreferences().putInt(IMPORT_CHUNK_SIZE_KEY, importChunkSize);
+    }
+
+    /**
+     * Gets the number of graph queries that are run at the same time when the graph is imported.
+     */
+    public int getImportParallelism() {
+        return Math.max(1, getPreferences().getInt(IMPORT_PARALLELISM_KEY, DEFAULT_IMPORT_PARALLELISM));
+    }
+
+    public void setImportParallelism(int importParallelism) {
+        getPreferences().putInt(IMPORT_PARALLELISM_KEY, importParallelism);
+    }
+
+    /**
+     * Gets the node property that identifies entities in the graph.
+     */
+    public Neo4jGraphKey getGraphKey() {
+        String graphKey = getPreferences().getString(GRAPH_KEY_KEY, Neo4jGraphKey.BY_NAME.name());
+        try {
+            return Neo4jGraphKey.valueOf(graphKey);
+        } catch (IllegalArgumentException e) {
+            return Neo4jGraphKey.BY_NAME;
+        }
+    }
+
+    public void setGraphKey(Neo4jGraphKey graphKey) {
+        getPreferences().putString(GRAPH_KEY_KEY, graphKey.name());
+    }
+
+    /**
+     * Gets the maximum number of connections that the driver keeps open to the graph.
+     */
+    public int getConnectionPoolSize() {
+        return Math.max(1, getPreferences().getInt(CONNECTION_POOL_SIZE_KEY, DEFAULT_CONNECTION_POOL_SIZE));
+    }
+
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        getPreferences().putInt(CONNECTION_POOL_SIZE_KEY, connectionPoolSize);
+    }
+
+    /**
+     * Gets the time in milliseconds between two probes of the graph connection.
+     */
+    public int getHealthCheckInterval() {
+        return Math.max(100, getPreferences().getInt(HEALTH_CHECK_INTERVAL_KEY, DEFAULT_HEALTH_CHECK_INTERVAL_MS));
+    }
+
+    public void setHealthCheckInterval(int healthCheckInterval) {
+        getPreferences().putInt(HEALTH_CHECK_INTERVAL_KEY, healthCheckInterval);
+    }
+
+    /**
+     * Gets the number of times a write is attempted, reconnecting in between, before it is given up.
+     */
+    public int getWriteRetryAttempts() {
+        return Math.max(1, getPreferences().getInt(WRITE_RETRY_ATTEMPTS_KEY, DEFAULT_WRITE_RETRY_ATTEMPTS));
+    }
+
+    public void setWriteRetryAttempts(int writeRetryAttempts) {
+        getPreferences().putInt(WRITE_RETRY_ATTEMPTS_KEY, writeRetryAttempts);
+    }
+}
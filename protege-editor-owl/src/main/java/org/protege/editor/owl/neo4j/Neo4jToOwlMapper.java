@@ -1,54 +1,259 @@
 package org.protege.editor.owl.neo4j;
 
 
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.util.ProgressMonitor;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
-
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Imports the graph into an ontology.
+ * <p>
+ * Records are consumed lazily as they are streamed from the server.  Node queries run concurrently
+ * and are followed by the relationship queries, which also run concurrently.  Each query turns its
+ * records into changes in chunks of a bounded size.  The chunks are handed to the calling thread
+ * through a bounded queue and applied to the ontology as they arrive, so the number of changes held
+ * in memory does not depend on the size of the graph.
+ */
 public class Neo4jToOwlMapper {
-    public static void run(Session session, OWLOntologyManager manager, IRI iri) throws Exception {
+
+    private static final Logger logger = LoggerFactory.getLogger(Neo4jToOwlMapper.class);
+
+    private static final List<OWLOntologyChange> END_OF_IMPORT = Collections.emptyList();
+
+    /**
+     * Runs a query and passes each record to the consumer as it is read.  Implementations must be
+     * safe to call from several threads at once.
+     */
+    interface RecordSource {
+        void forEachRecord(String query, Consumer<Record> consumer);
+    }
+
+    /**
+     * Counters that describe a completed import.
+     */
+    static class ImportStatistics {
+
+        private final AtomicLong recordCount = new AtomicLong();
+
+        private final AtomicLong changeCount = new AtomicLong();
+
+        private final AtomicLong chunkCount = new AtomicLong();
+
+        private final AtomicLong bufferedChanges = new AtomicLong();
+
+        private final AtomicLong peakBufferedChanges = new AtomicLong();
+
+        long getRecordCount() {
+            return recordCount.get();
+        }
+
+        long getChangeCount() {
+            return changeCount.get();
+        }
+
+        long getChunkCount() {
+            return chunkCount.get();
+        }
+
+        /**
+         * Gets the largest number of changes that had been built but not yet applied at any one time.
+         */
+        long getPeakBufferedChanges() {
+            return peakBufferedChanges.get();
+        }
+
+        private void buffered(int count) {
+            long buffered = bufferedChanges.addAndGet(count);
+            peakBufferedChanges.accumulateAndGet(buffered, Math::max);
+        }
+
+        private void applied(int count) {
+            bufferedChanges.addAndGet(-count);
+            changeCount.addAndGet(count);
+            chunkCount.incrementAndGet();
+        }
+    }
+
+    private final OWLOntology ontology;
+
+    private final OWLDataFactory dataFactory;
+
+    private final String ontologyIRI;
+
+    private final Neo4jGraphKey graphKey;
+
+    private final RecordSource recordSource;
+
+    private final int chunkSize;
+
+    private final BlockingQueue<List<OWLOntologyChange>> chunks;
+
+    private final ImportStatistics statistics = new ImportStatistics();
+
+    private final Map<String, OWLClass> classMap = new ConcurrentHashMap<>();
+    private final Map<String, OWLObjectProperty> objectPropertyMap = new ConcurrentHashMap<>();
+    private final Map<String, OWLDataProperty> dataPropertyMap = new ConcurrentHashMap<>();
+    private final Map<String, OWLNamedIndividual> individualMap = new ConcurrentHashMap<>();
+
+    private volatile boolean cancelled = false;
+
+    private Neo4jToOwlMapper(RecordSource recordSource, OWLOntology ontology, OWLDataFactory dataFactory, IRI iri, Neo4jGraphKey graphKey, int chunkSize, int parallelism) {
+        this.recordSource = recordSource;
+        this.ontology = ontology;
+        this.dataFactory = dataFactory;
+        this.ontologyIRI = iri.toString();
+        this.graphKey = graphKey;
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayBlockingQueue<>(parallelism);
+    }
+
+    public static void run(Neo4jManager neo4jManager, OWLOntologyManager manager, IRI iri, ProgressMonitor progressMonitor) throws Exception {
+        RecordSource recordSource = (query, consumer) -> {
+            try (Session session = neo4jManager.openSession()) {
+                Result result = session.run(query);
+                while (result.hasNext()) {
+                    consumer.accept(result.next());
+                }
+            }
+        };
+        Neo4jSyncPreferences preferences = Neo4jSyncPreferences.get();
+        if (preferences.getGraphKey() == Neo4jGraphKey.BY_IRI) {
+            // Nodes written before the graph was keyed by IRI only have a name
+            try (Session session = neo4jManager.openSession()) {
+                new Neo4jSchema(Neo4jGraphKey.BY_IRI).migrateNameKeys(session, iri + "#");
+            }
+        }
+        run(recordSource, manager, iri, preferences.getGraphKey(), preferences.getImportChunkSize(), preferences.getImportParallelism(), progressMonitor);
+    }
+
+    static ImportStatistics run(RecordSource recordSource, OWLOntologyManager manager, IRI iri, Neo4jGraphKey graphKey, int chunkSize, int parallelism, ProgressMonitor progressMonitor) throws Exception {
         OWLOntology ontology = manager.getOntology(iri);
         if (ontology == null) {
             throw new Exception("Ontology not found");
         }
 
-        List<OWLOntologyChange> changes = new ArrayList<>();
+        Neo4jToOwlMapper mapper = new Neo4jToOwlMapper(recordSource, ontology, manager.getOWLDataFactory(), iri, graphKey, chunkSize, parallelism);
+        return mapper.importGraph(manager, parallelism, progressMonitor);
+    }
+
+    private ImportStatistics importGraph(OWLOntologyManager manager, int parallelism, ProgressMonitor progressMonitor) throws Exception {
+        long start = System.currentTimeMillis();
+        progressMonitor.setIndeterminate(true);
+        progressMonitor.setMessage("Importing graph");
+        progressMonitor.setStarted();
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "Neo4j Import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread coordinator = new Thread(() -> {
+            try {
+                runAll(executor, nodeQueries());
+                runAll(executor, relationshipQueries());
+            } catch (Throwable t) {
+                failure.set(t);
+                cancelled = true;
+            } finally {
+                try {
+                    chunks.put(END_OF_IMPORT);
+                } catch (InterruptedException e) {
+                    // The importing thread has given up waiting
+                }
+            }
+        }, "Neo4j Import Coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+
+        boolean completed = false;
+        try {
+            while (true) {
+                List<OWLOntologyChange> chunk = chunks.take();
+                if (chunk == END_OF_IMPORT) {
+                    break;
+                }
+                manager.applyChanges(chunk);
+                statistics.applied(chunk.size());
+                progressMonitor.setProgress(statistics.getChangeCount());
+                progressMonitor.setMessage(String.format("Imported %,d axioms", statistics.getChangeCount()));
+                if (progressMonitor.isCancelled() && !cancelled) {
+                    logger.info("Graph import cancelled");
+                    cancelled = true;
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                cancelled = true;
+                coordinator.interrupt();
+            }
+            executor.shutdownNow();
+            progressMonitor.setFinished();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof Exception) {
+            throw (Exception) t;
+        } else if (t != null) {
+            throw new ExecutionException(t);
+        }
 
-        Map<String, OWLClass> classMap = new HashMap<>();
-        Map<String, OWLObjectProperty> objectPropertyMap = new HashMap<>();
-        Map<String, OWLDataProperty> dataPropertyMap = new HashMap<>();
-        Map<String, OWLNamedIndividual> individualMap = new HashMap<>();
+        logger.info("Imported {} axioms from {} records in {} chunks in {} ms (peak buffered changes: {})",
+                    statistics.getChangeCount(),
+                    statistics.getRecordCount(),
+                    statistics.getChunkCount(),
+                    System.currentTimeMillis() - start,
+                    statistics.getPeakBufferedChanges());
+        return statistics;
+    }
 
-        String ontologyIRI = iri.toString();
-        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) throws Exception {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+    }
+
+    private List<Callable<Void>> nodeQueries() {
+        List<Callable<Void>> queries = new ArrayList<>();
 
         // Extract Classes
-        session.run("MATCH (c:Class) RETURN c.name AS name").list().forEach(record -> {
+        queries.add(query("MATCH (c:Class) RETURN c.{key} AS name", (record, changes) -> {
             String className = record.get("name").asString();
-            if (className.equals("Thing")) return;
+            if (isThing(className)) return;
 
-            OWLClass owlClass = dataFactory.getOWLClass(IRI.create(ontologyIRI + "#" + className));
-            changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(owlClass)));
-            classMap.put(className, owlClass);
-        });
+            declareClass(className, changes);
+        }));
 
         // Extract Object Properties
-        session.run("MATCH (op:ObjectProperty) RETURN op.name AS name").list().forEach(record -> {
+        queries.add(query("MATCH (op:ObjectProperty) RETURN op.{key} AS name", (record, changes) -> {
             String propertyName = record.get("name").asString();
-            OWLObjectProperty objectProperty = dataFactory.getOWLObjectProperty(IRI.create(ontologyIRI + "#" + propertyName));
-            changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(objectProperty)));
-            objectPropertyMap.put(propertyName, objectProperty);
-        });
+            declareObjectProperty(propertyName, changes);
+        }));
 
         // Extract Data Properties
-        session.run("MATCH (dp:DataProperty) RETURN dp.name AS name, dp.range AS range").list().forEach(record -> {
+        queries.add(query("MATCH (dp:DataProperty) RETURN dp.{key} AS name, dp.range AS range", (record, changes) -> {
             String propertyName = record.get("name").asString();
             String range = record.get("range").asString(null); // Optional field
 
-            OWLDataProperty dataProperty = dataFactory.getOWLDataProperty(IRI.create(ontologyIRI + "#" + propertyName));
-            changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(dataProperty)));
-            dataPropertyMap.put(propertyName, dataProperty);
+            OWLDataProperty dataProperty = declareDataProperty(propertyName, changes);
 
             if (range != null) {
                 OWLDatatype datatype = dataFactory.getOWLDatatype(getDataTypeIRI(range));
@@ -56,10 +261,22 @@ public class Neo4jToOwlMapper {
                 OWLDataPropertyRangeAxiom rangeAxiom = dataFactory.getOWLDataPropertyRangeAxiom(dataProperty, dataRange);
                 changes.add(new AddAxiom(ontology, rangeAxiom));
             }
-        });
+        }));
+
+        // Extract Individuals
+        queries.add(query("MATCH (i:Individual) RETURN i.{key} AS name", (record, changes) -> {
+            String individualName = record.get("name").asString();
+            declareIndividual(individualName, changes);
+        }));
+
+        return queries;
+    }
+
+    private List<Callable<Void>> relationshipQueries() {
+        List<Callable<Void>> queries = new ArrayList<>();
 
         // Extract SubClassOf relationships
-        session.run("MATCH (sub:Class)-[:SubClassOf]->(sup:Class) RETURN sub.name AS sub, sup.name AS sup").list().forEach(record -> {
+        queries.add(query("MATCH (sub:Class)-[:SubClassOf]->(sup:Class) RETURN sub.{key} AS sub, sup.{key} AS sup", (record, changes) -> {
             String subClassName = record.get("sub").asString();
             String superClassName = record.get("sup").asString();
 
@@ -68,353 +285,236 @@ public class Neo4jToOwlMapper {
 
             if (subClass == null) return;
 
-            if (Objects.equals(superClassName, "Thing")) {
+            if (isThing(superClassName)) {
                 superClass = dataFactory.getOWLThing();
             }
 
             OWLSubClassOfAxiom axiom = dataFactory.getOWLSubClassOfAxiom(subClass, superClass);
             changes.add(new AddAxiom(ontology, axiom));
-        });
+        }));
 
         // Extract EquivalentTo relationships for classes
-        session.run("MATCH (c1:Class)-[:EquivalentTo]-(c2:Class) RETURN c1.name AS class1, c2.name AS class2").list().forEach(record -> {
-            String className1 = record.get("class1").asString();
-            String className2 = record.get("class2").asString();
-
-            OWLClass class1 = classMap.get(className1);
-            OWLClass class2 = classMap.get(className2);
-
-            if (class1 != null && class2 != null) {
-                OWLEquivalentClassesAxiom axiom = dataFactory.getOWLEquivalentClassesAxiom(class1, class2);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (c1:Class)-[:EquivalentTo]-(c2:Class) RETURN c1.{key} AS first, c2.{key} AS second", classMap, (c1, c2) -> dataFactory.getOWLEquivalentClassesAxiom(c1, c2)));
 
         // Extract DisjointWith relationships for classes
-        session.run("MATCH (c1:Class)-[:DisjointWith]-(c2:Class) RETURN c1.name AS class1, c2.name AS class2").list().forEach(record -> {
-            String className1 = record.get("class1").asString();
-            String className2 = record.get("class2").asString();
-
-            OWLClass class1 = classMap.get(className1);
-            OWLClass class2 = classMap.get(className2);
-
-            if (class1 != null && class2 != null) {
-                OWLDisjointClassesAxiom axiom = dataFactory.getOWLDisjointClassesAxiom(class1, class2);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (c1:Class)-[:DisjointWith]-(c2:Class) RETURN c1.{key} AS first, c2.{key} AS second", classMap, (c1, c2) -> dataFactory.getOWLDisjointClassesAxiom(c1, c2)));
 
         // Extract Domain relationships for Object Properties
-        session.run("MATCH (op:ObjectProperty)-[:Domain]->(c:Class) RETURN op.name AS property, c.name AS domain").list().forEach(record -> {
-            String propertyName = record.get("property").asString();
-            String domainName = record.get("domain").asString();
-
-            OWLObjectProperty objectProperty = objectPropertyMap.get(propertyName);
-            OWLClass domainClass = classMap.get(domainName);
+        queries.add(query("MATCH (op:ObjectProperty)-[:Domain]->(c:Class) RETURN op.{key} AS property, c.{key} AS domain", (record, changes) -> {
+            OWLObjectProperty objectProperty = objectPropertyMap.get(record.get("property").asString());
+            OWLClass domainClass = classMap.get(record.get("domain").asString());
 
             if (objectProperty != null && domainClass != null) {
                 OWLObjectPropertyDomainAxiom axiom = dataFactory.getOWLObjectPropertyDomainAxiom(objectProperty, domainClass);
                 changes.add(new AddAxiom(ontology, axiom));
             }
-        });
+        }));
 
         // Extract Range relationships for Object Properties
-        session.run("MATCH (op:ObjectProperty)-[:Range]->(c:Class) RETURN op.name AS property, c.name AS range").list().forEach(record -> {
-            String propertyName = record.get("property").asString();
-            String rangeName = record.get("range").asString();
-
-            OWLObjectProperty objectProperty = objectPropertyMap.get(propertyName);
-            OWLClass rangeClass = classMap.get(rangeName);
+        queries.add(query("MATCH (op:ObjectProperty)-[:Range]->(c:Class) RETURN op.{key} AS property, c.{key} AS range", (record, changes) -> {
+            OWLObjectProperty objectProperty = objectPropertyMap.get(record.get("property").asString());
+            OWLClass rangeClass = classMap.get(record.get("range").asString());
 
             if (objectProperty != null && rangeClass != null) {
                 OWLObjectPropertyRangeAxiom axiom = dataFactory.getOWLObjectPropertyRangeAxiom(objectProperty, rangeClass);
                 changes.add(new AddAxiom(ontology, axiom));
             }
-        });
+        }));
 
         // Extract SubPropertyOf relationships for Object Properties
-        session.run("MATCH (sub:ObjectProperty)-[:SubPropertyOf]->(sup:ObjectProperty) RETURN sub.name AS sub, sup.name AS sup").list().forEach(record -> {
-            String subPropName = record.get("sub").asString();
-            String superPropName = record.get("sup").asString();
-
-            OWLObjectProperty subProperty = objectPropertyMap.get(subPropName);
-            OWLObjectProperty superProperty = objectPropertyMap.get(superPropName);
-
-            if (subProperty != null && superProperty != null) {
-                OWLSubObjectPropertyOfAxiom axiom = dataFactory.getOWLSubObjectPropertyOfAxiom(subProperty, superProperty);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (sub:ObjectProperty)-[:SubPropertyOf]->(sup:ObjectProperty) RETURN sub.{key} AS first, sup.{key} AS second", objectPropertyMap, (sub, sup) -> dataFactory.getOWLSubObjectPropertyOfAxiom(sub, sup)));
 
         // Extract InverseOf relationships for Object Properties
-        session.run("MATCH (p1:ObjectProperty)-[:InverseOf]-(p2:ObjectProperty) RETURN p1.name AS prop1, p2.name AS prop2").list().forEach(record -> {
-            String propName1 = record.get("prop1").asString();
-            String propName2 = record.get("prop2").asString();
-
-            OWLObjectProperty prop1 = objectPropertyMap.get(propName1);
-            OWLObjectProperty prop2 = objectPropertyMap.get(propName2);
-
-            if (prop1 != null && prop2 != null) {
-                OWLInverseObjectPropertiesAxiom axiom = dataFactory.getOWLInverseObjectPropertiesAxiom(prop1, prop2);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (p1:ObjectProperty)-[:InverseOf]-(p2:ObjectProperty) RETURN p1.{key} AS first, p2.{key} AS second", objectPropertyMap, (p1, p2) -> dataFactory.getOWLInverseObjectPropertiesAxiom(p1, p2)));
 
         // Extract EquivalentTo relationships for Object Properties
-        session.run("MATCH (p1:ObjectProperty)-[:EquivalentTo]-(p2:ObjectProperty) RETURN p1.name AS prop1, p2.name AS prop2").list().forEach(record -> {
-            String propName1 = record.get("prop1").asString();
-            String propName2 = record.get("prop2").asString();
-
-            OWLObjectProperty prop1 = objectPropertyMap.get(propName1);
-            OWLObjectProperty prop2 = objectPropertyMap.get(propName2);
-
-            if (prop1 != null && prop2 != null) {
-                OWLEquivalentObjectPropertiesAxiom axiom = dataFactory.getOWLEquivalentObjectPropertiesAxiom(prop1, prop2);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (p1:ObjectProperty)-[:EquivalentTo]-(p2:ObjectProperty) RETURN p1.{key} AS first, p2.{key} AS second", objectPropertyMap, (p1, p2) -> dataFactory.getOWLEquivalentObjectPropertiesAxiom(p1, p2)));
 
         // Extract DisjointWith relationships for Object Properties
-        session.run("MATCH (p1:ObjectProperty)-[:DisjointWith]-(p2:ObjectProperty) RETURN p1.name AS prop1, p2.name AS prop2").list().forEach(record -> {
-            String propName1 = record.get("prop1").asString();
-            String propName2 = record.get("prop2").asString();
-
-            OWLObjectProperty prop1 = objectPropertyMap.get(propName1);
-            OWLObjectProperty prop2 = objectPropertyMap.get(propName2);
-
-            if (prop1 != null && prop2 != null) {
-                OWLDisjointObjectPropertiesAxiom axiom = dataFactory.getOWLDisjointObjectPropertiesAxiom(prop1, prop2);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (p1:ObjectProperty)-[:DisjointWith]-(p2:ObjectProperty) RETURN p1.{key} AS first, p2.{key} AS second", objectPropertyMap, (p1, p2) -> dataFactory.getOWLDisjointObjectPropertiesAxiom(p1, p2)));
 
         // Extract Domain relationships for Data Properties
-        session.run("MATCH (dp:DataProperty)-[:Domain]->(c:Class) RETURN dp.name AS property, c.name AS domain").list().forEach(record -> {
-            String propertyName = record.get("property").asString();
-            String domainName = record.get("domain").asString();
-
-            OWLDataProperty dataProperty = dataPropertyMap.get(propertyName);
-            OWLClass domainClass = classMap.get(domainName);
+        queries.add(query("MATCH (dp:DataProperty)-[:Domain]->(c:Class) RETURN dp.{key} AS property, c.{key} AS domain", (record, changes) -> {
+            OWLDataProperty dataProperty = dataPropertyMap.get(record.get("property").asString());
+            OWLClass domainClass = classMap.get(record.get("domain").asString());
 
             if (dataProperty != null && domainClass != null) {
                 OWLDataPropertyDomainAxiom axiom = dataFactory.getOWLDataPropertyDomainAxiom(dataProperty, domainClass);
                 changes.add(new AddAxiom(ontology, axiom));
             }
-        });
+        }));
 
         // Extract SubPropertyOf relationships for Data Properties
-        session.run("MATCH (sub:DataProperty)-[:SubPropertyOf]->(sup:DataProperty) RETURN sub.name AS sub, sup.name AS sup").list().forEach(record -> {
-            String subPropName = record.get("sub").asString();
-            String superPropName = record.get("sup").asString();
-
-            OWLDataProperty subProperty = dataPropertyMap.get(subPropName);
-            OWLDataProperty superProperty = dataPropertyMap.get(superPropName);
-
-            if (subProperty != null && superProperty != null) {
-                OWLSubDataPropertyOfAxiom axiom = dataFactory.getOWLSubDataPropertyOfAxiom(subProperty, superProperty);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (sub:DataProperty)-[:SubPropertyOf]->(sup:DataProperty) RETURN sub.{key} AS first, sup.{key} AS second", dataPropertyMap, (sub, sup) -> dataFactory.getOWLSubDataPropertyOfAxiom(sub, sup)));
 
         // Extract EquivalentTo relationships for Data Properties
-        session.run("MATCH (p1:DataProperty)-[:EquivalentTo]-(p2:DataProperty) RETURN p1.name AS prop1, p2.name AS prop2").list().forEach(record -> {
-            String propName1 = record.get("prop1").asString();
-            String propName2 = record.get("prop2").asString();
-
-            OWLDataProperty prop1 = dataPropertyMap.get(propName1);
-            OWLDataProperty prop2 = dataPropertyMap.get(propName2);
-
-            if (prop1 != null && prop2 != null) {
-                OWLEquivalentDataPropertiesAxiom axiom = dataFactory.getOWLEquivalentDataPropertiesAxiom(prop1, prop2);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
+        queries.add(pairQuery("MATCH (p1:DataProperty)-[:EquivalentTo]-(p2:DataProperty) RETURN p1.{key} AS first, p2.{key} AS second", dataPropertyMap, (p1, p2) -> dataFactory.getOWLEquivalentDataPropertiesAxiom(p1, p2)));
 
         // Extract DisjointWith relationships for Data Properties
-        session.run("MATCH (p1:DataProperty)-[:DisjointWith]-(p2:DataProperty) RETURN p1.name AS prop1, p2.name AS prop2").list().forEach(record -> {
-            String propName1 = record.get("prop1").asString();
-            String propName2 = record.get("prop2").asString();
-
-            OWLDataProperty prop1 = dataPropertyMap.get(propName1);
-            OWLDataProperty prop2 = dataPropertyMap.get(propName2);
-
-            if (prop1 != null && prop2 != null) {
-                OWLDisjointDataPropertiesAxiom axiom = dataFactory.getOWLDisjointDataPropertiesAxiom(prop1, prop2);
-                changes.add(new AddAxiom(ontology, axiom));
-            }
-        });
-
-        // Extract Individuals and their relationships
-        session.run("MATCH (i:Individual) RETURN i.name AS name").list().forEach(record -> {
-            String individualName = record.get("name").asString();
-
-            OWLNamedIndividual individual = dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + individualName));
-            changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(individual)));
-            individualMap.put(individualName, individual);
-
-            // Process class assertions for the individual
-            session.run("MATCH (i:Individual {name: $name})-[:TypeOf]->(c:Class) RETURN c.name AS className", Collections.singletonMap("name", individualName)).list().forEach(classRecord -> {
-                String className = classRecord.get("className").asString();
-                OWLClass individualClass = classMap.computeIfAbsent(className, name -> {
-                    OWLClass newClass = dataFactory.getOWLClass(IRI.create(ontologyIRI + "#" + name));
-                    changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(newClass)));
-                    return newClass;
-                });
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLClassAssertionAxiom(individualClass, individual)));
-            });
-
-            // TODO: NOT WORKING
-            // Process object property assertions
-            session.run("MATCH (i:Individual {name: $name})-[r]->(target:Individual) RETURN type(r) AS type, target.name AS target", Collections.singletonMap("name", individualName)).list().forEach(propRecord -> {
-                String propertyName = propRecord.get("type").asString();
-                String targetName = propRecord.get("target").asString();
-
-                if (propertyName.startsWith("Not_")) {
-                    // Negative object property assertion
-                    String actualPropertyName = propertyName.substring(4);
-                    OWLObjectProperty objectProperty = objectPropertyMap.get(actualPropertyName);
-                    OWLNamedIndividual target = individualMap.computeIfAbsent(targetName, name -> dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name)));
-
-                    if (objectProperty != null) {
-                        OWLNegativeObjectPropertyAssertionAxiom axiom = dataFactory.getOWLNegativeObjectPropertyAssertionAxiom(objectProperty, individual, target);
-                        changes.add(new AddAxiom(ontology, axiom));
-                    }
-                } else {
-                    // Positive object property assertion
-                    OWLObjectProperty objectProperty = objectPropertyMap.get(propertyName);
-                    OWLNamedIndividual target = individualMap.computeIfAbsent(targetName, name -> dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name)));
-
-                    if (objectProperty != null) {
-                        OWLObjectPropertyAssertionAxiom axiom = dataFactory.getOWLObjectPropertyAssertionAxiom(objectProperty, individual, target);
-                        changes.add(new AddAxiom(ontology, axiom));
-                    }
-                }
-            });
+        queries.add(pairQuery("MATCH (p1:DataProperty)-[:DisjointWith]-(p2:DataProperty) RETURN p1.{key} AS first, p2.{key} AS second", dataPropertyMap, (p1, p2) -> dataFactory.getOWLDisjointDataPropertiesAxiom(p1, p2)));
+
+        // Extract class assertions
+        queries.add(query("MATCH (i:Individual)-[:TypeOf]->(c:Class) RETURN i.{key} AS individual, c.{key} AS className", (record, changes) -> {
+            OWLNamedIndividual individual = declareIndividual(record.get("individual").asString(), changes);
+            OWLClass individualClass = declareClass(record.get("className").asString(), changes);
+            changes.add(new AddAxiom(ontology, dataFactory.getOWLClassAssertionAxiom(individualClass, individual)));
+        }));
+
+        // TODO: check later
+        // Extract sameIndividualAs relationships
+        queries.add(query("MATCH (i1:Individual)-[:SameAs]-(i2:Individual) RETURN i1.{key} AS individual, i2.{key} AS other", (record, changes) -> {
+            OWLNamedIndividual individual = declareIndividual(record.get("individual").asString(), changes);
+            OWLNamedIndividual other = declareIndividual(record.get("other").asString(), changes);
+            changes.add(new AddAxiom(ontology, dataFactory.getOWLSameIndividualAxiom(individual, other)));
+        }));
+
+        // TODO: check later
+        // Extract differentIndividuals relationships
+        queries.add(query("MATCH (i1:Individual)-[:DifferentFrom]-(i2:Individual) RETURN i1.{key} AS individual, i2.{key} AS other", (record, changes) -> {
+            OWLNamedIndividual individual = declareIndividual(record.get("individual").asString(), changes);
+            OWLNamedIndividual other = declareIndividual(record.get("other").asString(), changes);
+            changes.add(new AddAxiom(ontology, dataFactory.getOWLDifferentIndividualsAxiom(individual, other)));
+        }));
+
+        // Extract data property assertions
+        queries.add(query("MATCH (i:Individual)-[:HasDataProperty]->(dp:DataProperty) RETURN i.{key} AS individual, dp.{key} AS property, i[dp.name] AS value", (record, changes) -> {
+            OWLNamedIndividual individual = declareIndividual(record.get("individual").asString(), changes);
+            OWLDataProperty dataProperty = declareDataProperty(record.get("property").asString(), changes);
+
+            OWLLiteral literalValue = dataFactory.getOWLLiteral(record.get("value").asString());
+            OWLDataPropertyAssertionAxiom axiom = dataFactory.getOWLDataPropertyAssertionAxiom(dataProperty, individual, literalValue);
+            changes.add(new AddAxiom(ontology, axiom));
+        }));
 
-            // TODO: check later
-            // Process sameIndividualAs relationships
-            session.run("MATCH (i1:Individual {name: $name})-[:SameAs]-(i2:Individual) RETURN i2.name AS other", Collections.singletonMap("name", individualName)).list().forEach(sameRecord -> {
-                String otherName = sameRecord.get("other").asString();
+        // Extract negative data property assertions
+        queries.add(query("MATCH (i:Individual)-[:HasNegativeDataProperty]->(dp:DataProperty) RETURN i.{key} AS individual, dp.{key} AS property, i['not_' + dp.name] AS value", (record, changes) -> {
+            OWLNamedIndividual individual = declareIndividual(record.get("individual").asString(), changes);
+            OWLDataProperty dataProperty = declareDataProperty(record.get("property").asString(), changes);
 
-                OWLNamedIndividual other = individualMap.computeIfAbsent(otherName, name -> dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name)));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLSameIndividualAxiom(individual, other)));
-            });
+            OWLLiteral literalValue = dataFactory.getOWLLiteral(record.get("value").asString());
+            OWLNegativeDataPropertyAssertionAxiom axiom = dataFactory.getOWLNegativeDataPropertyAssertionAxiom(dataProperty, individual, literalValue);
+            changes.add(new AddAxiom(ontology, axiom));
+        }));
 
-            // TODO: check later
-            // Process differentIndividuals relationships
-            session.run("MATCH (i1:Individual {name: $name})-[:DifferentFrom]-(i2:Individual) RETURN i2.name AS other", Collections.singletonMap("name", individualName)).list().forEach(diffRecord -> {
-                String otherName = diffRecord.get("other").asString();
+        // TODO: NOT WORKING
+        // Extract object property assertions
+        queries.add(query("MATCH (source:Individual)-[r]->(target:Individual) WHERE NOT type(r) STARTS WITH 'Not_' AND NOT type(r) IN ['SameAs', 'DifferentFrom'] OPTIONAL MATCH (op:ObjectProperty {name: type(r)}) RETURN source.{key} AS source, coalesce(op.{key}, type(r)) AS property, target.{key} AS target", (record, changes) -> {
+            OWLNamedIndividual source = declareIndividual(record.get("source").asString(), changes);
+            OWLNamedIndividual target = declareIndividual(record.get("target").asString(), changes);
+            OWLObjectProperty objectProperty = declareObjectProperty(record.get("property").asString(), changes);
 
-                OWLNamedIndividual other = individualMap.computeIfAbsent(otherName, name -> dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name)));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDifferentIndividualsAxiom(individual, other)));
-            });
-        });
+            OWLObjectPropertyAssertionAxiom axiom = dataFactory.getOWLObjectPropertyAssertionAxiom(objectProperty, source, target);
+            changes.add(new AddAxiom(ontology, axiom));
+        }));
 
-        // Extract Individuals and their data property assertions (batch processing)
-        session.run("MATCH (i:Individual)-[:HasDataProperty]->(dp:DataProperty) RETURN i.name AS individual, dp.name AS property, i[dp.name] AS value").list().forEach(record -> {
-            String individualName = record.get("individual").asString();
-            String propertyName = record.get("property").asString();
-            String propertyValue = record.get("value").asString();
+        // TODO: NOT WORKING
+        // Extract negative object property assertions
+        queries.add(query("MATCH (source:Individual)-[r]->(target:Individual) WHERE type(r) STARTS WITH 'Not_' OPTIONAL MATCH (op:ObjectProperty {name: substring(type(r), 4)}) RETURN source.{key} AS source, coalesce(op.{key}, substring(type(r), 4)) AS property, target.{key} AS target", (record, changes) -> {
+            OWLNamedIndividual source = declareIndividual(record.get("source").asString(), changes);
+            OWLNamedIndividual target = declareIndividual(record.get("target").asString(), changes);
+            OWLObjectProperty objectProperty = declareObjectProperty(record.get("property").asString(), changes);
 
-            OWLNamedIndividual individual = individualMap.computeIfAbsent(individualName, name -> {
-                OWLNamedIndividual ind = dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(ind)));
-                return ind;
-            });
+            OWLNegativeObjectPropertyAssertionAxiom axiom = dataFactory.getOWLNegativeObjectPropertyAssertionAxiom(objectProperty, source, target);
+            changes.add(new AddAxiom(ontology, axiom));
+        }));
 
-            OWLDataProperty dataProperty = dataPropertyMap.computeIfAbsent(propertyName, name -> {
-                OWLDataProperty prop = dataFactory.getOWLDataProperty(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(prop)));
-                return prop;
-            });
+        return queries;
+    }
 
-            OWLLiteral literalValue = dataFactory.getOWLLiteral(propertyValue);
-            OWLDataPropertyAssertionAxiom axiom = dataFactory.getOWLDataPropertyAssertionAxiom(dataProperty, individual, literalValue);
-            changes.add(new AddAxiom(ontology, axiom));
-        });
+    private OWLClass declareClass(String name, List<OWLOntologyChange> changes) {
+        return declare(classMap, name, n -> dataFactory.getOWLClass(toIRI(n)), changes);
+    }
 
-        // Extract negative data property assertions (batch processing)
-        session.run("MATCH (i:Individual)-[:HasNegativeDataProperty]->(dp:DataProperty) RETURN i.name AS individual, dp.name AS property, i['not_' + dp.name] AS value").list().forEach(record -> {
-            String individualName = record.get("individual").asString();
-            String propertyName = record.get("property").asString();
-            String propertyValue = record.get("value").asString();
+    private OWLObjectProperty declareObjectProperty(String name, List<OWLOntologyChange> changes) {
+        return declare(objectPropertyMap, name, n -> dataFactory.getOWLObjectProperty(toIRI(n)), changes);
+    }
 
-            OWLNamedIndividual individual = individualMap.computeIfAbsent(individualName, name -> {
-                OWLNamedIndividual ind = dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(ind)));
-                return ind;
-            });
+    private OWLDataProperty declareDataProperty(String name, List<OWLOntologyChange> changes) {
+        return declare(dataPropertyMap, name, n -> dataFactory.getOWLDataProperty(toIRI(n)), changes);
+    }
 
-            OWLDataProperty dataProperty = dataPropertyMap.computeIfAbsent(propertyName, name -> {
-                OWLDataProperty prop = dataFactory.getOWLDataProperty(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(prop)));
-                return prop;
-            });
+    private OWLNamedIndividual declareIndividual(String name, List<OWLOntologyChange> changes) {
+        return declare(individualMap, name, n -> dataFactory.getOWLNamedIndividual(toIRI(n)), changes);
+    }
 
-            OWLLiteral literalValue = dataFactory.getOWLLiteral(propertyValue);
-            OWLNegativeDataPropertyAssertionAxiom axiom = dataFactory.getOWLNegativeDataPropertyAssertionAxiom(dataProperty, individual, literalValue);
-            changes.add(new AddAxiom(ontology, axiom));
-        });
+    private IRI toIRI(String key) {
+        return graphKey.toIRI(key, ontologyIRI + "#");
+    }
 
-        // TODO: NOT WORKING
-        // Extract object property assertions (batch processing)
-        session.run("MATCH (source:Individual)-[r]->(target:Individual) WHERE NOT type(r) STARTS WITH 'Not_' RETURN source.name AS source, type(r) AS property, target.name AS target").list().forEach(record -> {
-            String sourceName = record.get("source").asString();
-            String propertyName = record.get("property").asString();
-            String targetName = record.get("target").asString();
-
-            OWLNamedIndividual source = individualMap.computeIfAbsent(sourceName, name -> {
-                OWLNamedIndividual ind = dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(ind)));
-                return ind;
-            });
+    private static boolean isThing(String key) {
+        return "Thing".equals(key) || OWLRDFVocabulary.OWL_THING.getIRI().toString().equals(key);
+    }
 
-            OWLNamedIndividual target = individualMap.computeIfAbsent(targetName, name -> {
-                OWLNamedIndividual ind = dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(ind)));
-                return ind;
-            });
+    /**
+     * Gets the entity with the given name, adding a declaration for it the first time it is seen.
+     */
+    private <E extends OWLEntity> E declare(Map<String, E> map, String name, Function<String, E> factory, List<OWLOntologyChange> changes) {
+        E existing = map.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        E entity = factory.apply(name);
+        if (map.putIfAbsent(name, entity) == null) {
+            changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(entity)));
+            return entity;
+        }
+        return map.get(name);
+    }
 
-            OWLObjectProperty objectProperty = objectPropertyMap.computeIfAbsent(propertyName, name -> {
-                OWLObjectProperty prop = dataFactory.getOWLObjectProperty(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(prop)));
-                return prop;
-            });
+    private <E extends OWLEntity> Callable<Void> pairQuery(String query, Map<String, E> entities, PairAxiomFactory<E> axiomFactory) {
+        return query(query, (record, changes) -> {
+            E first = entities.get(record.get("first").asString());
+            E second = entities.get(record.get("second").asString());
 
-            OWLObjectPropertyAssertionAxiom axiom = dataFactory.getOWLObjectPropertyAssertionAxiom(objectProperty, source, target);
-            changes.add(new AddAxiom(ontology, axiom));
+            if (first != null && second != null) {
+                changes.add(new AddAxiom(ontology, axiomFactory.create(first, second)));
+            }
         });
+    }
 
-        // TODO: NOT WORKING
-        // Extract negative object property assertions (batch processing)
-        session.run("MATCH (source:Individual)-[r]->(target:Individual) WHERE type(r) STARTS WITH 'Not_' RETURN source.name AS source, substring(type(r), 4) AS property, target.name AS target").list().forEach(record -> {
-            String sourceName = record.get("source").asString();
-            String propertyName = record.get("property").asString();
-            String targetName = record.get("target").asString();
-
-            OWLNamedIndividual source = individualMap.computeIfAbsent(sourceName, name -> {
-                OWLNamedIndividual ind = dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(ind)));
-                return ind;
-            });
-
-            OWLNamedIndividual target = individualMap.computeIfAbsent(targetName, name -> {
-                OWLNamedIndividual ind = dataFactory.getOWLNamedIndividual(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(ind)));
-                return ind;
+    /**
+     * Creates a task that streams the records of a query through the handler and hands the resulting
+     * changes over in chunks.
+     */
+    private Callable<Void> query(String query, RecordHandler handler) {
+        String keyedQuery = query.replace("{key}", graphKey.getProperty());
+        return () -> {
+            List<OWLOntologyChange> changes = new ArrayList<>(chunkSize);
+            recordSource.forEachRecord(keyedQuery, record -> {
+                if (cancelled) {
+                    throw new CancellationException("Graph import cancelled");
+                }
+                statistics.recordCount.incrementAndGet();
+                int before = changes.size();
+                handler.handle(record, changes);
+                statistics.buffered(changes.size() - before);
+                if (changes.size() >= chunkSize) {
+                    putChunk(new ArrayList<>(changes));
+                    changes.clear();
+                }
             });
+            if (!changes.isEmpty()) {
+                putChunk(new ArrayList<>(changes));
+            }
+            return null;
+        };
+    }
 
-            OWLObjectProperty objectProperty = objectPropertyMap.computeIfAbsent(propertyName, name -> {
-                OWLObjectProperty prop = dataFactory.getOWLObjectProperty(IRI.create(ontologyIRI + "#" + name));
-                changes.add(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(prop)));
-                return prop;
-            });
+    private void putChunk(List<OWLOntologyChange> chunk) {
+        try {
+            chunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Graph import interrupted");
+        }
+    }
 
-            OWLNegativeObjectPropertyAssertionAxiom axiom = dataFactory.getOWLNegativeObjectPropertyAssertionAxiom(objectProperty, source, target);
-            changes.add(new AddAxiom(ontology, axiom));
-        });
+    private interface RecordHandler {
+        void handle(Record record, List<OWLOntologyChange> changes);
+    }
 
-        manager.applyChanges(changes);
+    private interface PairAxiomFactory<E> {
+        OWLAxiom create(E first, E second);
     }
 
     private static IRI getDataTypeIRI(String value) {
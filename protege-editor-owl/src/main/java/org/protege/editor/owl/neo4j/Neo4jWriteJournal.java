@@ -0,0 +1,420 @@
+package org.protege.editor.owl.neo4j;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.protege.editor.owl.neo4j.CypherStatement.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * An append-only journal of the writes that have not yet been committed to Neo4j.
+ * <p>
+ * Writes are recorded before they are queued for the graph, and are acknowledged once they have been
+ * committed.  Writes that could not be committed because the graph was unreachable therefore survive,
+ * also across restarts, until they can be replayed in order.  Recording a write does not wait for the
+ * disk: the journal is forced by a background thread, and every write that is recorded while a force
+ * is in progress is covered by the next one.  A write is in the file as soon as it is recorded, so it
+ * survives the application stopping; only a failure of the machine can lose the writes of the last
+ * force.  The journal is a file
+ * of JSON lines: one line per write and one line per acknowledgement.  It is rewritten without the
+ * acknowledged and superseded writes when it is opened, after a replay, and whenever it grows large
+ * while nothing is pending.
+ */
+public class Neo4jWriteJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Neo4jWriteJournal.class);
+
+    public static final String FILE_NAME = "write-journal.jsonl";
+
+    private static final long COMPACTION_THRESHOLD_BYTES = 4 * 1024 * 1024;
+
+    private static final TypeReference<Map<String, Object>> PARAMETERS_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+
+    private FileChannel channel;
+
+    private long lastSequence = 0;
+
+    private long acknowledgedSequence = 0;
+
+    /**
+     * Whether something has been written since the journal was last forced.
+     */
+    private boolean unforced = false;
+
+    public Neo4jWriteJournal(@Nonnull Path directory) {
+        this.file = directory.resolve(FILE_NAME);
+        try {
+            Files.createDirectories(directory);
+            List<Entry> pending = read(Long.MAX_VALUE);
+            rewrite(compact(pending));
+            if (!pending.isEmpty()) {
+                logger.info("The Neo4j write journal holds {} writes that have not been committed", pending.size());
+            }
+        } catch (IOException e) {
+            logger.error("Could not open the Neo4j write journal at {}.  Writes will not survive an outage.", file, e);
+            channel = null;
+        }
+        if (channel != null) {
+            Thread forceThread = new Thread(this::runForcer, "Neo4j Write Journal");
+            forceThread.setDaemon(true);
+            forceThread.start();
+        }
+    }
+
+    /**
+     * Records writes and assigns them consecutive sequence numbers.
+     */
+    @Nonnull
+    public synchronized List<Entry> append(@Nonnull List<AxiomWrite> writes) {
+        List<Entry> entries = new ArrayList<>(writes.size());
+        StringBuilder lines = new StringBuilder();
+        for (AxiomWrite write : writes) {
+            Entry entry = new Entry(++lastSequence, write.getOntologyID().toString(), write.getAxiom().toString(), write.isAdd(), write.getRows());
+            entries.add(entry);
+            if (channel != null) {
+                lines.append(toJson(entry)).append('\n');
+            }
+        }
+        if (lines.length() > 0) {
+            writeLines(lines.toString());
+        }
+        return entries;
+    }
+
+    /**
+     * Records that every write up to and including the given sequence number has been committed (or
+     * has been given up).
+     */
+    public synchronized void acknowledge(long sequence) {
+        if (sequence <= acknowledgedSequence) {
+            return;
+        }
+        acknowledgedSequence = sequence;
+        if (channel == null) {
+            return;
+        }
+        ObjectNode ack = objectMapper.createObjectNode();
+        ack.put("ack", sequence);
+        writeLines(ack.toString() + '\n');
+        if (acknowledgedSequence == lastSequence && size() > COMPACTION_THRESHOLD_BYTES) {
+            compact();
+        }
+    }
+
+    /**
+     * Gets the sequence number of the last write that was recorded.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Determines whether writes are recorded on disk.  This is not the case if the journal file could
+     * not be opened.
+     */
+    public synchronized boolean isAvailable() {
+        return channel != null;
+    }
+
+    public synchronized boolean hasPending() {
+        return acknowledgedSequence < lastSequence;
+    }
+
+    /**
+     * Reads the writes that have not been acknowledged, up to and including the given sequence number,
+     * in order.  Writes that are superseded by a later write of the same axiom in the same ontology are left out.
+     */
+    @Nonnull
+    public synchronized List<Entry> getPending(long throughSequence) {
+        if (channel == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return compact(read(throughSequence));
+        } catch (IOException e) {
+            logger.error("Could not read the Neo4j write journal", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Rewrites the journal so that it only holds the pending writes.
+     */
+    public synchronized void compact() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            rewrite(compact(read(Long.MAX_VALUE)));
+        } catch (IOException e) {
+            logger.error("Could not compact the Neo4j write journal", e);
+        }
+    }
+
+    /**
+     * Drops an add and a later remove (or a remove and a later add) of the same axiom in the same
+     * ontology, because together they leave the graph unchanged, as well as repeated writes of the same
+     * axiom in the same ontology.  Writes of an axiom in different ontologies are kept apart, because
+     * the axiom is still asserted in the graph while one of the ontologies holds it.
+     */
+    static List<Entry> compact(List<Entry> entries) {
+        Map<List<String>, Entry> previousByAxiom = new HashMap<>();
+        Set<Entry> superseded = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Entry entry : entries) {
+            List<String> key = Arrays.asList(entry.getOntology(), entry.getAxiom());
+            Entry previous = previousByAxiom.get(key);
+            if (previous == null) {
+                previousByAxiom.put(key, entry);
+            } else if (previous.isAdd() == entry.isAdd()) {
+                superseded.add(entry);
+            } else {
+                superseded.add(previous);
+                superseded.add(entry);
+                previousByAxiom.remove(key);
+            }
+        }
+        if (superseded.isEmpty()) {
+            return entries;
+        }
+        List<Entry> compacted = new ArrayList<>(entries.size() - superseded.size());
+        for (Entry entry : entries) {
+            if (!superseded.contains(entry)) {
+                compacted.add(entry);
+            }
+        }
+        return compacted;
+    }
+
+    private List<Entry> read(long throughSequence) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        long acknowledged = 0;
+        long last = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    // A line that was cut short by a crash
+                    logger.warn("Skipping an unreadable line in the Neo4j write journal");
+                    continue;
+                }
+                if (node.has("ack")) {
+                    acknowledged = Math.max(acknowledged, node.get("ack").asLong());
+                } else {
+                    Entry entry = fromJson(node);
+                    last = Math.max(last, entry.getSequence());
+                    if (entry.getSequence() <= throughSequence) {
+                        entries.add(entry);
+                    }
+                }
+            }
+        }
+        acknowledgedSequence = Math.max(acknowledgedSequence, acknowledged);
+        lastSequence = Math.max(lastSequence, Math.max(last, acknowledgedSequence));
+        long ack = acknowledgedSequence;
+        entries.removeIf(entry -> entry.getSequence() <= ack);
+        return entries;
+    }
+
+    private void rewrite(List<Entry> pending) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        unforced = false;
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = Channels.newWriter(tempChannel, StandardCharsets.UTF_8.newEncoder(), 1 << 16)) {
+            for (Entry entry : pending) {
+                writer.write(toJson(entry));
+                writer.write('\n');
+            }
+            if (pending.isEmpty() && acknowledgedSequence > 0) {
+                // Keep the sequence numbers increasing across compactions
+                ObjectNode ack = objectMapper.createObjectNode();
+                ack.put("ack", acknowledgedSequence);
+                writer.write(ack.toString());
+                writer.write('\n');
+            }
+            writer.flush();
+            tempChannel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void writeLines(String text) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            unforced = true;
+            notifyAll();
+        } catch (IOException e) {
+            logger.error("Could not write to the Neo4j write journal", e);
+        }
+    }
+
+    /**
+     * Forces what has been written to disk whenever there is something new, until the journal is
+     * closed.  The force happens outside the lock of the journal, so writes are not held up by it.
+     */
+    private void runForcer() {
+        while (true) {
+            FileChannel toForce;
+            synchronized (this) {
+                while (!unforced && channel != null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (channel == null) {
+                    return;
+                }
+                unforced = false;
+                toForce = channel;
+            }
+            try {
+                toForce.force(false);
+            } catch (ClosedChannelException e) {
+                // The journal has been compacted or closed, which forces it
+            } catch (IOException e) {
+                logger.error("Could not force the Neo4j write journal to disk", e);
+            }
+        }
+    }
+
+    private long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private String toJson(Entry entry) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("seq", entry.getSequence());
+        node.put("ontology", entry.getOntology());
+        node.put("axiom", entry.getAxiom());
+        node.put("add", entry.isAdd());
+        ArrayNode rows = node.putArray("rows");
+        for (CypherRow row : entry.getRows()) {
+            ObjectNode rowNode = rows.addObject();
+            rowNode.put("phase", row.getStatement().getPhase().name());
+            rowNode.put("query", row.getStatement().getQuery());
+            rowNode.set("parameters", objectMapper.valueToTree(row.getParameters()));
+        }
+        return node.toString();
+    }
+
+    private Entry fromJson(JsonNode node) throws IOException {
+        List<CypherRow> rows = new ArrayList<>();
+        for (JsonNode rowNode : node.get("rows")) {
+            CypherStatement statement = CypherStatement.fromQuery(Phase.valueOf(rowNode.get("phase").asText()),
+                                                                  rowNode.get("query").asText());
+            Map<String, Object> parameters = objectMapper.readerFor(PARAMETERS_TYPE).readValue(rowNode.get("parameters"));
+            rows.add(new CypherRow(statement, parameters));
+        }
+        // Journals that were written before writes were recorded per ontology have no ontology
+        String ontology = node.has("ontology") ? node.get("ontology").asText() : "";
+        return new Entry(node.get("seq").asLong(), ontology, node.get("axiom").asText(), node.get("add").asBoolean(), rows);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (unforced) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Could not close the Neo4j write journal", e);
+        }
+        channel = null;
+        notifyAll();
+    }
+
+    /**
+     * A journaled write.  The ontology and the axiom are identified by their renderings so that writes
+     * can be matched up after they have been read back.
+     */
+    public static final class Entry {
+
+        private final long sequence;
+
+        private final String ontology;
+
+        private final String axiom;
+
+        private final boolean isAdd;
+
+        private final List<CypherRow> rows;
+
+        Entry(long sequence, @Nonnull String ontology, @Nonnull String axiom, boolean isAdd, @Nonnull List<CypherRow> rows) {
+            this.sequence = sequence;
+            this.ontology = ontology;
+            this.axiom = axiom;
+            this.isAdd = isAdd;
+            this.rows = rows;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        @Nonnull
+        public String getOntology() {
+            return ontology;
+        }
+
+        @Nonnull
+        public String getAxiom() {
+            return axiom;
+        }
+
+        public boolean isAdd() {
+            return isAdd;
+        }
+
+        @Nonnull
+        public List<CypherRow> getRows() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package org.protege.editor.owl.neo4j;
+
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
+import org.protege.editor.core.util.ProtegeDirectories;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes ontology changes to Neo4j on a background thread.
+ * <p>
+ * Axiom writes are queued by the editor and drained by a single writer thread.  Each drained batch is
+ * grouped by statement and sent as parameterized {@code UNWIND $rows} queries inside one transaction.
+ * The queue is bounded: when the writer falls behind, {@link #submit(List)} waits for space, so a bulk
+ * edit cannot build an unbounded backlog.
+ * <p>
+ * Every write is recorded in a {@link Neo4jWriteJournal} before it is queued.  While the graph cannot be
+ * reached the writer goes offline: writes are left in the journal instead of being sent, so editing
+ * carries on at full speed.  When the connection comes back the journal is replayed in order before
+ * live writes resume.
+ */
+public class Neo4jWritePipeline implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Neo4jWritePipeline.class);
+
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    private static final long CLOSE_FLUSH_TIMEOUT_MS = 5_000;
+
+    private final Neo4jManager neo4jManager;
+
+    private final int batchSize;
+
+    private final Neo4jWriteJournal journal;
+
+    private final BlockingQueue<Neo4jWriteJournal.Entry> queue;
+
+    private final Thread writerThread;
+
+    private final Object progressLock = new Object();
+
+    private long submittedCount = 0;
+
+    private long completedCount = 0;
+
+    private volatile boolean closed = false;
+
+    private volatile boolean offline;
+
+    /**
+     * The last write that has been replayed from the journal.  Queued writes up to here have already
+     * been sent.
+     */
+    private long replayedSequence = 0;
+
+    public Neo4jWritePipeline(@Nonnull Neo4jManager neo4jManager, @Nonnull Neo4jWriteJournal journal, int batchSize, int queueCapacity) {
+        this.neo4jManager = neo4jManager;
+        this.journal = journal;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.offline = journal.hasPending();
+        this.writerThread = new Thread(this::runWriter, "Neo4j Writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public Neo4jWritePipeline(@Nonnull Neo4jManager neo4jManager) {
+        this(neo4jManager,
+             new Neo4jWriteJournal(ProtegeDirectories.getDataDirectory().toPath().resolve("neo4j")),
+             Neo4jSyncPreferences.get().getWriteBatchSize(),
+             Neo4jSyncPreferences.get().getWriteQueueCapacity());
+    }
+
+    /**
+     * Journals writes and queues them for the background writer.  Blocks if the queue is full.
+     */
+    public void submit(@Nonnull List<AxiomWrite> writes) {
+        if (closed) {
+            throw new IllegalStateException("The Neo4j write pipeline has been closed");
+        }
+        for (Neo4jWriteJournal.Entry write : journal.append(writes)) {
+            synchronized (progressLock) {
+                submittedCount++;
+            }
+            try {
+                if (!queue.offer(write)) {
+                    logger.debug("Neo4j write queue is full.  Waiting for the writer to catch up.");
+                    queue.put(write);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                markCompleted(1);
+                logger.warn("Interrupted while queueing Neo4j writes");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Blocks until every write that was submitted before this call has been committed (or has failed).
+     */
+    public void flush() {
+        synchronized (progressLock) {
+            long target = submittedCount;
+            while (completedCount < target && writerThread.isAlive()) {
+                try {
+                    progressLock.wait(POLL_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits, for at most the specified time, until every write that was submitted before this call has
+     * been committed (or has failed).  Returns at once while the graph cannot be reached, since the
+     * writes are then kept in the journal and waiting would only wait for the reconnect.
+     * @return {@code true} if every write was committed, or {@code false} if some are still pending.
+     */
+    public boolean flush(long timeout, @Nonnull TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (progressLock) {
+            long target = submittedCount;
+            while (completedCount < target && writerThread.isAlive()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (offline || !neo4jManager.isHealthy() || remaining <= 0) {
+                    return false;
+                }
+                try {
+                    progressLock.wait(Math.min(remaining, POLL_TIMEOUT_MS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return completedCount >= target;
+        }
+    }
+
+    /**
+     * Gets the number of writes that have been queued but not yet committed.
+     */
+    public long getPendingCount() {
+        synchronized (progressLock) {
+            return submittedCount - completedCount;
+        }
+    }
+
+    /**
+     * Determines whether writes are being held in the journal because the graph cannot be reached.
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    private void runWriter() {
+        List<Neo4jWriteJournal.Entry> drained = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                if (offline && neo4jManager.isHealthy()) {
+                    replay();
+                }
+                Neo4jWriteJournal.Entry first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, batchSize - 1);
+                if (!offline) {
+                    drained.removeIf(write -> write.getSequence() <= replayedSequence);
+                    write(drained);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ServiceUnavailableException | SessionExpiredException | IllegalStateException e) {
+                goOffline(e);
+            } catch (RuntimeException e) {
+                // The writes cannot succeed by being replayed, so give them up
+                logger.error("Failed to write {} ontology changes to Neo4j", drained.size(), e);
+                acknowledge(drained);
+            } finally {
+                markCompleted(drained.size());
+                drained.clear();
+            }
+        }
+    }
+
+    private void goOffline(RuntimeException cause) {
+        if (!journal.isAvailable()) {
+            logger.error("Neo4j is unreachable and the write journal is unavailable.  Ontology changes are lost.", cause);
+            return;
+        }
+        if (!offline) {
+            logger.warn("Neo4j is unreachable ({}).  Ontology changes are kept in the write journal until it is back.",
+                        cause.getMessage());
+        }
+        offline = true;
+    }
+
+    /**
+     * Sends the journaled writes that have not been committed, in order.  Writes that are queued
+     * while the journal is replayed are sent afterwards, unless they were part of the replay.
+     */
+    private void replay() {
+        long throughSequence = journal.getLastSequence();
+        List<Neo4jWriteJournal.Entry> pending = journal.getPending(throughSequence);
+        if (!pending.isEmpty()) {
+            logger.info("Replaying {} ontology changes from the write journal", pending.size());
+        }
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Neo4jWriteJournal.Entry> chunk = pending.subList(from, Math.min(pending.size(), from + batchSize));
+            try {
+                write(chunk);
+            } catch (ServiceUnavailableException | SessionExpiredException | IllegalStateException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // Skip writes that can never succeed instead of replaying them forever
+                logger.error("Failed to replay {} ontology changes to Neo4j", chunk.size(), e);
+                acknowledge(chunk);
+            }
+        }
+        journal.acknowledge(throughSequence);
+        journal.compact();
+        replayedSequence = throughSequence;
+        offline = false;
+    }
+
+    private void acknowledge(List<Neo4jWriteJournal.Entry> writes) {
+        if (!writes.isEmpty()) {
+            journal.acknowledge(writes.get(writes.size() - 1).getSequence());
+        }
+    }
+
+    private void write(List<Neo4jWriteJournal.Entry> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        List<Batch> batches = toBatches(writes);
+        long start = System.currentTimeMillis();
+        neo4jManager.write(transaction -> {
+            for (Batch batch : batches) {
+                batch.run(transaction);
+            }
+            return null;
+        });
+        acknowledge(writes);
+        logger.debug("Wrote {} ontology changes to Neo4j in {} ms", writes.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Splits writes into batches whose statements can be reordered by phase.  A new batch is started
+     * whenever an axiom is added and removed (or removed and added) within the same batch, or an add and
+     * a remove of different axioms refer to the same node, so the final state in the graph is the same as
+     * if every change had been applied in order.  For example, replacing a data property value removes
+     * and adds two assertions for the same individual and property, and the remove must not run after
+     * the add.
+     */
+    private List<Batch> toBatches(List<Neo4jWriteJournal.Entry> writes) {
+        List<Batch> batches = new ArrayList<>();
+        Batch current = new Batch();
+        for (Neo4jWriteJournal.Entry write : writes) {
+            if (current.conflictsWith(write)) {
+                batches.add(current);
+                current = new Batch();
+            }
+            current.add(write);
+        }
+        batches.add(current);
+        return batches;
+    }
+
+    private void markCompleted(int count) {
+        if (count == 0) {
+            return;
+        }
+        synchronized (progressLock) {
+            completedCount += count;
+            progressLock.notifyAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!flush(CLOSE_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            logger.info("Closing with {} ontology changes not yet written to Neo4j.  They are kept in the write journal.",
+                        getPendingCount());
+        }
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    private class Batch {
+
+        private final Map<CypherStatement, List<Map<String, Object>>> rowsByStatement = new LinkedHashMap<>();
+
+        private final Set<String> addedAxioms = new HashSet<>();
+
+        private final Set<String> removedAxioms = new HashSet<>();
+
+        /**
+         * The string parameters, such as node keys and names, of the rows of the added and removed axioms.
+         */
+        private final Set<String> addedKeys = new HashSet<>();
+
+        private final Set<String> removedKeys = new HashSet<>();
+
+        boolean conflictsWith(Neo4jWriteJournal.Entry write) {
+            Set<String> otherAxioms = write.isAdd() ? removedAxioms : addedAxioms;
+            if (otherAxioms.contains(write.getAxiom())) {
+                return true;
+            }
+            Set<String> otherKeys = write.isAdd() ? removedKeys : addedKeys;
+            if (otherKeys.isEmpty()) {
+                return false;
+            }
+            for (CypherRow row : write.getRows()) {
+                for (Object value : row.getParameters().values()) {
+                    if (value instanceof String && otherKeys.contains(value)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void add(Neo4jWriteJournal.Entry write) {
+            (write.isAdd() ? addedAxioms : removedAxioms).add(write.getAxiom());
+            Set<String> keys = write.isAdd() ? addedKeys : removedKeys;
+            for (CypherRow row : write.getRows()) {
+                rowsByStatement.computeIfAbsent(row.getStatement(), s -> new ArrayList<>()).add(row.getParameters());
+                for (Object value : row.getParameters().values()) {
+                    if (value instanceof String) {
+                        keys.add((String) value);
+                    }
+                }
+            }
+        }
+
+        void run(Transaction transaction) {
+            List<CypherStatement> statements = new ArrayList<>(rowsByStatement.keySet());
+            statements.sort(Comparator.comparing(CypherStatement::getPhase));
+            for (CypherStatement statement : statements) {
+                List<Map<String, Object>> rows = rowsByStatement.get(statement);
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    List<Map<String, Object>> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+                    transaction.run(statement.getQuery(),
+                                    Collections.singletonMap(CypherStatement.ROWS_PARAMETER, chunk));
+                }
+            }
+        }
+    }
+}
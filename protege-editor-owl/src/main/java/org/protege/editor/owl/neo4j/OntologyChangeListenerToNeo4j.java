@@ -1,62 +1,112 @@
 package org.protege.editor.owl.neo4j;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.neo4j.driver.Session;
+import org.protege.editor.owl.neo4j.CypherStatement.Phase;
 import org.semanticweb.owlapi.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener {
-    private static final Logger logger = LoggerFactory.getLogger(OntologyChangeListenerToNeo4j.class);
+import static org.protege.editor.owl.neo4j.CypherStatement.quoteIdentifier;
+import static org.protege.editor.owl.neo4j.CypherStatement.unwind;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OntologyChangeListenerToNeo4j.class);
 
-    private final Session session;
+    private final Neo4jWritePipeline writePipeline;
     private final SimpleHttpClient httpClient;
     private final Supplier<Boolean> availabilityChecker;
+    private final Neo4jGraphKey graphKey;
+
+    private final CypherStatement mergeClass;
+    private final CypherStatement deleteClass;
+    private final CypherStatement mergeObjectProperty;
+    private final CypherStatement deleteObjectProperty;
+    private final CypherStatement mergeDataProperty;
+    private final CypherStatement deleteDataProperty;
+    private final CypherStatement mergeIndividual;
+    private final CypherStatement deleteIndividual;
+
+    private final CypherStatement removeObjectPropertyDomain;
+    private final CypherStatement removeObjectPropertyRange;
+    private final CypherStatement setDataPropertyRange;
+    private final CypherStatement removeDataPropertyRange;
 
-    public OntologyChangeListenerToNeo4j(@Nonnull Session session, ElementEventHandler elementEventHandler, Supplier<Boolean> availabilityChecker) {
-        this.session = session;
+    private final CypherStatement mergeDataPropertyAssertion;
+    private final CypherStatement deleteDataPropertyAssertion;
+    private final CypherStatement mergeNegativeDataPropertyAssertion;
+    private final CypherStatement deleteNegativeDataPropertyAssertion;
+
+    public OntologyChangeListenerToNeo4j(@Nonnull Neo4jWritePipeline writePipeline, ElementEventHandler elementEventHandler, Supplier<Boolean> availabilityChecker) {
+        this(writePipeline, elementEventHandler, availabilityChecker, Neo4jSyncPreferences.get().getGraphKey());
+    }
+
+    public OntologyChangeListenerToNeo4j(@Nonnull Neo4jWritePipeline writePipeline, ElementEventHandler elementEventHandler, Supplier<Boolean> availabilityChecker, @Nonnull Neo4jGraphKey graphKey) {
+        this.writePipeline = writePipeline;
         this.httpClient = new SimpleHttpClient(elementEventHandler);
         this.availabilityChecker = availabilityChecker;
+        this.graphKey = graphKey;
+
+        String key = graphKey.getProperty();
+        mergeClass = unwind(Phase.ADD_NODES, String.format("MERGE (c:Class {%s: row.key}) SET c.name = row.name", key));
+        deleteClass = unwind(Phase.REMOVE_NODES, String.format("MATCH (c:Class {%s: row.key}) DETACH DELETE c", key));
+        mergeObjectProperty = unwind(Phase.ADD_NODES, String.format("MERGE (op:ObjectProperty {%s: row.key}) SET op.name = row.name", key));
+        deleteObjectProperty = unwind(Phase.REMOVE_NODES, String.format("MATCH (op:ObjectProperty {%s: row.key}) DETACH DELETE op", key));
+        mergeDataProperty = unwind(Phase.ADD_NODES, String.format("MERGE (dp:DataProperty {%s: row.key}) SET dp.name = row.name", key));
+        deleteDataProperty = unwind(Phase.REMOVE_NODES, String.format("MATCH (dp:DataProperty {%s: row.key}) DETACH DELETE dp", key));
+        mergeIndividual = unwind(Phase.ADD_NODES, String.format("MERGE (i:Individual {%s: row.key}) SET i.name = row.name", key));
+        deleteIndividual = unwind(Phase.REMOVE_NODES, String.format("MATCH (i:Individual {%s: row.key}) DETACH DELETE i", key));
+
+        removeObjectPropertyDomain = unwind(Phase.REMOVE_RELATIONSHIPS, String.format("MATCH (op:ObjectProperty {%s: row.key}) REMOVE op.domain", key));
+        removeObjectPropertyRange = unwind(Phase.REMOVE_RELATIONSHIPS, String.format("MATCH (op:ObjectProperty {%s: row.key}) REMOVE op.range", key));
+        setDataPropertyRange = unwind(Phase.ADD_RELATIONSHIPS, String.format("MATCH (dp:DataProperty {%s: row.key}) SET dp.range = row.range", key));
+        removeDataPropertyRange = unwind(Phase.REMOVE_RELATIONSHIPS, String.format("MATCH (dp:DataProperty {%s: row.key}) REMOVE dp.range", key));
+
+        mergeDataPropertyAssertion = unwind(Phase.ADD_RELATIONSHIPS, String.format("MATCH (i:Individual {%1$s: row.individual}) " + "MERGE (dp:DataProperty {%1$s: row.property}) " + "ON CREATE SET dp.name = row.name " + "MERGE (i)-[:HasDataProperty]->(dp) " + "SET i += row.values", key));
+        deleteDataPropertyAssertion = unwind(Phase.REMOVE_RELATIONSHIPS, String.format("MATCH (i:Individual {%1$s: row.individual})-[r:HasDataProperty]->(dp:DataProperty {%1$s: row.property}) " + "DELETE r " + "SET i += row.values", key));
+        mergeNegativeDataPropertyAssertion = unwind(Phase.ADD_RELATIONSHIPS, String.format("MATCH (i:Individual {%1$s: row.individual}) " + "MERGE (dp:DataProperty {%1$s: row.property}) " + "ON CREATE SET dp.name = row.name " + "MERGE (i)-[:HasNegativeDataProperty]->(dp) " + "SET i += row.values", key));
+        deleteNegativeDataPropertyAssertion = unwind(Phase.REMOVE_RELATIONSHIPS, String.format("MATCH (i:Individual {%1$s: row.individual})-[r:HasNegativeDataProperty]->(dp:DataProperty {%1$s: row.property}) " + "DELETE r " + "SET i += row.values", key));
+    }
+
+    public SimpleHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @Override
+    public void close() throws Exception {
+        httpClient.close();
     }
 
     @Override
     public void ontologiesChanged(@Nonnull List<? extends OWLOntologyChange> changes) {
         if (!availabilityChecker.get()) return;
 
-        session.writeTransaction(transaction -> {
-            for (OWLOntologyChange change : changes) {
-                String query = null;
-
-                if (change.isAddAxiom()) {
-                    query = handleAxiomByType(change.getAxiom(), true);
-                } else if (change.isRemoveAxiom()) {
-                    query = handleAxiomByType(change.getAxiom(), false);
-                }
-
-                if (query != null) {
-                    transaction.run(query);
-                } else {
-                    logger.info("Unhandled axiom type {}", change.getAxiom().getAxiomType());
-                }
+        List<AxiomWrite> writes = new ArrayList<>(changes.size());
+        for (OWLOntologyChange change : changes) {
+            if (!change.isAxiomChange()) {
+                continue;
             }
-            return null;
-        });
+
+            boolean isAdd = change.isAddAxiom();
+            List<CypherRow> rows = handleAxiomByType(change.getAxiom(), isAdd);
+
+            if (rows != null) {
+                writes.add(new AxiomWrite(change.getOntology().getOntologyID(), change.getAxiom(), isAdd, rows));
+            } else {
+                logger.debug("Unhandled axiom type {}", change.getAxiom().getAxiomType());
+            }
+        }
+
+        writePipeline.submit(writes);
     }
 
-    private String handleAxiomByType(OWLAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleAxiomByType(OWLAxiom axiom, boolean isAdd) {
         AxiomType<?> type = axiom.getAxiomType();
 
-        logger.info("Handle axiom type: {}", type);
+        logger.debug("Handle axiom type: {}", type);
 
         if (type == AxiomType.DECLARATION) {
             return handleDeclarationAxiom((OWLDeclarationAxiom) axiom, isAdd);
@@ -105,7 +155,7 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
         return null;
     }
 
-    private String handleDeclarationAxiom(OWLDeclarationAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleDeclarationAxiom(OWLDeclarationAxiom axiom, boolean isAdd) {
         OWLEntity entity = axiom.getEntity();
 
         if (entity instanceof OWLClass) {
@@ -121,162 +171,143 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
         return null;
     }
 
-    private String handleClassDeclaration(OWLClass cls, boolean isAdd) {
+    private List<CypherRow> handleClassDeclaration(OWLClass cls, boolean isAdd) {
         String className = getShortForm(cls.getIRI());
         Map<String, String> props = new HashMap<>();
         props.put("name", className);
+        props.put("iri", cls.getIRI().toString());
 
-        String message = mapToJson(new ElementEvent("Class", props, isAdd));
-        httpClient.sendMessage(message);
+        httpClient.send(new ElementEvent("Class", props, isAdd));
 
-        return isAdd ? String.format("MERGE (c:Class {name: '%s'})", className) : String.format("MATCH (c:Class {name: '%s'}) DETACH DELETE c", className);
+        return rows(isAdd ? mergeClass : deleteClass, row("key", getKey(cls.getIRI()), "name", className));
     }
 
-    private String handleObjectPropertyDeclaration(OWLObjectProperty property, boolean isAdd) {
+    private List<CypherRow> handleObjectPropertyDeclaration(OWLObjectProperty property, boolean isAdd) {
         String propName = getShortForm(property.getIRI());
         Map<String, String> props = new HashMap<>();
         props.put("name", propName);
+        props.put("iri", property.getIRI().toString());
 
-        String message = mapToJson(new ElementEvent("ObjectProperty", props, isAdd));
-        httpClient.sendMessage(message);
+        httpClient.send(new ElementEvent("ObjectProperty", props, isAdd));
 
-        return isAdd ? String.format("MERGE (op:ObjectProperty {name: '%s'})", propName) : String.format("MATCH (op:ObjectProperty {name: '%s'}) DETACH DELETE op", propName);
+        return rows(isAdd ? mergeObjectProperty : deleteObjectProperty, row("key", getKey(property.getIRI()), "name", propName));
     }
 
-    private String handleDataPropertyDeclaration(OWLDataProperty property, boolean isAdd) {
+    private List<CypherRow> handleDataPropertyDeclaration(OWLDataProperty property, boolean isAdd) {
         String propName = getShortForm(property.getIRI());
         Map<String, String> props = new HashMap<>();
         props.put("name", propName);
+        props.put("iri", property.getIRI().toString());
 
-        String message = mapToJson(new ElementEvent("DataProperty", props, isAdd));
-        httpClient.sendMessage(message);
+        httpClient.send(new ElementEvent("DataProperty", props, isAdd));
 
-        return isAdd ? String.format("MERGE (dp:DataProperty {name: '%s'})", propName) : String.format("MATCH (dp:DataProperty {name: '%s'}) DETACH DELETE dp", propName);
+        return rows(isAdd ? mergeDataProperty : deleteDataProperty, row("key", getKey(property.getIRI()), "name", propName));
     }
 
-    private String handleIndividualDeclaration(OWLNamedIndividual individual, boolean isAdd) {
+    private List<CypherRow> handleIndividualDeclaration(OWLNamedIndividual individual, boolean isAdd) {
         String indName = getShortForm(individual.getIRI());
         Map<String, String> props = new HashMap<>();
         props.put("name", indName);
+        props.put("iri", individual.getIRI().toString());
 
-        String message = mapToJson(new ElementEvent("Individual", props, isAdd));
-        httpClient.sendMessage(message);
+        httpClient.send(new ElementEvent("Individual", props, isAdd));
 
-        return isAdd ? String.format("MERGE (i:Individual {name: '%s'})", indName) : String.format("MATCH (i:Individual {name: '%s'}) DETACH DELETE i", indName);
+        return rows(isAdd ? mergeIndividual : deleteIndividual, row("key", getKey(individual.getIRI()), "name", indName));
     }
 
-    private String handleSubClassAxiom(OWLSubClassOfAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleSubClassAxiom(OWLSubClassOfAxiom axiom, boolean isAdd) {
         if (!isOWLClass(axiom.getSubClass()) || !isOWLClass(axiom.getSuperClass())) {
             return null;
         }
 
-        String subClass = getShortForm(axiom.getSubClass().asOWLClass().getIRI());
-        String superClass = getShortForm(axiom.getSuperClass().asOWLClass().getIRI());
+        String subClass = getKey(axiom.getSubClass().asOWLClass().getIRI());
+        String superClass = getKey(axiom.getSuperClass().asOWLClass().getIRI());
 
-        return isAdd ? String.format("MATCH (sub:Class {name: '%s'}), (super:Class {name: '%s'}) " + "MERGE (sub)-[:SubClassOf]->(super)", subClass, superClass) : String.format("MATCH (sub:Class {name: '%s'})-[r:SubClassOf]->(super:Class {name: '%s'}) " + "DELETE r", subClass, superClass);
+        return rows(relationship("Class", "SubClassOf", "Class", true, isAdd), row("from", subClass, "to", superClass));
     }
 
-    private String handleEquivalentClassesAxiom(OWLEquivalentClassesAxiom axiom, boolean isAdd) {
-        StringBuilder query = new StringBuilder();
+    private List<CypherRow> handleEquivalentClassesAxiom(OWLEquivalentClassesAxiom axiom, boolean isAdd) {
         List<OWLClass> classes = axiom.getClassExpressions().stream().filter(this::isOWLClass).map(OWLClassExpression::asOWLClass).collect(Collectors.toList());
 
-        for (int i = 0; i < classes.size(); i++) {
-            for (int j = i + 1; j < classes.size(); j++) {
-                String name1 = getShortForm(classes.get(i).getIRI());
-                String name2 = getShortForm(classes.get(j).getIRI());
-
-                query.append(isAdd ? String.format("MATCH (c1:Class {name: '%s'}), (c2:Class {name: '%s'}) " + "MERGE (c1)-[:EquivalentTo]-(c2); ", name1, name2) : String.format("MATCH (c1:Class {name: '%s'})-[r:EquivalentTo]-(c2:Class {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
-        }
-
-        return query.toString();
+        return pairwise(relationship("Class", "EquivalentTo", "Class", false, isAdd), classes);
     }
 
-    private String handleDisjointClassesAxiom(OWLDisjointClassesAxiom axiom, boolean isAdd) {
-        StringBuilder query = new StringBuilder();
+    private List<CypherRow> handleDisjointClassesAxiom(OWLDisjointClassesAxiom axiom, boolean isAdd) {
         List<OWLClass> classes = axiom.getClassExpressions().stream().filter(this::isOWLClass).map(OWLClassExpression::asOWLClass).collect(Collectors.toList());
 
-        for (int i = 0; i < classes.size(); i++) {
-            for (int j = i + 1; j < classes.size(); j++) {
-                String name1 = getShortForm(classes.get(i).getIRI());
-                String name2 = getShortForm(classes.get(j).getIRI());
-
-                query.append(isAdd ? String.format("MATCH (c1:Class {name: '%s'}), (c2:Class {name: '%s'}) " + "MERGE (c1)-[:DisjointWith]-(c2); ", name1, name2) : String.format("MATCH (c1:Class {name: '%s'})-[r:DisjointWith]-(c2:Class {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
-        }
-
-        return query.toString();
+        return pairwise(relationship("Class", "DisjointWith", "Class", false, isAdd), classes);
     }
 
-    private String handleObjectPropertyDomainAxiom(OWLObjectPropertyDomainAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleObjectPropertyDomainAxiom(OWLObjectPropertyDomainAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed()) {
             return null;
         }
 
-        String propertyName = getShortForm(axiom.getProperty().asOWLObjectProperty().getIRI());
+        String propertyName = getKey(axiom.getProperty().asOWLObjectProperty().getIRI());
         OWLClassExpression domain = axiom.getDomain();
 
         if (domain.isOWLThing()) {
-            return isAdd ? String.format("MATCH (op:ObjectProperty {name: '%s'}) " + "REMOVE op.domain;", propertyName) : "";
+            return isAdd ? rows(removeObjectPropertyDomain, row("key", propertyName)) : Collections.emptyList();
         }
 
         if (!isOWLClass(domain)) {
             return null;
         }
 
-        String domainName = getShortForm(domain.asOWLClass().getIRI());
+        String domainName = getKey(domain.asOWLClass().getIRI());
 
-        return String.format("MATCH (op:ObjectProperty {name: '%s'}), (d:Class {name: '%s'}) " + "%s (op)-[:Domain]->(d)", propertyName, domainName, isAdd ? "MERGE" : "MATCH (op)-[r:Domain]->(d) DELETE r");
+        return rows(relationship("ObjectProperty", "Domain", "Class", true, isAdd), row("from", propertyName, "to", domainName));
     }
 
-    private String handleObjectPropertyRangeAxiom(OWLObjectPropertyRangeAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleObjectPropertyRangeAxiom(OWLObjectPropertyRangeAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed()) {
             return null;
         }
 
-        String propertyName = getShortForm(axiom.getProperty().asOWLObjectProperty().getIRI());
+        String propertyName = getKey(axiom.getProperty().asOWLObjectProperty().getIRI());
         OWLClassExpression range = axiom.getRange();
 
         if (range.isOWLThing()) {
-            return isAdd ? String.format("MATCH (op:ObjectProperty {name: '%s'}) " + "REMOVE op.range;", propertyName) : "";
+            return isAdd ? rows(removeObjectPropertyRange, row("key", propertyName)) : Collections.emptyList();
         }
 
         if (!isOWLClass(range)) {
             return null;
         }
 
-        String rangeName = getShortForm(range.asOWLClass().getIRI());
+        String rangeName = getKey(range.asOWLClass().getIRI());
 
-        return isAdd ? String.format("MATCH (op:ObjectProperty {name: '%s'}), (r:Class {name: '%s'}) " + "MERGE (op)-[:Range]->(r)", propertyName, rangeName) : String.format("MATCH (op:ObjectProperty {name: '%s'})-[rel:Range]->(r:Class {name: '%s'}) " + "DELETE rel", propertyName, rangeName);
+        return rows(relationship("ObjectProperty", "Range", "Class", true, isAdd), row("from", propertyName, "to", rangeName));
     }
 
-    private String handleSubObjectPropertyAxiom(OWLSubObjectPropertyOfAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleSubObjectPropertyAxiom(OWLSubObjectPropertyOfAxiom axiom, boolean isAdd) {
         if (!axiom.getSubProperty().isNamed() || !axiom.getSuperProperty().isNamed()) {
             return null;
         }
 
-        String subProp = getShortForm(axiom.getSubProperty().asOWLObjectProperty().getIRI());
-        String superProp = getShortForm(axiom.getSuperProperty().asOWLObjectProperty().getIRI());
+        String subProp = getKey(axiom.getSubProperty().asOWLObjectProperty().getIRI());
+        String superProp = getKey(axiom.getSuperProperty().asOWLObjectProperty().getIRI());
 
-        return isAdd ? String.format("MATCH (sub:ObjectProperty {name: '%s'}), (super:ObjectProperty {name: '%s'}) " + "MERGE (sub)-[:SubPropertyOf]->(super)", subProp, superProp) : String.format("MATCH (sub:ObjectProperty {name: '%s'})-[r:SubPropertyOf]->(super:ObjectProperty {name: '%s'}) " + "DELETE r", subProp, superProp);
+        return rows(relationship("ObjectProperty", "SubPropertyOf", "ObjectProperty", true, isAdd), row("from", subProp, "to", superProp));
     }
 
-    private String handleInversePropertiesAxiom(OWLInverseObjectPropertiesAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleInversePropertiesAxiom(OWLInverseObjectPropertiesAxiom axiom, boolean isAdd) {
         if (!axiom.getFirstProperty().isNamed() || !axiom.getSecondProperty().isNamed()) {
             return null;
         }
 
-        String prop1 = getShortForm(axiom.getFirstProperty().asOWLObjectProperty().getIRI());
-        String prop2 = getShortForm(axiom.getSecondProperty().asOWLObjectProperty().getIRI());
+        String prop1 = getKey(axiom.getFirstProperty().asOWLObjectProperty().getIRI());
+        String prop2 = getKey(axiom.getSecondProperty().asOWLObjectProperty().getIRI());
 
-        return isAdd ? String.format("MATCH (p1:ObjectProperty {name: '%s'}), (p2:ObjectProperty {name: '%s'}) " + "MERGE (p1)-[:InverseOf]->(p2) " + "MERGE (p2)-[:InverseOf]->(p1)", prop1, prop2) : String.format("MATCH (p1:ObjectProperty {name: '%s'})-[r1:InverseOf]->(p2:ObjectProperty {name: '%s'}) " + "MATCH (p2)-[r2:InverseOf]->(p1) " + "DELETE r1, r2", prop1, prop2);
+        CypherStatement statement = relationship("ObjectProperty", "InverseOf", "ObjectProperty", true, isAdd);
+        return Arrays.asList(new CypherRow(statement, row("from", prop1, "to", prop2)), new CypherRow(statement, row("from", prop2, "to", prop1)));
     }
 
-    private String handleEquivalentObjectPropertiesAxiom(OWLEquivalentObjectPropertiesAxiom axiom, boolean isAdd) {
-        List<OWLObjectPropertyExpression> props = new ArrayList<>();
+    private List<CypherRow> handleEquivalentObjectPropertiesAxiom(OWLEquivalentObjectPropertiesAxiom axiom, boolean isAdd) {
+        List<OWLObjectProperty> props = new ArrayList<>();
         axiom.getProperties().forEach(prop -> {
             if (prop.isNamed()) {
-                props.add(prop);
+                props.add(prop.asOWLObjectProperty());
             }
         });
 
@@ -284,23 +315,14 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
             return null;
         }
 
-        StringBuilder query = new StringBuilder();
-        for (int i = 0; i < props.size(); i++) {
-            for (int j = i + 1; j < props.size(); j++) {
-                String name1 = getShortForm(props.get(i).asOWLObjectProperty().getIRI());
-                String name2 = getShortForm(props.get(j).asOWLObjectProperty().getIRI());
-
-                query.append(isAdd ? String.format("MATCH (p1:ObjectProperty {name: '%s'}), (p2:ObjectProperty {name: '%s'}) " + "MERGE (p1)-[:EquivalentTo]-(p2); ", name1, name2) : String.format("MATCH (p1:ObjectProperty {name: '%s'})-[r:EquivalentTo]-(p2:ObjectProperty {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
-        }
-        return query.toString();
+        return pairwise(relationship("ObjectProperty", "EquivalentTo", "ObjectProperty", false, isAdd), props);
     }
 
-    private String handleDisjointObjectPropertiesAxiom(OWLDisjointObjectPropertiesAxiom axiom, boolean isAdd) {
-        List<OWLObjectPropertyExpression> props = new ArrayList<>();
+    private List<CypherRow> handleDisjointObjectPropertiesAxiom(OWLDisjointObjectPropertiesAxiom axiom, boolean isAdd) {
+        List<OWLObjectProperty> props = new ArrayList<>();
         axiom.getProperties().forEach(prop -> {
             if (prop.isNamed()) {
-                props.add(prop);
+                props.add(prop.asOWLObjectProperty());
             }
         });
 
@@ -308,41 +330,32 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
             return null;
         }
 
-        StringBuilder query = new StringBuilder();
-        for (int i = 0; i < props.size(); i++) {
-            for (int j = i + 1; j < props.size(); j++) {
-                String name1 = getShortForm(props.get(i).asOWLObjectProperty().getIRI());
-                String name2 = getShortForm(props.get(j).asOWLObjectProperty().getIRI());
-
-                query.append(isAdd ? String.format("MATCH (p1:ObjectProperty {name: '%s'}), (p2:ObjectProperty {name: '%s'}) " + "MERGE (p1)-[:DisjointWith]->(p2); ", name1, name2) : String.format("MATCH (p1:ObjectProperty {name: '%s'})-[r:DisjointWith]->(p2:ObjectProperty {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
-        }
-        return query.toString();
+        return pairwise(relationship("ObjectProperty", "DisjointWith", "ObjectProperty", true, isAdd), props);
     }
 
-    private String handleDataPropertyDomainAxiom(OWLDataPropertyDomainAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleDataPropertyDomainAxiom(OWLDataPropertyDomainAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed()) {
             return null;
         }
 
-        String propName = getShortForm(axiom.getProperty().asOWLDataProperty().getIRI());
+        String propName = getKey(axiom.getProperty().asOWLDataProperty().getIRI());
         OWLClassExpression domain = axiom.getDomain();
 
         if (!isOWLClass(domain)) {
             return null;
         }
 
-        String domainName = getShortForm(domain.asOWLClass().getIRI());
+        String domainName = getKey(domain.asOWLClass().getIRI());
 
-        return isAdd ? String.format("MATCH (dp:DataProperty {name: '%s'}), (d:Class {name: '%s'}) " + "MERGE (dp)-[:Domain]->(d)", propName, domainName) : String.format("MATCH (dp:DataProperty {name: '%s'})-[r:Domain]->(d:Class {name: '%s'}) " + "DELETE r", propName, domainName);
+        return rows(relationship("DataProperty", "Domain", "Class", true, isAdd), row("from", propName, "to", domainName));
     }
 
-    private String handleDataPropertyRangeAxiom(OWLDataPropertyRangeAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleDataPropertyRangeAxiom(OWLDataPropertyRangeAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed()) {
             return null;
         }
 
-        String propName = getShortForm(axiom.getProperty().asOWLDataProperty().getIRI());
+        String propName = getKey(axiom.getProperty().asOWLDataProperty().getIRI());
         OWLDataRange range = axiom.getRange();
 
         if (!range.isDatatype()) {
@@ -351,25 +364,25 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
 
         String rangeName = range.asOWLDatatype().getIRI().getShortForm();
 
-        return isAdd ? String.format("MATCH (dp:DataProperty {name: '%s'}) " + "SET dp.range = '%s'", propName, rangeName) : String.format("MATCH (dp:DataProperty {name: '%s'}) " + "REMOVE dp.range", propName);
+        return isAdd ? rows(setDataPropertyRange, row("key", propName, "range", rangeName)) : rows(removeDataPropertyRange, row("key", propName));
     }
 
-    private String handleSubDataPropertyAxiom(OWLSubDataPropertyOfAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleSubDataPropertyAxiom(OWLSubDataPropertyOfAxiom axiom, boolean isAdd) {
         if (!axiom.getSubProperty().isNamed() || !axiom.getSuperProperty().isNamed()) {
             return null;
         }
 
-        String subProp = getShortForm(axiom.getSubProperty().asOWLDataProperty().getIRI());
-        String superProp = getShortForm(axiom.getSuperProperty().asOWLDataProperty().getIRI());
+        String subProp = getKey(axiom.getSubProperty().asOWLDataProperty().getIRI());
+        String superProp = getKey(axiom.getSuperProperty().asOWLDataProperty().getIRI());
 
-        return isAdd ? String.format("MATCH (sub:DataProperty {name: '%s'}), (super:DataProperty {name: '%s'}) " + "MERGE (sub)-[:SubPropertyOf]->(super)", subProp, superProp) : String.format("MATCH (sub:DataProperty {name: '%s'})-[r:SubPropertyOf]->(super:DataProperty {name: '%s'}) " + "DELETE r", subProp, superProp);
+        return rows(relationship("DataProperty", "SubPropertyOf", "DataProperty", true, isAdd), row("from", subProp, "to", superProp));
     }
 
-    private String handleEquivalentDataPropertiesAxiom(OWLEquivalentDataPropertiesAxiom axiom, boolean isAdd) {
-        List<OWLDataPropertyExpression> props = new ArrayList<>();
+    private List<CypherRow> handleEquivalentDataPropertiesAxiom(OWLEquivalentDataPropertiesAxiom axiom, boolean isAdd) {
+        List<OWLDataProperty> props = new ArrayList<>();
         axiom.getProperties().forEach(prop -> {
             if (prop.isNamed()) {
-                props.add(prop);
+                props.add(prop.asOWLDataProperty());
             }
         });
 
@@ -377,23 +390,14 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
             return null;
         }
 
-        StringBuilder query = new StringBuilder();
-        for (int i = 0; i < props.size(); i++) {
-            for (int j = i + 1; j < props.size(); j++) {
-                String name1 = getShortForm(props.get(i).asOWLDataProperty().getIRI());
-                String name2 = getShortForm(props.get(j).asOWLDataProperty().getIRI());
-
-                query.append(isAdd ? String.format("MATCH (p1:DataProperty {name: '%s'}), (p2:DataProperty {name: '%s'}) " + "MERGE (p1)-[:EquivalentTo]-(p2); ", name1, name2) : String.format("MATCH (p1:DataProperty {name: '%s'})-[r:EquivalentTo]-(p2:DataProperty {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
-        }
-        return query.toString();
+        return pairwise(relationship("DataProperty", "EquivalentTo", "DataProperty", false, isAdd), props);
     }
 
-    private String handleDisjointDataPropertiesAxiom(OWLDisjointDataPropertiesAxiom axiom, boolean isAdd) {
-        List<OWLDataPropertyExpression> props = new ArrayList<>();
+    private List<CypherRow> handleDisjointDataPropertiesAxiom(OWLDisjointDataPropertiesAxiom axiom, boolean isAdd) {
+        List<OWLDataProperty> props = new ArrayList<>();
         axiom.getProperties().forEach(prop -> {
             if (prop.isNamed()) {
-                props.add(prop);
+                props.add(prop.asOWLDataProperty());
             }
         });
 
@@ -401,82 +405,75 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
             return null;
         }
 
-        StringBuilder query = new StringBuilder();
-        for (int i = 0; i < props.size(); i++) {
-            for (int j = i + 1; j < props.size(); j++) {
-                String name1 = getShortForm(props.get(i).asOWLDataProperty().getIRI());
-                String name2 = getShortForm(props.get(j).asOWLDataProperty().getIRI());
-
-                query.append(isAdd ? String.format("MATCH (p1:DataProperty {name: '%s'}), (p2:DataProperty {name: '%s'}) " + "MERGE (p1)-[:DisjointWith]->(p2); ", name1, name2) : String.format("MATCH (p1:DataProperty {name: '%s'})-[r:DisjointWith]->(p2:DataProperty {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
-        }
-        return query.toString();
+        return pairwise(relationship("DataProperty", "DisjointWith", "DataProperty", true, isAdd), props);
     }
 
-    private String handleClassAssertionAxiom(OWLClassAssertionAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleClassAssertionAxiom(OWLClassAssertionAxiom axiom, boolean isAdd) {
         if (!axiom.getIndividual().isNamed() || !isOWLClass(axiom.getClassExpression())) {
             return null;
         }
 
-        String individual = getShortForm(axiom.getIndividual().asOWLNamedIndividual().getIRI());
-        String className = getShortForm(axiom.getClassExpression().asOWLClass().getIRI());
+        String individual = getKey(axiom.getIndividual().asOWLNamedIndividual().getIRI());
+        String className = getKey(axiom.getClassExpression().asOWLClass().getIRI());
 
-        return isAdd ? String.format("MATCH (i:Individual {name: '%s'}), (c:Class {name: '%s'}) " + "MERGE (i)-[:TypeOf]->(c)", individual, className) : String.format("MATCH (i:Individual {name: '%s'})-[r:TypeOf]->(c:Class {name: '%s'}) " + "DELETE r", individual, className);
+        return rows(relationship("Individual", "TypeOf", "Class", true, isAdd), row("from", individual, "to", className));
     }
 
-    private String handleObjectPropertyAssertionAxiom(OWLObjectPropertyAssertionAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleObjectPropertyAssertionAxiom(OWLObjectPropertyAssertionAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed() || !axiom.getSubject().isNamed() || !axiom.getObject().isNamed()) {
             return null;
         }
 
         String property = getShortForm(axiom.getProperty().asOWLObjectProperty().getIRI());
-        String subject = getShortForm(axiom.getSubject().asOWLNamedIndividual().getIRI());
-        String object = getShortForm(axiom.getObject().asOWLNamedIndividual().getIRI());
+        String subject = getKey(axiom.getSubject().asOWLNamedIndividual().getIRI());
+        String object = getKey(axiom.getObject().asOWLNamedIndividual().getIRI());
 
-        return isAdd ? String.format("MATCH (s:Individual {name: '%s'}), (o:Individual {name: '%s'}) " + "MERGE (s)-[:%s]->(o)", subject, object, property) : String.format("MATCH (s:Individual {name: '%s'})-[r:%s]->(o:Individual {name: '%s'}) " + "DELETE r", subject, property, object);
+        return rows(relationship("Individual", property, "Individual", true, isAdd), row("from", subject, "to", object));
     }
 
-    private String handleDataPropertyAssertionAxiom(OWLDataPropertyAssertionAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleDataPropertyAssertionAxiom(OWLDataPropertyAssertionAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed() || !axiom.getSubject().isNamed()) {
             return null;
         }
 
-        String property = getShortForm(axiom.getProperty().asOWLDataProperty().getIRI());
-        String individual = getShortForm(axiom.getSubject().asOWLNamedIndividual().getIRI());
-        String value = escapeNeo4jValue(axiom.getObject().getLiteral());
+        IRI propertyIRI = axiom.getProperty().asOWLDataProperty().getIRI();
+        String property = getShortForm(propertyIRI);
+        String individual = getKey(axiom.getSubject().asOWLNamedIndividual().getIRI());
+        String value = isAdd ? axiom.getObject().getLiteral() : null;
 
-        return isAdd ? String.format("MATCH (i:Individual {name: '%s'}) " + "MERGE (dp:DataProperty {name: '%s'}) " + "MERGE (i)-[:HasDataProperty]->(dp) " + "SET i.%s = '%s'", individual, property, property, value) : String.format("MATCH (i:Individual {name: '%s'})-[r:HasDataProperty]->" + "(dp:DataProperty {name: '%s'}) " + "DELETE r " + "REMOVE i.%s", individual, property, property);
+        return rows(isAdd ? mergeDataPropertyAssertion : deleteDataPropertyAssertion, row("individual", individual, "property", getKey(propertyIRI), "name", property, "values", values(property, value)));
     }
 
-    private String handleNegativeObjectPropertyAssertionAxiom(OWLNegativeObjectPropertyAssertionAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleNegativeObjectPropertyAssertionAxiom(OWLNegativeObjectPropertyAssertionAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed() || !axiom.getSubject().isNamed() || !axiom.getObject().isNamed()) {
             return null;
         }
 
         String property = getShortForm(axiom.getProperty().asOWLObjectProperty().getIRI());
-        String subject = getShortForm(axiom.getSubject().asOWLNamedIndividual().getIRI());
-        String object = getShortForm(axiom.getObject().asOWLNamedIndividual().getIRI());
+        String subject = getKey(axiom.getSubject().asOWLNamedIndividual().getIRI());
+        String object = getKey(axiom.getObject().asOWLNamedIndividual().getIRI());
 
-        return isAdd ? String.format("MATCH (s:Individual {name: '%s'}), (o:Individual {name: '%s'}) " + "MERGE (s)-[:Not_%s]->(o)", subject, object, property) : String.format("MATCH (s:Individual {name: '%s'})-[r:Not_%s]->(o:Individual {name: '%s'}) " + "DELETE r", subject, property, object);
+        return rows(relationship("Individual", "Not_" + property, "Individual", true, isAdd), row("from", subject, "to", object));
     }
 
-    private String handleNegativeDataPropertyAssertionAxiom(OWLNegativeDataPropertyAssertionAxiom axiom, boolean isAdd) {
+    private List<CypherRow> handleNegativeDataPropertyAssertionAxiom(OWLNegativeDataPropertyAssertionAxiom axiom, boolean isAdd) {
         if (!axiom.getProperty().isNamed() || !axiom.getSubject().isNamed()) {
             return null;
         }
 
-        String property = getShortForm(axiom.getProperty().asOWLDataProperty().getIRI());
-        String individual = getShortForm(axiom.getSubject().asOWLNamedIndividual().getIRI());
-        String value = escapeNeo4jValue(axiom.getObject().getLiteral());
+        IRI propertyIRI = axiom.getProperty().asOWLDataProperty().getIRI();
+        String property = getShortForm(propertyIRI);
+        String individual = getKey(axiom.getSubject().asOWLNamedIndividual().getIRI());
+        String value = isAdd ? axiom.getObject().getLiteral() : null;
 
-        return isAdd ? String.format("MATCH (i:Individual {name: '%s'}) " + "MERGE (dp:DataProperty {name: '%s'}) " + "MERGE (i)-[:HasNegativeDataProperty]->(dp) " + "SET i.not_%s = '%s'", individual, property, property, value) : String.format("MATCH (i:Individual {name: '%s'})-[r:HasNegativeDataProperty]->" + "(dp:DataProperty {name: '%s'}) " + "DELETE r " + "REMOVE i.not_%s", individual, property, property);
+        return rows(isAdd ? mergeNegativeDataPropertyAssertion : deleteNegativeDataPropertyAssertion, row("individual", individual, "property", getKey(propertyIRI), "name", property, "values", values("not_" + property, value)));
     }
 
-    private String handleSameIndividualAxiom(OWLSameIndividualAxiom axiom, boolean isAdd) {
-        List<OWLIndividual> individuals = new ArrayList<>();
+    private List<CypherRow> handleSameIndividualAxiom(OWLSameIndividualAxiom axiom, boolean isAdd) {
+        List<OWLNamedIndividual> individuals = new ArrayList<>();
         axiom.getIndividuals().forEach(ind -> {
             if (ind.isNamed()) {
-                individuals.add(ind);
+                individuals.add(ind.asOWLNamedIndividual());
             }
         });
 
@@ -484,23 +481,14 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
             return null;
         }
 
-        StringBuilder query = new StringBuilder();
-        for (int i = 0; i < individuals.size(); i++) {
-            for (int j = i + 1; j < individuals.size(); j++) {
-                String name1 = getShortForm(individuals.get(i).asOWLNamedIndividual().getIRI());
-                String name2 = getShortForm(individuals.get(j).asOWLNamedIndividual().getIRI());
-
-                query.append(isAdd ? String.format("MATCH (i1:Individual {name: '%s'}), (i2:Individual {name: '%s'}) " + "MERGE (i1)-[:SameAs]->(i2); ", name1, name2) : String.format("MATCH (i1:Individual {name: '%s'})-[r:SameAs]->(i2:Individual {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
-        }
-        return query.toString();
+        return pairwise(relationship("Individual", "SameAs", "Individual", true, isAdd), individuals);
     }
 
-    private String handleDifferentIndividualsAxiom(OWLDifferentIndividualsAxiom axiom, boolean isAdd) {
-        List<OWLIndividual> individuals = new ArrayList<>();
+    private List<CypherRow> handleDifferentIndividualsAxiom(OWLDifferentIndividualsAxiom axiom, boolean isAdd) {
+        List<OWLNamedIndividual> individuals = new ArrayList<>();
         axiom.getIndividuals().forEach(ind -> {
             if (ind.isNamed()) {
-                individuals.add(ind);
+                individuals.add(ind.asOWLNamedIndividual());
             }
         });
 
@@ -508,46 +496,64 @@ public class OntologyChangeListenerToNeo4j implements OWLOntologyChangeListener
             return null;
         }
 
-        StringBuilder query = new StringBuilder();
-        for (int i = 0; i < individuals.size(); i++) {
-            for (int j = i + 1; j < individuals.size(); j++) {
-                String name1 = getShortForm(individuals.get(i).asOWLNamedIndividual().getIRI());
-                String name2 = getShortForm(individuals.get(j).asOWLNamedIndividual().getIRI());
+        return pairwise(relationship("Individual", "DifferentFrom", "Individual", true, isAdd), individuals);
+    }
 
-                query.append(isAdd ? String.format("MATCH (i1:Individual {name: '%s'}), (i2:Individual {name: '%s'}) " + "MERGE (i1)-[:DifferentFrom]->(i2); ", name1, name2) : String.format("MATCH (i1:Individual {name: '%s'})-[r:DifferentFrom]->(i2:Individual {name: '%s'}) " + "DELETE r; ", name1, name2));
-            }
+    /**
+     * Creates the statement that merges or deletes a relationship between two named nodes.  The
+     * relationship type is quoted because it may come from an entity name.
+     */
+    private CypherStatement relationship(String fromLabel, String type, String toLabel, boolean directed, boolean isAdd) {
+        String arrow = directed ? "->" : "-";
+        String key = graphKey.getProperty();
+        if (isAdd) {
+            return unwind(Phase.ADD_RELATIONSHIPS, String.format("MATCH (a:%s {%s: row.from}), (b:%s {%s: row.to}) " + "MERGE (a)-[:%s]%s(b)", fromLabel, key, toLabel, key, quoteIdentifier(type), arrow));
+        } else {
+            return unwind(Phase.REMOVE_RELATIONSHIPS, String.format("MATCH (a:%s {%s: row.from})-[r:%s]%s(b:%s {%s: row.to}) " + "DELETE r", fromLabel, key, quoteIdentifier(type), arrow, toLabel, key));
         }
-        return query.toString();
     }
 
-    private boolean isOWLClass(OWLClassExpression expression) {
-        return !expression.isOWLThing() && !expression.isOWLNothing();
+    private List<CypherRow> pairwise(CypherStatement statement, List<? extends OWLEntity> entities) {
+        List<CypherRow> rows = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            for (int j = i + 1; j < entities.size(); j++) {
+                String name1 = getKey(entities.get(i).getIRI());
+                String name2 = getKey(entities.get(j).getIRI());
+
+                rows.add(new CypherRow(statement, row("from", name1, "to", name2)));
+            }
+        }
+        return rows;
     }
 
-    private String getShortForm(IRI iri) {
-        String iriString = iri.toString();
-        int lastIndex = iriString.lastIndexOf('#');
+    private static List<CypherRow> rows(CypherStatement statement, Map<String, Object> row) {
+        return Collections.singletonList(new CypherRow(statement, row));
+    }
 
-        if (lastIndex == -1) {
-            lastIndex = iriString.lastIndexOf('/');
+    private static Map<String, Object> row(Object... keysAndValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            row.put((String) keysAndValues[i], keysAndValues[i + 1]);
         }
+        return row;
+    }
 
-        return lastIndex != -1 ? iriString.substring(lastIndex + 1) : iriString;
+    // A null value removes the property when the map is applied with SET +=
+    private static Map<String, Object> values(String property, String value) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(property, value);
+        return values;
     }
 
-    // Auxiliary method for screening values
-    private String escapeNeo4jValue(String value) {
-        return value.replace("'", "\\'");
+    private boolean isOWLClass(OWLClassExpression expression) {
+        return !expression.isOWLThing() && !expression.isOWLNothing();
     }
 
-    private String mapToJson(ElementEvent event) {
-        try {
-            String json = objectMapper.writeValueAsString(event);
-            logger.info("Serialized event: {}", json);
-            return json;
-        } catch (Exception e) {
-            logger.error("Failed to serialize event", e);
-        }
-        return null;
+    private String getKey(IRI iri) {
+        return graphKey.getKey(iri);
+    }
+
+    private String getShortForm(IRI iri) {
+        return Neo4jGraphKey.getShortForm(iri);
     }
 }
@@ -2,93 +2,423 @@ package org.protege.editor.owl.neo4j;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import java.io.BufferedReader;
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Exchanges {@link ElementEvent}s with the sync server.
+ * <p>
+ * Incoming events are read from a persistent {@code text/event-stream} connection to
+ * {@code /api/messages/{uuid}/stream}.  Each {@code data:} payload (or plain line) may hold a single
+ * event or a JSON array of events.  If the server does not offer the stream the client falls back to
+ * polling {@code /api/messages/{uuid}}, polling again immediately while messages keep arriving.
+ * Events that arrive in a burst are handed to the {@link ElementEventHandler} as a single list on the
+ * event dispatch thread.
+ * <p>
+ * Outgoing events are queued by {@link #send(ElementEvent)} and posted as JSON arrays by a dedicated
+ * sender thread.  An addition and a removal of the same element that are both still waiting cancel
+ * each other out, so they never reach the server.
+ */
 public class SimpleHttpClient implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(SimpleHttpClient.class);
 
-    private final String url = "http://localhost:8080";
+    private static final String DEFAULT_URL = "http://localhost:8080";
+
+    private static final long POLL_INTERVAL_MS = 3000;
+
+    private static final long INITIAL_RECONNECT_DELAY_MS = 500;
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final String url;
     private final String uuid = UUID.randomUUID().toString();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final ScheduledExecutorService messageExecutor;
+    private final ExecutorService messageExecutor;
 
     private final CloseableHttpClient client;
     private final ElementEventHandler eventHandler;
 
+    private final List<ElementEvent> pendingEvents = new ArrayList<>();
+
+    private boolean dispatchScheduled = false;
+
+    private volatile boolean streamingEnabled;
+
+    private volatile boolean closed = false;
+
+    private volatile HttpGet activeRequest;
+
+    private final Object outboxLock = new Object();
+
+    private final LinkedHashMap<String, ElementEvent> outbox = new LinkedHashMap<>();
+
+    private final int outboxCapacity;
+
+    private final int outboundBatchSize;
+
+    private final Thread senderThread;
+
+    private final AtomicLong sentCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong totalSendLatencyMillis = new AtomicLong();
+
+    private final AtomicLong lastSendLatencyMillis = new AtomicLong();
+
     public SimpleHttpClient(ElementEventHandler eventHandler) {
-        client = HttpClients.createDefault();
+        this(DEFAULT_URL, eventHandler, Neo4jSyncPreferences.get().isEventStreamEnabled());
+    }
+
+    public SimpleHttpClient(String url, ElementEventHandler eventHandler, boolean streamingEnabled) {
+        this(url, eventHandler, streamingEnabled,
+             Neo4jSyncPreferences.get().getOutboundQueueCapacity(),
+             Neo4jSyncPreferences.get().getOutboundBatchSize());
+    }
+
+    public SimpleHttpClient(String url, ElementEventHandler eventHandler, boolean streamingEnabled, int outboxCapacity, int outboundBatchSize) {
+        // Events are idempotent, so a post may be retried even if it reached a stale connection
+        client = HttpClients.custom()
+                .setRetryHandler(new DefaultHttpRequestRetryHandler(3, true))
+                .build();
 
+        this.url = url;
         this.eventHandler = eventHandler;
-        this.messageExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.streamingEnabled = streamingEnabled;
+        this.messageExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Sync Message Listener");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        messageExecutor.submit(this::listenMessages);
 
-        listenMessages();
+        this.outboxCapacity = outboxCapacity;
+        this.outboundBatchSize = outboundBatchSize;
+        this.senderThread = new Thread(this::sendMessages, "Sync Message Sender");
+        this.senderThread.setDaemon(true);
+        this.senderThread.start();
     }
 
-    public void sendMessage(String message) {
-        HttpPost post = new HttpPost(url + "/api/messages/" + uuid);
-        post.setHeader("Content-Type", "text/plain; charset=UTF-8");
-        post.setEntity(new StringEntity(message, "UTF-8"));
+    public String getUuid() {
+        return uuid;
+    }
 
-        try (CloseableHttpResponse response = client.execute(post)) {
-            logger.info("Status code: {}", response.getStatusLine().getStatusCode());
-        } catch (Exception e) {
-            logger.error("Error sending message", e);
+    /**
+     * Queues an event for the sender thread.  Never blocks.  If the event reverses an event for the
+     * same element that has not been sent yet, both are discarded.
+     */
+    public void send(ElementEvent event) {
+        String key = event.type + ":" + event.props;
+        synchronized (outboxLock) {
+            ElementEvent previous = outbox.get(key);
+            if (previous != null) {
+                if (previous.isAdd != event.isAdd) {
+                    outbox.remove(key);
+                    coalescedCount.addAndGet(2);
+                } else {
+                    coalescedCount.incrementAndGet();
+                }
+                return;
+            }
+            if (outbox.size() >= outboxCapacity) {
+                long dropped = droppedCount.incrementAndGet();
+                if (dropped == 1 || dropped % 1000 == 0) {
+                    logger.warn("Outbound sync queue is full.  {} event(s) dropped so far", dropped);
+                }
+                return;
+            }
+            outbox.put(key, event);
+            outboxLock.notifyAll();
         }
     }
 
-    private void listenMessages() {
-        HttpGet get = new HttpGet(url + "/api/messages/" + uuid);
-        get.setHeader("Content-Type", "text/plain; charset=UTF-8");
+    /**
+     * Gets the number of events that are waiting to be sent.
+     */
+    public int getQueueDepth() {
+        synchronized (outboxLock) {
+            return outbox.size();
+        }
+    }
 
-        messageExecutor.scheduleAtFixedRate(() -> {
-            try {
-                HttpResponse httpResponse = client.execute(get);
-                HttpEntity entity = httpResponse.getEntity();
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * Gets the number of events that were discarded because the queue was full or the server rejected them.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Gets the number of events that were merged with, or cancelled out by, another queued event.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
 
-                String response;
-                if (entity != null) {
-                    try (InputStream inputStream = entity.getContent(); BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                        response = reader.lines().collect(Collectors.joining("\n"));
+    public long getLastSendLatencyMillis() {
+        return lastSendLatencyMillis.get();
+    }
+
+    public long getAverageSendLatencyMillis() {
+        long requests = requestCount.get();
+        return requests == 0 ? 0 : totalSendLatencyMillis.get() / requests;
+    }
+
+    private void sendMessages() {
+        while (true) {
+            List<ElementEvent> batch = new ArrayList<>();
+            synchronized (outboxLock) {
+                while (outbox.isEmpty() && !closed) {
+                    try {
+                        outboxLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
                     }
-                } else {
-                    response = null;
                 }
+                if (outbox.isEmpty()) {
+                    return;
+                }
+                Iterator<ElementEvent> iterator = outbox.values().iterator();
+                while (iterator.hasNext() && batch.size() < outboundBatchSize) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+            }
+            postMessages(batch);
+        }
+    }
 
-                if (response == null) {
-                    logger.info("No new messages found");
-                } else {
-                    ElementEvent event = objectMapper.readValue(response, ElementEvent.class);
-                    SwingUtilities.invokeLater(() -> eventHandler.call(event));
+    private void postMessages(List<ElementEvent> batch) {
+        HttpPost post = new HttpPost(url + "/api/messages/" + uuid);
+        long start = System.currentTimeMillis();
+        try {
+            post.setHeader("Content-Type", "application/json; charset=UTF-8");
+            post.setEntity(new StringEntity(objectMapper.writeValueAsString(batch), StandardCharsets.UTF_8));
+            try (CloseableHttpResponse response = client.execute(post)) {
+                int statusCode = response.getStatusLine().getStatusCode();
+                EntityUtils.consumeQuietly(response.getEntity());
+                if (statusCode >= 300) {
+                    droppedCount.addAndGet(batch.size());
+                    logger.error("Sync server rejected {} event(s) with status code {}", batch.size(), statusCode);
+                    return;
+                }
+            }
+            sentCount.addAndGet(batch.size());
+        } catch (Exception e) {
+            droppedCount.addAndGet(batch.size());
+            logger.error("Error sending {} event(s)", batch.size(), e);
+        } finally {
+            long latency = System.currentTimeMillis() - start;
+            lastSendLatencyMillis.set(latency);
+            totalSendLatencyMillis.addAndGet(latency);
+            requestCount.incrementAndGet();
+            logger.debug("Sent {} event(s) in {} ms.  Queue depth: {}", batch.size(), latency, getQueueDepth());
+        }
+    }
 
-                    logger.info("Successfully getting message: {}", response);
+    private void listenMessages() {
+        long reconnectDelay = INITIAL_RECONNECT_DELAY_MS;
+        while (!closed) {
+            try {
+                if (streamingEnabled) {
+                    if (streamMessages()) {
+                        reconnectDelay = INITIAL_RECONNECT_DELAY_MS;
+                    } else {
+                        logger.info("The sync server does not provide an event stream.  Falling back to polling.");
+                        streamingEnabled = false;
+                    }
+                } else if (!pollMessages()) {
+                    TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MS);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
-                logger.error("Error getting message", e);
+                if (closed) {
+                    return;
+                }
+                logger.error("Error getting messages.  Retrying in {} ms", reconnectDelay, e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(reconnectDelay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Reads events from the stream until the server closes it.
+     *
+     * @return <code>false</code> if the server does not support streaming, otherwise <code>true</code>.
+     */
+    private boolean streamMessages() throws IOException {
+        HttpGet get = new HttpGet(url + "/api/messages/" + uuid + "/stream");
+        get.setHeader("Accept", "text/event-stream");
+        activeRequest = get;
+
+        try (CloseableHttpResponse response = client.execute(get)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode == HttpStatus.SC_NOT_FOUND
+                    || statusCode == HttpStatus.SC_METHOD_NOT_ALLOWED
+                    || statusCode == HttpStatus.SC_NOT_IMPLEMENTED) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                return false;
+            }
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                return true;
+            }
+            logger.info("Listening for messages on the event stream");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8))) {
+                StringBuilder data = new StringBuilder();
+                String line;
+                while (!closed && (line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        if (data.length() > 0) {
+                            enqueue(parseEvents(data.toString()));
+                            data.setLength(0);
+                        }
+                    } else if (line.startsWith("data:")) {
+                        if (data.length() > 0) {
+                            data.append('\n');
+                        }
+                        data.append(line.substring("data:".length()).trim());
+                    } else if (line.startsWith(":") || line.startsWith("event:") || line.startsWith("id:") || line.startsWith("retry:")) {
+                        // Heartbeats and SSE fields that we do not use
+                    } else {
+                        // Newline delimited JSON
+                        enqueue(parseEvents(line));
+                    }
+                }
+                if (data.length() > 0) {
+                    enqueue(parseEvents(data.toString()));
+                }
             }
-        }, 0, 3, TimeUnit.SECONDS);
+            return true;
+        } finally {
+            activeRequest = null;
+        }
+    }
+
+    /**
+     * Fetches the messages that are currently waiting on the server.
+     *
+     * @return <code>true</code> if any messages were received.
+     */
+    private boolean pollMessages() throws IOException {
+        HttpGet get = new HttpGet(url + "/api/messages/" + uuid);
+        get.setHeader("Content-Type", "text/plain; charset=UTF-8");
+        activeRequest = get;
+
+        try (CloseableHttpResponse response = client.execute(get)) {
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                logger.debug("No new messages found");
+                return false;
+            }
+            List<ElementEvent> events = parseEvents(EntityUtils.toString(entity, StandardCharsets.UTF_8));
+            if (events.isEmpty()) {
+                logger.debug("No new messages found");
+                return false;
+            }
+            logger.info("Received {} message(s)", events.size());
+            enqueue(events);
+            return true;
+        } finally {
+            activeRequest = null;
+        }
+    }
+
+    private List<ElementEvent> parseEvents(String payload) throws IOException {
+        String trimmed = payload.trim();
+        if (trimmed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (trimmed.startsWith("[")) {
+            return Arrays.asList(objectMapper.readValue(trimmed, ElementEvent[].class));
+        }
+        return Collections.singletonList(objectMapper.readValue(trimmed, ElementEvent.class));
+    }
+
+    /**
+     * Adds events to the pending list.  Only one dispatch is scheduled on the event dispatch thread
+     * at a time, so events that arrive while it is waiting are delivered together.
+     */
+    private void enqueue(List<ElementEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        synchronized (pendingEvents) {
+            pendingEvents.addAll(events);
+            if (dispatchScheduled) {
+                return;
+            }
+            dispatchScheduled = true;
+        }
+        SwingUtilities.invokeLater(this::dispatchPendingEvents);
+    }
+
+    private void dispatchPendingEvents() {
+        List<ElementEvent> events;
+        synchronized (pendingEvents) {
+            events = new ArrayList<>(pendingEvents);
+            pendingEvents.clear();
+            dispatchScheduled = false;
+        }
+        try {
+            eventHandler.call(events);
+        } catch (RuntimeException e) {
+            logger.error("Error handling {} message(s)", events.size(), e);
+        }
     }
 
     @Override
     public void close() throws Exception {
-        messageExecutor.shutdown();
+        closed = true;
+        synchronized (outboxLock) {
+            outboxLock.notifyAll();
+        }
+        // Give the sender a chance to post whatever is still queued
+        senderThread.join(TimeUnit.SECONDS.toMillis(5));
+        HttpGet request = activeRequest;
+        if (request != null) {
+            request.abort();
+        }
+        messageExecutor.shutdownNow();
+        client.close();
     }
 }
@@ -0,0 +1,138 @@
+package org.protege.editor.owl.ui.metrics;
+
+import org.protege.editor.owl.model.OWLModelManager;
+import org.protege.editor.owl.model.OWLModelManagerImpl;
+import org.protege.editor.owl.model.event.OntologyChangeDispatcher;
+import org.protege.editor.owl.model.event.OntologyChangeListenerStatistics;
+import org.protege.editor.owl.ui.view.AbstractOWLViewComponent;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shows, for each ontology change listener, the number of times it has been called and the time it has taken.  The
+ * table is refreshed every second.
+ */
+public class ChangeListenerMetricsViewComponent extends AbstractOWLViewComponent {
+
+    private static final int REFRESH_INTERVAL_MS = 1000;
+
+    private final StatisticsTableModel tableModel = new StatisticsTableModel();
+
+    private Timer refreshTimer;
+
+    @Override
+    protected void initialiseOWLView() throws Exception {
+        setLayout(new BorderLayout());
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            OntologyChangeDispatcher dispatcher = getDispatcher();
+            if (dispatcher != null) {
+                dispatcher.resetStatistics();
+                refresh();
+            }
+        });
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonPanel.add(resetButton);
+        add(buttonPanel, BorderLayout.NORTH);
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+        refreshTimer.start();
+        refresh();
+    }
+
+    @Override
+    protected void disposeOWLView() {
+        if (refreshTimer != null) {
+            refreshTimer.stop();
+        }
+    }
+
+    private OntologyChangeDispatcher getDispatcher() {
+        OWLModelManager modelManager = getOWLModelManager();
+        if (modelManager instanceof OWLModelManagerImpl) {
+            return ((OWLModelManagerImpl) modelManager).getOntologyChangeDispatcher();
+        }
+        return null;
+    }
+
+    private void refresh() {
+        OntologyChangeDispatcher dispatcher = getDispatcher();
+        if (dispatcher != null) {
+            tableModel.setStatistics(dispatcher.getListenerStatistics());
+        }
+    }
+
+
+    private static class StatisticsTableModel extends AbstractTableModel {
+
+        private static final String[] COLUMN_NAMES = {
+                "Listener", "Tier", "Calls", "Changes", "Errors", "Total (ms)", "Mean (ms)", "Max (ms)"
+        };
+
+        private List<OntologyChangeListenerStatistics> statistics = Collections.emptyList();
+
+        public void setStatistics(List<OntologyChangeListenerStatistics> statistics) {
+            this.statistics = statistics;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return statistics.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            switch (columnIndex) {
+                case 0:
+                case 1:
+                    return String.class;
+                case 2:
+                case 3:
+                case 4:
+                    return Long.class;
+                default:
+                    return Double.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            OntologyChangeListenerStatistics row = statistics.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return row.getListenerName();
+                case 1:
+                    return row.getTier();
+                case 2:
+                    return row.getInvocationCount();
+                case 3:
+                    return row.getChangeCount();
+                case 4:
+                    return row.getErrorCount();
+                case 5:
+                    return row.getTotalTimeMicros() / 1000.0;
+                case 6:
+                    return row.getInvocationCount() == 0 ? 0.0 : row.getTotalTimeMicros() / 1000.0 / row.getInvocationCount();
+                default:
+                    return row.getMaxTimeMicros() / 1000.0;
+            }
+        }
+    }
+}
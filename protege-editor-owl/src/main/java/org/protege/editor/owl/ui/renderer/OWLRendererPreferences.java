@@ -60,8 +60,12 @@ public class OWLRendererPreferences {
 
     public static final String DISPLAY_THUMBNAILS_INLINE = "DISPLAY_THUMBNAILS_INLINE";
 
+    public static final String RENDERING_CACHE_SIZE = "RENDERING_CACHE_SIZE";
+
     public static final int DEFAULT_FONT_SIZE = getDefaultFontSize();
 
+    public static final int DEFAULT_RENDERING_CACHE_SIZE = 1000000;
+
     public static final String DEFAULT_FONT_NAME = getDefaultFontName();
 
 
@@ -85,6 +89,8 @@ public class OWLRendererPreferences {
 
     private int fontSize;
 
+    private int renderingCacheSize;
+
     private String fontName = DEFAULT_FONT_NAME;
 
     private Font font;
@@ -146,6 +152,19 @@ public class OWLRendererPreferences {
         resetFont();
     }
 
+    /**
+     * Gets the maximum total number of characters in the renderings held by the object rendering cache.
+     */
+    public int getRenderingCacheSize() {
+        return renderingCacheSize;
+    }
+
+
+    public void setRenderingCacheSize(int renderingCacheSize) {
+        this.renderingCacheSize = renderingCacheSize;
+        getPreferences().putInt(RENDERING_CACHE_SIZE, renderingCacheSize);
+    }
+
     public boolean isDisplayAnnotationAnnotationsInline() {
         return displayAnnotationAnnotationsInline;
     }
@@ -231,6 +250,7 @@ public class OWLRendererPreferences {
         renderDomainAxiomsAsGCIs = false; p.putBoolean(RENDER_DOMAIN_AXIOMS_AS_GCIS, false);
         fontSize = p.getInt(FONT_SIZE, DEFAULT_FONT_SIZE);
         fontName = p.getString(FONT_NAME, DEFAULT_FONT_NAME);
+        renderingCacheSize = p.getInt(RENDERING_CACHE_SIZE, DEFAULT_RENDERING_CACHE_SIZE);
         displayAnnotationAnnotationsInline = p.getBoolean(DISPLAY_ANNOTATION_ANNOTATIONS_INLINE, true);
         displayLiteralDatatypesInline = p.getBoolean(DISPLAY_LITERAL_DATATYPES_INLINE, true);
         displayThumbnailsInline = p.getBoolean(DISPLAY_THUMBNAILS_INLINE, true);
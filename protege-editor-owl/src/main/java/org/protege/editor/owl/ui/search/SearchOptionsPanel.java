@@ -22,6 +22,8 @@ public class SearchOptionsPanel extends JPanel {
 
     private final JCheckBox useRegexCheckBox;
 
+    private final JCheckBox fuzzyCheckBox;
+
     private final JCheckBox caseSensitive;
 
     private final JCheckBox wholeWordsCheckbox;
@@ -99,6 +101,15 @@ public class SearchOptionsPanel extends JPanel {
         });
         topPanel.add(useRegexCheckBox);
 
+        fuzzyCheckBox = new JCheckBox(new AbstractAction("Fuzzy") {
+            public void actionPerformed(ActionEvent e) {
+                OWLEntityFinderPreferences.getInstance().setFuzzy(fuzzyCheckBox.isSelected());
+                fireSearchRequestOptionChanged();
+            }
+        });
+        fuzzyCheckBox.setToolTipText("Find display names and IRIs that are spelled similarly to the search string");
+        topPanel.add(fuzzyCheckBox);
+
         showAllResultsCheckBox = new JCheckBox(new AbstractAction("Show all results") {
             public void actionPerformed(ActionEvent e) {
                 fireSearchResultsPresentationOptionChanged();
@@ -243,6 +254,7 @@ public class SearchOptionsPanel extends JPanel {
 
         caseSensitive.setSelected(prefs.isCaseSensitive());
         useRegexCheckBox.setSelected(prefs.isUseRegularExpressions());
+        fuzzyCheckBox.setSelected(prefs.isFuzzy());
         wholeWordsCheckbox.setSelected(prefs.isWholeWords());
         ignoreWhiteSpaceCheckbox.setSelected(prefs.isIgnoreWhiteSpace());
         showDeprecatedCheckbox.setSelected(prefs.isShowDeprecated());
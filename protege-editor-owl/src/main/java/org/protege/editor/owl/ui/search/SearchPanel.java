@@ -6,6 +6,8 @@ import org.protege.editor.owl.OWLEditorKit;
 import org.protege.editor.owl.model.find.OWLEntityFinderPreferences;
 import org.protege.editor.owl.model.search.SearchManager;
 import org.protege.editor.owl.model.search.SearchRequest;
+import org.protege.editor.owl.model.search.SearchResult;
+import org.protege.editor.owl.model.search.SearchResultHandler;
 import org.protege.editor.owl.model.search.SearchResultSet;
 import org.protege.editor.owl.model.util.OboUtilities;
 import org.protege.editor.owl.ui.transfer.TransferableOWLObject;
@@ -21,6 +23,7 @@ import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -36,6 +39,12 @@ public class SearchPanel extends JPanel {
 
     private static final String WHITE_SPACE_PATTERN = "\\s+";
 
+    /**
+     * The number of best matches that a search asks for unless all results are shown.  A search keeps only these,
+     * ranked, however many entities match.
+     */
+    private static final int MAX_RESULT_COUNT = 1000;
+
     private final SearchOptionsPanel searchOptionsPanel;
 
     private final SearchResultsPanel searchResultsPanel;
@@ -46,6 +55,16 @@ public class SearchPanel extends JPanel {
 
     private String searchString = "";
 
+    /**
+     * Whether the latest search asked for all of the matches rather than for a page of them.
+     */
+    private boolean searchedForAllResults = false;
+
+    /**
+     * Identifies the latest search, so that the searches that it replaces are cancelled.
+     */
+    private final AtomicLong latestSearchId = new AtomicLong();
+
     public SearchPanel(OWLEditorKit editorKit) {
         this.editorKit = editorKit;
         setLayout(new BorderLayout(4, 4));
@@ -91,6 +110,10 @@ public class SearchPanel extends JPanel {
 
     private SearchRequest createSearchRequest() throws PatternSyntaxException {
             OWLEntityFinderPreferences prefs = OWLEntityFinderPreferences.getInstance();
+            int limit = searchOptionsPanel.isShowAllResults() ? Integer.MAX_VALUE : MAX_RESULT_COUNT;
+            if (prefs.isFuzzy()) {
+                return SearchRequest.fuzzy(searchString.trim(), prefs.getMaxEditDistance(), 0, limit);
+            }
             int flags = Pattern.DOTALL | (prefs.isCaseSensitive() ? 0 : Pattern.CASE_INSENSITIVE);
 
             ImmutableList.Builder<Pattern> builder = ImmutableList.builder();
@@ -128,10 +151,11 @@ public class SearchPanel extends JPanel {
                 }
                 builder.add(Pattern.compile(preparedSearchString, flags));
             }
-            return new SearchRequest(builder.build());
+            return new SearchRequest(builder.build(), 0, limit);
     }
 
     private void doSearch() {
+        long searchId = latestSearchId.incrementAndGet();
         String searchStr = getSearchString();
         if (searchStr.trim().isEmpty()) {
             searchResultsPanel.clearSearchResults();
@@ -140,11 +164,52 @@ public class SearchPanel extends JPanel {
         try {
             SearchManager searchManager = editorKit.getSearchManager();
             SearchRequest searchRequest = createSearchRequest();
-            searchManager.performSearch(searchRequest, searchResults -> {
-                int categorySizeLimit = getCategoryLimit();
-                SearchResultSet searchResultSet = new SearchResultSet(searchResults);
-                SwingUtilities.invokeLater(() -> searchResultsPanel.setSearchResults(searchResultSet, categorySizeLimit));
+            boolean paged = searchRequest.isPaged();
+            searchedForAllResults = !paged;
+            searchManager.performSearch(searchRequest, new SearchResultHandler() {
+
+                private int shownResultCount = 0;
+
+                @Override
+                public void searchResultsFound(List<SearchResult> searchResults) {
+                    // Show the matches as they are found rather than when the whole search has finished.  The
+                    // chunks are not ranked, so no more of them are shown than the ranked page will hold.
+                    int capacity = paged ? MAX_RESULT_COUNT : Integer.MAX_VALUE;
+                    if (isCancelled() || shownResultCount >= capacity) {
+                        return;
+                    }
+                    List<SearchResult> chunk = searchResults.subList(0, Math.min(searchResults.size(), capacity - shownResultCount));
+                    if (shownResultCount == 0) {
+                        searchResultsPanel.setSearchResults(new SearchResultSet(chunk), getCategoryLimit());
+                    }
+                    else {
+                        searchResultsPanel.addSearchResults(chunk);
+                    }
+                    shownResultCount += chunk.size();
+                }
+
+                @Override
+                public void searchFinished(List<SearchResult> searchResults) {
+                    int categorySizeLimit = getCategoryLimit();
+                    SearchResultSet searchResultSet = new SearchResultSet(searchResults);
+                    SwingUtilities.invokeLater(() -> {
+                        // When all results are asked for, the chunks already hold them and the search does not
+                        // keep a second list of them.
+                        if (!isCancelled() && (paged || shownResultCount == 0)) {
+                            searchResultsPanel.setSearchResults(searchResultSet, categorySizeLimit);
+                        }
+                    });
+                }
 
+                @Override
+                public boolean isCancelled() {
+                    return searchId != latestSearchId.get();
+                }
+
+                @Override
+                public boolean isResultListRequired() {
+                    return paged;
+                }
             });
         } catch (PatternSyntaxException e) {
             logger.info("Invalid regular expression in search pattern: {}", e.getPattern());
@@ -164,6 +229,10 @@ public class SearchPanel extends JPanel {
         int categorySizeLimit = getCategoryLimit();
         searchResultsPanel.setCategorySizeLimit(categorySizeLimit);
         searchResultsPanel.setShowDeprecated(searchOptionsPanel.isShowDeprecated());
+        if (searchOptionsPanel.isShowAllResults() != searchedForAllResults) {
+            // A page of the best matches does not hold all of them, so showing all results needs a new search
+            doSearch();
+        }
     }
 
 
@@ -130,6 +130,19 @@ public class SearchResultsPanel extends JPanel {
         setData(searchResultSet.getSearchResults());
     }
 
+    /**
+     * Adds search results to the results that are shown, for example as the chunks of a search arrive.
+     */
+    public void addSearchResults(Collection<SearchResult> searchResults) {
+        java.util.List<SearchResult> results = new ArrayList<>();
+        if (searchResultSet != null) {
+            results.addAll(searchResultSet.getSearchResults());
+        }
+        results.addAll(searchResults);
+        this.searchResultSet = new SearchResultSet(results);
+        setData(results);
+    }
+
     public void clearSearchResults() {
         clearData();
     }
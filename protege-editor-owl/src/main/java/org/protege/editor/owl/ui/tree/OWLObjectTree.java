@@ -511,7 +511,8 @@ public class OWLObjectTree<N extends OWLObject> extends JTree implements OWLObje
     protected List<OWLObjectTreeNode<N>> getChildNodes(OWLObjectTreeNode<N> parent) {
         List<OWLObjectTreeNode<N>> result = new ArrayList<>();
         Set<N> parentObjects = getParentObjectsForNode(parent);
-        List<N> children = new ArrayList<>(provider.getChildren(parent.getOWLObject()));
+        List<N> children = new ArrayList<>();
+        provider.forEachChild(parent.getOWLObject(), children::add);
         if (comparator != null) {
             Collections.sort(children, comparator);
         }
@@ -541,7 +542,7 @@ public class OWLObjectTree<N extends OWLObject> extends JTree implements OWLObje
             return provider.getRoots().size();
         }
         else {
-            return provider.getChildren(owlObject).size();
+            return provider.getChildCount(owlObject);
         }
     }
 
@@ -886,8 +887,8 @@ public class OWLObjectTree<N extends OWLObject> extends JTree implements OWLObje
             });
         }
         printWriter.println();
-        Set<N> children = provider.getChildren(object);
-        List<N> sortedChildren = new ArrayList<>(children);
+        List<N> sortedChildren = new ArrayList<>();
+        provider.forEachChild(object, sortedChildren::add);
         sortedChildren.sort(new OWLObjectComparator<>(getOWLModelManager()));
         for (N child : sortedChildren) {
             copySubHierarchyToClipboard(child, printWriter, depth + 1);
@@ -0,0 +1,49 @@
+package org.protege.editor.owl.ui.util;
+
+import org.semanticweb.owlapi.util.ProgressMonitor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link ProgressMonitor} that shows the progress messages of a task in a {@link ProgressDialog}.  The dialog
+ * has no way of cancelling the task and the caller shows and hides it.  The methods may be called from any thread.
+ */
+public class ProgressDialogProgressMonitor implements ProgressMonitor {
+
+    private final ProgressDialog progressDialog;
+
+    public ProgressDialogProgressMonitor(ProgressDialog progressDialog) {
+        this.progressDialog = checkNotNull(progressDialog);
+    }
+
+    @Override
+    public void setStarted() {
+    }
+
+    @Override
+    public void setSize(long size) {
+    }
+
+    @Override
+    public void setProgress(long progress) {
+    }
+
+    @Override
+    public void setMessage(String message) {
+        progressDialog.setSubMessage(message);
+    }
+
+    @Override
+    public void setIndeterminate(boolean indeterminate) {
+    }
+
+    @Override
+    public void setFinished() {
+        progressDialog.clearSubMessage();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package org.protege.editor.owl.model.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OWLEntityRenderingCacheImpl_TestCase {
+
+    private static final String NS = "http://example.org/render#";
+
+    @Mock
+    private OWLModelManager modelManager;
+
+    private OWLDataFactory dataFactory;
+
+    private OWLEntityRenderingCacheImpl cache;
+
+    @Before
+    public void setUp() {
+        dataFactory = OWLManager.getOWLDataFactory();
+        cache = new OWLEntityRenderingCacheImpl();
+        cache.setOWLModelManager(modelManager);
+    }
+
+    @Test
+    public void shouldKeepRenderingsByEntityType() {
+        OWLClass kidney = add(dataFactory.getOWLClass(IRI.create(NS + "Kidney")), "Kidney");
+        add(dataFactory.getOWLClass(IRI.create(NS + "Liver")), "Liver");
+        add(dataFactory.getOWLNamedIndividual(IRI.create(NS + "kidney1")), "kidney1");
+        assertThat(cache.getOWLClassRenderings(), containsInAnyOrder("Kidney", "Liver"));
+        assertThat(cache.getOWLClassRenderings().contains("kidney1"), is(false));
+        assertThat(cache.getOWLIndividualRenderings(), contains("kidney1"));
+        assertThat(cache.getOWLObjectPropertyRenderings(), is(empty()));
+        cache.removeRendering(kidney);
+        assertThat(cache.getOWLClassRenderings(), contains("Liver"));
+    }
+
+    @Test
+    public void shouldShareTheRenderingOfEntitiesWithTheSameRendering() {
+        OWLClass cls = add(dataFactory.getOWLClass(IRI.create(NS + "Heart")), "Heart");
+        OWLNamedIndividual individual = add(dataFactory.getOWLNamedIndividual(IRI.create(NS + "Heart")), new String("Heart"));
+        assertThat(cache.getRendering(individual), is(sameInstance(cache.getRendering(cls))));
+        assertThat(cache.getOWLClassRenderings(), contains("Heart"));
+        assertThat(cache.getOWLIndividualRenderings(), contains("Heart"));
+        assertThat(cache.getOWLIndividual("Heart"), is(individual));
+    }
+
+    private <E extends OWLEntity> E add(E entity, String rendering) {
+        when(modelManager.getRendering(entity)).thenReturn(rendering);
+        cache.addRendering(entity);
+        return entity;
+    }
+}
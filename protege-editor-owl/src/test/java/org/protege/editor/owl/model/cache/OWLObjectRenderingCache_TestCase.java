@@ -0,0 +1,96 @@
+package org.protege.editor.owl.model.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.protege.editor.owl.ui.renderer.OWLObjectRenderer;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OWLObjectRenderingCache_TestCase {
+
+    @Mock
+    private OWLModelManager modelManager;
+
+    @Mock
+    private OWLObjectRenderer renderer;
+
+    private OWLDataFactory dataFactory;
+
+    private OWLClassExpression aAndB;
+
+    private OWLClassExpression cAndD;
+
+    @Before
+    public void setUp() {
+        dataFactory = OWLManager.getOWLDataFactory();
+        aAndB = dataFactory.getOWLObjectIntersectionOf(cls("A"), cls("B"));
+        cAndD = dataFactory.getOWLObjectIntersectionOf(cls("C"), cls("D"));
+        when(renderer.render(any(OWLObject.class))).thenReturn("0123456789");
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        OWLObjectRenderingCache cache = new OWLObjectRenderingCache(modelManager, 100);
+        cache.getRendering(aAndB, renderer);
+        cache.getRendering(aAndB, renderer);
+        cache.getRendering(cAndD, renderer);
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(2L));
+        verify(renderer, times(2)).render(any(OWLObject.class));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedRenderingsWhenOverWeight() {
+        OWLObjectRenderingCache cache = new OWLObjectRenderingCache(modelManager, 15);
+        cache.getRendering(aAndB, renderer);
+        cache.getRendering(cAndD, renderer);
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getWeight(), is(10L));
+        assertThat(cache.getEvictionCount(), is(1L));
+        cache.getRendering(cAndD, renderer);
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void shouldOnlyInvalidateRenderingsThatMentionAnEntity() {
+        OWLObjectRenderingCache cache = new OWLObjectRenderingCache(modelManager, 100);
+        cache.getRendering(aAndB, renderer);
+        cache.getRendering(cAndD, renderer);
+        cache.invalidate(cls("A"));
+        assertThat(cache.size(), is(1));
+        cache.getRendering(cAndD, renderer);
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void shouldInvalidateRenderingsThatMentionAnEntityInAnIRIAnnotationValue() throws Exception {
+        ArgumentCaptor<OWLOntologyChangeListener> changeListener = ArgumentCaptor.forClass(OWLOntologyChangeListener.class);
+        OWLObjectRenderingCache cache = new OWLObjectRenderingCache(modelManager, 100);
+        verify(modelManager).addOntologyChangeListener(changeListener.capture());
+        OWLAxiom seeAlso = dataFactory.getOWLAnnotationAssertionAxiom(dataFactory.getRDFSSeeAlso(), cls("A").getIRI(), cls("B").getIRI());
+        cache.getRendering(seeAlso, renderer);
+        cache.getRendering(cAndD, renderer);
+        OWLOntology ontology = OWLManager.createOWLOntologyManager().createOntology();
+        OWLAxiom label = dataFactory.getOWLAnnotationAssertionAxiom(dataFactory.getRDFSLabel(), cls("B").getIRI(), dataFactory.getOWLLiteral("B"));
+        changeListener.getValue().ontologiesChanged(Collections.singletonList(new AddAxiom(ontology, label)));
+        assertThat(cache.size(), is(1));
+        cache.getRendering(seeAlso, renderer);
+        assertThat(cache.getHitCount(), is(0L));
+    }
+
+    private OWLClass cls(String name) {
+        return dataFactory.getOWLClass(IRI.create("http://example.org/render#" + name));
+    }
+}
@@ -0,0 +1,64 @@
+package org.protege.editor.owl.model.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RenderingPrefixIndex_TestCase {
+
+    private RenderingPrefixIndex index;
+
+    @Before
+    public void setUp() {
+        index = new RenderingPrefixIndex();
+        index.add("Kidney");
+        index.add("kidney");
+        index.add("KidneyDisease");
+        index.add("Liver");
+        index.add("'kidney stone'");
+    }
+
+    @Test
+    public void shouldFindRenderingsWithPrefixIgnoringCase() {
+        assertThat(withPrefix("KID"), containsInAnyOrder("Kidney", "kidney", "KidneyDisease"));
+        assertThat(withPrefix("'kid"), contains("'kidney stone'"));
+        assertThat(withPrefix("x"), is(empty()));
+    }
+
+    @Test
+    public void shouldRemoveOnlyTheGivenRendering() {
+        index.remove("kidney");
+        index.remove("Liver");
+        assertThat(withPrefix("kidney"), containsInAnyOrder("Kidney", "KidneyDisease"));
+        assertThat(withPrefix("l"), is(empty()));
+        assertThat(index.size(), is(3));
+    }
+
+    @Test
+    public void shouldIgnoreDuplicateRenderings() {
+        index.add("Kidney");
+        assertThat(index.size(), is(5));
+    }
+
+    @Test
+    public void shouldViewRenderingsAsSet() {
+        Set<String> view = index.asSet();
+        assertThat(view, containsInAnyOrder("Kidney", "kidney", "KidneyDisease", "Liver", "'kidney stone'"));
+        assertThat(view.contains("KIDNEY"), is(false));
+        index.remove("Kidney");
+        assertThat(view.size(), is(4));
+        assertThat(view.contains("Kidney"), is(false));
+        assertThat(view.contains("kidney"), is(true));
+    }
+
+    private Set<String> withPrefix(String prefix) {
+        Set<String> results = new HashSet<>();
+        index.getRenderingsWithPrefix(prefix, results);
+        return results;
+    }
+}
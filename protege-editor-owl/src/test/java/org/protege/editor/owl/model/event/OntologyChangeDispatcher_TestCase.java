@@ -0,0 +1,121 @@
+package org.protege.editor.owl.model.event;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.protege.editor.owl.model.hierarchy.AssertedClassHierarchyProvider;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OntologyChangeDispatcher_TestCase {
+
+    private OntologyChangeDispatcher dispatcher;
+
+    private OWLOntologyManager manager;
+
+    private OWLOntology ontology;
+
+    private OWLAxiom axiom;
+
+    @Before
+    public void setUp() throws Exception {
+        dispatcher = new OntologyChangeDispatcher();
+        manager = OWLManager.createOWLOntologyManager();
+        manager.addOntologyChangeListener(dispatcher);
+        ontology = manager.createOntology(IRI.create("http://example.org/dispatcher"));
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        axiom = dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(IRI.create("http://example.org/dispatcher#A")));
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.dispose();
+    }
+
+    @Test
+    public void shouldDeliverModelChangesSynchronously() {
+        List<OWLOntologyChange> received = new ArrayList<>();
+        dispatcher.addListener(received::addAll, OntologyChangeListenerTier.MODEL);
+        manager.addAxiom(ontology, axiom);
+        assertThat(received, hasSize(1));
+        OntologyChangeListenerStatistics statistics = dispatcher.getListenerStatistics().get(0);
+        assertThat(statistics.getTier(), is("MODEL"));
+        assertThat(statistics.getInvocationCount(), is(1L));
+        assertThat(statistics.getChangeCount(), is(1L));
+    }
+
+    @Test
+    public void shouldDeliverBackgroundChangesInOrder() throws Exception {
+        List<OWLOntologyChange> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2);
+        dispatcher.addListener(changes -> {
+            received.addAll(changes);
+            latch.countDown();
+        }, OntologyChangeListenerTier.BACKGROUND);
+        manager.addAxiom(ontology, axiom);
+        manager.removeAxiom(ontology, axiom);
+        assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(received.get(0).isAddAxiom(), is(true));
+        assertThat(received.get(1).isRemoveAxiom(), is(true));
+    }
+
+    @Test
+    public void shouldRecordModelErrorsAndKeepDelivering() {
+        dispatcher.addListener(changes -> {
+            throw new IllegalStateException();
+        }, OntologyChangeListenerTier.MODEL);
+        List<OWLOntologyChange> received = new ArrayList<>();
+        dispatcher.addListener(received::addAll, OntologyChangeListenerTier.MODEL);
+        manager.addAxiom(ontology, axiom);
+        manager.removeAxiom(ontology, axiom);
+        assertThat(received, hasSize(2));
+        assertThat(dispatcher.getListenerStatistics().get(0).getErrorCount(), is(2L));
+        assertThat(dispatcher.getListenerStatistics().get(1).getErrorCount(), is(0L));
+    }
+
+    @Test
+    public void shouldDeliverModelChangesInOrder() {
+        List<String> calls = new ArrayList<>();
+        for (String name : Arrays.asList("A", "B", "C")) {
+            dispatcher.addListener(changes -> calls.add(name), OntologyChangeListenerTier.MODEL);
+        }
+        manager.addAxiom(ontology, axiom);
+        assertThat(calls, contains("A", "B", "C"));
+    }
+
+    @Test
+    public void shouldSeeTheSameHierarchyAsAProviderThatIsAddedToTheManager() {
+        AssertedClassHierarchyProvider provider = new AssertedClassHierarchyProvider(manager);
+        provider.setOntologies(Collections.singleton(ontology));
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        OWLClass a = dataFactory.getOWLClass(IRI.create("http://example.org/dispatcher#A"));
+        OWLClass b = dataFactory.getOWLClass(IRI.create("http://example.org/dispatcher#B"));
+        List<Set<OWLClass>> parentsSeenByListener = new ArrayList<>();
+        dispatcher.addListener(changes -> parentsSeenByListener.add(provider.getParents(b)), OntologyChangeListenerTier.MODEL);
+        manager.addAxiom(ontology, dataFactory.getOWLSubClassOfAxiom(b, a));
+        assertThat(parentsSeenByListener, contains(Collections.singleton(a)));
+        assertThat(provider.getChildren(dataFactory.getOWLThing()), contains(a));
+        provider.dispose();
+    }
+
+    @Test
+    public void shouldNotAddListenerTwice() {
+        OWLOntologyChangeListener listener = changes -> {};
+        dispatcher.addListener(listener, OntologyChangeListenerTier.MODEL);
+        dispatcher.addListener(listener, OntologyChangeListenerTier.UI);
+        assertThat(dispatcher.getListenerCount(), is(1));
+        dispatcher.removeListener(listener);
+        assertThat(dispatcher.getListenerCount(), is(0));
+    }
+}
@@ -9,6 +9,8 @@ import org.semanticweb.owlapi.model.*;
 
 import java.io.File;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -152,4 +154,28 @@ public class AssertedClassHierarchyTest {
         assertTrue(listener.getCollectedNodes().contains(factory.getOWLThing()));
         
     }
+
+    @Test
+    public void testClosureIndexFollowsChanges() throws OWLOntologyCreationException, URISyntaxException {
+        OWLOntology ontology = createOntology();
+        hierarchy.setClosureIndexEnabled(true);
+        OWLClass a = factory.getOWLClass(IRI.create(NEW_ONTOLOGY_URI + "#A"));
+        OWLClass b = factory.getOWLClass(IRI.create(NEW_ONTOLOGY_URI + "#B"));
+        OWLClass c = factory.getOWLClass(IRI.create(NEW_ONTOLOGY_URI + "#C"));
+        OWLClass thing = factory.getOWLThing();
+
+        manager.addAxiom(ontology, factory.getOWLSubClassOfAxiom(a, b));
+        OWLAxiom bSubC = factory.getOWLSubClassOfAxiom(b, c);
+        manager.addAxiom(ontology, bSubC);
+        assertEquals(new HashSet<>(Arrays.asList(b, c, thing)), hierarchy.getAncestors(a));
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c)), hierarchy.getDescendants(thing));
+
+        manager.removeAxiom(ontology, bSubC);
+        assertEquals(new HashSet<>(Arrays.asList(b, thing)), hierarchy.getAncestors(a));
+        assertEquals(new HashSet<>(), hierarchy.getDescendants(c));
+
+        OWLClass d = factory.getOWLClass(IRI.create(NEW_ONTOLOGY_URI + "#D"));
+        manager.addAxiom(ontology, factory.getOWLDeclarationAxiom(d));
+        assertTrue(hierarchy.getDescendants(thing).contains(d));
+    }
 }
@@ -0,0 +1,53 @@
+package org.protege.editor.owl.model.hierarchy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DenseHierarchy_TestCase {
+
+    private DenseHierarchy<String> hierarchy;
+
+    @Before
+    public void setUp() {
+        hierarchy = DenseHierarchy.<String>builder()
+                .addNode("Root")
+                .addEdge("Root", "A")
+                .addEdge("Root", "B")
+                .addEdge("A", "C")
+                .addEdge("B", "C")
+                .addEdge("Root", "A")
+                .build();
+    }
+
+    @Test
+    public void shouldHoldChildrenAndParents() {
+        assertThat(hierarchy.size(), is(4));
+        assertThat(hierarchy.getChildren("Root"), containsInAnyOrder("A", "B"));
+        assertThat(hierarchy.getParents("C"), containsInAnyOrder("A", "B"));
+        assertThat(hierarchy.getChildren("C"), is(empty()));
+        assertThat(hierarchy.getChildren("Unknown"), is(empty()));
+    }
+
+    @Test
+    public void shouldIgnoreDuplicateEdges() {
+        assertThat(hierarchy.getChildCount("Root"), is(2));
+        assertThat(hierarchy.getParentCount("A"), is(1));
+    }
+
+    @Test
+    public void shouldSupportMembershipTestsAndIteration() {
+        assertThat(hierarchy.getChildren("Root").contains("B"), is(true));
+        assertThat(hierarchy.getChildren("Root").contains("C"), is(false));
+        List<String> children = new ArrayList<>();
+        hierarchy.forEachChild("B", children::add);
+        assertThat(children, contains("C"));
+        int rootId = hierarchy.getId("Root");
+        assertThat(hierarchy.getNode(hierarchy.getChildId(rootId, 0)), is("A"));
+    }
+}
@@ -0,0 +1,89 @@
+package org.protege.editor.owl.model.history;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class HistoryStore_TestCase {
+
+    private static final String NS = "http://protege.org/ontologies/HistoryStore.owl";
+
+    private OWLOntologyManager manager;
+
+    private OWLDataFactory df;
+
+    private OWLOntology ontology;
+
+    private final List<OWLAxiom> axioms = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        manager = OWLManager.createOWLOntologyManager();
+        df = manager.getOWLDataFactory();
+        ontology = manager.createOntology(IRI.create(NS));
+        for (int i = 0; i < 5; i++) {
+            axioms.add(df.getOWLSubClassOfAxiom(df.getOWLClass(IRI.create(NS + "#A" + i)),
+                                                df.getOWLObjectSomeValuesFrom(df.getOWLObjectProperty(IRI.create(NS + "#p")),
+                                                                              df.getOWLObjectOneOf(df.getOWLNamedIndividual(IRI.create(NS + "#i" + i))))));
+        }
+    }
+
+    private HistoryManager createHistoryManager(HistoryStore store) {
+        HistoryManager historyManager = new HistoryManagerImpl(manager, store);
+        manager.addOntologyChangeListener(historyManager::logChanges);
+        return historyManager;
+    }
+
+    @Test
+    public void shouldUndoAndRedoSpilledEntries() {
+        HistoryStore store = new HistoryStore(1, 0, true);
+        HistoryManager historyManager = createHistoryManager(store);
+        manager.addAxiom(ontology, axioms.get(0));
+        manager.addAxiom(ontology, axioms.get(1));
+        OWLOntologyID renamed = new OWLOntologyID(com.google.common.base.Optional.of(IRI.create(NS + "/renamed")),
+                                                  com.google.common.base.Optional.absent());
+        manager.applyChange(new SetOntologyID(ontology, renamed));
+        manager.addAxiom(ontology, axioms.get(2));
+        manager.removeAxiom(ontology, axioms.get(0));
+        assertThat(store.getSpilledEntryCount(), is(4));
+        assertThat(store.getEncodedSizeInMemory(), is(0L));
+
+        while (historyManager.canUndo()) {
+            historyManager.undo();
+        }
+        assertThat(ontology.getAxioms(), is(empty()));
+        assertThat(ontology.getOntologyID().getOntologyIRI().get(), is(IRI.create(NS)));
+        assertThat(store.getSpilledEntryCount(), is(4));
+
+        while (historyManager.canRedo()) {
+            historyManager.redo();
+        }
+        assertThat(ontology.getOntologyID(), is(renamed));
+        assertThat(ontology.getAxioms(), containsInAnyOrder(axioms.get(1), axioms.get(2)));
+        assertThat(historyManager.getLoggedChanges(), hasSize(5));
+    }
+
+    @Test
+    public void shouldDiscardOldestEntriesWhenNotSpillingToDisk() {
+        HistoryStore store = new HistoryStore(2, 0, false);
+        HistoryManager historyManager = createHistoryManager(store);
+        for (OWLAxiom axiom : axioms) {
+            manager.addAxiom(ontology, axiom);
+        }
+        assertThat(store.getSpilledEntryCount(), is(0));
+        int undoCount = 0;
+        while (historyManager.canUndo()) {
+            historyManager.undo();
+            undoCount++;
+        }
+        assertThat(undoCount, is(2));
+        assertThat(ontology.getAxioms(), containsInAnyOrder(axioms.get(0), axioms.get(1), axioms.get(2)));
+    }
+}
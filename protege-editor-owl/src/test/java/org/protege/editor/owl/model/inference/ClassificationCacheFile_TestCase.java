@@ -0,0 +1,118 @@
+package org.protege.editor.owl.model.inference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ClassificationCacheFile_TestCase {
+
+    private static final String NS = "http://example.org/taxonomy#";
+
+    private static final String REASONER_ID = "org.example.reasoner";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private OWLOntologyManager manager;
+
+    private OWLDataFactory dataFactory;
+
+    private OWLOntology ontology;
+
+    private OWLReasoner reasoner;
+
+    private ClassificationCacheFile file;
+
+    private OWLClass a, b, c;
+
+    private OWLObjectProperty p, q;
+
+    private OWLNamedIndividual i;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = OWLManager.createOWLOntologyManager();
+        dataFactory = manager.getOWLDataFactory();
+        ontology = manager.createOntology(IRI.create("http://example.org/taxonomy"));
+        a = dataFactory.getOWLClass(IRI.create(NS + "A"));
+        b = dataFactory.getOWLClass(IRI.create(NS + "B"));
+        c = dataFactory.getOWLClass(IRI.create(NS + "C"));
+        p = dataFactory.getOWLObjectProperty(IRI.create(NS + "p"));
+        q = dataFactory.getOWLObjectProperty(IRI.create(NS + "q"));
+        i = dataFactory.getOWLNamedIndividual(IRI.create(NS + "i"));
+        manager.addAxiom(ontology, dataFactory.getOWLSubClassOfAxiom(b, a));
+        manager.addAxiom(ontology, dataFactory.getOWLEquivalentClassesAxiom(b, c));
+        manager.addAxiom(ontology, dataFactory.getOWLSubObjectPropertyOfAxiom(q, p));
+        manager.addAxiom(ontology, dataFactory.getOWLClassAssertionAxiom(b, i));
+        reasoner = new StructuralReasonerFactory().createReasoner(ontology);
+        reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY, InferenceType.OBJECT_PROPERTY_HIERARCHY);
+        file = new ClassificationCacheFile(temporaryFolder.getRoot().toPath().resolve("ontology.tax"));
+    }
+
+    @After
+    public void tearDown() {
+        reasoner.dispose();
+    }
+
+    @Test
+    public void shouldRestoreTaxonomy() {
+        assertThat(file.write(reasoner, REASONER_ID), is(true));
+        CachedTaxonomyReasoner restored = file.read(ontology, REASONER_ID).get();
+        assertThat(restored.isStale(), is(false));
+        assertThat(restored.getSubClasses(dataFactory.getOWLThing(), true), is(reasoner.getSubClasses(dataFactory.getOWLThing(), true)));
+        assertThat(restored.getSuperClasses(c, false), is(reasoner.getSuperClasses(c, false)));
+        assertThat(restored.getEquivalentClasses(b).getEntities(), containsInAnyOrder(b, c));
+        assertThat(restored.getSubObjectProperties(p, true).getFlattened(), hasItem(q));
+        assertThat(restored.getTypes(i, true).getFlattened(), containsInAnyOrder(b, c));
+        assertThat(restored.getTypes(i, false).getFlattened(), hasItems(a, dataFactory.getOWLThing()));
+        assertThat(restored.getInstances(a, false).getFlattened(), contains(i));
+        restored.dispose();
+    }
+
+    @Test
+    public void shouldAnswerQueriesOutsideTaxonomyEmptyAndRequestReasoner() {
+        file.write(reasoner, REASONER_ID);
+        CachedTaxonomyReasoner restored = file.read(ontology, REASONER_ID).get();
+        AtomicInteger requests = new AtomicInteger();
+        restored.setReasonerRequestHandler(requests::incrementAndGet);
+        OWLClassExpression some = dataFactory.getOWLObjectSomeValuesFrom(p, a);
+        assertThat(restored.getSubClasses(some, true).isEmpty(), is(true));
+        assertThat(restored.getObjectPropertyValues(i, p).isEmpty(), is(true));
+        assertThat(restored.getInverseObjectProperties(p).getSize(), is(0));
+        assertThat(restored.isEntailed(dataFactory.getOWLSubClassOfAxiom(c, a)), is(false));
+        assertThat(requests.get(), is(1));
+        restored.dispose();
+    }
+
+    @Test
+    public void shouldMarkTaxonomyStaleAfterLogicalChange() {
+        file.write(reasoner, REASONER_ID);
+        manager.addAxiom(ontology, dataFactory.getOWLSubClassOfAxiom(a, dataFactory.getOWLClass(IRI.create(NS + "D"))));
+        CachedTaxonomyReasoner restored = file.read(ontology, REASONER_ID).get();
+        assertThat(restored.isStale(), is(true));
+        assertThat(restored.getPendingChanges(), is(empty()));
+        manager.addAxiom(ontology, dataFactory.getOWLSubClassOfAxiom(c, a));
+        assertThat(restored.getPendingChanges(), hasSize(1));
+        restored.dispose();
+    }
+
+    @Test
+    public void shouldMarkTaxonomyOfOtherReasonerStale() {
+        assertThat(file.read(ontology, REASONER_ID), is(Optional.empty()));
+        file.write(reasoner, REASONER_ID);
+        assertThat(file.read(ontology, "org.example.other").get().isStale(), is(true));
+    }
+}
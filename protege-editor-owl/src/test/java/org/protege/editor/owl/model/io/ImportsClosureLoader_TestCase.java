@@ -0,0 +1,186 @@
+package org.protege.editor.owl.model.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.util.SimpleIRIMapper;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ImportsClosureLoader_TestCase {
+
+    private static final String NS = "http://example.org/closure/";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<OWLOntologyIRIMapper> iriMappers = new ArrayList<>();
+
+    private final List<IRI> parsedDocuments = Collections.synchronizedList(new ArrayList<>());
+
+    private ImportsClosureLoader createLoader() {
+        return new ImportsClosureLoader(importsLoaded -> {
+                    OWLOntologyManager manager = OntologyLoader.createInterceptingManager(() -> {}, importsLoaded);
+                    manager.addOntologyLoaderListener(new OWLOntologyLoaderListener() {
+                        @Override
+                        public void startedLoadingOntology(LoadingStartedEvent event) {
+                            parsedDocuments.add(event.getDocumentIRI());
+                        }
+
+                        @Override
+                        public void finishedLoadingOntology(LoadingFinishedEvent event) {
+                        }
+                    });
+                    return manager;
+                },
+                iriMappers,
+                new OWLOntologyLoaderConfiguration().setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT),
+                4);
+    }
+
+    @Test
+    public void shouldLoadDiamondOfImportsOnce() throws Exception {
+        IRI root = save("root", "a", "b", "missing");
+        save("a", "c");
+        save("b", "c");
+        save("c");
+        iriMappers.add(new SimpleIRIMapper(IRI.create(NS + "missing"), IRI.create(new File(temporaryFolder.getRoot(), "missing.ofn"))));
+        List<OWLOntology> ontologies = createLoader().load(root);
+        assertThat(ontologies.get(0).getOntologyID().getOntologyIRI().get(), is(IRI.create(NS + "root")));
+        List<IRI> ontologyIRIs = ontologies.stream()
+                .map(ontology -> ontology.getOntologyID().getOntologyIRI().get())
+                .collect(Collectors.toList());
+        assertThat(ontologyIRIs, containsInAnyOrder(IRI.create(NS + "root"), IRI.create(NS + "a"), IRI.create(NS + "b"), IRI.create(NS + "c")));
+    }
+
+    @Test
+    public void shouldTypeEntitiesWithDeclarationsFromImports() throws Exception {
+        IRI data = saveVocabularyAndData("\"" + NS + "vocabulary\"");
+        List<OWLOntology> ontologies = createLoader().load(data);
+        assertTyped(ontologies);
+        // The imports were found before the data document was parsed, so it was only parsed once
+        assertThat(parsedDocuments, containsInAnyOrder(IRI.create(new File(temporaryFolder.getRoot(), "vocabulary.owl")),
+                                                       IRI.create(new File(temporaryFolder.getRoot(), "data.owl"))));
+    }
+
+    @Test
+    public void shouldTypeEntitiesWithDeclarationsFromImportsThatAreOnlyFoundByParsing() throws Exception {
+        // The import cannot be resolved without expanding the entity, so it is only found by parsing the document
+        IRI data = saveVocabularyAndData("\"&vocabulary;\"");
+        List<OWLOntology> ontologies = createLoader().load(data);
+        assertTyped(ontologies);
+    }
+
+    @Test
+    public void shouldDropDocumentsThatAreNotImported() throws Exception {
+        IRI root = save("root");
+        save("a");
+        File file = new File(root.toURI());
+        // An imports declaration in an annotation is found by the scan but is not an import
+        List<String> lines = new ArrayList<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        for (int k = 0; k < lines.size(); k++) {
+            if (lines.get(k).startsWith("Ontology(")) {
+                lines.add(k + 1, "Annotation(rdfs:comment \"Import(<" + NS + "a>)\")");
+                break;
+            }
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        List<OWLOntology> ontologies = createLoader().load(root);
+        assertThat(parsedDocuments, hasItem(IRI.create(new File(temporaryFolder.getRoot(), "a.ofn"))));
+        assertThat(ontologies, hasSize(1));
+        assertThat(ontologies.get(0).getImportsDeclarations(), is(empty()));
+    }
+
+    /**
+     * Saves a vocabulary ontology that declares two properties, and an RDF/XML data document that imports it and
+     * uses the properties without declaring them.
+     * @param importResource The quoted value of the resource attribute of the imports declaration.
+     * @return The document IRI of the data document.
+     */
+    private IRI saveVocabularyAndData(String importResource) throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        OWLObjectProperty p = dataFactory.getOWLObjectProperty(IRI.create(NS + "vocabulary#p"));
+        OWLDataProperty d = dataFactory.getOWLDataProperty(IRI.create(NS + "vocabulary#d"));
+        OWLNamedIndividual i = dataFactory.getOWLNamedIndividual(IRI.create(NS + "data#i"));
+        OWLNamedIndividual j = dataFactory.getOWLNamedIndividual(IRI.create(NS + "data#j"));
+        OWLOntology vocabulary = manager.createOntology(IRI.create(NS + "vocabulary"));
+        manager.addAxiom(vocabulary, dataFactory.getOWLDeclarationAxiom(p));
+        manager.addAxiom(vocabulary, dataFactory.getOWLDeclarationAxiom(d));
+        IRI vocabularyDocumentIRI = IRI.create(new File(temporaryFolder.getRoot(), "vocabulary.owl"));
+        manager.saveOntology(vocabulary, new RDFXMLDocumentFormat(), vocabularyDocumentIRI);
+        iriMappers.add(new SimpleIRIMapper(IRI.create(NS + "vocabulary"), vocabularyDocumentIRI));
+        // The data document does not declare the properties that it uses
+        File dataFile = new File(temporaryFolder.getRoot(), "data.owl");
+        Files.write(dataFile.toPath(), Arrays.asList(
+                "<?xml version=\"1.0\"?>",
+                "<!DOCTYPE rdf:RDF [",
+                "  <!ENTITY vocabulary \"" + NS + "vocabulary\">",
+                "]>",
+                "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"",
+                "         xmlns:owl=\"http://www.w3.org/2002/07/owl#\"",
+                "         xmlns:v=\"" + NS + "vocabulary#\">",
+                "  <owl:Ontology rdf:about=\"" + NS + "data\">",
+                "    <owl:imports rdf:resource=" + importResource + "/>",
+                "  </owl:Ontology>",
+                "  <owl:NamedIndividual rdf:about=\"" + i.getIRI() + "\">",
+                "    <v:p rdf:resource=\"" + j.getIRI() + "\"/>",
+                "    <v:d>1</v:d>",
+                "  </owl:NamedIndividual>",
+                "</rdf:RDF>"), StandardCharsets.UTF_8);
+        return IRI.create(dataFile);
+    }
+
+    private void assertTyped(List<OWLOntology> ontologies) {
+        OWLDataFactory dataFactory = OWLManager.getOWLDataFactory();
+        OWLObjectProperty p = dataFactory.getOWLObjectProperty(IRI.create(NS + "vocabulary#p"));
+        OWLDataProperty d = dataFactory.getOWLDataProperty(IRI.create(NS + "vocabulary#d"));
+        OWLNamedIndividual i = dataFactory.getOWLNamedIndividual(IRI.create(NS + "data#i"));
+        OWLNamedIndividual j = dataFactory.getOWLNamedIndividual(IRI.create(NS + "data#j"));
+        OWLOntology data = ontologies.get(0);
+        assertThat(data.getOntologyID().getOntologyIRI().get(), is(IRI.create(NS + "data")));
+        assertThat(data.getAxioms(AxiomType.OBJECT_PROPERTY_ASSERTION), contains(dataFactory.getOWLObjectPropertyAssertionAxiom(p, i, j)));
+        assertThat(data.getAxioms(AxiomType.DATA_PROPERTY_ASSERTION), contains(dataFactory.getOWLDataPropertyAssertionAxiom(d, i, "1")));
+        assertThat(data.getAxioms(AxiomType.ANNOTATION_ASSERTION), is(empty()));
+        assertThat(ontologies, hasSize(2));
+    }
+
+    @Test(expected = OWLOntologyCreationException.class)
+    public void shouldThrowIfRootCannotBeLoaded() throws Exception {
+        createLoader().load(IRI.create(new File(temporaryFolder.getRoot(), "missing.owl")));
+    }
+
+    /**
+     * Saves an ontology, which imports the named ontologies, to a file and maps its IRI to the file.
+     * @return The document IRI.
+     */
+    private IRI save(String name, String... imports) throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        IRI ontologyIRI = IRI.create(NS + name);
+        OWLOntology ontology = manager.createOntology(ontologyIRI);
+        for (String imported : imports) {
+            manager.applyChange(new AddImport(ontology, dataFactory.getOWLImportsDeclaration(IRI.create(NS + imported))));
+        }
+        manager.addAxiom(ontology, dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(IRI.create(NS + name + "#Cls"))));
+        File file = new File(temporaryFolder.getRoot(), name + ".ofn");
+        IRI documentIRI = IRI.create(file);
+        manager.saveOntology(ontology, new FunctionalSyntaxDocumentFormat(), documentIRI);
+        iriMappers.add(new SimpleIRIMapper(ontologyIRI, documentIRI));
+        return documentIRI;
+    }
+}
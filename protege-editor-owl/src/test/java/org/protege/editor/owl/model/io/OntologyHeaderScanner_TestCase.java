@@ -0,0 +1,63 @@
+package org.protege.editor.owl.model.io;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OntologyHeaderScanner_TestCase {
+
+    private static final IRI ONTOLOGY = IRI.create("http://example.org/o");
+
+    private static final IRI A = IRI.create("http://example.org/a");
+
+    private static final IRI B = IRI.create("http://example.org/b");
+
+    @Test
+    public void shouldScanRDFXML() {
+        OntologyHeaderScanner.Header header = scan("<rdf:RDF><owl:Ontology rdf:about=\"http://example.org/o\">"
+                                                           + "<owl:imports rdf:resource=\"http://example.org/a\"/>"
+                                                           + "<!-- <owl:imports rdf:resource=\"http://example.org/b\"/> -->"
+                                                           + "</owl:Ontology>");
+        assertThat(header.getOntologyIRI(), is(ONTOLOGY));
+        assertThat(header.getImports(), contains(A));
+    }
+
+    @Test
+    public void shouldScanTurtle() {
+        OntologyHeaderScanner.Header header = scan("<http://example.org/o> a owl:Ontology ;\n"
+                                                           + "    owl:imports <http://example.org/a> , <http://example.org/b> .\n"
+                                                           + "# owl:imports <http://example.org/c> .");
+        assertThat(header.getOntologyIRI(), is(ONTOLOGY));
+        assertThat(header.getImports(), contains(A, B));
+    }
+
+    @Test
+    public void shouldScanOWLXML() {
+        OntologyHeaderScanner.Header header = scan("<Ontology xmlns=\"http://www.w3.org/2002/07/owl#\" ontologyIRI=\"http://example.org/o\">"
+                                                           + "<Import>http://example.org/a</Import>");
+        assertThat(header.getOntologyIRI(), is(ONTOLOGY));
+        assertThat(header.getImports(), contains(A));
+    }
+
+    @Test
+    public void shouldScanFunctionalAndManchesterSyntax() {
+        assertThat(scan("Ontology(<http://example.org/o>\nImport(<http://example.org/a>)").getImports(), contains(A));
+        assertThat(scan("Ontology: <http://example.org/o>\nImport: <http://example.org/a>").getImports(), contains(A));
+    }
+
+    @Test
+    public void shouldNotGuessImportsThatNeedParsing() {
+        assertThat(OntologyHeaderScanner.scan("<owl:imports rdf:resource=\"&obo;a.owl\"/>").isPresent(), is(false));
+        assertThat(OntologyHeaderScanner.scan("<owl:imports rdf:resource=\"a.owl\"/>").isPresent(), is(false));
+    }
+
+    private static OntologyHeaderScanner.Header scan(String text) {
+        Optional<OntologyHeaderScanner.Header> header = OntologyHeaderScanner.scan(text);
+        assertThat(header.isPresent(), is(true));
+        return header.get();
+    }
+}
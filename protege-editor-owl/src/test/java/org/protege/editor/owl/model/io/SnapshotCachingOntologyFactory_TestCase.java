@@ -0,0 +1,156 @@
+package org.protege.editor.owl.model.io;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
+import org.semanticweb.owlapi.io.IRIDocumentSource;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.vocab.OWL2Datatype;
+import org.semanticweb.owlapi.vocab.OWLFacet;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SnapshotCachingOntologyFactory_TestCase {
+
+    private static final String NS = "http://example.org/snapshot#";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path snapshotDirectory;
+
+    private IRI documentIRI;
+
+    private IRI importedDocumentIRI;
+
+    private OWLOntology original;
+
+    @Before
+    public void setUp() throws Exception {
+        snapshotDirectory = temporaryFolder.newFolder("snapshots").toPath();
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory df = manager.getOWLDataFactory();
+        original = manager.createOntology(new OWLOntologyID(
+                com.google.common.base.Optional.of(IRI.create("http://example.org/snapshot")),
+                com.google.common.base.Optional.of(IRI.create("http://example.org/snapshot/1.0"))));
+        OWLClass a = df.getOWLClass(IRI.create(NS + "A"));
+        OWLClass b = df.getOWLClass(IRI.create(NS + "B"));
+        OWLObjectProperty p = df.getOWLObjectProperty(IRI.create(NS + "p"));
+        OWLObjectProperty q = df.getOWLObjectProperty(IRI.create(NS + "q"));
+        OWLDataProperty d = df.getOWLDataProperty(IRI.create(NS + "d"));
+        OWLNamedIndividual i = df.getOWLNamedIndividual(IRI.create(NS + "i"));
+        OWLAnnotation comment = df.getOWLAnnotation(df.getRDFSComment(), df.getOWLLiteral("A comment", "en"));
+        OWLOntology imported = manager.createOntology(IRI.create("http://example.org/imported"));
+        manager.addAxiom(imported, df.getOWLDeclarationAxiom(d));
+        importedDocumentIRI = IRI.create(new File(temporaryFolder.getRoot(), "imported.owl"));
+        manager.saveOntology(imported, new RDFXMLDocumentFormat(), importedDocumentIRI);
+        manager.applyChange(new AddImport(original, df.getOWLImportsDeclaration(importedDocumentIRI)));
+        manager.applyChange(new AddOntologyAnnotation(original, comment));
+        manager.addAxiom(original, df.getOWLDeclarationAxiom(a));
+        manager.addAxiom(original, df.getOWLSubClassOfAxiom(a,
+                df.getOWLObjectIntersectionOf(b,
+                        df.getOWLObjectSomeValuesFrom(p, df.getOWLObjectComplementOf(b)),
+                        df.getOWLObjectMinCardinality(2, df.getOWLObjectInverseOf(q), b),
+                        df.getOWLDataSomeValuesFrom(d, df.getOWLDatatypeRestriction(df.getIntegerOWLDatatype(),
+                                df.getOWLFacetRestriction(OWLFacet.MIN_INCLUSIVE, 3))),
+                        df.getOWLObjectHasValue(p, i)),
+                Collections.singleton(comment)));
+        manager.addAxiom(original, df.getOWLEquivalentClassesAxiom(b, df.getOWLObjectOneOf(i)));
+        manager.addAxiom(original, df.getOWLSubPropertyChainOfAxiom(Arrays.asList(p, q), p));
+        manager.addAxiom(original, df.getOWLDataPropertyRangeAxiom(d,
+                df.getOWLDataUnionOf(OWL2Datatype.XSD_INTEGER.getDatatype(df), df.getOWLDataOneOf(df.getOWLLiteral(1.5)))));
+        manager.addAxiom(original, df.getOWLHasKeyAxiom(a, new java.util.HashSet<>(Arrays.asList(p, d))));
+        manager.addAxiom(original, df.getOWLDataPropertyAssertionAxiom(d, i, 42));
+        manager.addAxiom(original, df.getOWLAnnotationAssertionAxiom(a.getIRI(), df.getOWLAnnotation(df.getRDFSLabel(), df.getOWLLiteral("A"))));
+        File file = new File(temporaryFolder.getRoot(), "snapshot.owl");
+        documentIRI = IRI.create(file);
+        manager.saveOntology(original, new RDFXMLDocumentFormat(), documentIRI);
+    }
+
+    private OWLOntology load() throws OWLOntologyCreationException {
+        return load(documentIRI);
+    }
+
+    private OWLOntology load(IRI documentIRI) throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OntologyLoader.createInterceptingManager(() -> {}, true);
+        SnapshotCachingOntologyFactory.install(manager, 0, snapshotDirectory, true);
+        OWLOntologyLoaderConfiguration configuration = new OWLOntologyLoaderConfiguration()
+                .setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+        return manager.loadOntologyFromOntologyDocument(new IRIDocumentSource(documentIRI), configuration);
+    }
+
+    @Test
+    public void shouldRestoreUnchangedDocumentFromSnapshot() throws Exception {
+        OWLOntology parsed = load();
+        assertThat(Files.list(snapshotDirectory).count(), is(2L));
+        OWLOntology restored = load();
+        assertThat(restored.getOntologyID(), is(original.getOntologyID()));
+        assertThat(restored.getImportsDeclarations(), is(original.getImportsDeclarations()));
+        assertThat(restored.getAnnotations(), is(original.getAnnotations()));
+        assertThat(restored.getAxioms(), is(parsed.getAxioms()));
+        assertThat(restored.getOWLOntologyManager().getOntologyFormat(restored), is(instanceOf(RDFXMLDocumentFormat.class)));
+    }
+
+    @Test
+    public void shouldParseChangedDocument() throws Exception {
+        load();
+        Path document = OntologySnapshotFile.toPath(documentIRI).get();
+        Files.write(document, new String(Files.readAllBytes(document), "UTF-8").replace("A comment", "Another comment").getBytes("UTF-8"));
+        Files.setLastModifiedTime(document, FileTime.fromMillis(Files.getLastModifiedTime(document).toMillis() + 2000));
+        OWLOntology reparsed = load();
+        assertThat(reparsed.getAnnotations().iterator().next().getValue().asLiteral().get().getLiteral(), is("Another comment"));
+    }
+
+    @Test
+    public void shouldNotRestoreSnapshotAfterImportedDocumentChanges() throws Exception {
+        load();
+        OntologySnapshotFile snapshotFile = OntologySnapshotFile.forDocument(documentIRI, snapshotDirectory).get();
+        OntologySnapshotFile.SourceState source = OntologySnapshotFile.SourceState.of(OntologySnapshotFile.toPath(documentIRI).get());
+        OWLDataFactory df = OWLManager.getOWLDataFactory();
+        assertThat(snapshotFile.read(source, df).isPresent(), is(true));
+        Path importedDocument = OntologySnapshotFile.toPath(importedDocumentIRI).get();
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLOntology imported = manager.loadOntologyFromOntologyDocument(importedDocument.toFile());
+        manager.addAxiom(imported, df.getOWLDeclarationAxiom(df.getOWLObjectProperty(IRI.create(NS + "r"))));
+        manager.saveOntology(imported, new RDFXMLDocumentFormat(), importedDocumentIRI);
+        Files.setLastModifiedTime(importedDocument, FileTime.fromMillis(Files.getLastModifiedTime(importedDocument).toMillis() + 2000));
+        assertThat(snapshotFile.read(source, df).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldNotSaveSnapshotWhenAnImportIsMissing() throws Exception {
+        Files.delete(OntologySnapshotFile.toPath(importedDocumentIRI).get());
+        load();
+        assertThat(OntologySnapshotFile.forDocument(documentIRI, snapshotDirectory).get().getPath().toFile().exists(), is(false));
+    }
+
+    @Test
+    public void shouldRestoreAnonymousIndividualsAsFreshIndividuals() throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory df = manager.getOWLDataFactory();
+        OWLOntology ontology = manager.createOntology(IRI.create("http://example.org/anonymous"));
+        OWLAnonymousIndividual anonymous = df.getOWLAnonymousIndividual();
+        manager.addAxiom(ontology, df.getOWLClassAssertionAxiom(df.getOWLClass(IRI.create(NS + "A")), anonymous));
+        manager.addAxiom(ontology, df.getOWLObjectPropertyAssertionAxiom(df.getOWLObjectProperty(IRI.create(NS + "p")),
+                df.getOWLNamedIndividual(IRI.create(NS + "i")), anonymous));
+        IRI anonymousDocumentIRI = IRI.create(new File(temporaryFolder.getRoot(), "anonymous.owl"));
+        manager.saveOntology(ontology, new RDFXMLDocumentFormat(), anonymousDocumentIRI);
+        load(anonymousDocumentIRI);
+        OWLOntology first = load(anonymousDocumentIRI);
+        OWLOntology second = load(anonymousDocumentIRI);
+        assertThat(first.getAnonymousIndividuals(), hasSize(1));
+        assertThat(second.getAnonymousIndividuals(), hasSize(1));
+        assertThat(first.getAnonymousIndividuals(), is(not(second.getAnonymousIndividuals())));
+    }
+}
@@ -0,0 +1,72 @@
+package org.protege.editor.owl.model.search;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class FuzzySearchIndex_TestCase {
+
+    private static final String NS = "http://example.org/search#";
+
+    private FuzzySearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new FuzzySearchIndex();
+        for (String name : new String[]{"Heart", "Hearth", "Heat", "Liver", "Lever", "Kidney"}) {
+            index.add(displayName(name));
+        }
+    }
+
+    @Test
+    public void shouldComputeLevenshteinDistance() {
+        assertThat(FuzzySearchIndex.distance("kitten", "sitting"), is(3));
+        assertThat(FuzzySearchIndex.distance("", "abc"), is(3));
+        assertThat(FuzzySearchIndex.distance("heart", "heart"), is(0));
+    }
+
+    @Test
+    public void shouldFindNearMatchesRankedByDistance() {
+        List<FuzzySearchIndex.Match> matches = index.search("HEART", 1);
+        assertThat(searchStrings(matches), containsInAnyOrder("Heart", "Hearth", "Heat"));
+        assertThat(searchStrings(matches).get(0), is("Heart"));
+        assertThat(matches.get(0).getDistance(), is(0));
+        assertThat(searchStrings(index.search("livr", 1)), contains("Liver"));
+        assertThat(searchStrings(index.search("kindly", 1)), is(empty()));
+    }
+
+    @Test
+    public void shouldMatchIRIShortForms() {
+        OWLClass cls = OWLManager.getOWLDataFactory().getOWLClass(IRI.create(NS + "Pancreas"));
+        SearchMetadata iri = new SearchMetadata(SearchCategory.IRI, "IRI", cls, "Pancreas", NS + "Pancreas");
+        index.add(iri);
+        assertThat(searchStrings(index.search("pancrease", 1)), contains(NS + "Pancreas"));
+        assertThat(FuzzySearchIndex.getTermStart(iri), is(NS.length()));
+    }
+
+    @Test
+    public void shouldNotFindRemovedMetadata() {
+        SearchMetadata spleen = displayName("Spleen");
+        index.add(spleen);
+        index.remove(spleen);
+        assertThat(index.search("spleen", 1), is(empty()));
+        assertThat(index.size(), is(6));
+    }
+
+    private static SearchMetadata displayName(String name) {
+        OWLClass cls = OWLManager.getOWLDataFactory().getOWLClass(IRI.create(NS + name));
+        return new SearchMetadata(SearchCategory.DISPLAY_NAME, "Display name", cls, name, name);
+    }
+
+    private static List<String> searchStrings(List<FuzzySearchIndex.Match> matches) {
+        return matches.stream().map(match -> match.getSearchMetadata().getSearchString()).collect(Collectors.toList());
+    }
+}
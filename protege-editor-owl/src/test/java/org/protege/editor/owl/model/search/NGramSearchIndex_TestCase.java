@@ -0,0 +1,92 @@
+package org.protege.editor.owl.model.search;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class NGramSearchIndex_TestCase {
+
+    private NGramSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new NGramSearchIndex();
+        for (String name : new String[]{"Heart", "Heart Valve", "Hearth", "Liver", "GO:0001234"}) {
+            index.add(metadata(name));
+        }
+    }
+
+    @Test
+    public void shouldExtractQuotedLiterals() {
+        Pattern wholeWords = Pattern.compile("\\b(:?" + Pattern.quote("heart valve") + ")\\b", Pattern.CASE_INSENSITIVE);
+        assertThat(NGramSearchIndex.getRequiredLiterals(wholeWords), contains("heart valve"));
+    }
+
+    @Test
+    public void shouldIgnoreOptionalLiterals() {
+        assertThat(NGramSearchIndex.getRequiredLiterals(Pattern.compile("hea(rt)?xyz")), contains("hea", "xyz"));
+        assertThat(NGramSearchIndex.getRequiredLiterals(Pattern.compile("abcd?e")), contains("abc", "e"));
+        assertThat(NGramSearchIndex.getRequiredLiterals(Pattern.compile("liver|heart")), is(empty()));
+    }
+
+    @Test
+    public void shouldSkipWholeEscapeSequences() {
+        assertThat(literals("abc\\x41def"), contains("abc", "def"));
+        assertThat(literals("abc\\x{41}def"), contains("abc", "def"));
+        assertThat(literals("abc\\u00e9def"), contains("abc", "def"));
+        assertThat(literals("abc\\0101def"), contains("abc", "def"));
+        assertThat(literals("abc\\cXdef"), contains("abc", "def"));
+        assertThat(literals("(?<g>abc)\\k<g>def"), contains("abc", "def"));
+        assertThat(literals("abc\\N{LATIN SMALL LETTER A}def"), contains("abc", "def"));
+        assertThat(literals("abc\\pLdef"), contains("abc", "def"));
+        assertThat(literals("(abc)\\1def"), contains("abc", "def"));
+    }
+
+    @Test
+    public void shouldNarrowSubstringQueries() {
+        assertThat(candidates(Pattern.quote("EART"), Pattern.CASE_INSENSITIVE), containsInAnyOrder("Heart", "Heart Valve", "Hearth"));
+        assertThat(candidates(Pattern.quote("valve"), 0), contains("Heart Valve"));
+        assertThat(candidates(Pattern.quote("kidney"), 0), is(empty()));
+    }
+
+    @Test
+    public void shouldNotNarrowShortOrAlternativeQueries() {
+        SearchRequest request = new SearchRequest(ImmutableList.of(Pattern.compile("GO(?::|_)0001")));
+        assertThat(index.getCandidates(request).isPresent(), is(false));
+        assertThat(index.getCandidates(new SearchRequest(ImmutableList.of(Pattern.compile("he")))).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldDropRemovedMetadata() {
+        SearchMetadata kidney = metadata("Kidney");
+        index.add(kidney);
+        index.remove(kidney);
+        assertThat(candidates("kidney", 0), is(empty()));
+    }
+
+    private static List<String> literals(String regex) {
+        return NGramSearchIndex.getRequiredLiterals(Pattern.compile(regex));
+    }
+
+    private List<String> candidates(String regex, int flags) {
+        SearchRequest request = new SearchRequest(ImmutableList.of(Pattern.compile(regex, flags)));
+        return index.getCandidates(request).get().stream()
+                    .map(SearchMetadata::getSearchString)
+                    .collect(Collectors.toList());
+    }
+
+    private static SearchMetadata metadata(String text) {
+        OWLClass cls = OWLManager.getOWLDataFactory().getOWLClass(IRI.create("http://example.org/search#" + text.replace(' ', '_')));
+        return new SearchMetadata(SearchCategory.DISPLAY_NAME, "Display name", cls, text, text);
+    }
+}
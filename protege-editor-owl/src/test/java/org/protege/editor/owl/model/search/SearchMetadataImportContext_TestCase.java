@@ -0,0 +1,54 @@
+package org.protege.editor.owl.model.search;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.protege.editor.owl.OWLEditorKit;
+import org.protege.editor.owl.model.OWLModelManager;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchMetadataImportContext_TestCase {
+
+    @Mock
+    private OWLEditorKit editorKit;
+
+    @Mock
+    private OWLModelManager modelManager;
+
+    private OWLClass cls;
+
+    private SearchMetadataImportContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        OWLOntology ontology = manager.createOntology(IRI.create("http://example.org/context"));
+        cls = dataFactory.getOWLClass(IRI.create("http://example.org/context#A"));
+        manager.addAxiom(ontology, dataFactory.getOWLDeclarationAxiom(cls));
+        when(editorKit.getOWLModelManager()).thenReturn(modelManager);
+        when(modelManager.getActiveOntologies()).thenReturn(Collections.singleton(ontology));
+        when(modelManager.getRendering(cls)).thenReturn("A");
+        context = new SearchMetadataImportContext(editorKit);
+    }
+
+    @Test
+    public void shouldUsePreparedRenderingsUntilTheyAreReleased() {
+        context.prepareRenderings();
+        when(modelManager.getRendering(cls)).thenReturn("B");
+        assertThat(context.getRendering(cls), is("A"));
+        context.releaseRenderings();
+        assertThat(context.getRendering(cls), is("B"));
+        assertThat(context.getStyledStringRendering(cls).getString(), is("B"));
+    }
+}
@@ -0,0 +1,142 @@
+package org.protege.editor.owl.model.search;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.protege.editor.owl.OWLEditorKit;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchMetadataIndexFile_TestCase {
+
+    private static final String NS = "http://example.org/search#";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private SearchMetadataImportContext context;
+
+    private OWLOntologyManager manager;
+
+    private OWLOntology ontology;
+
+    private OWLDataFactory dataFactory;
+
+    private List<SearchMetadataImporter> importers;
+
+    private Set<SearchCategory> categories;
+
+    private SearchMetadataIndexFile file;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = OWLManager.createOWLOntologyManager();
+        dataFactory = manager.getOWLDataFactory();
+        ontology = manager.createOntology(IRI.create("http://example.org/search"));
+        for (int i = 0; i < 20; i++) {
+            OWLClass cls = dataFactory.getOWLClass(IRI.create(NS + "C" + i));
+            manager.addAxiom(ontology, dataFactory.getOWLDeclarationAxiom(cls));
+            manager.addAxiom(ontology, dataFactory.getOWLSubClassOfAxiom(cls, dataFactory.getOWLThing()));
+        }
+        when(context.getOntologies()).thenReturn(Collections.singleton(ontology));
+        when(context.getRendering(any(OWLObject.class))).thenAnswer(invocation -> invocation.getArguments()[0].toString());
+        importers = Collections.singletonList(new AxiomImporter());
+        categories = EnumSet.of(SearchCategory.LOGICAL_AXIOM);
+        file = new SearchMetadataIndexFile(temporaryFolder.getRoot().toPath().resolve("index.idx"));
+    }
+
+    @Test
+    public void shouldReadTheMetadataThatWasWritten() {
+        SearchMetadataIndex index = new SearchMetadataIndex();
+        index.rebuild(importers, context, categories);
+        assertThat(file.write(index, importers, context, categories), is(true));
+
+        SearchMetadataIndex loaded = new SearchMetadataIndex();
+        assertThat(file.read(loaded, importers, context, categories), is(true));
+        assertThat(searchStrings(loaded), is(searchStrings(index)));
+        assertThat(loaded.getEntries().keySet(), is(index.getEntries().keySet()));
+    }
+
+    @Test
+    public void shouldIgnoreAnOutOfDateIndex() {
+        SearchMetadataIndex index = new SearchMetadataIndex();
+        index.rebuild(importers, context, categories);
+        file.write(index, importers, context, categories);
+        manager.addAxiom(ontology, dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(IRI.create(NS + "New"))));
+        assertThat(file.read(new SearchMetadataIndex(), importers, context, categories), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreAnIndexAfterAnAxiomIsReplaced() {
+        SearchMetadataIndex index = new SearchMetadataIndex();
+        index.rebuild(importers, context, categories);
+        file.write(index, importers, context, categories);
+        OWLClass c0 = dataFactory.getOWLClass(IRI.create(NS + "C0"));
+        OWLClass c1 = dataFactory.getOWLClass(IRI.create(NS + "C1"));
+        manager.removeAxiom(ontology, dataFactory.getOWLSubClassOfAxiom(c0, dataFactory.getOWLThing()));
+        manager.addAxiom(ontology, dataFactory.getOWLSubClassOfAxiom(c0, c1));
+        assertThat(file.read(new SearchMetadataIndex(), importers, context, categories), is(false));
+    }
+
+    @Test
+    public void shouldReplaceAnIndexThatHasBeenRead() {
+        SearchMetadataIndex index = new SearchMetadataIndex();
+        index.rebuild(importers, context, categories);
+        file.write(index, importers, context, categories);
+        assertThat(file.read(new SearchMetadataIndex(), importers, context, categories), is(true));
+        assertThat(file.write(index, importers, context, categories), is(true));
+        assertThat(file.read(new SearchMetadataIndex(), importers, context, categories), is(true));
+    }
+
+    @Test
+    public void shouldIgnoreAnIndexForOtherCategories() {
+        SearchMetadataIndex index = new SearchMetadataIndex();
+        index.rebuild(importers, context, categories);
+        file.write(index, importers, context, categories);
+        assertThat(file.read(new SearchMetadataIndex(), importers, context, EnumSet.allOf(SearchCategory.class)), is(false));
+    }
+
+    private static List<String> searchStrings(SearchMetadataIndex index) {
+        return index.getSearchMetadata().stream().map(SearchMetadata::getSearchString).sorted().collect(Collectors.toList());
+    }
+
+    private static class AxiomImporter implements IncrementalSearchMetadataImporter {
+
+        @Override
+        public SearchMetadataDB getSearchMetadata(OWLEditorKit editorKit, Set<SearchCategory> categories) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void getSearchMetadataForEntity(OWLEntity entity, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+            db.addResult(new SearchMetadata(SearchCategory.DISPLAY_NAME, "Display name", entity, entity.toString(), entity.getIRI().getShortForm()));
+        }
+
+        @Override
+        public void getSearchMetadataForAxiom(OWLAxiom axiom, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+            if (axiom instanceof OWLSubClassOfAxiom) {
+                OWLClass subject = ((OWLSubClassOfAxiom) axiom).getSubClass().asOWLClass();
+                db.addResult(new SearchMetadata(SearchCategory.LOGICAL_AXIOM, "SubClassOf", subject, subject.toString(), axiom.toString()));
+            }
+        }
+
+        @Override
+        public void getSearchMetadataForOntology(OWLOntology ontology, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+            db.addResult(new SearchMetadata(SearchCategory.ANNOTATION_VALUE, "Ontology", ontology, "search", ontology.getOntologyID().toString()));
+        }
+    }
+}
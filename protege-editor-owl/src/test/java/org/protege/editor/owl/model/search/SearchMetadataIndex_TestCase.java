@@ -0,0 +1,121 @@
+package org.protege.editor.owl.model.search;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.protege.editor.owl.OWLEditorKit;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchMetadataIndex_TestCase {
+
+    private static final String NS = "http://example.org/search#";
+
+    @Mock
+    private SearchMetadataImportContext context;
+
+    private OWLOntologyManager manager;
+
+    private OWLOntology ontology;
+
+    private OWLDataFactory dataFactory;
+
+    private CountingImporter importer;
+
+    private SearchMetadataIndex index;
+
+    private Set<SearchCategory> categories;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = OWLManager.createOWLOntologyManager();
+        dataFactory = manager.getOWLDataFactory();
+        ontology = manager.createOntology(IRI.create("http://example.org/search"));
+        for (int i = 0; i < 100; i++) {
+            manager.addAxiom(ontology, dataFactory.getOWLDeclarationAxiom(cls("C" + i)));
+        }
+        when(context.getOntologies()).thenReturn(Collections.singleton(ontology));
+        importer = new CountingImporter();
+        index = new SearchMetadataIndex();
+        categories = EnumSet.of(SearchCategory.DISPLAY_NAME);
+        index.rebuild(Collections.singletonList(importer), context, categories);
+    }
+
+    @Test
+    public void shouldIndexEverySignatureEntity() {
+        assertThat(searchStrings(), hasSize(100));
+        assertThat(importer.entityImports.get(), is(100));
+    }
+
+    @Test
+    public void shouldOnlyReimportAffectedEntities() {
+        importer.entityImports.set(0);
+        List<OWLOntologyChange> changes = Collections.singletonList(new AddAxiom(ontology, dataFactory.getOWLDeclarationAxiom(cls("New"))));
+        manager.applyChanges(changes);
+        boolean updated = index.update(changes, Collections.emptySet(), Collections.singletonList(importer), context, categories);
+        assertThat(updated, is(true));
+        assertThat(importer.entityImports.get(), is(1));
+        assertThat(searchStrings(), hasItem(NS + "New"));
+    }
+
+    @Test
+    public void shouldDropEntitiesThatLeaveTheSignature() {
+        List<OWLOntologyChange> changes = Collections.singletonList(new RemoveAxiom(ontology, dataFactory.getOWLDeclarationAxiom(cls("C5"))));
+        manager.applyChanges(changes);
+        index.update(changes, Collections.emptySet(), Collections.singletonList(importer), context, categories);
+        assertThat(searchStrings(), hasSize(99));
+        assertThat(searchStrings(), not(hasItem(NS + "C5")));
+    }
+
+    @Test
+    public void shouldRequireRebuildForImportChanges() {
+        OWLImportsDeclaration importsDeclaration = dataFactory.getOWLImportsDeclaration(IRI.create("http://example.org/other"));
+        List<OWLOntologyChange> changes = Collections.singletonList(new AddImport(ontology, importsDeclaration));
+        boolean updated = index.update(changes, Collections.emptySet(), Collections.singletonList(importer), context, categories);
+        assertThat(updated, is(false));
+    }
+
+    private OWLClass cls(String name) {
+        return dataFactory.getOWLClass(IRI.create(NS + name));
+    }
+
+    private List<String> searchStrings() {
+        return index.getSearchMetadata().stream().map(SearchMetadata::getSearchString).collect(Collectors.toList());
+    }
+
+    private static class CountingImporter implements IncrementalSearchMetadataImporter {
+
+        private final AtomicInteger entityImports = new AtomicInteger();
+
+        @Override
+        public SearchMetadataDB getSearchMetadata(OWLEditorKit editorKit, Set<SearchCategory> categories) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void getSearchMetadataForEntity(OWLEntity entity, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+            entityImports.incrementAndGet();
+            String iri = entity.getIRI().toString();
+            db.addResult(new SearchMetadata(SearchCategory.DISPLAY_NAME, "Display name", entity, iri, iri));
+        }
+
+        @Override
+        public void getSearchMetadataForAxiom(OWLAxiom axiom, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+        }
+
+        @Override
+        public void getSearchMetadataForOntology(OWLOntology ontology, Set<SearchCategory> categories, SearchMetadataImportContext context, SearchMetadataDB db) {
+        }
+    }
+}
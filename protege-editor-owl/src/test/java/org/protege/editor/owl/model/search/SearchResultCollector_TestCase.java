@@ -0,0 +1,71 @@
+package org.protege.editor.owl.model.search;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class SearchResultCollector_TestCase {
+
+    private static final List<String> NAMES = Arrays.asList("Delta", "Alpha", "Echo", "Charlie", "Bravo");
+
+    @Test
+    public void shouldKeepAllMatchesInOrderWhenNotPaged() {
+        SearchResultCollector collector = collect(new SearchRequest(patterns()));
+        assertThat(names(collector.getResults()), is(NAMES));
+    }
+
+    @Test
+    public void shouldOnlyCountMatchesWhenNotPagedAndTheResultListIsNotRequired() {
+        SearchResultCollector collector = collect(new SearchRequest(patterns()), false);
+        assertThat(collector.getResults(), is(empty()));
+        assertThat(collector.getMatchCount(), is(5));
+    }
+
+    @Test
+    public void shouldKeepTheBestMatches() {
+        SearchResultCollector collector = collect(new SearchRequest(patterns(), 0, 2));
+        assertThat(names(collector.getResults()), contains("Alpha", "Bravo"));
+        assertThat(collector.getMatchCount(), is(5));
+    }
+
+    @Test
+    public void shouldReturnTheRequestedPage() {
+        SearchResultCollector collector = collect(new SearchRequest(patterns(), 2, 2));
+        assertThat(names(collector.getResults()), contains("Charlie", "Delta"));
+        assertThat(names(collect(new SearchRequest(patterns(), 4, 2)).getResults()), contains("Echo"));
+    }
+
+    private static SearchResultCollector collect(SearchRequest request) {
+        return collect(request, true);
+    }
+
+    private static SearchResultCollector collect(SearchRequest request, boolean resultListRequired) {
+        SearchResultCollector collector = new SearchResultCollector(request, new SearchResultComparator(null), resultListRequired);
+        for (String name : NAMES) {
+            OWLClass cls = OWLManager.getOWLDataFactory().getOWLClass(IRI.create("http://example.org/search#" + name));
+            SearchMetadata metadata = new SearchMetadata(SearchCategory.DISPLAY_NAME, "Display name", cls, name, name);
+            collector.add(new SearchResult(metadata, ImmutableList.of(new SearchResultMatch(Pattern.compile("a"), 1, 2))));
+        }
+        return collector;
+    }
+
+    private static ImmutableList<Pattern> patterns() {
+        return ImmutableList.of(Pattern.compile("a"));
+    }
+
+    private static List<String> names(List<SearchResult> results) {
+        return results.stream().map(SearchResult::getSearchString).collect(Collectors.toList());
+    }
+}
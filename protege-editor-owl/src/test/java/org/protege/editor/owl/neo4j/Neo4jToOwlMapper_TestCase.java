@@ -0,0 +1,95 @@
+package org.protege.editor.owl.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.util.NullProgressMonitor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class Neo4jToOwlMapper_TestCase {
+
+    private static final IRI ONTOLOGY_IRI = IRI.create("http://example.org/graph");
+
+    private static final int CLASS_COUNT = 20_000;
+
+    private static final int INDIVIDUAL_COUNT = 5_000;
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final int PARALLELISM = 2;
+
+    private OWLOntologyManager manager;
+
+    private OWLOntology ontology;
+
+    @Before
+    public void setUp() throws OWLOntologyCreationException {
+        manager = OWLManager.createOWLOntologyManager();
+        ontology = manager.createOntology(ONTOLOGY_IRI);
+    }
+
+    @Test
+    public void shouldImportGraphFixture() throws Exception {
+        Neo4jToOwlMapper.run(this::graphFixture, manager, ONTOLOGY_IRI, Neo4jGraphKey.BY_NAME, CHUNK_SIZE, PARALLELISM, new NullProgressMonitor());
+
+        OWLDataFactory dataFactory = manager.getOWLDataFactory();
+        assertThat(ontology.getAxiomCount(AxiomType.DECLARATION), is(CLASS_COUNT + INDIVIDUAL_COUNT));
+        assertThat(ontology.getAxiomCount(AxiomType.SUBCLASS_OF), is(CLASS_COUNT - 1));
+        assertThat(ontology.getAxiomCount(AxiomType.CLASS_ASSERTION), is(INDIVIDUAL_COUNT));
+        assertThat(ontology.containsAxiom(dataFactory.getOWLSubClassOfAxiom(cls(dataFactory, 7), cls(dataFactory, 3))), is(true));
+    }
+
+    @Test
+    public void shouldBoundChangesHeldInMemory() throws Exception {
+        Neo4jToOwlMapper.ImportStatistics statistics = Neo4jToOwlMapper.run(this::graphFixture, manager, ONTOLOGY_IRI, Neo4jGraphKey.BY_NAME, CHUNK_SIZE, PARALLELISM, new NullProgressMonitor());
+
+        long totalChanges = CLASS_COUNT + (CLASS_COUNT - 1) + 2 * INDIVIDUAL_COUNT;
+        assertThat(statistics.getChangeCount(), is(totalChanges));
+        // Each worker holds at most one partial chunk, the queue holds one chunk per worker and one chunk is being applied
+        long bound = (CHUNK_SIZE + 1) * (2L * PARALLELISM + 1);
+        assertThat(statistics.getPeakBufferedChanges(), is(lessThanOrEqualTo(bound)));
+    }
+
+    private static OWLClass cls(OWLDataFactory dataFactory, int i) {
+        return dataFactory.getOWLClass(IRI.create(ONTOLOGY_IRI + "#C" + i));
+    }
+
+    /**
+     * A graph with a binary tree of classes and one typed individual for every fourth class.
+     */
+    private void graphFixture(String query, Consumer<Record> consumer) {
+        if (query.startsWith("MATCH (c:Class) RETURN")) {
+            for (int i = 0; i < CLASS_COUNT; i++) {
+                consumer.accept(record(Arrays.asList("name"), Values.value("C" + i)));
+            }
+        } else if (query.startsWith("MATCH (sub:Class)-[:SubClassOf]->")) {
+            for (int i = 1; i < CLASS_COUNT; i++) {
+                consumer.accept(record(Arrays.asList("sub", "sup"), Values.value("C" + i), Values.value("C" + (i - 1) / 2)));
+            }
+        } else if (query.startsWith("MATCH (i:Individual) RETURN")) {
+            for (int i = 0; i < INDIVIDUAL_COUNT; i++) {
+                consumer.accept(record(Arrays.asList("name"), Values.value("I" + i)));
+            }
+        } else if (query.startsWith("MATCH (i:Individual)-[:TypeOf]->")) {
+            for (int i = 0; i < INDIVIDUAL_COUNT; i++) {
+                consumer.accept(record(Arrays.asList("individual", "className"), Values.value("I" + i), Values.value("C" + i * 4)));
+            }
+        }
+    }
+
+    private static Record record(List<String> keys, Value... values) {
+        return new InternalRecord(keys, values);
+    }
+}
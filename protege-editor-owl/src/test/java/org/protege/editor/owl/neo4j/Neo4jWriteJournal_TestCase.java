@@ -0,0 +1,112 @@
+package org.protege.editor.owl.neo4j;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.protege.editor.owl.neo4j.CypherStatement.Phase;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class Neo4jWriteJournal_TestCase {
+
+    private static final CypherStatement MERGE_CLASS = CypherStatement.unwind(Phase.ADD_NODES, "MERGE (c:Class {name: row.key})");
+
+    private static final CypherStatement DELETE_CLASS = CypherStatement.unwind(Phase.REMOVE_NODES, "MATCH (c:Class {name: row.key}) DETACH DELETE c");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private OWLDataFactory dataFactory;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        dataFactory = OWLManager.getOWLDataFactory();
+        directory = temporaryFolder.newFolder("neo4j").toPath();
+    }
+
+    @Test
+    public void shouldKeepUnacknowledgedWritesAcrossRestarts() {
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            journal.append(Arrays.asList(declare("A", true), declare("B", true), declare("C", true)));
+            journal.acknowledge(1);
+        }
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            List<Neo4jWriteJournal.Entry> pending = journal.getPending(journal.getLastSequence());
+            assertThat(keys(pending), contains("B", "C"));
+            assertThat(pending.get(0).getRows().get(0).getStatement(), is(MERGE_CLASS));
+            assertThat(journal.hasPending(), is(true));
+        }
+    }
+
+    @Test
+    public void shouldCompactWritesThatCancelOut() {
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            journal.append(Arrays.asList(declare("A", true), declare("B", true)));
+            journal.append(Collections.singletonList(declare("A", false)));
+            assertThat(keys(journal.getPending(journal.getLastSequence())), contains("B"));
+        }
+    }
+
+    @Test
+    public void shouldNotCompactWritesOfTheSameAxiomInDifferentOntologies() {
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            journal.append(Arrays.asList(declare("O1", "A", true), declare("O2", "A", true)));
+            journal.append(Collections.singletonList(declare("O1", "A", false)));
+            List<Neo4jWriteJournal.Entry> pending = journal.getPending(journal.getLastSequence());
+            assertThat(keys(pending), contains("A"));
+            assertThat(pending.get(0).getSequence(), is(2L));
+            assertThat(pending.get(0).isAdd(), is(true));
+        }
+    }
+
+    @Test
+    public void shouldNotReplayAcknowledgedWrites() {
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            journal.append(Arrays.asList(declare("A", true), declare("B", true)));
+            journal.acknowledge(journal.getLastSequence());
+            journal.compact();
+            assertThat(journal.hasPending(), is(false));
+        }
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            assertThat(journal.getPending(Long.MAX_VALUE).isEmpty(), is(true));
+            List<Neo4jWriteJournal.Entry> appended = journal.append(Collections.singletonList(declare("C", true)));
+            assertThat(appended.get(0).getSequence(), is(3L));
+        }
+    }
+
+    private AxiomWrite declare(String name, boolean isAdd) {
+        return declare("O", name, isAdd);
+    }
+
+    private AxiomWrite declare(String ontologyName, String name, boolean isAdd) {
+        OWLOntologyID ontologyID = new OWLOntologyID(IRI.create("http://example.org/" + ontologyName));
+        OWLAxiom axiom = dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(IRI.create("http://example.org/graph#" + name)));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("key", name);
+        return new AxiomWrite(ontologyID, axiom, isAdd, Collections.singletonList(new CypherRow(isAdd ? MERGE_CLASS : DELETE_CLASS, parameters)));
+    }
+
+    private static List<String> keys(List<Neo4jWriteJournal.Entry> entries) {
+        return entries.stream()
+                      .map(entry -> (String) entry.getRows().get(0).getParameters().get("key"))
+                      .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,117 @@
+package org.protege.editor.owl.neo4j;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+import org.protege.editor.owl.neo4j.CypherStatement.Phase;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class Neo4jWritePipeline_TestCase {
+
+    private static final String NS = "http://example.org/graph#";
+
+    private static final CypherStatement SET_VALUE = CypherStatement.unwind(Phase.ADD_RELATIONSHIPS, "MATCH (i:Individual {iri: row.individual}) MERGE (i)-[:HasDataProperty]->(:DataProperty {iri: row.property}) SET i += row.values");
+
+    private static final CypherStatement DELETE_VALUE = CypherStatement.unwind(Phase.REMOVE_RELATIONSHIPS, "MATCH (i:Individual {iri: row.individual})-[r:HasDataProperty]->(:DataProperty {iri: row.property}) DELETE r SET i += row.values");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Neo4jManager neo4jManager;
+
+    @Mock
+    private Transaction transaction;
+
+    private OWLDataFactory dataFactory;
+
+    private Path directory;
+
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        dataFactory = OWLManager.getOWLDataFactory();
+        directory = temporaryFolder.newFolder("neo4j").toPath();
+        when(neo4jManager.isHealthy()).thenReturn(true);
+        when(neo4jManager.write(any(TransactionWork.class))).thenAnswer(invocation -> {
+            TransactionWork<?> work = (TransactionWork<?>) invocation.getArguments()[0];
+            return work.execute(transaction);
+        });
+        when(transaction.run(anyString(), anyMap())).thenAnswer(invocation -> {
+            queries.add((String) invocation.getArguments()[0]);
+            return null;
+        });
+    }
+
+    @Test
+    public void shouldRemoveBeforeAddingWhenTheWritesShareARow() throws Exception {
+        // Replacing a data property value removes and adds different axioms for the same individual and property
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            journal.append(Arrays.asList(assertValue("old", false), assertValue("new", true)));
+        }
+        Neo4jWritePipeline pipeline = new Neo4jWritePipeline(neo4jManager, new Neo4jWriteJournal(directory), 100, 100);
+        try {
+            waitForQueries(2);
+            assertThat(queries, contains(DELETE_VALUE.getQuery(), SET_VALUE.getQuery()));
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void shouldBatchWritesThatDoNotShareARow() throws Exception {
+        try (Neo4jWriteJournal journal = new Neo4jWriteJournal(directory)) {
+            journal.append(Arrays.asList(assertValue("i", "p", "old", false), assertValue("j", "q", "new", true)));
+        }
+        Neo4jWritePipeline pipeline = new Neo4jWritePipeline(neo4jManager, new Neo4jWriteJournal(directory), 100, 100);
+        try {
+            waitForQueries(2);
+            assertThat(queries, contains(SET_VALUE.getQuery(), DELETE_VALUE.getQuery()));
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    private void waitForQueries(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queries.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private AxiomWrite assertValue(String value, boolean isAdd) {
+        return assertValue("i", "p", value, isAdd);
+    }
+
+    private AxiomWrite assertValue(String individualName, String propertyName, String value, boolean isAdd) {
+        OWLNamedIndividual individual = dataFactory.getOWLNamedIndividual(IRI.create(NS + individualName));
+        OWLDataProperty property = dataFactory.getOWLDataProperty(IRI.create(NS + propertyName));
+        OWLAxiom axiom = dataFactory.getOWLDataPropertyAssertionAxiom(property, individual, value);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("individual", individual.getIRI().toString());
+        parameters.put("property", property.getIRI().toString());
+        parameters.put("values", Collections.singletonMap(propertyName, isAdd ? value : null));
+        return new AxiomWrite(new OWLOntologyID(IRI.create("http://example.org/graph")), axiom, isAdd, Collections.singletonList(new CypherRow(isAdd ? SET_VALUE : DELETE_VALUE, parameters)));
+    }
+}
@@ -0,0 +1,170 @@
+package org.protege.editor.owl.neo4j;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class SimpleHttpClient_TestCase {
+
+    private static final String EVENT_A = "{\"type\":\"Class\",\"props\":{\"name\":\"A\"},\"isAdd\":true}";
+
+    private static final String EVENT_B = "{\"type\":\"Class\",\"props\":{\"name\":\"B\"},\"isAdd\":true}";
+
+    private static final String EVENT_C = "{\"type\":\"Class\",\"props\":{\"name\":\"C\"},\"isAdd\":false}";
+
+    private HttpServer server;
+
+    private SimpleHttpClient client;
+
+    private final List<ElementEvent> received = new ArrayList<>();
+
+    private final CountDownLatch allReceived = new CountDownLatch(3);
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldReceiveEventsFromStream() throws Exception {
+        AtomicBoolean served = new AtomicBoolean();
+        server.createContext("/api/messages/", exchange -> {
+            if (!exchange.getRequestURI().getPath().endsWith("/stream") || served.getAndSet(true)) {
+                respond(exchange, 404, "");
+                return;
+            }
+            respond(exchange, 200, ": heartbeat\n\n" + "data: " + EVENT_A + "\n\n" + "data: [" + EVENT_B + "," + EVENT_C + "]\n\n");
+        });
+        client = new SimpleHttpClient(getUrl(), this::handle, true);
+
+        assertThat(allReceived.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(receivedNames(), contains("A", "B", "C"));
+    }
+
+    @Test
+    public void shouldFallBackToPollingWhenStreamIsNotAvailable() throws Exception {
+        AtomicBoolean served = new AtomicBoolean();
+        server.createContext("/api/messages/", exchange -> {
+            if (exchange.getRequestURI().getPath().endsWith("/stream")) {
+                respond(exchange, 404, "");
+            } else if (!served.getAndSet(true)) {
+                respond(exchange, 200, "[" + EVENT_A + "," + EVENT_B + "," + EVENT_C + "]");
+            } else {
+                respond(exchange, 200, "");
+            }
+        });
+        client = new SimpleHttpClient(getUrl(), this::handle, true);
+
+        assertThat(allReceived.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(receivedNames(), contains("A", "B", "C"));
+    }
+
+    @Test
+    public void shouldCoalesceQueuedEventsIntoOnePost() throws Exception {
+        CountDownLatch firstPostReceived = new CountDownLatch(1);
+        CountDownLatch releaseFirstPost = new CountDownLatch(1);
+        CountDownLatch secondPostReceived = new CountDownLatch(1);
+        List<String> bodies = new ArrayList<>();
+        server.createContext("/api/messages/", exchange -> {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 404, "");
+                return;
+            }
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            synchronized (bodies) {
+                bodies.add(body);
+            }
+            if (firstPostReceived.getCount() > 0) {
+                firstPostReceived.countDown();
+                awaitQuietly(releaseFirstPost);
+            } else {
+                secondPostReceived.countDown();
+            }
+            respond(exchange, 200, "");
+        });
+        client = new SimpleHttpClient(getUrl(), this::handle, false, 100, 100);
+
+        client.send(event("X", true));
+        assertThat(firstPostReceived.await(10, TimeUnit.SECONDS), is(true));
+        // The sender is blocked on the first post, so these are queued together
+        client.send(event("A", true));
+        client.send(event("B", true));
+        client.send(event("A", false));
+        assertThat(client.getQueueDepth(), is(1));
+        releaseFirstPost.countDown();
+
+        assertThat(secondPostReceived.await(10, TimeUnit.SECONDS), is(true));
+        synchronized (bodies) {
+            assertThat(bodies.size(), is(2));
+            assertThat(bodies.get(1), is("[" + EVENT_B + "]"));
+        }
+        assertThat(client.getCoalescedCount(), is(2L));
+    }
+
+    private static ElementEvent event(String name, boolean isAdd) {
+        Map<String, String> props = new HashMap<>();
+        props.put("name", name);
+        return new ElementEvent("Class", props, isAdd);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(List<ElementEvent> events) {
+        synchronized (received) {
+            received.addAll(events);
+        }
+        events.forEach(e -> allReceived.countDown());
+    }
+
+    private List<String> receivedNames() {
+        synchronized (received) {
+            return received.stream().map(e -> e.props.get("name")).collect(Collectors.toList());
+        }
+    }
+
+    private String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}